@@ -0,0 +1,88 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.entity.Appointment;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.service.AppointmentBookingService;
+import com.hivtreatment.service.DoctorService;
+import com.hivtreatment.service.PatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Đặt lịch đồng thời qua AppointmentBookingService: mỗi lời gọi lấy một khung giờ mới (rải trên các bác sĩ
+ * và các ngày xa trong tương lai, không đụng dữ liệu sinh sẵn), hoặc tranh một khung với luồng khác
+ * (một bên đặt được, một bên bị từ chối). Số luồng đổi bằng {@code -t}, ví dụ {@code -t 1}, {@code -t 200}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class BookingBenchmark {
+
+    // Khung 30 phút mặc định của SlotAvailabilityService
+    private static final int SLOTS_PER_DAY = 48;
+    private static final int SLOT_MINUTES = 30;
+
+    @State(Scope.Benchmark)
+    public static class Slots {
+
+        private final List<Doctor> doctors = new ArrayList<>();
+        private Patient patient;
+        private LocalDate firstDate;
+        private final AtomicLong nextSlot = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp(ClinicState state) {
+            DoctorService doctorService = state.bean(DoctorService.class);
+            for (int i = 1; i <= state.doctors; i++) {
+                doctors.add(doctorService.getDoctorByCode(CodeSequenceType.DOCTOR.format(i)).orElseThrow());
+            }
+            patient = state.bean(PatientService.class).getPatientByCode(state.randomPatientCode()).orElseThrow();
+            firstDate = LocalDate.now().plusYears(10);
+        }
+
+        Appointment request(long slot) {
+            Doctor doctor = doctors.get((int) (slot % doctors.size()));
+            long slotOfDoctor = slot / doctors.size();
+            LocalDate date = firstDate.plusDays(slotOfDoctor / SLOTS_PER_DAY);
+            LocalTime time = LocalTime.MIDNIGHT.plusMinutes(SLOT_MINUTES * (slotOfDoctor % SLOTS_PER_DAY));
+            return new Appointment(patient, doctor, date, time);
+        }
+    }
+
+    @Benchmark
+    public Appointment bookFreeSlot(ClinicState state, Slots slots) {
+        return state.bean(AppointmentBookingService.class).book(slots.request(slots.nextSlot.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Appointment bookContendedSlot(ClinicState state, Slots slots) {
+        // Hai lời gọi liên tiếp nhắm cùng một khung
+        try {
+            return state.bean(AppointmentBookingService.class).book(slots.request(slots.nextSlot.getAndIncrement() / 2));
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.datagen.ClinicDataGenerator;
+import com.hivtreatment.datagen.DataGenerationSpec;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.service.UserService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Một context Spring và một bộ dữ liệu tổng hợp cho mỗi fork. Khối lượng dữ liệu chỉnh bằng
+ * tham số JMH, ví dụ {@code -p patients=20000 -p doctors=200}.
+ */
+@State(Scope.Benchmark)
+public class ClinicState {
+
+    // Số người dùng lấy mẫu cho các phép đo theo người dùng (dashboard, thông báo)
+    private static final int SAMPLE_USERS = 100;
+
+    @Param("1000")
+    public int patients;
+
+    @Param("50")
+    public int doctors;
+
+    @Param("5")
+    public int appointmentsPerPatient;
+
+    @Param("6")
+    public int labResultsPerPatient;
+
+    @Param("2")
+    public int prescriptionsPerPatient;
+
+    @Param("5")
+    public int notificationsPerPatient;
+
+    @Param("1")
+    public int symptomReportsPerPatient;
+
+    @Param("42")
+    public long seed;
+
+    private AnnotationConfigApplicationContext context;
+    private final List<User> patientUsers = new ArrayList<>();
+    private final List<Authentication> patientLogins = new ArrayList<>();
+    private final List<Authentication> doctorLogins = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        context.getBean(ClinicDataGenerator.class).generate(DataGenerationSpec.builder()
+                .doctors(doctors)
+                .patients(patients)
+                .appointmentsPerPatient(appointmentsPerPatient)
+                .labResultsPerPatient(labResultsPerPatient)
+                .prescriptionsPerPatient(prescriptionsPerPatient)
+                .notificationsPerPatient(notificationsPerPatient)
+                .symptomReportsPerPatient(symptomReportsPerPatient)
+                .seed(seed)
+                .build());
+
+        UserService userService = context.getBean(UserService.class);
+        for (int i = 0; i < Math.min(SAMPLE_USERS, patients); i++) {
+            User user = userService.getUserByUsername(username(CodeSequenceType.PATIENT, 1 + i * patients / SAMPLE_USERS)).orElseThrow();
+            patientUsers.add(user);
+            patientLogins.add(login(user));
+        }
+        for (int i = 1; i <= Math.min(SAMPLE_USERS, doctors); i++) {
+            doctorLogins.add(login(userService.getUserByUsername(username(CodeSequenceType.DOCTOR, i)).orElseThrow()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public User randomPatientUser() {
+        return patientUsers.get(ThreadLocalRandom.current().nextInt(patientUsers.size()));
+    }
+
+    public Authentication randomPatientLogin() {
+        return patientLogins.get(ThreadLocalRandom.current().nextInt(patientLogins.size()));
+    }
+
+    public Authentication randomDoctorLogin() {
+        return doctorLogins.get(ThreadLocalRandom.current().nextInt(doctorLogins.size()));
+    }
+
+    public String randomPatientCode() {
+        return CodeSequenceType.PATIENT.format(1 + ThreadLocalRandom.current().nextInt(patients));
+    }
+
+    // Database mới: mã cấp từ 1, tên đăng nhập là mã viết thường
+    private static String username(CodeSequenceType type, long value) {
+        return type.format(value).toLowerCase();
+    }
+
+    private static Authentication login(User user) {
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+}
@@ -0,0 +1,60 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.controller.DashboardController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.ui.Model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dựng model của các dashboard theo vai trò (phần truy vấn dữ liệu, không render template).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardBenchmark {
+
+    @Benchmark
+    public Model patientDashboard(ClinicState state) {
+        Model model = new ExtendedModelMap();
+        state.bean(DashboardController.class).patientDashboard(state.randomPatientLogin(), model);
+        return model;
+    }
+
+    @Benchmark
+    public Model doctorDashboard(ClinicState state) {
+        Model model = new ExtendedModelMap();
+        state.bean(DashboardController.class).doctorDashboard(state.randomDoctorLogin(), model);
+        return model;
+    }
+
+    @Benchmark
+    public Model adminDashboard(ClinicState state) {
+        Model model = new ExtendedModelMap();
+        state.bean(DashboardController.class).adminDashboard(state.randomDoctorLogin(), model);
+        return model;
+    }
+
+    @Benchmark
+    public Model staffDashboard(ClinicState state) {
+        Model model = new ExtendedModelMap();
+        state.bean(DashboardController.class).staffDashboard(state.randomDoctorLogin(), model);
+        return model;
+    }
+
+    @Benchmark
+    public Model managerDashboard(ClinicState state) {
+        Model model = new ExtendedModelMap();
+        state.bean(DashboardController.class).managerDashboard(state.randomDoctorLogin(), model);
+        return model;
+    }
+}
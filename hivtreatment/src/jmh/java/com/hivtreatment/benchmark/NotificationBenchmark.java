@@ -0,0 +1,45 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.service.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Các đường tạo thông báo: thông báo đơn lẻ, nhắc lịch hẹn và nhắc uống thuốc (kèm email vào outbox).
+ * Bảng thông báo lớn dần trong lúc đo, giống tải thật.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationBenchmark {
+
+    @Benchmark
+    public Notification createNotification(ClinicState state) {
+        return state.bean(NotificationService.class).createNotification(
+                new Notification(state.randomPatientUser(), "Thông báo", "Nội dung thông báo", "SYSTEM"));
+    }
+
+    @Benchmark
+    public void sendAppointmentReminder(ClinicState state) {
+        state.bean(NotificationService.class).sendAppointmentReminder(
+                state.randomPatientUser(), LocalDateTime.now().plusDays(1), "BS. Minh Trần");
+    }
+
+    @Benchmark
+    public void sendMedicationDigest(ClinicState state) {
+        state.bean(NotificationService.class).sendMedicationDigest(
+                state.randomPatientUser(), List.of("TDF/3TC/DTG", "Cotrimoxazole"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.UserRepository;
+import com.hivtreatment.service.CodeAllocator;
+import com.hivtreatment.service.PatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cấp mã hi-lo và đăng ký bệnh nhân hàng loạt (mã mới, tài khoản và hồ sơ) khi nhiều luồng cùng chạy.
+ * Số luồng đổi bằng {@code -t}, ví dụ {@code -t 1}, {@code -t 4}, {@code -t 16} để xem độ co giãn.
+ * Tài khoản ghi thẳng qua repository, không băm mật khẩu, để phép đo không bị BCrypt chi phối.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class RegistrationBenchmark {
+
+    @Benchmark
+    public String allocateCode(ClinicState state) {
+        return state.bean(CodeAllocator.class).nextCode(CodeSequenceType.DOCTOR);
+    }
+
+    @Benchmark
+    public Patient registerPatient(ClinicState state) {
+        PatientService patientService = state.bean(PatientService.class);
+        String code = patientService.generatePatientCode();
+        String username = code.toLowerCase();
+        User user = new User(username, username + "@example.com", "secret", UserRole.PATIENT);
+        user.setFirstName("Bệnh nhân");
+        user.setLastName(code);
+        state.bean(UserRepository.class).save(user);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(code);
+        patient.setFirstName(user.getFirstName());
+        patient.setLastName(user.getLastName());
+        return patientService.createPatient(patient);
+    }
+}
@@ -0,0 +1,36 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Báo cáo năm và báo cáo tháng của quản lý.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Benchmark
+    public Map<String, Object> annualReport(ClinicState state) {
+        return state.bean(ReportService.class).getAnnualReport(LocalDate.now().getYear());
+    }
+
+    @Benchmark
+    public Map<String, Object> monthlyReport(ClinicState state) {
+        LocalDate lastMonth = LocalDate.now().minusMonths(1);
+        return state.bean(ReportService.class).getMonthlyReport(lastMonth.getYear(), lastMonth.getMonthValue());
+    }
+}
@@ -0,0 +1,62 @@
+package com.hivtreatment.benchmark;
+
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.DoctorSearchParams;
+import com.hivtreatment.dto.LabResultSearchParams;
+import com.hivtreatment.dto.PatientSearchParams;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.service.DoctorService;
+import com.hivtreatment.service.LabResultService;
+import com.hivtreatment.service.PatientService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Các màn hình tìm kiếm: bệnh nhân, danh bạ bác sĩ và kết quả xét nghiệm (trang đầu, có đếm tổng).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Benchmark
+    public Page<Patient> searchPatientsByKeyword(ClinicState state) {
+        return state.bean(PatientService.class).searchPatients(
+                PatientSearchParams.builder().search("Nguyễn").build(), PageRequest.of(0, 20, Sort.by("id")));
+    }
+
+    @Benchmark
+    public Page<Doctor> searchDoctorDirectory(ClinicState state) {
+        return state.bean(DoctorService.class).searchDirectory(
+                DoctorSearchParams.builder().specialization("truyền").available(true).build(),
+                PageRequest.of(0, 20, Sort.by(Sort.Order.desc("averageRating"), Sort.Order.asc("id"))));
+    }
+
+    @Benchmark
+    public CursorPage<LabResult> searchLabResultsByTypeAndStatus(ClinicState state) {
+        return state.bean(LabResultService.class).searchLabResults(LabResultSearchParams.builder()
+                .testType("VIRAL_LOAD").status("ABNORMAL").startDate(LocalDate.now().minusYears(1)).build(),
+                null, null, 20, true);
+    }
+
+    @Benchmark
+    public CursorPage<LabResult> searchLabResultsByPatientCode(ClinicState state) {
+        return state.bean(LabResultService.class).searchLabResults(LabResultSearchParams.builder()
+                .patientCode(state.randomPatientCode()).build(), null, null, 20, false);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hivtreatment.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cache dữ liệu danh mục (phác đồ ARV, thuốc, tài liệu giáo dục, chuyên khoa bác sĩ).
+ *
+ * Dữ liệu này chỉ đổi vài lần mỗi tháng nhưng được đọc ở mỗi lần render form kê đơn, danh bạ bác sĩ,
+ * trang giáo dục. Mỗi cache giới hạn số mục và TTL; các service xóa cache tương ứng khi ghi.
+ * Cache nằm trong bộ nhớ từng node, nên node khác thấy thay đổi chậm tối đa một TTL.
+ *
+ * Cache careCascade giữ kết quả phân tích chuỗi chăm sóc theo ngày chốt, với TTL theo kỳ đã đóng/đang mở.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ARV_PROTOCOLS = "arvProtocols";
+    public static final String MEDICATIONS = "medications";
+    public static final String EDUCATIONAL_RESOURCES = "educationalResources";
+    public static final String DOCTOR_SPECIALIZATIONS = "doctorSpecializations";
+
+    public static final List<String> REFERENCE_CACHES =
+            List.of(ARV_PROTOCOLS, MEDICATIONS, EDUCATIONAL_RESOURCES, DOCTOR_SPECIALIZATIONS);
+
+    // Khối dữ liệu chuỗi chăm sóc theo ngày chốt; xem CohortAnalyticsService
+    public static final String CARE_CASCADE = "careCascade";
+
+    @Value("${hiv.cache.reference.max-entries:200}")
+    private long maxEntries;
+
+    @Value("${hiv.cache.reference.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${hiv.cohort.cache.closed-ttl-hours:24}")
+    private long closedPeriodTtlHours;
+
+    @Value("${hiv.cohort.cache.current-ttl-seconds:300}")
+    private long currentPeriodTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+        caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats());
+        // Chỉ các cache khai báo ở đây; tên lạ trong @Cacheable sẽ báo lỗi thay vì tạo cache không giới hạn
+        caffeineCacheManager.setCacheNames(REFERENCE_CACHES);
+        caffeineCacheManager.registerCustomCache(CARE_CASCADE, Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new PeriodExpiry(Duration.ofHours(closedPeriodTtlHours),
+                        Duration.ofSeconds(currentPeriodTtlSeconds)))
+                .recordStats()
+                .build());
+        caffeineCacheManager.setAllowNullValues(false);
+        // Xóa/ghi cache sau khi transaction commit, để request khác không nạp lại dữ liệu cũ chưa commit
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+
+    /**
+     * Khóa là ngày chốt số liệu: kỳ đã đóng (trước hôm nay) gần như không đổi nên giữ lâu,
+     * còn số liệu tính đến hôm nay chỉ giữ vài phút.
+     */
+    static class PeriodExpiry implements Expiry<Object, Object> {
+        private final long closedNanos;
+        private final long currentNanos;
+
+        PeriodExpiry(Duration closedTtl, Duration currentTtl) {
+            this.closedNanos = closedTtl.toNanos();
+            this.currentNanos = currentTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return key instanceof LocalDate date && date.isBefore(LocalDate.now()) ? closedNanos : currentNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.hivtreatment.config;
+
+import com.hivtreatment.service.EmailOutboxService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Số liệu riêng của ứng dụng, bổ sung cho các số liệu Spring Boot Actuator tự ghi
+ * (http.server.requests, spring.data.repository.invocations, tasks.scheduled.execution,
+ * hikaricp.connections.*, cache.gets). Tất cả được xuất qua /actuator/prometheus.
+ *
+ * Bộ đếm thông báo đã gửi/lỗi (hiv.notifications.sent, hiv.notifications.failed) được ghi trực tiếp
+ * trong NotificationService và EmailDispatcher qua Metrics.globalRegistry; thời gian chạy và số mục đã xử lý
+ * của từng job cụm (hiv.jobs.execution, hiv.jobs.items, tag job) được ghi trong ClusterJobRunner.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String NOTIFICATIONS_SENT = "hiv.notifications.sent";
+    public static final String NOTIFICATIONS_FAILED = "hiv.notifications.failed";
+    public static final String JOB_EXECUTION = "hiv.jobs.execution";
+    public static final String JOB_ITEMS = "hiv.jobs.items";
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Độ sâu hàng đợi email: đếm trong database mỗi lần scrape (truy vấn theo cột status có index)
+    @Bean
+    public MeterBinder mailQueueMetrics() {
+        return registry -> {
+            Gauge.builder("hiv.mail.outbox.pending", emailOutboxService, EmailOutboxService::countPending)
+                    .description("Email đang chờ gửi trong outbox")
+                    .register(registry);
+            Gauge.builder("hiv.mail.outbox.dead", emailOutboxService, EmailOutboxService::countDead)
+                    .description("Email đã hết số lần thử lại")
+                    .register(registry);
+        };
+    }
+
+    // Tỷ lệ hit theo từng cache Caffeine, tính từ lúc node khởi động
+    @Bean
+    public MeterBinder cacheHitRatioMetrics() {
+        return registry -> {
+            for (String name : cacheManager.getCacheNames()) {
+                Gauge.builder("hiv.cache.hit.ratio", cacheManager, manager -> hitRate(manager, name))
+                        .tag("cache", name)
+                        .description("Tỷ lệ hit của cache")
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRate(CacheManager cacheManager, String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            return caffeine.stats().hitRate();
+        }
+        return Double.NaN;
+    }
+}
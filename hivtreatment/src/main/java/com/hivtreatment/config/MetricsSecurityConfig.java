@@ -0,0 +1,55 @@
+package com.hivtreatment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * Bảo vệ /actuator/prometheus bằng HTTP Basic với một tài khoản scrape riêng (vai trò METRICS),
+ * tách khỏi đăng nhập form của người dùng. Mật khẩu đặt qua hiv.metrics.scrape-password theo dạng
+ * {id}giá-trị của DelegatingPasswordEncoder, ví dụ {bcrypt}$2a$10$... ; để trống thì mọi lần scrape bị từ chối.
+ */
+@Configuration
+public class MetricsSecurityConfig {
+
+    public static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
+    @Value("${hiv.metrics.scrape-username:prometheus}")
+    private String scrapeUsername;
+
+    @Value("${hiv.metrics.scrape-password:}")
+    private String scrapePassword;
+
+    // Xếp trước filter chain chính trong SecurityConfig
+    @Bean
+    @Order(1)
+    public SecurityFilterChain metricsFilterChain(HttpSecurity http) throws Exception {
+        http
+            .securityMatcher(PROMETHEUS_PATH)
+            .authorizeHttpRequests(authz -> authz.anyRequest().hasRole("METRICS"))
+            .httpBasic(Customizer.withDefaults())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authenticationManager(new ProviderManager(scrapeAuthenticationProvider()));
+        return http.build();
+    }
+
+    private DaoAuthenticationProvider scrapeAuthenticationProvider() {
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+        if (scrapePassword != null && !scrapePassword.isBlank()) {
+            users.createUser(User.withUsername(scrapeUsername).password(scrapePassword).roles("METRICS").build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(users);
+        provider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        return provider;
+    }
+}
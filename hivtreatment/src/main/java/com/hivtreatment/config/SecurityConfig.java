@@ -1,6 +1,7 @@
 package com.hivtreatment.config;
 
 import com.hivtreatment.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -44,7 +45,12 @@ public class SecurityConfig {
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .authorizeHttpRequests(authz -> authz
-                .requestMatchers("/", "/home", "/about", "/contact", "/blog/**", "/faq", "/register", "/css/**", "/js/**", "/images/**").permitAll()
+                // Dispatch ASYNC khi luồng SSE kết thúc đã được xác thực ở request gốc
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                .requestMatchers("/", "/home", "/about", "/contact", "/blog/**", "/search", "/faq", "/register", "/css/**", "/js/**", "/images/**").permitAll()
+                // Health cho hệ thống giám sát; scrape Prometheus đi qua MetricsSecurityConfig, còn lại chỉ dành cho admin
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/manager/**").hasAnyRole("MANAGER", "ADMIN")
                 .requestMatchers("/doctor/**").hasAnyRole("DOCTOR", "MANAGER", "ADMIN")
@@ -5,6 +5,8 @@ import com.hivtreatment.dto.PatientSearchParams;
 import com.hivtreatment.dto.PatientStatsDTO;
 import com.hivtreatment.dto.MonthlyReportDTO;
 import com.hivtreatment.dto.AnnualReportDTO;
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.CacheStatsDTO;
 
 import com.hivtreatment.entity.*;
 import com.hivtreatment.enums.UserRole;
@@ -17,6 +19,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -24,6 +27,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -65,6 +69,24 @@ private HIVPatientProfileService hivPatientProfileService;
     @Autowired
     private SymptomReportService symptomReportService;
 
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @Autowired
+    private JobRunService jobRunService;
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
     @GetMapping("/dashboard")
     public String adminDashboard(Model model) {
         // Get comprehensive dashboard statistics
@@ -101,28 +123,46 @@ private HIVPatientProfileService hivPatientProfileService;
     @GetMapping("/users")
     public String listUsers(@RequestParam(defaultValue = "0") int page,
                            @RequestParam(defaultValue = "20") int size,
+                           @RequestParam(required = false) String after,
+                           @RequestParam(required = false) String before,
+                           @RequestParam(defaultValue = "false") boolean skipCount,
                            @RequestParam(required = false) String search,
                            @RequestParam(required = false) UserRole role,
                            @RequestParam(required = false) Boolean isActive,
                            Model model) {
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        
-        Page<User> userPage;
-        if (search != null && !search.isEmpty()) {
-            userPage = userService.searchUsers(search, pageable);
-        } else if (role != null) {
-            userPage = userService.getUsersByRole(role, pageable);
-        } else if (isActive != null) {
-            userPage = userService.getUsersByActiveStatus(isActive, pageable);
+        boolean hasSearch = search != null && !search.isEmpty();
+        if (!hasSearch && CursorPageModel.useKeyset(page, after, before)) {
+            CursorPage<User> userCursor;
+            try {
+                userCursor = userService.scrollUsers(role, isActive, after, before, size, !skipCount);
+            } catch (IllegalArgumentException e) {
+                userCursor = userService.scrollUsers(role, isActive, null, null, size, !skipCount);
+                model.addAttribute("errorMessage", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+            }
+            model.addAttribute("users", userCursor.getContent());
+            CursorPageModel.addAttributes(model, userCursor);
         } else {
-            userPage = userService.getAllUsers(pageable);
+            // Cùng thứ tự với trang keyset để ?page=N tiếp nối đúng trang đầu
+            Pageable pageable = PageRequest.of(page, size, UserService.KEYSET_SORT);
+            
+            Page<User> userPage;
+            if (hasSearch) {
+                userPage = userService.searchUsers(search, pageable);
+            } else if (role != null) {
+                userPage = userService.getUsersByRole(role, pageable);
+            } else if (isActive != null) {
+                userPage = userService.getUsersByActiveStatus(isActive, pageable);
+            } else {
+                userPage = userService.getAllUsers(pageable);
+            }
+            
+            model.addAttribute("users", userPage.getContent());
+            model.addAttribute("totalPages", userPage.getTotalPages());
+            model.addAttribute("totalElements", userPage.getTotalElements());
         }
         
-        model.addAttribute("users", userPage.getContent());
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", userPage.getTotalPages());
-        model.addAttribute("totalElements", userPage.getTotalElements());
         model.addAttribute("searchKeyword", search);
         model.addAttribute("selectedRole", role);
         model.addAttribute("selectedStatus", isActive);
@@ -256,14 +296,15 @@ private HIVPatientProfileService hivPatientProfileService;
     @GetMapping("/patients")
     public String listPatients(@RequestParam(defaultValue = "0") int page,
                               @RequestParam(defaultValue = "12") int size,
+                              @RequestParam(required = false) String after,
+                              @RequestParam(required = false) String before,
+                              @RequestParam(defaultValue = "false") boolean skipCount,
                               @RequestParam(required = false) String search,
                               @RequestParam(required = false) String treatmentStatus,
                               @RequestParam(required = false) String gender,
                               @RequestParam(required = false) Long doctorId,
                               Model model) {
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("updatedAt").descending());
-        
         // Build search parameters
         PatientSearchParams searchParams = PatientSearchParams.builder()
             .search(search)
@@ -272,15 +313,30 @@ private HIVPatientProfileService hivPatientProfileService;
             .doctorId(doctorId)
             .build();
         
-        Page<Patient> patientPage = patientService.searchPatients(searchParams, pageable);
+        if (CursorPageModel.useKeyset(page, after, before)) {
+            CursorPage<Patient> patientCursor;
+            try {
+                patientCursor = patientService.scrollPatients(searchParams, after, before, size, !skipCount);
+            } catch (IllegalArgumentException e) {
+                patientCursor = patientService.scrollPatients(searchParams, null, null, size, !skipCount);
+                model.addAttribute("errorMessage", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+            }
+            model.addAttribute("patients", patientCursor.getContent());
+            model.addAttribute("totalPatients", patientCursor.getTotalElements());
+            CursorPageModel.addAttributes(model, patientCursor);
+        } else {
+            // Cùng thứ tự với trang keyset; id không đổi khi sửa hồ sơ nên bệnh nhân không nhảy trang
+            Pageable pageable = PageRequest.of(page, size, PatientService.KEYSET_SORT);
+            Page<Patient> patientPage = patientService.searchPatients(searchParams, pageable);
+            model.addAttribute("patients", patientPage.getContent());
+            model.addAttribute("totalPages", patientPage.getTotalPages());
+            model.addAttribute("totalPatients", patientPage.getTotalElements());
+        }
         
         // Get available doctors for filter
         List<Doctor> doctors = doctorService.getAvailableDoctors();
         
-        model.addAttribute("patients", patientPage.getContent());
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", patientPage.getTotalPages());
-        model.addAttribute("totalPatients", patientPage.getTotalElements());
         model.addAttribute("activePatients", patientService.getActivePatientCount());
         model.addAttribute("doctors", doctors);
         model.addAttribute("searchParams", searchParams);
@@ -471,6 +527,9 @@ public String annualReport(@RequestParam(defaultValue = "2024") int year, Model
     @GetMapping("/symptom-reports")
     public String adminSymptomReports(@RequestParam(defaultValue = "0") int page,
                                      @RequestParam(defaultValue = "15") int size,
+                                     @RequestParam(required = false) String after,
+                                     @RequestParam(required = false) String before,
+                                     @RequestParam(defaultValue = "false") boolean skipCount,
                                      @RequestParam(required = false) String status,
                                      @RequestParam(required = false) String severity,
                                      @RequestParam(required = false) String search,
@@ -478,22 +537,45 @@ public String annualReport(@RequestParam(defaultValue = "2024") int year, Model
                                      @RequestParam(required = false) Long doctorId,
                                      Model model) {
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        
-        Page<SymptomReport> reportPage;
-        
-        if (search != null && !search.isEmpty()) {
-            reportPage = symptomReportService.searchReports(search, pageable);
-        } else if (patientId != null) {
-            reportPage = symptomReportService.getReportsByPatient(patientId, pageable);
-        } else if (doctorId != null) {
-            reportPage = symptomReportService.getReportsByDoctor(doctorId, pageable);
-        } else if (status != null && !status.isEmpty()) {
-            reportPage = symptomReportService.getReportsByStatus(ReportStatus.valueOf(status), pageable);
-        } else if (severity != null && !severity.isEmpty()) {
-            reportPage = symptomReportService.getReportsBySeverity(SymptomSeverity.valueOf(severity), pageable);
+        boolean hasSearch = search != null && !search.isEmpty();
+        if (!hasSearch && CursorPageModel.useKeyset(page, after, before)) {
+            ReportStatus reportStatus = (status != null && !status.isEmpty()) ? ReportStatus.valueOf(status) : null;
+            SymptomSeverity reportSeverity = (severity != null && !severity.isEmpty()) ? SymptomSeverity.valueOf(severity) : null;
+            
+            CursorPage<SymptomReport> reportCursor;
+            try {
+                reportCursor = symptomReportService.scrollReports(reportStatus, reportSeverity, patientId, doctorId,
+                        after, before, size, !skipCount);
+            } catch (IllegalArgumentException e) {
+                reportCursor = symptomReportService.scrollReports(reportStatus, reportSeverity, patientId, doctorId,
+                        null, null, size, !skipCount);
+                model.addAttribute("errorMessage", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+            }
+            model.addAttribute("reports", reportCursor.getContent());
+            CursorPageModel.addAttributes(model, reportCursor);
         } else {
-            reportPage = symptomReportService.getAllReports(pageable);
+            // Cùng thứ tự với trang keyset để ?page=N tiếp nối đúng trang đầu
+            Pageable pageable = PageRequest.of(page, size, UserService.KEYSET_SORT);
+            
+            Page<SymptomReport> reportPage;
+            
+            if (hasSearch) {
+                reportPage = symptomReportService.searchReports(search, pageable);
+            } else if (patientId != null) {
+                reportPage = symptomReportService.getReportsByPatient(patientId, pageable);
+            } else if (doctorId != null) {
+                reportPage = symptomReportService.getReportsByDoctor(doctorId, pageable);
+            } else if (status != null && !status.isEmpty()) {
+                reportPage = symptomReportService.getReportsByStatus(ReportStatus.valueOf(status), pageable);
+            } else if (severity != null && !severity.isEmpty()) {
+                reportPage = symptomReportService.getReportsBySeverity(SymptomSeverity.valueOf(severity), pageable);
+            } else {
+                reportPage = symptomReportService.getAllReports(pageable);
+            }
+            
+            model.addAttribute("reports", reportPage.getContent());
+            model.addAttribute("totalPages", reportPage.getTotalPages());
+            model.addAttribute("totalElements", reportPage.getTotalElements());
         }
         
         // Get statistics
@@ -505,10 +587,7 @@ public String annualReport(@RequestParam(defaultValue = "2024") int year, Model
         // Get doctors for filter
         List<Doctor> doctors = doctorService.getAvailableDoctors();
         
-        model.addAttribute("reports", reportPage.getContent());
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", reportPage.getTotalPages());
-        model.addAttribute("totalElements", reportPage.getTotalElements());
         model.addAttribute("selectedStatus", status);
         model.addAttribute("selectedSeverity", severity);
         model.addAttribute("searchKeyword", search);
@@ -576,7 +655,83 @@ public String annualReport(@RequestParam(defaultValue = "2024") int year, Model
         return "redirect:/admin/symptom-reports/" + id;
     }
 
+    // Tính lại bảng tổng hợp daily_stats cho dữ liệu lịch sử
+    @PostMapping("/reports/daily-stats/backfill")
+    public String backfillDailyStats(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     RedirectAttributes redirectAttributes) {
+        try {
+            int days = dailyStatsService.backfill(from, to != null ? to : LocalDate.now());
+            redirectAttributes.addFlashAttribute("successMessage", "Đã tổng hợp lại " + days + " ngày thống kê!");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Không thể tổng hợp thống kê: " + e.getMessage());
+        }
+        return "redirect:/admin/reports";
+    }
+
+    // Email outbox: hàng đợi và các email gửi thất bại hẳn (dead letter)
+    @GetMapping("/email-outbox")
+    public String emailOutbox(@RequestParam(defaultValue = "0") int page,
+                              @RequestParam(defaultValue = "20") int size,
+                              Model model) {
+        model.addAttribute("deadLetters", emailOutboxService.getDeadLetters(PageRequest.of(page, size)));
+        model.addAttribute("pendingCount", emailOutboxService.countPending());
+        model.addAttribute("deadCount", emailOutboxService.countDead());
+        return "admin/email-outbox";
+    }
+
+    @PostMapping("/email-outbox/{id}/retry")
+    public String retryEmail(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        if (emailOutboxService.requeue(id)) {
+            redirectAttributes.addFlashAttribute("successMessage", "Đã đưa email vào hàng đợi gửi lại!");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage", "Không tìm thấy email thất bại!");
+        }
+        return "redirect:/admin/email-outbox";
+    }
+
     // AJAX endpoints
+    // Số liệu job định kỳ: số liệu của node hiện tại và các lần chạy gần đây trên toàn cụm
+    @GetMapping("/jobs")
+    @ResponseBody
+    public Map<String, Object> getJobMetrics() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("nodeId", clusterJobRunner.getNodeId());
+        result.put("metrics", clusterJobRunner.getMetrics());
+        result.put("recentRuns", jobRunService.getRecentRuns());
+        return result;
+    }
+
+    // Hit/miss của cache dữ liệu danh mục trên node hiện tại
+    @GetMapping("/caches")
+    @ResponseBody
+    public List<CacheStatsDTO> getCacheStats() {
+        return cacheStatsService.getReferenceCacheStats();
+    }
+
+    @PostMapping("/caches/clear")
+    @ResponseBody
+    public List<CacheStatsDTO> clearCaches() {
+        cacheStatsService.clearReferenceCaches();
+        return cacheStatsService.getReferenceCacheStats();
+    }
+
+    // Dựng lại chỉ mục tìm kiếm của node này từ database
+    @PostMapping("/search/rebuild")
+    @ResponseBody
+    public Map<String, Object> rebuildSearchIndex() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("indexed", fullTextSearchService.rebuild());
+            result.put("documents", fullTextSearchService.getIndexedDocumentCount());
+            result.put("lastSyncedAt", fullTextSearchService.getLastSyncedAt());
+        } catch (Exception e) {
+            System.err.println("Failed to rebuild search index: " + e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
     @GetMapping("/dashboard/chart-data")
     @ResponseBody
     public Map<String, Object> getChartData(@RequestParam String period) {
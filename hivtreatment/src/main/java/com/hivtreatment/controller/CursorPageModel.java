@@ -0,0 +1,37 @@
+package com.hivtreatment.controller;
+
+import com.hivtreatment.dto.CursorPage;
+import org.springframework.ui.Model;
+
+/**
+ * Đưa thông tin phân trang keyset vào model cho các màn hình danh sách.
+ * Link "trang sau"/"trang trước" dùng ?after={nextCursor} và ?before={previousCursor}.
+ */
+final class CursorPageModel {
+
+    private CursorPageModel() {}
+
+    /**
+     * Dùng keyset cho trang đầu và mọi yêu cầu có cursor;
+     * tham số page > 0 (OFFSET) chỉ còn để tương thích với link cũ.
+     */
+    static boolean useKeyset(int page, String after, String before) {
+        return page == 0 || hasText(after) || hasText(before);
+    }
+
+    static void addAttributes(Model model, CursorPage<?> page) {
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("previousCursor", page.getPreviousCursor());
+        model.addAttribute("hasNext", page.isHasNext());
+        model.addAttribute("hasPrevious", page.isHasPrevious());
+        model.addAttribute("pageSize", page.getSize());
+        if (page.isCounted()) {
+            model.addAttribute("totalPages", page.getTotalPages());
+            model.addAttribute("totalElements", page.getTotalElements());
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
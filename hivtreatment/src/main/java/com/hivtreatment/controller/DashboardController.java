@@ -3,6 +3,7 @@ package com.hivtreatment.controller;
 import com.hivtreatment.entity.*;
 import com.hivtreatment.service.*;
 import com.hivtreatment.dto.*;
+import com.hivtreatment.enums.CohortDimension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -10,7 +11,8 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 
-// import java.time.LocalDate;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
 // import java.time.LocalDateTime;
 import java.util.*;
 
@@ -30,6 +32,9 @@ public class DashboardController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
     @Autowired
     private PrescriptionService prescriptionService;
 
@@ -39,6 +44,12 @@ public class DashboardController {
     @Autowired
     private HIVPatientProfileService hivPatientProfileService;
 
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Autowired
+    private CohortAnalyticsService cohortAnalyticsService;
+
     // @Autowired
     // private NotificationService notificationService;
 
@@ -106,6 +117,7 @@ public class DashboardController {
         // Recent lab results
         List<LabResult> recentLabResults = labResultService.getRecentLabResultsByPatient(patient.getId(), 5);
         model.addAttribute("recentLabResults", recentLabResults);
+        model.addAttribute("latestLabResults", labResultService.getLatestLabResults(patient.getId()));
 
         // Treatment progress
         int treatmentProgress = calculateTreatmentProgress(patient, hivProfile);
@@ -224,11 +236,14 @@ public class DashboardController {
         // Add system alerts logic here
         model.addAttribute("systemAlerts", systemAlerts);
 
-        // Chart data
+        // Chart data (7 ngày gần nhất, đọc từ bảng tổng hợp daily_stats)
+        List<DailyStats> lastWeek = dailyStatsService.getStats(LocalDate.now().minusDays(6), LocalDate.now());
         Map<String, Object> chartData = new HashMap<>();
-        chartData.put("activityLabels", Arrays.asList("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"));
-        chartData.put("appointmentData", Arrays.asList(65, 59, 80, 81, 56, 55, 40));
-        chartData.put("prescriptionData", Arrays.asList(28, 48, 40, 19, 86, 27, 90));
+        chartData.put("activityLabels", lastWeek.stream()
+                .map(day -> day.getStatDate().getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.ENGLISH))
+                .toList());
+        chartData.put("appointmentData", lastWeek.stream().map(DailyStats::getTotalAppointments).toList());
+        chartData.put("prescriptionData", lastWeek.stream().map(DailyStats::getPrescriptions).toList());
         chartData.put("consultationData", Arrays.asList(18, 28, 30, 29, 46, 37, 60));
         chartData.put("userDistributionData", Arrays.asList(69, 15, 12, 4));
         model.addAttribute("chartData", chartData);
@@ -296,19 +311,28 @@ public class DashboardController {
     @GetMapping("/manager")
     public String managerDashboard(Authentication auth, Model model) {
         // KPIs
+        // Chuỗi chăm sóc đọc từ cache theo ngày chốt; kỳ trước đã đóng nên gần như luôn trúng cache
+        LocalDate today = LocalDate.now();
+        CareCascadeDTO careCascade = cohortAnalyticsService.getCareCascade(today);
+        CareCascadeDTO previousCascade = cohortAnalyticsService.getCareCascade(today.withDayOfMonth(1).minusDays(1));
+
         Map<String, Object> kpis = new HashMap<>();
         kpis.put("monthlyRevenue", "2.5M");
-        kpis.put("totalPatients", "1,234");
+        kpis.put("totalPatients", String.format("%,d", careCascade.getDiagnosed()));
+        kpis.put("viralSuppressionRate", careCascade.getSuppressionRate() + "%");
         kpis.put("operationalEfficiency", "87%");
         kpis.put("patientSatisfaction", "4.8");
         kpis.put("totalStaff", "89");
         kpis.put("overallGrowth", "+15%");
         kpis.put("revenueGrowth", "+12%");
-        kpis.put("patientGrowth", "+8%");
+        kpis.put("patientGrowth", formatGrowth(careCascade.getDiagnosed(), previousCascade.getDiagnosed()));
         kpis.put("efficiencyChange", "+3%");
         kpis.put("satisfactionChange", "0%");
         kpis.put("staffGrowth", "+5%");
         model.addAttribute("kpis", kpis);
+        model.addAttribute("careCascade", careCascade);
+        model.addAttribute("cascadeByStage", cohortAnalyticsService.getCareCascade(today, CohortDimension.HIV_STAGE));
+        model.addAttribute("cascadeByAgeBand", cohortAnalyticsService.getCareCascade(today, CohortDimension.AGE_BAND));
 
         // Overall performance
         model.addAttribute("overallPerformance", 87);
@@ -388,6 +412,12 @@ public class DashboardController {
     }
 
     // Helper methods
+    private String formatGrowth(long current, long previous) {
+        if (previous == 0) return current > 0 ? "+100%" : "0%";
+        long growth = Math.round((current - previous) * 100.0 / previous);
+        return (growth > 0 ? "+" : "") + growth + "%";
+    }
+
     private int calculateTreatmentProgress(Patient patient, HIVPatientProfile hivProfile) {
         int progress = 0;
 
@@ -423,12 +453,12 @@ public class DashboardController {
         List<Map<String, Object>> timeline = new ArrayList<>();
 
         // Add recent appointments, prescriptions, lab results
-        List<Appointment> recentAppointments = appointmentService.findRecentByPatientId(patient.getId(), 3);
-        for (Appointment appointment : recentAppointments) {
+        List<AppointmentSummaryDTO> recentAppointments = appointmentService.findRecentSummariesByPatientId(patient.getId(), 3);
+        for (AppointmentSummaryDTO appointment : recentAppointments) {
             Map<String, Object> event = new HashMap<>();
             event.put("type", "appointment");
             event.put("title", "Khám định kỳ");
-            event.put("description", "Khám với " + appointment.getDoctor().getFullName());
+            event.put("description", "Khám với " + appointment.getDoctorName());
             event.put("date", appointment.getAppointmentDate());
             timeline.add(event);
         }
@@ -436,19 +466,18 @@ public class DashboardController {
         return timeline;
     }
 
+    // Khung giờ hôm nay của cả phòng khám, lấy từ chỉ mục lịch làm việc/lịch đã đặt
     private List<Map<String, Object>> buildTodayTimeSlots() {
         List<Map<String, Object>> timeSlots = new ArrayList<>();
 
-        // Generate time slots from 8:00 to 17:00
-        for (int hour = 8; hour < 17; hour++) {
+        int id = 0;
+        for (SlotSummaryDTO summary : slotAvailabilityService.getDaySummary(LocalDate.now())) {
             Map<String, Object> slot = new HashMap<>();
-            slot.put("id", hour);
-            slot.put("time", String.format("%02d:00", hour));
-            slot.put("isBooked", Math.random() > 0.5); // Random for demo
-            if ((Boolean) slot.get("isBooked")) {
-                slot.put("patientName", "Nguyễn Văn A");
-                slot.put("doctorName", "BS. Nguyễn Thị B");
-            }
+            slot.put("id", id++);
+            slot.put("time", summary.getTime().toString());
+            slot.put("isBooked", summary.isFullyBooked());
+            slot.put("scheduledDoctors", summary.getScheduledDoctors());
+            slot.put("freeDoctors", summary.getFreeDoctors());
             timeSlots.add(slot);
         }
 
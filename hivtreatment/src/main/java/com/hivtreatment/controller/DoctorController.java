@@ -1,6 +1,8 @@
 package com.hivtreatment.controller;
 
+import com.hivtreatment.dto.CursorPage;
 import com.hivtreatment.dto.DashboardStatsDTO;
+import com.hivtreatment.dto.MedicationDTO;
 import com.hivtreatment.entity.*;
 import com.hivtreatment.enums.AppointmentStatus;
 import com.hivtreatment.enums.ReportStatus;
@@ -63,6 +65,9 @@ private TaskService taskService;
     @Autowired
     private SymptomReportService symptomReportService;
 
+    @Autowired
+    private TestWorklistService testWorklistService;
+
    @GetMapping("/dashboard")
 public String doctorDashboard(Authentication authentication, Model model) {
     User user = (User) authentication.getPrincipal();
@@ -151,6 +156,9 @@ public String doctorDashboard(Authentication authentication, Model model) {
 public String appointments(Authentication authentication,
                           @RequestParam(defaultValue = "0") int page,
                           @RequestParam(defaultValue = "10") int size,
+                          @RequestParam(required = false) String after,
+                          @RequestParam(required = false) String before,
+                          @RequestParam(defaultValue = "false") boolean skipCount,
                           @RequestParam(required = false) String status,
                           @RequestParam(required = false) String date,
                           Model model) {
@@ -160,18 +168,44 @@ public String appointments(Authentication authentication,
 
     if (doctorOpt.isPresent()) {
         Doctor doctor = doctorOpt.get();
-        Pageable pageable = PageRequest.of(page, size, Sort.by("appointmentDate").descending());
-
-        Page<Appointment> appointmentPage;
 
+        AppointmentStatus appointmentStatus = null;
+        LocalDate filterDate = null;
         try {
             if (status != null && !status.isEmpty()) {
-                AppointmentStatus appointmentStatus = AppointmentStatus.valueOf(status.toUpperCase());
+                appointmentStatus = AppointmentStatus.valueOf(status.toUpperCase());
+            }
+            if (date != null && !date.isEmpty()) {
+                filterDate = LocalDate.parse(date);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Xử lý nếu status hoặc date sai định dạng
+            appointmentStatus = null;
+            filterDate = null;
+            model.addAttribute("error", "Bộ lọc không hợp lệ. Đang hiển thị toàn bộ lịch hẹn.");
+        }
+
+        if (CursorPageModel.useKeyset(page, after, before)) {
+            CursorPage<Appointment> appointmentCursor;
+            try {
+                appointmentCursor = appointmentService.scrollAppointmentsByDoctor(
+                    doctor.getId(), appointmentStatus, filterDate, after, before, size, !skipCount);
+            } catch (IllegalArgumentException e) {
+                appointmentCursor = appointmentService.scrollAppointmentsByDoctor(
+                    doctor.getId(), appointmentStatus, filterDate, null, null, size, !skipCount);
+                model.addAttribute("error", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+            }
+            model.addAttribute("appointments", appointmentCursor.getContent());
+            CursorPageModel.addAttributes(model, appointmentCursor);
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("appointmentDate").descending());
+
+            Page<Appointment> appointmentPage;
+            if (appointmentStatus != null) {
                 appointmentPage = appointmentService.getAppointmentsByDoctorAndStatus(
                     doctor.getId(), appointmentStatus, pageable
                 );
-            } else if (date != null && !date.isEmpty()) {
-                LocalDate filterDate = LocalDate.parse(date);
+            } else if (filterDate != null) {
                 appointmentPage = appointmentService.getAppointmentsByDoctorAndDate(
                     doctor.getId(), filterDate, pageable
                 );
@@ -180,16 +214,13 @@ public String appointments(Authentication authentication,
                     doctor.getId(), pageable
                 );
             }
-        } catch (IllegalArgumentException | DateTimeException e) {
-            // Xử lý nếu status hoặc date sai định dạng
-            appointmentPage = appointmentService.getAppointmentsByDoctor(doctor.getId(), pageable);
-            model.addAttribute("error", "Bộ lọc không hợp lệ. Đang hiển thị toàn bộ lịch hẹn.");
+
+            model.addAttribute("appointments", appointmentPage.getContent());
+            model.addAttribute("totalPages", appointmentPage.getTotalPages());
+            model.addAttribute("totalElements", appointmentPage.getTotalElements());
         }
 
-        model.addAttribute("appointments", appointmentPage.getContent());
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", appointmentPage.getTotalPages());
-        model.addAttribute("totalElements", appointmentPage.getTotalElements());
         model.addAttribute("selectedStatus", status);
         model.addAttribute("selectedDate", date);
 
@@ -321,6 +352,9 @@ public String viewPatient(@PathVariable Long id, Model model) {
     public String prescriptions(Authentication authentication, 
                                @RequestParam(defaultValue = "0") int page,
                                @RequestParam(defaultValue = "10") int size,
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) String before,
+                               @RequestParam(defaultValue = "false") boolean skipCount,
                                @RequestParam(required = false) String status,
                                Model model) {
         User user = (User) authentication.getPrincipal();
@@ -328,19 +362,35 @@ public String viewPatient(@PathVariable Long id, Model model) {
         
         if (doctorOpt.isPresent()) {
             Doctor doctor = doctorOpt.get();
-            Pageable pageable = PageRequest.of(page, size, Sort.by("prescriptionDate").descending());
             
-            Page<Prescription> prescriptionPage;
-            if (status != null && !status.isEmpty()) {
-                prescriptionPage = prescriptionService.getPrescriptionsByDoctorAndStatus(
-                    doctor.getId(), status, pageable);
+            if (CursorPageModel.useKeyset(page, after, before)) {
+                CursorPage<Prescription> prescriptionCursor;
+                try {
+                    prescriptionCursor = prescriptionService.scrollPrescriptionsByDoctor(
+                        doctor.getId(), status, after, before, size, !skipCount);
+                } catch (IllegalArgumentException e) {
+                    prescriptionCursor = prescriptionService.scrollPrescriptionsByDoctor(
+                        doctor.getId(), status, null, null, size, !skipCount);
+                    model.addAttribute("error", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+                }
+                model.addAttribute("prescriptions", prescriptionCursor.getContent());
+                CursorPageModel.addAttributes(model, prescriptionCursor);
             } else {
-                prescriptionPage = prescriptionService.getPrescriptionsByDoctor(doctor.getId(), pageable);
+                Pageable pageable = PageRequest.of(page, size, Sort.by("prescriptionDate").descending());
+                
+                Page<Prescription> prescriptionPage;
+                if (status != null && !status.isEmpty()) {
+                    prescriptionPage = prescriptionService.getPrescriptionsByDoctorAndStatus(
+                        doctor.getId(), status, pageable);
+                } else {
+                    prescriptionPage = prescriptionService.getPrescriptionsByDoctor(doctor.getId(), pageable);
+                }
+                
+                model.addAttribute("prescriptions", prescriptionPage.getContent());
+                model.addAttribute("totalPages", prescriptionPage.getTotalPages());
             }
             
-            model.addAttribute("prescriptions", prescriptionPage.getContent());
             model.addAttribute("currentPage", page);
-            model.addAttribute("totalPages", prescriptionPage.getTotalPages());
             model.addAttribute("selectedStatus", status);
             
             return "doctor/prescriptions/list";
@@ -359,7 +409,7 @@ public String viewPatient(@PathVariable Long id, Model model) {
         }
         
         // Get available medications
-        List<Medication> medications = medicationService.getActiveMedications();
+        List<MedicationDTO> medications = medicationService.getActiveMedications();
         model.addAttribute("medications", medications);
         
         return "doctor/prescriptions/create";
@@ -398,29 +448,77 @@ public String viewPatient(@PathVariable Long id, Model model) {
     @GetMapping("/lab-results")
     public String labResults(@RequestParam(defaultValue = "0") int page,
                             @RequestParam(defaultValue = "10") int size,
+                            @RequestParam(required = false) String after,
+                            @RequestParam(required = false) String before,
+                            @RequestParam(defaultValue = "false") boolean skipCount,
                             @RequestParam(required = false) String testType,
                             @RequestParam(required = false) Long patientId,
                             Model model) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("testDate").descending());
-        
-        Page<LabResult> labResultPage;
-        if (patientId != null) {
-            labResultPage = labResultService.getLabResultsByPatient(patientId, pageable);
-        } else if (testType != null && !testType.isEmpty()) {
-            labResultPage = labResultService.getLabResultsByTestType(testType, pageable);
+        if (CursorPageModel.useKeyset(page, after, before)) {
+            CursorPage<LabResult> labResultCursor;
+            try {
+                labResultCursor = labResultService.scrollLabResults(
+                    null, patientId, testType, after, before, size, !skipCount);
+            } catch (IllegalArgumentException e) {
+                labResultCursor = labResultService.scrollLabResults(
+                    null, patientId, testType, null, null, size, !skipCount);
+                model.addAttribute("error", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+            }
+            model.addAttribute("labResults", labResultCursor.getContent());
+            CursorPageModel.addAttributes(model, labResultCursor);
         } else {
-            labResultPage = labResultService.getAllLabResults(pageable);
+            Pageable pageable = PageRequest.of(page, size, Sort.by("testDate").descending());
+            
+            Page<LabResult> labResultPage;
+            if (patientId != null) {
+                labResultPage = labResultService.getLabResultsByPatient(patientId, pageable);
+            } else if (testType != null && !testType.isEmpty()) {
+                labResultPage = labResultService.getLabResultsByTestType(testType, pageable);
+            } else {
+                labResultPage = labResultService.getAllLabResults(pageable);
+            }
+            
+            model.addAttribute("labResults", labResultPage.getContent());
+            model.addAttribute("totalPages", labResultPage.getTotalPages());
         }
         
-        model.addAttribute("labResults", labResultPage.getContent());
         model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", labResultPage.getTotalPages());
         model.addAttribute("selectedTestType", testType);
         model.addAttribute("selectedPatientId", patientId);
         
         return "doctor/lab-results/list";
     }
 
+    // Hàng đợi xét nghiệm CD4/tải lượng virus quá hạn của bác sĩ
+    @GetMapping("/worklist")
+    public String testWorklist(Authentication authentication,
+                               @RequestParam(defaultValue = "20") int size,
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) String before,
+                               @RequestParam(required = false) String testType,
+                               Model model) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Doctor> doctorOpt = doctorService.getDoctorByUserId(user.getId());
+        if (doctorOpt.isEmpty()) {
+            return "redirect:/dashboard";
+        }
+
+        Long doctorId = doctorOpt.get().getId();
+        CursorPage<TestWorklistItem> worklist;
+        try {
+            worklist = testWorklistService.getWorklist(doctorId, false, testType, after, before, size, true);
+        } catch (IllegalArgumentException e) {
+            worklist = testWorklistService.getWorklist(doctorId, false, testType, null, null, size, true);
+            model.addAttribute("error", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+        }
+
+        model.addAttribute("worklistItems", worklist.getContent());
+        CursorPageModel.addAttributes(model, worklist);
+        model.addAttribute("selectedTestType", testType);
+        model.addAttribute("today", LocalDate.now());
+        return "doctor/worklist";
+    }
+
     @GetMapping("/lab-results/create")
     public String createLabResultForm(@RequestParam(required = false) Long patientId, Model model) {
         model.addAttribute("labResult", new LabResult());
@@ -588,29 +686,26 @@ public String viewPatient(@PathVariable Long id, Model model) {
         }
     }
 
-    // Dashboard refresh endpoint for AJAX
+    // Dashboard refresh endpoint for AJAX (giữ cho client cũ; client mới dùng SSE /api/push/stream).
+    // Chỉ đếm trong database, không đọc hay xóa trạng thái trên node nên mọi tab và mọi node thấy cùng số liệu.
     @GetMapping("/dashboard/refresh")
     @ResponseBody
     public Map<String, Object> refreshDashboard(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         Optional<Doctor> doctorOpt = doctorService.getDoctorByUserId(user.getId());
-        
+
         Map<String, Object> response = new java.util.HashMap<>();
-        
         if (doctorOpt.isPresent()) {
             Doctor doctor = doctorOpt.get();
-            
-            // Check for new appointments or urgent tasks
-           long newAppointments = appointmentService
-    .getNewAppointmentsSince(doctor.getId(), LocalDateTime.now().minusMinutes(5))
-    .size();
+            long newAppointments = appointmentService.countNewAppointmentsSince(
+                    doctor.getId(), LocalDateTime.now().minusMinutes(5));
             long urgentTasks = taskService.getUrgentTaskCount(doctor.getId());
-            
+
             response.put("hasUpdates", newAppointments > 0 || urgentTasks > 0);
             response.put("newAppointments", newAppointments);
             response.put("urgentTasks", urgentTasks);
         }
-        
+        response.put("stream", "/api/push/stream");
         return response;
     }
 }
@@ -1,7 +1,7 @@
 package com.hivtreatment.controller;
 
+import com.hivtreatment.dto.EducationalResourceDTO;
 import com.hivtreatment.entity.BlogPost;
-import com.hivtreatment.entity.EducationalResource;
 import com.hivtreatment.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -37,7 +37,7 @@ public class HomeController {
         
         // Featured content for reducing stigma and education
         List<BlogPost> featuredPosts = blogService.getFeaturedPosts();
-        List<EducationalResource> featuredResources = educationalResourceService.getFeaturedResources();
+        List<EducationalResourceDTO> featuredResources = educationalResourceService.getFeaturedResources();
         List<BlogPost> recentPosts = blogService.getRecentPosts(3);
         
         model.addAttribute("featuredPosts", featuredPosts);
@@ -1,20 +1,34 @@
 package com.hivtreatment.controller;
 
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.LabResultSearchParams;
 import com.hivtreatment.entity.Doctor;
 import com.hivtreatment.entity.LabResult;
 import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
 import com.hivtreatment.service.LabResultService;
 import com.hivtreatment.service.PatientService;
 import com.hivtreatment.service.DoctorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import jakarta.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,8 +47,12 @@ public class LabResultController {
 
     @GetMapping
 @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN') or hasRole('MANAGER')")
-public String listLabResults(Model model, Principal principal) {
-    List<LabResult> labResults;
+public String listLabResults(@RequestParam(defaultValue = "20") int size,
+                             @RequestParam(required = false) String after,
+                             @RequestParam(required = false) String before,
+                             @RequestParam(defaultValue = "false") boolean skipCount,
+                             Model model, Principal principal) {
+    Long doctorId = null;
 
     if (principal != null) {
         String role = getUserRole(principal);
@@ -42,19 +60,25 @@ public String listLabResults(Model model, Principal principal) {
             // Lấy doctor từ user
             Optional<Doctor> doctorOpt = doctorService.getDoctorByUsername(principal.getName());
             if (doctorOpt.isPresent()) {
-                Long doctorId = doctorOpt.get().getId();
-                labResults = labResultService.getLabResultsByDoctor(doctorId);
+                doctorId = doctorOpt.get().getId();
             } else {
-                labResults = List.of(); // Không tìm thấy bác sĩ → trả danh sách rỗng
+                model.addAttribute("labResults", List.of()); // Không tìm thấy bác sĩ → trả danh sách rỗng
+                return "lab-results/list";
             }
-        } else {
-            labResults = labResultService.getAllLabResults();
         }
-    } else {
-        labResults = labResultService.getAllLabResults();
     }
 
-    model.addAttribute("labResults", labResults);
+    // Phân trang keyset theo (testDate, id) thay vì tải toàn bộ bảng
+    CursorPage<LabResult> labResultCursor;
+    try {
+        labResultCursor = labResultService.scrollLabResults(doctorId, null, null, after, before, size, !skipCount);
+    } catch (IllegalArgumentException e) {
+        labResultCursor = labResultService.scrollLabResults(doctorId, null, null, null, null, size, !skipCount);
+        model.addAttribute("errorMessage", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+    }
+
+    model.addAttribute("labResults", labResultCursor.getContent());
+    CursorPageModel.addAttributes(model, labResultCursor);
     return "lab-results/list";
 }
 
@@ -178,21 +202,89 @@ public String viewLabResult(@PathVariable Long id, Model model) {
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN') or hasRole('MANAGER')")
     public String searchLabResults(@RequestParam(required = false) String testType,
                                   @RequestParam(required = false) String patientCode,
-                                  @RequestParam(required = false) String dateFrom,
-                                  @RequestParam(required = false) String dateTo,
-                                  Model model) {
-        List<LabResult> labResults = labResultService.searchLabResults(testType, patientCode, dateFrom, dateTo);
-        model.addAttribute("labResults", labResults);
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+                                  @RequestParam(required = false) String status,
+                                  @RequestParam(required = false) Long doctorId,
+                                  @RequestParam(defaultValue = "20") int size,
+                                  @RequestParam(required = false) String after,
+                                  @RequestParam(required = false) String before,
+                                  @RequestParam(defaultValue = "false") boolean skipCount,
+                                  Model model, Principal principal) {
+        LabResultSearchParams params = LabResultSearchParams.builder()
+            .patientCode(patientCode)
+            .testType(testType)
+            .startDate(dateFrom)
+            .endDate(dateTo)
+            .status(status)
+            .doctorId(resolveDoctorScope(principal, doctorId))
+            .build();
+
+        CursorPage<LabResult> labResultCursor;
+        try {
+            labResultCursor = labResultService.searchLabResults(params, after, before, size, !skipCount);
+        } catch (IllegalArgumentException e) {
+            labResultCursor = labResultService.searchLabResults(params, null, null, size, !skipCount);
+            model.addAttribute("errorMessage", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+        }
+
+        model.addAttribute("labResults", labResultCursor.getContent());
+        CursorPageModel.addAttributes(model, labResultCursor);
         model.addAttribute("testType", testType);
         model.addAttribute("patientCode", patientCode);
         model.addAttribute("dateFrom", dateFrom);
         model.addAttribute("dateTo", dateTo);
+        model.addAttribute("status", status);
+        model.addAttribute("doctorId", doctorId);
         return "lab-results/search-results";
     }
 
+    // Xuất CSV theo cùng bộ lọc với trang tìm kiếm; ghi dần ra response thay vì dựng cả file trong bộ nhớ
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<StreamingResponseBody> exportLabResults(@RequestParam(required = false) String testType,
+                                  @RequestParam(required = false) String patientCode,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+                                  @RequestParam(required = false) String status,
+                                  @RequestParam(required = false) Long doctorId,
+                                  Principal principal) {
+        LabResultSearchParams params = LabResultSearchParams.builder()
+            .patientCode(patientCode)
+            .testType(testType)
+            .startDate(dateFrom)
+            .endDate(dateTo)
+            .status(status)
+            .doctorId(resolveDoctorScope(principal, doctorId))
+            .build();
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            // BOM để Excel nhận đúng tiếng Việt
+            writer.write('\uFEFF');
+            labResultService.exportLabResults(params, writer);
+        };
+        return ResponseEntity.ok()
+            .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"lab-results-" + LocalDate.now() + ".csv\"")
+            .body(body);
+    }
+
+    // Bác sĩ chỉ xem kết quả của chính mình; quản trị/quản lý lọc theo bác sĩ tùy chọn.
+    // Không tìm thấy hồ sơ bác sĩ thì dùng id không tồn tại để trả về rỗng
+    private Long resolveDoctorScope(Principal principal, Long requestedDoctorId) {
+        if (principal != null && "DOCTOR".equals(getUserRole(principal))) {
+            return doctorService.getDoctorByUsername(principal.getName())
+                .map(Doctor::getId)
+                .orElse(-1L);
+        }
+        return requestedDoctorId;
+    }
+
     private String getUserRole(Principal principal) {
-        // Implementation to get user role from principal
-        // This would typically involve looking up the user's authorities
-        return "DOCTOR"; // Placeholder
+        if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+            return user.getRole().name();
+        }
+        return "DOCTOR";
     }
 }
@@ -5,6 +5,12 @@ import com.hivtreatment.enums.AppointmentStatus;
 import com.hivtreatment.service.*;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -13,9 +19,15 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.AvailableSlotDTO;
 import com.hivtreatment.dto.DoctorAvailabilityDTO;
+import com.hivtreatment.dto.DoctorSearchParams;
+import com.hivtreatment.dto.LabSeriesPointDTO;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -25,6 +37,12 @@ import java.util.stream.Collectors;
 @PreAuthorize("hasAnyRole('PATIENT', 'DOCTOR', 'MANAGER', 'ADMIN')")
 public class PatientController {
 
+    private static final int MAX_SLOT_RESULTS = 100;
+    private static final int DOCTOR_PAGE_SIZE = 12;
+    private static final int LAB_CHART_YEARS = 5;
+    private static final int LAB_CHART_POINTS = 60;
+    private static final int MAX_LAB_CHART_POINTS = 500;
+
     @Autowired
     private PatientService patientService;
 
@@ -34,6 +52,9 @@ public class PatientController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+
     @Autowired
     private PrescriptionService prescriptionService;
 
@@ -52,6 +73,9 @@ public class PatientController {
     @Autowired
     private HIVPatientProfileService hivPatientProfileService;
 
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
     @GetMapping("/profile")
 public String profile(Authentication authentication, Model model) {
     User user = (User) authentication.getPrincipal();
@@ -71,27 +95,67 @@ public String profile(Authentication authentication, Model model) {
 }
 
     @GetMapping("/doctors")
-    public String selectDoctor(@RequestParam(required = false) String specialization,
+    public String selectDoctor(@RequestParam(required = false) String name,
+                              @RequestParam(required = false) String specialization,
                               @RequestParam(required = false) String experience,
                               @RequestParam(required = false) String rating,
                               @RequestParam(required = false) Boolean available,
+                              @RequestParam(defaultValue = "0") int page,
                               Model model) {
         
-        List<Doctor> availableDoctors;
-        
-        if (specialization != null || experience != null || rating != null || available != null) {
-            // Apply filters
-            availableDoctors = doctorService.searchDoctorsWithFilters(specialization, experience, rating, available);
-        } else {
-            availableDoctors = doctorService.getAvailableDoctors();
-        }
+        // Lọc, phân trang trong database; mặc định chỉ hiện bác sĩ đang nhận bệnh, điểm đánh giá cao trước
+        Integer[] experienceRange = parseExperienceRange(experience);
+        DoctorSearchParams params = DoctorSearchParams.builder()
+                .name(name)
+                .specialization(specialization)
+                .minExperience(experienceRange[0])
+                .maxExperience(experienceRange[1])
+                .minRating(parseDouble(rating))
+                .available(available != null ? available : Boolean.TRUE)
+                .build();
+        Pageable pageable = PageRequest.of(Math.max(page, 0), DOCTOR_PAGE_SIZE,
+                Sort.by(Sort.Order.desc("averageRating"), Sort.Order.asc("id")));
+        Page<Doctor> doctorPage = doctorService.searchDirectory(params, pageable);
         
-        model.addAttribute("availableDoctors", availableDoctors);
-        model.addAttribute("hasMoreDoctors", availableDoctors.size() >= 12);
+        model.addAttribute("availableDoctors", doctorPage.getContent());
+        model.addAttribute("hasMoreDoctors", doctorPage.hasNext());
+        model.addAttribute("currentPage", doctorPage.getNumber());
+        model.addAttribute("totalPages", doctorPage.getTotalPages());
+        model.addAttribute("specializations", doctorService.getAllSpecializations());
         
         return "patient/doctors";
     }
 
+    // "5" = từ 5 năm, "5-10" = 5 đến 10 năm, "10+" = từ 10 năm; giá trị không hợp lệ thì bỏ qua
+    private static Integer[] parseExperienceRange(String experience) {
+        Integer[] range = new Integer[2];
+        if (experience == null || experience.isBlank()) return range;
+        String value = experience.trim();
+        try {
+            if (value.endsWith("+")) {
+                range[0] = Integer.parseInt(value.substring(0, value.length() - 1).trim());
+            } else if (value.contains("-")) {
+                String[] bounds = value.split("-", 2);
+                range[0] = Integer.parseInt(bounds[0].trim());
+                range[1] = Integer.parseInt(bounds[1].trim());
+            } else {
+                range[0] = Integer.parseInt(value);
+            }
+        } catch (NumberFormatException e) {
+            return new Integer[2];
+        }
+        return range;
+    }
+
+    private static Double parseDouble(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     @GetMapping("/doctors/{id}/profile")
     public String viewDoctorProfile(@PathVariable Long id, Model model) {
         Optional<Doctor> doctorOpt = doctorService.getDoctorById(id);
@@ -175,7 +239,7 @@ public String profile(Authentication authentication, Model model) {
                 appointment.setStatus(AppointmentStatus.SCHEDULED);
                 appointment.setCreatedAt(LocalDateTime.now());
                 
-                Appointment savedAppointment = appointmentService.createAppointment(appointment);
+                Appointment savedAppointment = appointmentBookingService.book(appointment);
                 
                 // Send notification to doctor
                 notificationService.sendAppointmentNotification(
@@ -187,6 +251,8 @@ public String profile(Authentication authentication, Model model) {
                 redirectAttributes.addFlashAttribute("successMessage", "Đặt lịch hẹn thành công!");
                 return "redirect:/patient/appointments/" + savedAppointment.getId();
             }
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Có lỗi xảy ra khi đặt lịch hẹn!");
         }
@@ -224,14 +290,19 @@ public String profile(Authentication authentication, Model model) {
             Patient patient = patientOpt.get();
             
             List<LabResult> recentLabResults = labResultService.getRecentLabResultsByPatient(patient.getId(), 10);
-            labResultService.getLabResultsByPatientAndTestType(patient.getId(), "CD4");
-
-            labResultService.getLabResultsByPatientAndTestType(patient.getId(), "VIRAL_LOAD");
+            // Giá trị mới nhất đọc từ latest_lab_results, biểu đồ chỉ tải các điểm đã rút gọn
+            List<LatestLabResult> latestLabResults = labResultService.getLatestLabResults(patient.getId());
+            LocalDate chartStart = LocalDate.now().minusYears(LAB_CHART_YEARS);
+            List<LabSeriesPointDTO> cd4Series = labResultService.getLabSeries(
+                    patient.getId(), "CD4", chartStart, null, LAB_CHART_POINTS);
+            List<LabSeriesPointDTO> viralLoadSeries = labResultService.getLabSeries(
+                    patient.getId(), "VIRAL_LOAD", chartStart, null, LAB_CHART_POINTS);
             
             model.addAttribute("patient", patient);
             model.addAttribute("recentLabResults", recentLabResults);
-            // model.addAttribute("cd4Results", cd4Results);
-            // model.addAttribute("viralLoadResults", viralLoadResults);
+            model.addAttribute("latestLabResults", latestLabResults);
+            model.addAttribute("cd4Series", cd4Series);
+            model.addAttribute("viralLoadSeries", viralLoadSeries);
             
             return "patient/lab-results";
         } else {
@@ -446,25 +517,77 @@ public String submitSymptomReport(@Valid @ModelAttribute SymptomReport symptomRe
     // AJAX endpoints
    @GetMapping("/doctors/load-more")
 @ResponseBody
-public String loadMoreDoctors(@RequestParam int offset) {
-    List<Doctor> moreDoctors = doctorService.getAvailableDoctors(offset, 12).getContent();
-    return renderDoctorCards(moreDoctors);
+public ResponseEntity<String> loadMoreDoctors(@RequestParam(required = false) Integer offset,
+                                              @RequestParam(required = false) String after) {
+    if (offset != null && (after == null || after.isBlank())) {
+        List<Doctor> moreDoctors = doctorService.getAvailableDoctors(offset, 12).getContent();
+        return ResponseEntity.ok(renderDoctorCards(moreDoctors));
+    }
+
+    // Cuộn vô hạn: keyset theo id, không chạy COUNT(*); cursor tiếp theo trả về qua header
+    CursorPage<Doctor> doctorCursor;
+    try {
+        doctorCursor = doctorService.scrollAvailableDoctors(after, 12);
+    } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body("");
+    }
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (doctorCursor.getNextCursor() != null) {
+        response.header("X-Next-Cursor", doctorCursor.getNextCursor());
+    }
+    return response.body(renderDoctorCards(doctorCursor.getContent()));
 }
 
     @GetMapping("/doctors/availability")
 @ResponseBody
 public List<DoctorAvailabilityDTO> getAvailableDoctorsDTO() {
     List<Doctor> doctors = doctorService.getAvailableDoctors();
+    LocalDateTime now = LocalDateTime.now();
 
     return doctors.stream()
         .map(d -> new DoctorAvailabilityDTO(
             d.getId(),
             d.getFirstName() + " " + d.getLastName(),
-            d.getIsAvailable()
+            d.getIsAvailable(),
+            slotAvailabilityService.getNextFreeSlot(d.getId(), now)
         ))
         .collect(Collectors.toList());
 }
 
+    // N khung giờ trống sớm nhất của các bác sĩ thuộc chuyên khoa, tra từ chỉ mục trong bộ nhớ
+    @GetMapping("/doctors/availability/slots")
+    @ResponseBody
+    public List<AvailableSlotDTO> getNextFreeSlots(@RequestParam(required = false) String specialization,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        return slotAvailabilityService.findNextFreeSlots(specialization, LocalDateTime.now(),
+                Math.max(1, Math.min(limit, MAX_SLOT_RESULTS)));
+    }
+
+    @GetMapping("/doctors/{id}/free-slots")
+    @ResponseBody
+    public List<LocalTime> getDoctorFreeSlots(@PathVariable Long id,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return slotAvailabilityService.getFreeSlots(id, date, LocalDateTime.now());
+    }
+
+    // Chuỗi kết quả xét nghiệm cho biểu đồ, tối đa points điểm
+    @GetMapping("/lab-results/series")
+    @ResponseBody
+    public ResponseEntity<List<LabSeriesPointDTO>> getLabSeries(
+            @RequestParam String testType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "60") int points,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Patient> patientOpt = patientService.getPatientByUserId(user.getId());
+        if (patientOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(labResultService.getLabSeries(patientOpt.get().getId(), testType, from, to,
+                Math.min(points, MAX_LAB_CHART_POINTS)));
+    }
 
     private String renderDoctorCards(List<Doctor> doctors) {
         // This would typically use a template engine to render the HTML
@@ -1,7 +1,10 @@
 package com.hivtreatment.controller;
 
+import com.hivtreatment.dto.EducationalResourceDTO;
+import com.hivtreatment.dto.SearchHitDTO;
 import com.hivtreatment.entity.BlogPost;
 import com.hivtreatment.entity.EducationalResource;
+import com.hivtreatment.enums.SearchDocumentType;
 import com.hivtreatment.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -11,7 +14,9 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -32,6 +37,9 @@ public class PublicController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
     @GetMapping({"/", "/home"})
     public String home(Model model) {
         // Statistics for homepage
@@ -104,6 +112,25 @@ public class PublicController {
         return "redirect:/blog";
     }
 
+    // Tìm kiếm toàn văn trên bài viết và tài liệu, kết quả đã tô sáng từ khóa
+    @GetMapping("/search")
+    @ResponseBody
+    public Map<String, Object> search(@RequestParam String q,
+                                      @RequestParam(required = false) SearchDocumentType type,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "10") int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 50));
+        Page<SearchHitDTO> hits = fullTextSearchService.search(q, type, pageable);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("hits", hits.getContent());
+        result.put("page", hits.getNumber());
+        result.put("size", hits.getSize());
+        result.put("totalElements", hits.getTotalElements());
+        result.put("totalPages", hits.getTotalPages());
+        return result;
+    }
+
     // Educational Resources
     @GetMapping("/education")
     public String education(@RequestParam(required = false) String category,
@@ -111,10 +138,11 @@ public class PublicController {
                            @RequestParam(required = false) String search,
                            Model model) {
         
-        List<EducationalResource> resources;
+        List<EducationalResourceDTO> resources;
         
         if (search != null && !search.trim().isEmpty()) {
-            resources = educationalResourceService.searchResources(search);
+            resources = educationalResourceService.searchResources(search).stream()
+                    .map(EducationalResourceDTO::new).toList();
             model.addAttribute("searchKeyword", search);
         } else if (category != null && !category.trim().isEmpty()) {
             resources = educationalResourceService.getResourcesByCategory(category);
@@ -128,6 +156,7 @@ public class PublicController {
         
         model.addAttribute("resources", resources);
         model.addAttribute("featuredResources", educationalResourceService.getFeaturedResources());
+        model.addAttribute("trendingResources", educationalResourceService.getTrendingResources(5));
         
         return "public/education/index";
     }
@@ -146,9 +175,9 @@ public class PublicController {
 
     @GetMapping("/education/{id}/download")
     public String downloadResource(@PathVariable Long id) {
-        educationalResourceService.incrementDownloadCount(id);
         Optional<EducationalResource> resourceOpt = educationalResourceService.getResourceById(id);
         if (resourceOpt.isPresent() && resourceOpt.get().getFileUrl() != null) {
+            educationalResourceService.incrementDownloadCount(id);
             return "redirect:" + resourceOpt.get().getFileUrl();
         }
         return "redirect:/education";
@@ -1,5 +1,6 @@
 package com.hivtreatment.controller;
 
+import com.hivtreatment.dto.CursorPage;
 import com.hivtreatment.entity.*;
 import com.hivtreatment.enums.AppointmentStatus;
 import com.hivtreatment.service.*;
@@ -33,6 +34,9 @@ public class StaffController {
     @Autowired
     private AppointmentService appointmentService;
     
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+    
     @Autowired
     private PatientService patientService;
     
@@ -42,6 +46,9 @@ public class StaffController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private TestWorklistService testWorklistService;
+
     @GetMapping("/dashboard")
     public String dashboard(Model model, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -132,13 +139,16 @@ public String createAppointment(@Valid @ModelAttribute Appointment appointment,
     try {
         appointment.setStatus(AppointmentStatus.SCHEDULED);
         appointment.setCreatedAt(LocalDateTime.now());
-        appointmentService.saveAppointment(appointment);
+        appointmentBookingService.book(appointment);
 
         // ✅ GỌI HÀM ĐÚNG
         notificationService.sendAppointmentConfirmation(appointment);
 
         redirectAttributes.addFlashAttribute("successMessage", "Tạo lịch hẹn thành công!");
         return "redirect:/staff/appointments";
+    } catch (IllegalStateException e) {
+        redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        return "redirect:/staff/appointments/create";
     } catch (Exception e) {
         redirectAttributes.addFlashAttribute("errorMessage", "Có lỗi xảy ra khi tạo lịch hẹn!");
         return "redirect:/staff/appointments/create";
@@ -312,6 +322,33 @@ public String createAppointment(@Valid @ModelAttribute Appointment appointment,
         return "staff/appointments/fragments/appointment-list";
     }
 
+    // Hàng đợi xét nghiệm quá hạn của toàn phòng khám, lọc theo bác sĩ hoặc bệnh nhân chưa phân công
+    @GetMapping("/worklist")
+    public String testWorklist(@RequestParam(required = false) Long doctorId,
+                               @RequestParam(defaultValue = "false") boolean unassigned,
+                               @RequestParam(required = false) String testType,
+                               @RequestParam(defaultValue = "20") int size,
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) String before,
+                               Model model) {
+        CursorPage<TestWorklistItem> worklist;
+        try {
+            worklist = testWorklistService.getWorklist(doctorId, unassigned, testType, after, before, size, true);
+        } catch (IllegalArgumentException e) {
+            worklist = testWorklistService.getWorklist(doctorId, unassigned, testType, null, null, size, true);
+            model.addAttribute("error", "Liên kết phân trang không hợp lệ, đã quay về trang đầu.");
+        }
+
+        model.addAttribute("worklistItems", worklist.getContent());
+        CursorPageModel.addAttributes(model, worklist);
+        model.addAttribute("doctors", doctorService.getAllDoctors());
+        model.addAttribute("selectedDoctorId", doctorId);
+        model.addAttribute("unassigned", unassigned);
+        model.addAttribute("selectedTestType", testType);
+        model.addAttribute("today", LocalDate.now());
+        return "staff/worklist";
+    }
+
     private Map<String, Object> getAppointmentStatistics(LocalDate date) {
         List<Appointment> appointments = appointmentService.getAppointmentsByDate(date);
         
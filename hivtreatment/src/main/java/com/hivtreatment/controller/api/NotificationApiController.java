@@ -16,6 +16,8 @@ import java.util.Map;
 @RequestMapping("/api/notifications")
 public class NotificationApiController {
 
+    private static final int RECENT_LIMIT = 10;
+
     @Autowired
     private NotificationService notificationService;
 
@@ -23,11 +25,11 @@ public class NotificationApiController {
     public ResponseEntity<Map<String, Object>> getRecentNotifications(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         
-        List<Notification> notifications = notificationService.getNotificationsByUser(user.getId());
+        List<Notification> notifications = notificationService.getRecentNotifications(user.getId(), RECENT_LIMIT);
         long unreadCount = notificationService.getUnreadCount(user.getId());
         
         Map<String, Object> response = new HashMap<>();
-        response.put("notifications", notifications.subList(0, Math.min(notifications.size(), 10)));
+        response.put("notifications", notifications);
         response.put("unreadCount", unreadCount);
         
         return ResponseEntity.ok(response);
@@ -0,0 +1,24 @@
+package com.hivtreatment.controller.api;
+
+import com.hivtreatment.entity.User;
+import com.hivtreatment.service.DashboardPushService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/push")
+public class PushApiController {
+
+    @Autowired
+    private DashboardPushService dashboardPushService;
+
+    // Trình duyệt mở bằng EventSource('/api/push/stream'); tự kết nối lại khi mất kết nối
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return dashboardPushService.subscribe(user.getId(), user.getRole());
+    }
+}
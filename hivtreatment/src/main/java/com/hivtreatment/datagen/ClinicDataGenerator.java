@@ -0,0 +1,576 @@
+package com.hivtreatment.datagen;
+
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.enums.Gender;
+import com.hivtreatment.enums.ReportStatus;
+import com.hivtreatment.enums.SymptomSeverity;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.service.AppointmentService;
+import com.hivtreatment.service.CodeSequenceService;
+import com.hivtreatment.service.DoctorService;
+import com.hivtreatment.service.LabResultService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sinh dữ liệu phòng khám tổng hợp cho kiểm thử tải: bác sĩ, bệnh nhân kèm hồ sơ HIV, lịch hẹn,
+ * kết quả xét nghiệm, đơn thuốc kèm thuốc, thông báo và báo cáo triệu chứng.
+ *
+ * Ghi thẳng bằng JDBC batch INSERT (một transaction cho mỗi lô, các bảng ghi theo thứ tự khóa ngoại),
+ * id được cấp tiếp sau MAX(id) của từng bảng, mã BN/BS lấy một khối từ code_sequences. Cùng seed và
+ * cùng ngày "today" cho ra cùng dữ liệu. Bảng dẫn xuất (doctor_specializations, latest_lab_results)
+ * được dựng bằng các hàm chạy bù của service sau khi ghi xong. Lịch hẹn giữ khung được ghi kèm slot_key
+ * không trùng (theo AppointmentService.slotKeyOf), như khi đặt qua ứng dụng.
+ *
+ * Hỗ trợ MySQL (nên bật rewriteBatchedStatements=true trên URL) và H2.
+ */
+@Component
+public class ClinicDataGenerator {
+
+    private static final String DEFAULT_PASSWORD = "datagen123";
+
+    private static final String[] LAST_NAMES = {"Nguyễn", "Trần", "Lê", "Phạm", "Hoàng", "Huỳnh", "Phan", "Vũ",
+            "Võ", "Đặng", "Bùi", "Đỗ", "Hồ", "Ngô", "Dương", "Lý"};
+    private static final String[] FIRST_NAMES = {"An", "Bình", "Chi", "Dũng", "Giang", "Hà", "Hải", "Hùng", "Hương",
+            "Khánh", "Lan", "Linh", "Long", "Mai", "Minh", "Nam", "Ngọc", "Phúc", "Quân", "Tâm", "Thảo", "Trang", "Tuấn", "Vy"};
+    private static final String[] SPECIALIZATIONS = {"Truyền nhiễm", "Nội khoa", "Nhi khoa", "Da liễu", "Dinh dưỡng",
+            "Sản phụ khoa", "Tâm thần"};
+    private static final String[] PROTOCOLS = {"TDF/3TC/DTG", "TDF/3TC/DTG", "TDF/3TC/DTG", "TDF/3TC/EFV",
+            "AZT/3TC/NVP", "ABC/3TC/DTG"};
+    private static final String[] TRANSMISSION_ROUTES = {"SEXUAL", "SEXUAL", "SEXUAL", "BLOOD", "MOTHER_TO_CHILD", "UNKNOWN"};
+    private static final String[] CITIES = {"Hà Nội", "TP. Hồ Chí Minh", "Đà Nẵng", "Cần Thơ", "Hải Phòng", "Huế"};
+    private static final String[][] MEDICATIONS = {
+            {"Tenofovir", "TDF", "ARV", "Viên nén", "300mg"},
+            {"Lamivudine", "3TC", "ARV", "Viên nén", "150mg"},
+            {"Dolutegravir", "DTG", "ARV", "Viên nén", "50mg"},
+            {"Efavirenz", "EFV", "ARV", "Viên nén", "600mg"},
+            {"Zidovudine", "AZT", "ARV", "Viên nén", "300mg"},
+            {"Nevirapine", "NVP", "ARV", "Viên nén", "200mg"},
+            {"Abacavir", "ABC", "ARV", "Viên nén", "300mg"},
+            {"Cotrimoxazole", "SMX/TMP", "Dự phòng", "Viên nén", "960mg"},
+            {"Isoniazid", "INH", "Dự phòng", "Viên nén", "300mg"}};
+    private static final String[][] NOTIFICATION_TYPES = {
+            {"APPOINTMENT_REMINDER", "Nhắc nhở lịch hẹn", "Bạn có lịch hẹn khám vào ngày mai."},
+            {"MEDICATION_REMINDER", "Nhắc nhở uống thuốc", "Đã đến giờ uống thuốc theo phác đồ."},
+            {"APPOINTMENT", "Xác nhận lịch hẹn", "Lịch hẹn của bạn đã được xác nhận."},
+            {"DOCTOR_RESPONSE", "Phản hồi từ bác sĩ", "Bác sĩ đã phản hồi báo cáo triệu chứng của bạn."},
+            {"LAB_TEST_OVERDUE", "Đến hạn xét nghiệm định kỳ", "Bạn đã đến hạn xét nghiệm CD4/tải lượng virus."}};
+    private static final String[] SYMPTOMS = {"Sốt", "Ho kéo dài", "Mệt mỏi", "Phát ban", "Tiêu chảy", "Sụt cân",
+            "Đau đầu", "Buồn nôn", "Khó thở", "Nổi hạch"};
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+    private static final int SLOTS_PER_DAY = 18;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CodeSequenceService codeSequenceService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    /**
+     * Ghi dữ liệu theo spec; trả về số dòng đã ghi theo bảng (theo thứ tự ghi).
+     */
+    public Map<String, Long> generate(DataGenerationSpec spec) {
+        Run run = new Run(spec);
+        run.generate();
+
+        // Bảng dẫn xuất: dựng lại bằng cùng logic ứng dụng dùng khi ghi qua service
+        List<Long> doctorIds = List.of(0L);
+        while (!(doctorIds = doctorService.backfillSpecializationEntries(doctorIds.get(doctorIds.size() - 1),
+                spec.getBatchSize())).isEmpty()) {
+            // tiếp tục tới khi hết bác sĩ thiếu chuyên khoa
+        }
+        while (labResultService.backfillLatestLabResults(spec.getBatchSize()) > 0) {
+            // tiếp tục tới khi hết bệnh nhân thiếu latest_lab_results
+        }
+        return run.counts();
+    }
+
+    // Trạng thái của một lần sinh dữ liệu
+    private class Run {
+        private final DataGenerationSpec spec;
+        private final Random random;
+        private final LocalDate today;
+        private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        private final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        private final String passwordHash = passwordEncoder.encode(DEFAULT_PASSWORD);
+
+        // Thứ tự khóa ngoại: bảng cha được ghi trước trong mỗi lần flush
+        private final TableWriter users = new TableWriter("users", "username", "email", "password", "role",
+                "first_name", "last_name", "is_active", "is_anonymous", "created_at", "updated_at");
+        private final TableWriter medications = new TableWriter("medications", "name", "generic_name", "category",
+                "dosage_form", "strength", "is_active", "created_at", "updated_at");
+        private final TableWriter doctors = new TableWriter("doctors", "user_id", "doctor_code", "first_name",
+                "last_name", "specialization", "license_number", "phone", "department", "qualification",
+                "experience_years", "consultation_fee", "is_available", "average_rating", "rating_count", "rating_sum",
+                "created_at", "updated_at");
+        private final TableWriter patients = new TableWriter("patients", "user_id", "patient_code", "first_name",
+                "last_name", "date_of_birth", "gender", "phone", "address", "diagnosis_date", "treatment_start_date",
+                "treatment_status", "is_pregnant", "is_active", "doctor_id", "created_at", "updated_at");
+        private final TableWriter profiles = new TableWriter("hiv_patient_profiles", "patient_id", "hiv_diagnosis_date",
+                "art_start_date", "baseline_cd4_count", "baseline_viral_load", "current_cd4_count", "current_viral_load",
+                "last_cd4_test_date", "last_viral_load_test_date", "hiv_stage", "transmission_route",
+                "current_arv_protocol", "treatment_adherence_rate", "has_drug_resistance", "is_treatment_experienced",
+                "viral_load_undetectable", "created_at", "updated_at");
+        private final TableWriter appointments = new TableWriter("appointments", "patient_id", "doctor_id",
+                "appointment_date", "appointment_time", "status", "appointment_type", "priority", "is_anonymous",
+                "slot_key", "created_at", "updated_at");
+        private final TableWriter labResults = new TableWriter("lab_results", "patient_id", "doctor_id", "test_date",
+                "test_type", "result_value", "reference_range", "status", "created_at");
+        private final TableWriter prescriptions = new TableWriter("prescriptions", "patient_id", "doctor_id",
+                "prescription_date", "status", "start_date", "end_date", "notes", "created_at", "updated_at");
+        private final TableWriter prescriptionMedications = new TableWriter("prescription_medications",
+                "prescription_id", "medication_id", "dosage", "frequency", "duration_days", "quantity", "instructions");
+        private final TableWriter notifications = new TableWriter("notifications", "user_id", "title", "message",
+                "type", "is_read", "created_at");
+        private final TableWriter symptomReports = new TableWriter("symptom_reports", "patient_id", "report_title",
+                "symptoms", "severity", "status", "pain_level", "duration_days", "temperature", "follow_up_required",
+                "priority_level", "reviewed_by_doctor_id", "reviewed_at", "doctor_response", "created_at", "updated_at");
+        private final List<TableWriter> tables = List.of(users, medications, doctors, patients, profiles,
+                appointments, labResults, prescriptions, prescriptionMedications, notifications, symptomReports);
+
+        private final List<Long> doctorIds = new ArrayList<>();
+        private final List<Long> medicationIds = new ArrayList<>();
+
+        // Khung đã có lịch giữ: một bit cho mỗi (bác sĩ, ngày, khung) trong khoảng ngày có thể sinh lịch hẹn
+        private final Map<Long, Integer> doctorIndex = new HashMap<>();
+        private final int slotMinutes = appointmentService.getSlotMinutes();
+        private final int slotsPerDay = (24 * 60 + slotMinutes - 1) / slotMinutes;
+        private LocalDate firstSlotDay;
+        private int slotDays;
+        private BitSet heldSlots;
+
+        Run(DataGenerationSpec spec) {
+            this.spec = spec;
+            this.random = new Random(spec.getSeed());
+            this.today = spec.getToday();
+        }
+
+        void generate() {
+            prepareMedications();
+            generateDoctors();
+            prepareHeldSlots();
+            long firstPatientCode = spec.getPatients() > 0
+                    ? codeSequenceService.reserveBlock(CodeSequenceType.PATIENT, spec.getPatients()) : 0;
+            for (int i = 0; i < spec.getPatients(); i++) {
+                generatePatient(CodeSequenceType.PATIENT.format(firstPatientCode + i));
+                flushIfFull();
+            }
+            flushAll();
+            restartIdentities();
+        }
+
+        Map<String, Long> counts() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (TableWriter table : tables) {
+                counts.put(table.table, table.written);
+            }
+            return counts;
+        }
+
+        // Dùng danh mục thuốc sẵn có; database trống thì tạo danh mục ARV cơ bản
+        private void prepareMedications() {
+            medicationIds.addAll(jdbc.queryForList("SELECT id FROM medications WHERE is_active = TRUE ORDER BY id", Long.class));
+            if (!medicationIds.isEmpty()) return;
+            LocalDateTime now = today.atStartOfDay();
+            for (String[] medication : MEDICATIONS) {
+                medicationIds.add(medications.add(medication[0], medication[1], medication[2], medication[3],
+                        medication[4], true, now, now));
+            }
+            flushAll();
+        }
+
+        private void generateDoctors() {
+            if (spec.getDoctors() <= 0) {
+                doctorIds.addAll(jdbc.queryForList("SELECT id FROM doctors ORDER BY id", Long.class));
+                if (doctorIds.isEmpty()) throw new IllegalStateException("Cần ít nhất một bác sĩ để sinh bệnh nhân");
+                return;
+            }
+            long firstCode = codeSequenceService.reserveBlock(CodeSequenceType.DOCTOR, spec.getDoctors());
+            for (int i = 0; i < spec.getDoctors(); i++) {
+                String code = CodeSequenceType.DOCTOR.format(firstCode + i);
+                String firstName = pick(FIRST_NAMES);
+                String lastName = pick(LAST_NAMES);
+                LocalDateTime createdAt = pastDateTime(spec.getHistoryYears() * 365);
+                long userId = users.add(code.toLowerCase(), code.toLowerCase() + "@clinic.example", passwordHash,
+                        UserRole.DOCTOR.name(), firstName, lastName, true, false, createdAt, createdAt);
+
+                String specialization = SPECIALIZATIONS[0];
+                if (random.nextInt(3) == 0) specialization += ", " + pick(SPECIALIZATIONS);
+                int ratingCount = random.nextInt(300);
+                long ratingSum = Math.round(ratingCount * (3.0 + random.nextDouble() * 2.0));
+                doctorIds.add(doctors.add(userId, code, firstName, lastName, specialization,
+                        "GP-" + code, phone(), "Khoa Truyền nhiễm", random.nextBoolean() ? "Thạc sĩ" : "Bác sĩ CKI",
+                        1 + random.nextInt(30), BigDecimal.valueOf(100_000L + 50_000L * random.nextInt(7)),
+                        random.nextInt(10) > 0, ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0,
+                        ratingCount, ratingSum, createdAt, createdAt));
+            }
+            flushAll();
+        }
+
+        // Lịch hẹn rơi trong [today - historyDays, today + 32]; bác sĩ có sẵn thì nạp các khung họ đã giữ
+        private void prepareHeldSlots() {
+            firstSlotDay = today.minusDays(spec.getHistoryYears() * 365L);
+            slotDays = (int) ChronoUnit.DAYS.between(firstSlotDay, today) + 33;
+            long bits = (long) doctorIds.size() * slotDays * slotsPerDay;
+            if (bits > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Quá nhiều bác sĩ x ngày lịch sử để theo dõi khung giờ: " + bits);
+            }
+            heldSlots = new BitSet((int) bits);
+            for (int i = 0; i < doctorIds.size(); i++) {
+                doctorIndex.put(doctorIds.get(i), i);
+            }
+            if (spec.getDoctors() <= 0) {
+                jdbc.query("SELECT doctor_id, appointment_date, appointment_time FROM appointments "
+                                + "WHERE slot_key IS NOT NULL AND appointment_date BETWEEN ? AND ?",
+                        row -> {
+                            Integer doctor = doctorIndex.get(row.getLong(1));
+                            if (doctor != null) {
+                                heldSlots.set(slotBit(doctor, row.getDate(2).toLocalDate(), row.getTime(3).toLocalTime()));
+                            }
+                        }, firstSlotDay, firstSlotDay.plusDays(slotDays - 1));
+            }
+        }
+
+        private void generatePatient(String code) {
+            // Số bệnh nhân đăng ký tăng dần theo thời gian (mật độ tuyến tính về phía hiện tại)
+            int historyDays = spec.getHistoryYears() * 365;
+            LocalDate registered = today.minusDays((long) (historyDays * (1 - Math.sqrt(random.nextDouble()))));
+            LocalDateTime registeredAt = registered.atTime(7 + random.nextInt(11), random.nextInt(60));
+            LocalDate diagnosed = registered.minusDays(random.nextInt(365));
+            LocalDate artStart = random.nextInt(100) < 92 ? min(diagnosed.plusDays(random.nextInt(60)), today) : null;
+            Long doctorId = random.nextInt(100) < 95 ? busyDoctor() : null;
+
+            String firstName = pick(FIRST_NAMES);
+            String lastName = pick(LAST_NAMES);
+            int roll = random.nextInt(100);
+            Gender gender = roll < 60 ? Gender.MALE : roll < 98 ? Gender.FEMALE : Gender.OTHER;
+            int age = 18 + (int) Math.min(60, Math.abs(random.nextGaussian() * 10) + random.nextInt(20));
+            boolean active = random.nextInt(100) < 88;
+
+            long userId = users.add(code.toLowerCase(), code.toLowerCase() + "@patient.example", passwordHash,
+                    UserRole.PATIENT.name(), firstName, lastName, true, random.nextInt(50) == 0, registeredAt, registeredAt);
+            long patientId = patients.add(userId, code, firstName, lastName,
+                    today.minusYears(age).minusDays(random.nextInt(365)), gender.name(), phone(),
+                    random.nextInt(200) + " đường số " + random.nextInt(50) + ", " + pick(CITIES),
+                    diagnosed, artStart, active ? "ACTIVE" : "INACTIVE",
+                    gender == Gender.FEMALE && random.nextInt(50) == 0, active, doctorId, registeredAt, registeredAt);
+
+            LabSummary labs = generateLabResults(patientId, doctorId, artStart != null ? artStart : registered);
+            profiles.add(patientId, diagnosed, artStart, labs.baselineCd4, labs.baselineViralLoad,
+                    labs.currentCd4, labs.currentViralLoad, labs.lastCd4Date, labs.lastViralLoadDate,
+                    "STAGE_" + (1 + Math.min(3, (int) Math.abs(random.nextGaussian() * 1.2))),
+                    pick(TRANSMISSION_ROUTES), artStart != null ? pick(PROTOCOLS) : null,
+                    Math.round((70 + random.nextDouble() * 30) * 10) / 10.0, random.nextInt(100) < 4,
+                    random.nextInt(100) < 10, labs.currentViralLoad != null && labs.currentViralLoad < 50,
+                    registeredAt, registeredAt);
+
+            if (doctorId != null) {
+                generateAppointments(patientId, doctorId, registered);
+                if (artStart != null) generatePrescriptions(patientId, doctorId, artStart);
+            }
+            generateNotifications(userId, registeredAt);
+            generateSymptomReports(patientId, doctorId, registeredAt);
+        }
+
+        private void generateAppointments(long patientId, long doctorId, LocalDate registered) {
+            int count = vary(spec.getAppointmentsPerPatient());
+            for (int i = 0; i < count; i++) {
+                // Phần lớn là lịch sử khám; khoảng 5% là lịch hẹn trong 30 ngày tới
+                LocalDate date = random.nextInt(100) < 5
+                        ? today.plusDays(1 + random.nextInt(30))
+                        : between(registered, today.minusDays(1));
+                if (date.getDayOfWeek() == DayOfWeek.SUNDAY) date = date.plusDays(1);
+                LocalTime time = FIRST_SLOT.plusMinutes(30L * random.nextInt(SLOTS_PER_DAY));
+                AppointmentStatus status = appointmentStatus(date);
+                String slotKey = null;
+                if (status.occupiesSlot()) {
+                    // Khung đã có người: dời sang khung trống kế tiếp trong ngày, hết khung thì coi như đã hủy
+                    LocalTime free = holdSlot(doctorId, date, time);
+                    if (free != null) {
+                        time = free;
+                        slotKey = appointmentService.slotKeyOf(doctorId, date, time);
+                    } else {
+                        status = AppointmentStatus.CANCELLED;
+                    }
+                }
+                LocalDateTime createdAt = min(date.minusDays(1 + random.nextInt(21)), today).atTime(time);
+                appointments.add(patientId, doctorId, date, time, status.name(),
+                        random.nextInt(10) == 0 ? "FOLLOW_UP" : "CONSULTATION",
+                        random.nextInt(20) == 0 ? "HIGH" : "NORMAL", false, slotKey, createdAt, createdAt);
+            }
+        }
+
+        private LocalTime holdSlot(long doctorId, LocalDate date, LocalTime preferred) {
+            int doctor = doctorIndex.get(doctorId);
+            int start = (int) ChronoUnit.MINUTES.between(FIRST_SLOT, preferred) / 30;
+            for (int i = 0; i < SLOTS_PER_DAY; i++) {
+                LocalTime time = FIRST_SLOT.plusMinutes(30L * ((start + i) % SLOTS_PER_DAY));
+                int bit = slotBit(doctor, date, time);
+                if (!heldSlots.get(bit)) {
+                    heldSlots.set(bit);
+                    return time;
+                }
+            }
+            return null;
+        }
+
+        private int slotBit(int doctor, LocalDate date, LocalTime time) {
+            long day = ChronoUnit.DAYS.between(firstSlotDay, date);
+            return (int) (((long) doctor * slotDays + day) * slotsPerDay + time.toSecondOfDay() / 60 / slotMinutes);
+        }
+
+        private AppointmentStatus appointmentStatus(LocalDate date) {
+            int roll = random.nextInt(100);
+            if (date.isAfter(today)) {
+                return roll < 60 ? AppointmentStatus.SCHEDULED : roll < 95 ? AppointmentStatus.CONFIRMED : AppointmentStatus.CANCELLED;
+            }
+            return roll < 80 ? AppointmentStatus.COMPLETED : roll < 92 ? AppointmentStatus.CANCELLED : AppointmentStatus.NO_SHOW;
+        }
+
+        // CD4 và tải lượng virus xen kẽ; CD4 tăng dần và tải lượng virus giảm sau khi bắt đầu ARV
+        private LabSummary generateLabResults(long patientId, Long doctorId, LocalDate from) {
+            LabSummary summary = new LabSummary();
+            int count = vary(spec.getLabResultsPerPatient());
+            List<LocalDate> dates = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                dates.add(between(from, today));
+            }
+            dates.sort(null);
+
+            int baselineCd4 = 50 + random.nextInt(450);
+            for (int i = 0; i < dates.size(); i++) {
+                LocalDate testDate = dates.get(i);
+                long daysOnArt = ChronoUnit.DAYS.between(from, testDate);
+                boolean cd4 = i % 2 == 0;
+                int value;
+                String status;
+                if (cd4) {
+                    value = (int) Math.max(10, Math.min(1_500, baselineCd4 + daysOnArt / 8 + random.nextGaussian() * 60));
+                    status = value < 200 ? "ABNORMAL" : "NORMAL";
+                    if (summary.baselineCd4 == null) summary.baselineCd4 = value;
+                    summary.currentCd4 = value;
+                    summary.lastCd4Date = testDate;
+                } else {
+                    value = viralLoad(daysOnArt);
+                    status = value >= 1_000 ? "ABNORMAL" : "NORMAL";
+                    if (summary.baselineViralLoad == null) summary.baselineViralLoad = value;
+                    summary.currentViralLoad = value;
+                    summary.lastViralLoadDate = testDate;
+                }
+                labResults.add(patientId, doctorId, testDate, cd4 ? "CD4" : "VIRAL_LOAD", BigDecimal.valueOf(value),
+                        cd4 ? "500-1500" : "< 50", status, testDate.atTime(9 + random.nextInt(8), random.nextInt(60)));
+            }
+            return summary;
+        }
+
+        private int viralLoad(long daysOnArt) {
+            if (daysOnArt < 180) {
+                return (int) Math.pow(10, 3 + random.nextDouble() * 2.5);
+            }
+            int roll = random.nextInt(100);
+            if (roll < 82) return 20;
+            if (roll < 94) return 50 + random.nextInt(950);
+            return 1_000 + random.nextInt(99_000);
+        }
+
+        // Đơn thuốc 30-90 ngày liên tiếp từ ngày bắt đầu ARV
+        private void generatePrescriptions(long patientId, long doctorId, LocalDate artStart) {
+            int count = vary(spec.getPrescriptionsPerPatient());
+            List<LocalDate> starts = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                starts.add(between(artStart, today));
+            }
+            starts.sort(null);
+            for (LocalDate startDate : starts) {
+                int days = 30 * (1 + random.nextInt(3));
+                LocalDate endDate = startDate.plusDays(days);
+                LocalDateTime createdAt = startDate.atTime(8 + random.nextInt(9), random.nextInt(60));
+                long prescriptionId = prescriptions.add(patientId, doctorId, startDate,
+                        endDate.isBefore(today) ? "COMPLETED" : "ACTIVE", startDate, endDate, null, createdAt, createdAt);
+                int medicationCount = 1 + random.nextInt(3);
+                for (int m = 0; m < medicationCount; m++) {
+                    prescriptionMedications.add(prescriptionId, medicationIds.get(random.nextInt(medicationIds.size())),
+                            "1 viên", random.nextInt(5) == 0 ? "2 lần/ngày" : "1 lần/ngày", days, days,
+                            "Uống sau ăn");
+                }
+            }
+        }
+
+        // Thông báo tập trung trong năm gần nhất; thông báo cũ phần lớn đã đọc
+        private void generateNotifications(long userId, LocalDateTime registeredAt) {
+            int count = vary(spec.getNotificationsPerPatient());
+            LocalDateTime from = max(registeredAt, today.minusYears(1).atStartOfDay());
+            for (int i = 0; i < count; i++) {
+                String[] type = NOTIFICATION_TYPES[random.nextInt(NOTIFICATION_TYPES.length)];
+                LocalDateTime createdAt = between(from.toLocalDate(), today).atTime(6 + random.nextInt(16), random.nextInt(60));
+                boolean read = createdAt.isBefore(today.minusDays(7).atStartOfDay()) ? random.nextInt(100) < 85 : random.nextInt(100) < 30;
+                notifications.add(userId, type[1], type[2], type[0], read, createdAt);
+            }
+        }
+
+        private void generateSymptomReports(long patientId, Long doctorId, LocalDateTime registeredAt) {
+            int count = vary(spec.getSymptomReportsPerPatient());
+            for (int i = 0; i < count; i++) {
+                LocalDateTime createdAt = between(registeredAt.toLocalDate(), today).atTime(6 + random.nextInt(16), random.nextInt(60));
+                int roll = random.nextInt(100);
+                SymptomSeverity severity = roll < 50 ? SymptomSeverity.MILD : roll < 80 ? SymptomSeverity.MODERATE
+                        : roll < 95 ? SymptomSeverity.SEVERE : SymptomSeverity.CRITICAL;
+                boolean old = createdAt.isBefore(today.minusDays(14).atStartOfDay());
+                ReportStatus status = old ? (random.nextInt(4) == 0 ? ReportStatus.REVIEWED : ReportStatus.RESOLVED)
+                        : random.nextBoolean() ? ReportStatus.PENDING : ReportStatus.IN_PROGRESS;
+                boolean reviewed = doctorId != null && (status == ReportStatus.REVIEWED || status == ReportStatus.RESOLVED);
+                LocalDateTime reviewedAt = reviewed ? createdAt.plusHours(1 + random.nextInt(72)) : null;
+                String symptom = pick(SYMPTOMS);
+                symptomReports.add(patientId, symptom, symptom + ", " + pick(SYMPTOMS).toLowerCase(), severity.name(),
+                        status.name(), random.nextInt(11), 1 + random.nextInt(14),
+                        Math.round((36.5 + Math.abs(random.nextGaussian())) * 10) / 10.0,
+                        severity.ordinal() >= SymptomSeverity.SEVERE.ordinal(), 1 + severity.ordinal(),
+                        reviewed ? doctorId : null, reviewedAt, reviewed ? "Tiếp tục theo dõi, tái khám nếu nặng hơn." : null,
+                        createdAt, reviewedAt != null ? reviewedAt : createdAt);
+            }
+        }
+
+        private void flushIfFull() {
+            for (TableWriter table : tables) {
+                if (table.rows.size() >= spec.getBatchSize()) {
+                    flushAll();
+                    return;
+                }
+            }
+        }
+
+        private void flushAll() {
+            transaction.executeWithoutResult(status -> tables.forEach(TableWriter::flush));
+        }
+
+        // H2 không tự dời bộ đếm IDENTITY khi chèn id tường minh (MySQL AUTO_INCREMENT thì có)
+        private void restartIdentities() {
+            if (!isH2()) return;
+            for (TableWriter table : tables) {
+                jdbc.execute("ALTER TABLE " + table.table + " ALTER COLUMN id RESTART WITH " + table.nextId);
+            }
+        }
+
+        private boolean isH2() {
+            try (Connection connection = dataSource.getConnection()) {
+                return connection.getMetaData().getDatabaseProductName().startsWith("H2");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Không đọc được loại database", e);
+            }
+        }
+
+        // Một số bác sĩ nhận nhiều bệnh nhân hơn hẳn các bác sĩ khác
+        private long busyDoctor() {
+            return doctorIds.get((int) (doctorIds.size() * Math.pow(random.nextDouble(), 1.5)));
+        }
+
+        private int vary(int mean) {
+            return mean <= 0 ? 0 : (int) Math.round(mean * (0.5 + random.nextDouble()));
+        }
+
+        private LocalDate between(LocalDate from, LocalDate to) {
+            long days = ChronoUnit.DAYS.between(from, to);
+            return days <= 0 ? from : from.plusDays((long) (random.nextDouble() * (days + 1)));
+        }
+
+        private LocalDateTime pastDateTime(int maxDaysAgo) {
+            return today.minusDays(random.nextInt(maxDaysAgo + 1)).atTime(8 + random.nextInt(9), random.nextInt(60));
+        }
+
+        private String phone() {
+            return String.format("09%08d", random.nextInt(100_000_000));
+        }
+
+        private String pick(String[] values) {
+            return values[random.nextInt(values.length)];
+        }
+
+        // Ghi đệm các dòng của một bảng, id cấp tiếp sau MAX(id) hiện có
+        private class TableWriter {
+            private final String table;
+            private final String sql;
+            private final List<Object[]> rows = new ArrayList<>();
+            private long nextId;
+            private long written;
+
+            TableWriter(String table, String... columns) {
+                this.table = table;
+                this.sql = "INSERT INTO " + table + " (id, " + String.join(", ", columns) + ") VALUES (?"
+                        + ", ?".repeat(columns.length) + ")";
+                Long maxId = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+                this.nextId = maxId != null ? maxId + 1 : 1;
+            }
+
+            long add(Object... values) {
+                long id = nextId++;
+                Object[] row = new Object[values.length + 1];
+                row[0] = id;
+                System.arraycopy(values, 0, row, 1, values.length);
+                rows.add(row);
+                return id;
+            }
+
+            void flush() {
+                if (rows.isEmpty()) return;
+                jdbc.batchUpdate(sql, rows);
+                written += rows.size();
+                rows.clear();
+            }
+        }
+    }
+
+    // Giá trị đầu/cuối của CD4 và tải lượng virus, ghi vào hồ sơ HIV
+    private static class LabSummary {
+        private Integer baselineCd4;
+        private Integer baselineViralLoad;
+        private Integer currentCd4;
+        private Integer currentViralLoad;
+        private LocalDate lastCd4Date;
+        private LocalDate lastViralLoadDate;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
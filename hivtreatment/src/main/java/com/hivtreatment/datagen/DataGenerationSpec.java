@@ -0,0 +1,149 @@
+package com.hivtreatment.datagen;
+
+import java.time.LocalDate;
+
+/**
+ * Khối lượng và hình dạng dữ liệu cần sinh. Các giá trị "PerPatient" là trung bình; số thực tế của
+ * từng bệnh nhân dao động ±50% quanh giá trị này.
+ */
+public class DataGenerationSpec {
+    private int doctors = 500;
+    private int patients = 100_000;
+    private int appointmentsPerPatient = 20;
+    private int labResultsPerPatient = 12;
+    private int prescriptionsPerPatient = 8;
+    private int notificationsPerPatient = 30;
+    private int symptomReportsPerPatient = 3;
+    private int historyYears = 5;
+    private long seed = 42;
+    private int batchSize = 1_000;
+    private LocalDate today = LocalDate.now();
+
+    public DataGenerationSpec() {}
+
+    private DataGenerationSpec(Builder builder) {
+        this.doctors = builder.doctors;
+        this.patients = builder.patients;
+        this.appointmentsPerPatient = builder.appointmentsPerPatient;
+        this.labResultsPerPatient = builder.labResultsPerPatient;
+        this.prescriptionsPerPatient = builder.prescriptionsPerPatient;
+        this.notificationsPerPatient = builder.notificationsPerPatient;
+        this.symptomReportsPerPatient = builder.symptomReportsPerPatient;
+        this.historyYears = builder.historyYears;
+        this.seed = builder.seed;
+        this.batchSize = builder.batchSize;
+        this.today = builder.today;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private final DataGenerationSpec defaults = new DataGenerationSpec();
+        private int doctors = defaults.doctors;
+        private int patients = defaults.patients;
+        private int appointmentsPerPatient = defaults.appointmentsPerPatient;
+        private int labResultsPerPatient = defaults.labResultsPerPatient;
+        private int prescriptionsPerPatient = defaults.prescriptionsPerPatient;
+        private int notificationsPerPatient = defaults.notificationsPerPatient;
+        private int symptomReportsPerPatient = defaults.symptomReportsPerPatient;
+        private int historyYears = defaults.historyYears;
+        private long seed = defaults.seed;
+        private int batchSize = defaults.batchSize;
+        private LocalDate today = defaults.today;
+
+        public Builder doctors(int doctors) {
+            this.doctors = doctors;
+            return this;
+        }
+
+        public Builder patients(int patients) {
+            this.patients = patients;
+            return this;
+        }
+
+        public Builder appointmentsPerPatient(int appointmentsPerPatient) {
+            this.appointmentsPerPatient = appointmentsPerPatient;
+            return this;
+        }
+
+        public Builder labResultsPerPatient(int labResultsPerPatient) {
+            this.labResultsPerPatient = labResultsPerPatient;
+            return this;
+        }
+
+        public Builder prescriptionsPerPatient(int prescriptionsPerPatient) {
+            this.prescriptionsPerPatient = prescriptionsPerPatient;
+            return this;
+        }
+
+        public Builder notificationsPerPatient(int notificationsPerPatient) {
+            this.notificationsPerPatient = notificationsPerPatient;
+            return this;
+        }
+
+        public Builder symptomReportsPerPatient(int symptomReportsPerPatient) {
+            this.symptomReportsPerPatient = symptomReportsPerPatient;
+            return this;
+        }
+
+        public Builder historyYears(int historyYears) {
+            this.historyYears = historyYears;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder today(LocalDate today) {
+            this.today = today;
+            return this;
+        }
+
+        public DataGenerationSpec build() {
+            return new DataGenerationSpec(this);
+        }
+    }
+
+    // Getters & Setters
+    public int getDoctors() { return doctors; }
+    public void setDoctors(int doctors) { this.doctors = doctors; }
+
+    public int getPatients() { return patients; }
+    public void setPatients(int patients) { this.patients = patients; }
+
+    public int getAppointmentsPerPatient() { return appointmentsPerPatient; }
+    public void setAppointmentsPerPatient(int appointmentsPerPatient) { this.appointmentsPerPatient = appointmentsPerPatient; }
+
+    public int getLabResultsPerPatient() { return labResultsPerPatient; }
+    public void setLabResultsPerPatient(int labResultsPerPatient) { this.labResultsPerPatient = labResultsPerPatient; }
+
+    public int getPrescriptionsPerPatient() { return prescriptionsPerPatient; }
+    public void setPrescriptionsPerPatient(int prescriptionsPerPatient) { this.prescriptionsPerPatient = prescriptionsPerPatient; }
+
+    public int getNotificationsPerPatient() { return notificationsPerPatient; }
+    public void setNotificationsPerPatient(int notificationsPerPatient) { this.notificationsPerPatient = notificationsPerPatient; }
+
+    public int getSymptomReportsPerPatient() { return symptomReportsPerPatient; }
+    public void setSymptomReportsPerPatient(int symptomReportsPerPatient) { this.symptomReportsPerPatient = symptomReportsPerPatient; }
+
+    public int getHistoryYears() { return historyYears; }
+    public void setHistoryYears(int historyYears) { this.historyYears = historyYears; }
+
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public LocalDate getToday() { return today; }
+    public void setToday(LocalDate today) { this.today = today; }
+}
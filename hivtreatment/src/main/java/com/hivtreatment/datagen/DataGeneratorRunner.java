@@ -0,0 +1,94 @@
+package com.hivtreatment.datagen;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Chạy sinh dữ liệu khi bật profile "datagen", ví dụ:
+ * java -jar hivtreatment.jar --spring.profiles.active=datagen --hiv.datagen.patients=100000
+ * Kích thước lấy từ hiv.datagen.*; mặc định thoát ứng dụng sau khi ghi xong.
+ */
+@Component
+@Profile("datagen")
+public class DataGeneratorRunner implements CommandLineRunner {
+
+    @Autowired
+    private ClinicDataGenerator clinicDataGenerator;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${hiv.datagen.doctors:500}")
+    private int doctors;
+
+    @Value("${hiv.datagen.patients:100000}")
+    private int patients;
+
+    @Value("${hiv.datagen.appointments-per-patient:20}")
+    private int appointmentsPerPatient;
+
+    @Value("${hiv.datagen.lab-results-per-patient:12}")
+    private int labResultsPerPatient;
+
+    @Value("${hiv.datagen.prescriptions-per-patient:8}")
+    private int prescriptionsPerPatient;
+
+    @Value("${hiv.datagen.notifications-per-patient:30}")
+    private int notificationsPerPatient;
+
+    @Value("${hiv.datagen.symptom-reports-per-patient:3}")
+    private int symptomReportsPerPatient;
+
+    @Value("${hiv.datagen.history-years:5}")
+    private int historyYears;
+
+    @Value("${hiv.datagen.seed:42}")
+    private long seed;
+
+    @Value("${hiv.datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${hiv.datagen.exit-on-complete:true}")
+    private boolean exitOnComplete;
+
+    @Override
+    public void run(String... args) {
+        DataGenerationSpec spec = DataGenerationSpec.builder()
+                .doctors(doctors)
+                .patients(patients)
+                .appointmentsPerPatient(appointmentsPerPatient)
+                .labResultsPerPatient(labResultsPerPatient)
+                .prescriptionsPerPatient(prescriptionsPerPatient)
+                .notificationsPerPatient(notificationsPerPatient)
+                .symptomReportsPerPatient(symptomReportsPerPatient)
+                .historyYears(historyYears)
+                .seed(seed)
+                .batchSize(batchSize)
+                .build();
+
+        int exitCode = 0;
+        try {
+            long start = System.currentTimeMillis();
+            Map<String, Long> counts = clinicDataGenerator.generate(spec);
+            long total = counts.values().stream().mapToLong(Long::longValue).sum();
+            System.err.println("Sinh dữ liệu xong: " + total + " dòng trong "
+                    + (System.currentTimeMillis() - start) + " ms");
+            counts.forEach((table, count) -> System.err.println("  " + table + ": " + count));
+        } catch (Exception e) {
+            System.err.println("Lỗi khi sinh dữ liệu: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        if (exitOnComplete) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> code));
+        }
+    }
+}
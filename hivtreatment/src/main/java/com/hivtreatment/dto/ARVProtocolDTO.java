@@ -0,0 +1,88 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.entity.ARVProtocol;
+import com.hivtreatment.entity.ARVProtocolMedication;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bản chỉ đọc của một phác đồ ARV, dựng trong transaction để lưu vào cache.
+ * Danh sách thuốc (quan hệ LAZY) được chép sẵn thành các dòng chỉ đọc nên dùng được ngoài session.
+ */
+public class ARVProtocolDTO {
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final String protocolCode;
+    private final String targetGroup;
+    private final Boolean isFirstLine;
+    private final Boolean isActive;
+    private final String contraindications;
+    private final String sideEffects;
+    private final String instructions;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final List<MedicationLine> medications;
+
+    // Constructors
+    public ARVProtocolDTO(ARVProtocol protocol) {
+        this.id = protocol.getId();
+        this.name = protocol.getName();
+        this.description = protocol.getDescription();
+        this.protocolCode = protocol.getProtocolCode();
+        this.targetGroup = protocol.getTargetGroup();
+        this.isFirstLine = protocol.getIsFirstLine();
+        this.isActive = protocol.getIsActive();
+        this.contraindications = protocol.getContraindications();
+        this.sideEffects = protocol.getSideEffects();
+        this.instructions = protocol.getInstructions();
+        this.createdAt = protocol.getCreatedAt();
+        this.updatedAt = protocol.getUpdatedAt();
+        this.medications = protocol.getProtocolMedications() == null ? List.of()
+                : protocol.getProtocolMedications().stream().map(MedicationLine::new).toList();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public String getProtocolCode() { return protocolCode; }
+    public String getTargetGroup() { return targetGroup; }
+    public Boolean getIsFirstLine() { return isFirstLine; }
+    public Boolean getIsActive() { return isActive; }
+    public String getContraindications() { return contraindications; }
+    public String getSideEffects() { return sideEffects; }
+    public String getInstructions() { return instructions; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public List<MedicationLine> getMedications() { return medications; }
+
+    /**
+     * Một thuốc trong phác đồ: tên thuốc, liều, tần suất và thời điểm dùng.
+     */
+    public static class MedicationLine {
+        private final Long medicationId;
+        private final String medicationName;
+        private final String dosage;
+        private final String frequency;
+        private final String timing;
+        private final String notes;
+
+        public MedicationLine(ARVProtocolMedication protocolMedication) {
+            this.medicationId = protocolMedication.getMedication().getId();
+            this.medicationName = protocolMedication.getMedication().getName();
+            this.dosage = protocolMedication.getDosage();
+            this.frequency = protocolMedication.getFrequency();
+            this.timing = protocolMedication.getTiming();
+            this.notes = protocolMedication.getNotes();
+        }
+
+        public Long getMedicationId() { return medicationId; }
+        public String getMedicationName() { return medicationName; }
+        public String getDosage() { return dosage; }
+        public String getFrequency() { return frequency; }
+        public String getTiming() { return timing; }
+        public String getNotes() { return notes; }
+    }
+}
@@ -0,0 +1,113 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Bản tóm tắt chỉ đọc của một lịch hẹn, kèm tên bác sĩ và bệnh nhân.
+ * Được dựng trực tiếp trong câu JPQL nên không tải entity hay quan hệ LAZY nào.
+ */
+public class AppointmentSummaryDTO {
+    private Long id;
+    private LocalDate appointmentDate;
+    private LocalTime appointmentTime;
+    private AppointmentStatus status;
+    private String appointmentType;
+    private Long doctorId;
+    private String doctorName;
+    private Long patientId;
+    private String patientName;
+
+    // Constructors
+    public AppointmentSummaryDTO() {}
+
+    public AppointmentSummaryDTO(Long id, LocalDate appointmentDate, LocalTime appointmentTime,
+                                 AppointmentStatus status, String appointmentType,
+                                 Long doctorId, String doctorFirstName, String doctorLastName,
+                                 Long patientId, String patientFirstName, String patientLastName) {
+        this.id = id;
+        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
+        this.status = status;
+        this.appointmentType = appointmentType;
+        this.doctorId = doctorId;
+        this.doctorName = "BS. " + doctorFirstName + " " + doctorLastName;
+        this.patientId = patientId;
+        this.patientName = patientFirstName + " " + patientLastName;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public void setAppointmentDate(LocalDate appointmentDate) {
+        this.appointmentDate = appointmentDate;
+    }
+
+    public LocalTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    public void setAppointmentTime(LocalTime appointmentTime) {
+        this.appointmentTime = appointmentTime;
+    }
+
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+    }
+
+    public String getAppointmentType() {
+        return appointmentType;
+    }
+
+    public void setAppointmentType(String appointmentType) {
+        this.appointmentType = appointmentType;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public void setDoctorName(String doctorName) {
+        this.doctorName = doctorName;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
+    public String getPatientName() {
+        return patientName;
+    }
+
+    public void setPatientName(String patientName) {
+        this.patientName = patientName;
+    }
+}
@@ -0,0 +1,42 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Một khung giờ trống của một bác sĩ.
+ */
+public class AvailableSlotDTO {
+    private Long doctorId;
+    private String doctorName;
+    private String specialization;
+    private LocalDate date;
+    private LocalTime time;
+
+    // Constructors
+    public AvailableSlotDTO() {}
+
+    public AvailableSlotDTO(Long doctorId, String doctorName, String specialization, LocalDate date, LocalTime time) {
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.specialization = specialization;
+        this.date = date;
+        this.time = time;
+    }
+
+    // Getters and Setters
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public String getDoctorName() { return doctorName; }
+    public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
+
+    public String getSpecialization() { return specialization; }
+    public void setSpecialization(String specialization) { this.specialization = specialization; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public LocalTime getTime() { return time; }
+    public void setTime(LocalTime time) { this.time = time; }
+}
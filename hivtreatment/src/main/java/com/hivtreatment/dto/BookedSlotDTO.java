@@ -0,0 +1,38 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Vị trí của một lịch hẹn đang chiếm chỗ (bác sĩ, ngày, giờ), dựng trực tiếp trong JPQL
+ * để nạp chỉ mục khung giờ trống mà không tải entity Appointment.
+ */
+public class BookedSlotDTO {
+    private Long appointmentId;
+    private Long doctorId;
+    private LocalDate appointmentDate;
+    private LocalTime appointmentTime;
+
+    // Constructors
+    public BookedSlotDTO() {}
+
+    public BookedSlotDTO(Long appointmentId, Long doctorId, LocalDate appointmentDate, LocalTime appointmentTime) {
+        this.appointmentId = appointmentId;
+        this.doctorId = doctorId;
+        this.appointmentDate = appointmentDate;
+        this.appointmentTime = appointmentTime;
+    }
+
+    // Getters and Setters
+    public Long getAppointmentId() { return appointmentId; }
+    public void setAppointmentId(Long appointmentId) { this.appointmentId = appointmentId; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+
+    public LocalDate getAppointmentDate() { return appointmentDate; }
+    public void setAppointmentDate(LocalDate appointmentDate) { this.appointmentDate = appointmentDate; }
+
+    public LocalTime getAppointmentTime() { return appointmentTime; }
+    public void setAppointmentTime(LocalTime appointmentTime) { this.appointmentTime = appointmentTime; }
+}
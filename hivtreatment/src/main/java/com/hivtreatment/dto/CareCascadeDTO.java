@@ -0,0 +1,112 @@
+package com.hivtreatment.dto;
+
+/**
+ * Chuỗi chăm sóc HIV của một nhóm bệnh nhân tại một thời điểm: đã chẩn đoán → đang điều trị ARV →
+ * có xét nghiệm tải lượng virus trong 12 tháng → ức chế virus → không phát hiện.
+ * Tỷ lệ tính theo phần trăm, làm tròn một chữ số thập phân.
+ */
+public class CareCascadeDTO {
+    private String key;
+    private String label;
+    private long diagnosed;
+    private long onArt;
+    private long viralLoadTested;
+    private long suppressed;
+    private long undetectable;
+
+    // Constructors
+    public CareCascadeDTO() {}
+
+    public CareCascadeDTO(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+
+    public void add(CohortCellDTO cell) {
+        this.diagnosed += cell.getDiagnosed();
+        this.onArt += cell.getOnArt();
+        this.viralLoadTested += cell.getViralLoadTested();
+        this.suppressed += cell.getSuppressed();
+        this.undetectable += cell.getUndetectable();
+    }
+
+    // Tỷ lệ đang điều trị ARV trên số đã chẩn đoán
+    public double getOnArtRate() {
+        return percent(onArt, diagnosed);
+    }
+
+    // Tỷ lệ có xét nghiệm tải lượng virus trên số đang điều trị
+    public double getTestedRate() {
+        return percent(viralLoadTested, onArt);
+    }
+
+    // Tỷ lệ ức chế virus trên số đã xét nghiệm
+    public double getSuppressionRate() {
+        return percent(suppressed, viralLoadTested);
+    }
+
+    public double getUndetectableRate() {
+        return percent(undetectable, viralLoadTested);
+    }
+
+    private static double percent(long part, long whole) {
+        return whole > 0 ? Math.round(part * 1000.0 / whole) / 10.0 : 0.0;
+    }
+
+    // Getters and Setters
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public long getDiagnosed() {
+        return diagnosed;
+    }
+
+    public void setDiagnosed(long diagnosed) {
+        this.diagnosed = diagnosed;
+    }
+
+    public long getOnArt() {
+        return onArt;
+    }
+
+    public void setOnArt(long onArt) {
+        this.onArt = onArt;
+    }
+
+    public long getViralLoadTested() {
+        return viralLoadTested;
+    }
+
+    public void setViralLoadTested(long viralLoadTested) {
+        this.viralLoadTested = viralLoadTested;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    public void setSuppressed(long suppressed) {
+        this.suppressed = suppressed;
+    }
+
+    public long getUndetectable() {
+        return undetectable;
+    }
+
+    public void setUndetectable(long undetectable) {
+        this.undetectable = undetectable;
+    }
+}
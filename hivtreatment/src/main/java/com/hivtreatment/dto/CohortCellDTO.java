@@ -0,0 +1,138 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.enums.Gender;
+
+/**
+ * Một dòng GROUP BY của khối dữ liệu nhóm bệnh nhân: tổ hợp (giai đoạn, phác đồ, bác sĩ, năm sinh, giới tính)
+ * cùng số bệnh nhân ở từng bước của chuỗi chăm sóc. Mọi lát cắt đều cộng dồn từ các dòng này.
+ */
+public class CohortCellDTO {
+    private String hivStage;
+    private String arvProtocol;
+    private Long doctorId;
+    private Integer birthYear;
+    private Gender gender;
+    private long diagnosed;
+    private long onArt;
+    private long viralLoadTested;
+    private long suppressed;
+    private long undetectable;
+
+    // Constructors
+    public CohortCellDTO() {}
+
+    // Bước chẩn đoán và điều trị ARV, tính từ hồ sơ HIV
+    public CohortCellDTO(String hivStage, String arvProtocol, Long doctorId, Integer birthYear, Gender gender,
+                         Long diagnosed, Long onArt) {
+        this(hivStage, arvProtocol, doctorId, birthYear, gender);
+        this.diagnosed = diagnosed != null ? diagnosed : 0L;
+        this.onArt = onArt != null ? onArt : 0L;
+    }
+
+    // Bước xét nghiệm tải lượng virus, tính từ kết quả xét nghiệm gần nhất
+    public CohortCellDTO(String hivStage, String arvProtocol, Long doctorId, Integer birthYear, Gender gender,
+                         Long viralLoadTested, Long suppressed, Long undetectable) {
+        this(hivStage, arvProtocol, doctorId, birthYear, gender);
+        this.viralLoadTested = viralLoadTested != null ? viralLoadTested : 0L;
+        this.suppressed = suppressed != null ? suppressed : 0L;
+        this.undetectable = undetectable != null ? undetectable : 0L;
+    }
+
+    private CohortCellDTO(String hivStage, String arvProtocol, Long doctorId, Integer birthYear, Gender gender) {
+        this.hivStage = hivStage;
+        this.arvProtocol = arvProtocol;
+        this.doctorId = doctorId;
+        this.birthYear = birthYear;
+        this.gender = gender;
+    }
+
+    // Cộng số liệu của một dòng khác cùng tổ hợp
+    public void add(CohortCellDTO other) {
+        this.diagnosed += other.diagnosed;
+        this.onArt += other.onArt;
+        this.viralLoadTested += other.viralLoadTested;
+        this.suppressed += other.suppressed;
+        this.undetectable += other.undetectable;
+    }
+
+    // Getters and Setters
+    public String getHivStage() {
+        return hivStage;
+    }
+
+    public void setHivStage(String hivStage) {
+        this.hivStage = hivStage;
+    }
+
+    public String getArvProtocol() {
+        return arvProtocol;
+    }
+
+    public void setArvProtocol(String arvProtocol) {
+        this.arvProtocol = arvProtocol;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public Integer getBirthYear() {
+        return birthYear;
+    }
+
+    public void setBirthYear(Integer birthYear) {
+        this.birthYear = birthYear;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public void setGender(Gender gender) {
+        this.gender = gender;
+    }
+
+    public long getDiagnosed() {
+        return diagnosed;
+    }
+
+    public void setDiagnosed(long diagnosed) {
+        this.diagnosed = diagnosed;
+    }
+
+    public long getOnArt() {
+        return onArt;
+    }
+
+    public void setOnArt(long onArt) {
+        this.onArt = onArt;
+    }
+
+    public long getViralLoadTested() {
+        return viralLoadTested;
+    }
+
+    public void setViralLoadTested(long viralLoadTested) {
+        this.viralLoadTested = viralLoadTested;
+    }
+
+    public long getSuppressed() {
+        return suppressed;
+    }
+
+    public void setSuppressed(long suppressed) {
+        this.suppressed = suppressed;
+    }
+
+    public long getUndetectable() {
+        return undetectable;
+    }
+
+    public void setUndetectable(long undetectable) {
+        this.undetectable = undetectable;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hivtreatment.dto;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang theo keyset (seek).
+ * nextCursor/previousCursor là token mờ, truyền lại qua tham số after/before.
+ * totalElements là null khi bỏ qua COUNT(*) (chế độ cuộn vô hạn).
+ */
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private String previousCursor;
+    private boolean hasNext;
+    private boolean hasPrevious;
+    private Long totalElements;
+
+    // Constructors
+    public CursorPage() {}
+
+    public CursorPage(List<T> content, int size, String nextCursor, String previousCursor,
+                      boolean hasNext, boolean hasPrevious, Long totalElements) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+        this.totalElements = totalElements;
+    }
+
+    public boolean isCounted() {
+        return totalElements != null;
+    }
+
+    public int getTotalPages() {
+        if (totalElements == null || size <= 0) return 0;
+        return (int) ((totalElements + size - 1) / size);
+    }
+
+    // Getters and Setters
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public void setPreviousCursor(String previousCursor) {
+        this.previousCursor = previousCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public boolean isHasPrevious() {
+        return hasPrevious;
+    }
+
+    public void setHasPrevious(boolean hasPrevious) {
+        this.hasPrevious = hasPrevious;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(Long totalElements) {
+        this.totalElements = totalElements;
+    }
+}
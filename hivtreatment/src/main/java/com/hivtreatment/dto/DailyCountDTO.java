@@ -0,0 +1,54 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Một dòng kết quả GROUP BY theo ngày (và tùy chọn theo trạng thái), dùng cho bảng daily_stats.
+ */
+public class DailyCountDTO {
+    private LocalDate day;
+    private String status;
+    private long count;
+
+    // Constructors
+    public DailyCountDTO() {}
+
+    public DailyCountDTO(LocalDate day, Long count) {
+        this(day, (String) null, count);
+    }
+
+    public DailyCountDTO(LocalDate day, String status, Long count) {
+        this.day = day;
+        this.status = status;
+        this.count = count != null ? count : 0L;
+    }
+
+    public DailyCountDTO(LocalDate day, Enum<?> status, Long count) {
+        this(day, status != null ? status.name() : null, count);
+    }
+
+    // Getters and Setters
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
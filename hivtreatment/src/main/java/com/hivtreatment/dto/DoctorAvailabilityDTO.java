@@ -1,9 +1,12 @@
 package com.hivtreatment.dto;
 
+import java.time.LocalDateTime;
+
 public class DoctorAvailabilityDTO {
     private Long id;
     private String fullName;
     private boolean isAvailable;
+    private LocalDateTime nextAvailableSlot;
 
     public DoctorAvailabilityDTO(Long id, String fullName, boolean isAvailable) {
         this.id = id;
@@ -11,6 +14,11 @@ public class DoctorAvailabilityDTO {
         this.isAvailable = isAvailable;
     }
 
+    public DoctorAvailabilityDTO(Long id, String fullName, boolean isAvailable, LocalDateTime nextAvailableSlot) {
+        this(id, fullName, isAvailable);
+        this.nextAvailableSlot = nextAvailableSlot;
+    }
+
     // Getters và Setters
     public Long getId() {
         return id;
@@ -35,4 +43,12 @@ public class DoctorAvailabilityDTO {
     public void setAvailable(boolean available) {
         isAvailable = available;
     }
+
+    public LocalDateTime getNextAvailableSlot() {
+        return nextAvailableSlot;
+    }
+
+    public void setNextAvailableSlot(LocalDateTime nextAvailableSlot) {
+        this.nextAvailableSlot = nextAvailableSlot;
+    }
 }
@@ -0,0 +1,87 @@
+package com.hivtreatment.dto;
+
+public class DoctorSearchParams {
+    private String name;
+    private String specialization;
+    private Integer minExperience;
+    private Integer maxExperience;
+    private Boolean available;
+    private Double minRating;
+
+    public DoctorSearchParams() {}
+
+    private DoctorSearchParams(Builder builder) {
+        this.name = builder.name;
+        this.specialization = builder.specialization;
+        this.minExperience = builder.minExperience;
+        this.maxExperience = builder.maxExperience;
+        this.available = builder.available;
+        this.minRating = builder.minRating;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String name;
+        private String specialization;
+        private Integer minExperience;
+        private Integer maxExperience;
+        private Boolean available;
+        private Double minRating;
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder specialization(String specialization) {
+            this.specialization = specialization;
+            return this;
+        }
+
+        public Builder minExperience(Integer minExperience) {
+            this.minExperience = minExperience;
+            return this;
+        }
+
+        public Builder maxExperience(Integer maxExperience) {
+            this.maxExperience = maxExperience;
+            return this;
+        }
+
+        public Builder available(Boolean available) {
+            this.available = available;
+            return this;
+        }
+
+        public Builder minRating(Double minRating) {
+            this.minRating = minRating;
+            return this;
+        }
+
+        public DoctorSearchParams build() {
+            return new DoctorSearchParams(this);
+        }
+    }
+
+    // Getters & Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getSpecialization() { return specialization; }
+    public void setSpecialization(String specialization) { this.specialization = specialization; }
+
+    public Integer getMinExperience() { return minExperience; }
+    public void setMinExperience(Integer minExperience) { this.minExperience = minExperience; }
+
+    public Integer getMaxExperience() { return maxExperience; }
+    public void setMaxExperience(Integer maxExperience) { this.maxExperience = maxExperience; }
+
+    public Boolean getAvailable() { return available; }
+    public void setAvailable(Boolean available) { this.available = available; }
+
+    public Double getMinRating() { return minRating; }
+    public void setMinRating(Double minRating) { this.minRating = minRating; }
+}
@@ -0,0 +1,66 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.entity.EducationalResource;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản chỉ đọc của một tài liệu giáo dục, dựng trong transaction để lưu vào cache.
+ * Người tạo (quan hệ LAZY) chỉ giữ id; đọc id từ proxy không cần tải bảng users.
+ */
+public class EducationalResourceDTO {
+    private final Long id;
+    private final String title;
+    private final String description;
+    private final String content;
+    private final String type;
+    private final String category;
+    private final String fileUrl;
+    private final String videoUrl;
+    private final String thumbnailUrl;
+    private final Boolean isFeatured;
+    private final Long viewCount;
+    private final Long downloadCount;
+    private final Boolean isActive;
+    private final Long createdById;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    // Constructors
+    public EducationalResourceDTO(EducationalResource resource) {
+        this.id = resource.getId();
+        this.title = resource.getTitle();
+        this.description = resource.getDescription();
+        this.content = resource.getContent();
+        this.type = resource.getType();
+        this.category = resource.getCategory();
+        this.fileUrl = resource.getFileUrl();
+        this.videoUrl = resource.getVideoUrl();
+        this.thumbnailUrl = resource.getThumbnailUrl();
+        this.isFeatured = resource.getIsFeatured();
+        this.viewCount = resource.getViewCount();
+        this.downloadCount = resource.getDownloadCount();
+        this.isActive = resource.getIsActive();
+        this.createdById = resource.getCreatedBy() != null ? resource.getCreatedBy().getId() : null;
+        this.createdAt = resource.getCreatedAt();
+        this.updatedAt = resource.getUpdatedAt();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public String getContent() { return content; }
+    public String getType() { return type; }
+    public String getCategory() { return category; }
+    public String getFileUrl() { return fileUrl; }
+    public String getVideoUrl() { return videoUrl; }
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public Boolean getIsFeatured() { return isFeatured; }
+    public Long getViewCount() { return viewCount; }
+    public Long getDownloadCount() { return downloadCount; }
+    public Boolean getIsActive() { return isActive; }
+    public Long getCreatedById() { return createdById; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,45 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu chạy job trên node hiện tại (từ lúc khởi động), cập nhật sau mỗi lần chạy.
+ */
+public class JobRunMetrics {
+    private final String jobName;
+    private long runs;
+    private long failures;
+    private long totalItemsProcessed;
+    private long totalDurationMs;
+    private LocalDateTime lastStartedAt;
+    private long lastDurationMs;
+    private long lastItemsProcessed;
+    private boolean lastSucceeded;
+
+    // Constructors
+    public JobRunMetrics(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public synchronized void record(LocalDateTime startedAt, long durationMs, long itemsProcessed, boolean succeeded) {
+        runs++;
+        if (!succeeded) failures++;
+        totalItemsProcessed += itemsProcessed;
+        totalDurationMs += durationMs;
+        lastStartedAt = startedAt;
+        lastDurationMs = durationMs;
+        lastItemsProcessed = itemsProcessed;
+        lastSucceeded = succeeded;
+    }
+
+    // Getters
+    public String getJobName() { return jobName; }
+    public synchronized long getRuns() { return runs; }
+    public synchronized long getFailures() { return failures; }
+    public synchronized long getTotalItemsProcessed() { return totalItemsProcessed; }
+    public synchronized long getTotalDurationMs() { return totalDurationMs; }
+    public synchronized LocalDateTime getLastStartedAt() { return lastStartedAt; }
+    public synchronized long getLastDurationMs() { return lastDurationMs; }
+    public synchronized long getLastItemsProcessed() { return lastItemsProcessed; }
+    public synchronized boolean isLastSucceeded() { return lastSucceeded; }
+}
@@ -0,0 +1,89 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalDate;
+
+public class LabResultSearchParams {
+    private String patientCode;
+    private String testType;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String status;
+    private Long doctorId;
+
+    public LabResultSearchParams() {}
+
+    private LabResultSearchParams(Builder builder) {
+        this.patientCode = builder.patientCode;
+        this.testType = builder.testType;
+        this.startDate = builder.startDate;
+        this.endDate = builder.endDate;
+        this.status = builder.status;
+        this.doctorId = builder.doctorId;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String patientCode;
+        private String testType;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private String status;
+        private Long doctorId;
+
+        public Builder patientCode(String patientCode) {
+            this.patientCode = patientCode;
+            return this;
+        }
+
+        public Builder testType(String testType) {
+            this.testType = testType;
+            return this;
+        }
+
+        public Builder startDate(LocalDate startDate) {
+            this.startDate = startDate;
+            return this;
+        }
+
+        public Builder endDate(LocalDate endDate) {
+            this.endDate = endDate;
+            return this;
+        }
+
+        public Builder status(String status) {
+            this.status = status;
+            return this;
+        }
+
+        public Builder doctorId(Long doctorId) {
+            this.doctorId = doctorId;
+            return this;
+        }
+
+        public LabResultSearchParams build() {
+            return new LabResultSearchParams(this);
+        }
+    }
+
+    // Getters & Setters
+    public String getPatientCode() { return patientCode; }
+    public void setPatientCode(String patientCode) { this.patientCode = patientCode; }
+
+    public String getTestType() { return testType; }
+    public void setTestType(String testType) { this.testType = testType; }
+
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Long getDoctorId() { return doctorId; }
+    public void setDoctorId(Long doctorId) { this.doctorId = doctorId; }
+}
@@ -0,0 +1,37 @@
+package com.hivtreatment.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Một điểm trên biểu đồ xu hướng xét nghiệm (CD4, tải lượng virus) của bệnh nhân.
+ */
+public class LabSeriesPointDTO {
+    private LocalDate date;
+    private BigDecimal value;
+
+    // Constructors
+    public LabSeriesPointDTO() {}
+
+    public LabSeriesPointDTO(LocalDate date, BigDecimal value) {
+        this.date = date;
+        this.value = value;
+    }
+
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public void setValue(BigDecimal value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,57 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.entity.Medication;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản chỉ đọc của một thuốc trong danh mục, dựng trong transaction để lưu vào cache.
+ * Không giữ entity nên các request dùng chung cache không thể sửa hay lưu nhầm nó.
+ */
+public class MedicationDTO {
+    private final Long id;
+    private final String name;
+    private final String genericName;
+    private final String brandName;
+    private final String category;
+    private final String dosageForm;
+    private final String strength;
+    private final String description;
+    private final String sideEffects;
+    private final String contraindications;
+    private final Boolean isActive;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    // Constructors
+    public MedicationDTO(Medication medication) {
+        this.id = medication.getId();
+        this.name = medication.getName();
+        this.genericName = medication.getGenericName();
+        this.brandName = medication.getBrandName();
+        this.category = medication.getCategory();
+        this.dosageForm = medication.getDosageForm();
+        this.strength = medication.getStrength();
+        this.description = medication.getDescription();
+        this.sideEffects = medication.getSideEffects();
+        this.contraindications = medication.getContraindications();
+        this.isActive = medication.getIsActive();
+        this.createdAt = medication.getCreatedAt();
+        this.updatedAt = medication.getUpdatedAt();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getGenericName() { return genericName; }
+    public String getBrandName() { return brandName; }
+    public String getCategory() { return category; }
+    public String getDosageForm() { return dosageForm; }
+    public String getStrength() { return strength; }
+    public String getDescription() { return description; }
+    public String getSideEffects() { return sideEffects; }
+    public String getContraindications() { return contraindications; }
+    public Boolean getIsActive() { return isActive; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
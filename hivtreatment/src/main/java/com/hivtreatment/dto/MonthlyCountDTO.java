@@ -0,0 +1,53 @@
+package com.hivtreatment.dto;
+
+/**
+ * Một dòng kết quả GROUP BY theo tháng (và tùy chọn theo trạng thái),
+ * được tạo trực tiếp bằng constructor expression trong JPQL nên không nạp entity.
+ */
+public class MonthlyCountDTO {
+    private int month;
+    private String status;
+    private long count;
+
+    // Constructors
+    public MonthlyCountDTO() {}
+
+    public MonthlyCountDTO(Integer month, Long count) {
+        this(month, (String) null, count);
+    }
+
+    public MonthlyCountDTO(Integer month, String status, Long count) {
+        this.month = month != null ? month : 0;
+        this.status = status;
+        this.count = count != null ? count : 0L;
+    }
+
+    public MonthlyCountDTO(Integer month, Enum<?> status, Long count) {
+        this(month, status != null ? status.name() : null, count);
+    }
+
+    // Getters and Setters
+    public int getMonth() {
+        return month;
+    }
+
+    public void setMonth(int month) {
+        this.month = month;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
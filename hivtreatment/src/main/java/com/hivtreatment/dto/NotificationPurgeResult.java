@@ -0,0 +1,42 @@
+package com.hivtreatment.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Kết quả một lần dọn thông báo hết hạn: số dòng đã xóa theo loại, số lô đã lưu trữ và thời gian chạy.
+ */
+public class NotificationPurgeResult {
+    private final Map<String, Long> purgedByType = new LinkedHashMap<>();
+    private long totalPurged;
+    private long archivedBatches;
+    private long durationMs;
+
+    // Constructors
+    public NotificationPurgeResult() {}
+
+    public void addPurged(String type, long count) {
+        purgedByType.merge(type, count, Long::sum);
+        totalPurged += count;
+    }
+
+    public void addArchivedBatch() {
+        archivedBatches++;
+    }
+
+    // Getters and Setters
+    public Map<String, Long> getPurgedByType() { return purgedByType; }
+
+    public long getTotalPurged() { return totalPurged; }
+
+    public long getArchivedBatches() { return archivedBatches; }
+
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+
+    @Override
+    public String toString() {
+        return "purged " + totalPurged + " notifications " + purgedByType
+                + " (" + archivedBatches + " archived batches) in " + durationMs + " ms";
+    }
+}
@@ -0,0 +1,58 @@
+package com.hivtreatment.dto;
+
+import com.hivtreatment.enums.SearchDocumentType;
+
+/**
+ * Một kết quả tìm kiếm toàn văn. titleHighlight và snippet là HTML đã escape,
+ * từ khóa khớp được bọc trong thẻ &lt;mark&gt;.
+ */
+public class SearchHitDTO {
+    private SearchDocumentType type;
+    private Long id;
+    private String title;
+    private String titleHighlight;
+    private String snippet;
+    private String category;
+    private String url;
+    private float score;
+
+    // Constructors
+    public SearchHitDTO() {}
+
+    public SearchHitDTO(SearchDocumentType type, Long id, String title, String titleHighlight, String snippet,
+                        String category, String url, float score) {
+        this.type = type;
+        this.id = id;
+        this.title = title;
+        this.titleHighlight = titleHighlight;
+        this.snippet = snippet;
+        this.category = category;
+        this.url = url;
+        this.score = score;
+    }
+
+    // Getters and Setters
+    public SearchDocumentType getType() { return type; }
+    public void setType(SearchDocumentType type) { this.type = type; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getTitleHighlight() { return titleHighlight; }
+    public void setTitleHighlight(String titleHighlight) { this.titleHighlight = titleHighlight; }
+
+    public String getSnippet() { return snippet; }
+    public void setSnippet(String snippet) { this.snippet = snippet; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+
+    public float getScore() { return score; }
+    public void setScore(float score) { this.score = score; }
+}
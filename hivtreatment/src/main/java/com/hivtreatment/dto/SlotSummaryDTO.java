@@ -0,0 +1,35 @@
+package com.hivtreatment.dto;
+
+import java.time.LocalTime;
+
+/**
+ * Tình trạng một khung giờ của cả phòng khám: số bác sĩ có lịch làm việc và số bác sĩ còn trống.
+ */
+public class SlotSummaryDTO {
+    private LocalTime time;
+    private int scheduledDoctors;
+    private int freeDoctors;
+
+    // Constructors
+    public SlotSummaryDTO() {}
+
+    public SlotSummaryDTO(LocalTime time, int scheduledDoctors, int freeDoctors) {
+        this.time = time;
+        this.scheduledDoctors = scheduledDoctors;
+        this.freeDoctors = freeDoctors;
+    }
+
+    public boolean isFullyBooked() {
+        return scheduledDoctors > 0 && freeDoctors == 0;
+    }
+
+    // Getters and Setters
+    public LocalTime getTime() { return time; }
+    public void setTime(LocalTime time) { this.time = time; }
+
+    public int getScheduledDoctors() { return scheduledDoctors; }
+    public void setScheduledDoctors(int scheduledDoctors) { this.scheduledDoctors = scheduledDoctors; }
+
+    public int getFreeDoctors() { return freeDoctors; }
+    public void setFreeDoctors(int freeDoctors) { this.freeDoctors = freeDoctors; }
+}
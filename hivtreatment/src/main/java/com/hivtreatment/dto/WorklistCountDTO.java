@@ -0,0 +1,44 @@
+package com.hivtreatment.dto;
+
+/**
+ * Số xét nghiệm quá hạn trong hàng đợi của một bác sĩ, dùng cho thông báo tổng hợp hằng đêm.
+ */
+public class WorklistCountDTO {
+    private Long doctorId;
+    private long total;
+    private long newlyNotified;
+
+    // Constructors
+    public WorklistCountDTO() {}
+
+    public WorklistCountDTO(Long doctorId, Long total, Long newlyNotified) {
+        this.doctorId = doctorId;
+        this.total = total != null ? total : 0L;
+        this.newlyNotified = newlyNotified != null ? newlyNotified : 0L;
+    }
+
+    // Getters and Setters
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getNewlyNotified() {
+        return newlyNotified;
+    }
+
+    public void setNewlyNotified(long newlyNotified) {
+        this.newlyNotified = newlyNotified;
+    }
+}
@@ -9,9 +9,13 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments",
+       indexes = @Index(name = "idx_appointments_doctor_date", columnList = "doctor_id, appointment_date, id"),
+       uniqueConstraints = @UniqueConstraint(name = Appointment.SLOT_KEY_CONSTRAINT, columnNames = "slot_key"))
 public class Appointment {
 
+    public static final String SLOT_KEY_CONSTRAINT = "uk_appointments_slot_key";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -59,15 +63,28 @@ public class Appointment {
     @Column(name = "priority")
     private String priority;
 
+    // "doctorId|ngày|giờ bắt đầu khung" khi lịch hẹn đang chiếm khung giờ, NULL khi đã hủy/không đến.
+    // Ràng buộc UNIQUE (cho phép nhiều NULL) chặn đặt trùng khung trên mọi node.
+    @Column(name = "slot_key", length = 64)
+    private String slotKey;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        releaseSlotIfInactive();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        releaseSlotIfInactive();
+    }
+
+    private void releaseSlotIfInactive() {
+        if (status == null || !status.occupiesSlot()) {
+            slotKey = null;
+        }
     }
 
     // Constructors
@@ -122,4 +139,7 @@ public class Appointment {
 
     public String getPriority() { return priority; }
     public void setPriority(String priority) { this.priority = priority; }
+
+    public String getSlotKey() { return slotKey; }
+    public void setSlotKey(String slotKey) { this.slotKey = slotKey; }
 }
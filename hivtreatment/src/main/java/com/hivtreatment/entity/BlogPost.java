@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "blog_posts")
+@Table(name = "blog_posts",
+       indexes = @Index(name = "idx_blog_posts_updated", columnList = "updated_at, id"))
 public class BlogPost {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,28 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Bộ đếm mã nghiệp vụ (BN/BS/DT). nextValue là giá trị đầu tiên chưa được node nào nhận;
+ * mỗi node nhận cả khối giá trị một lần rồi cấp dần trong bộ nhớ (hi-lo).
+ */
+@Entity
+@Table(name = "code_sequences")
+public class CodeSequence {
+    @Id
+    @Column(name = "sequence_name", length = 50)
+    private String sequenceName;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    // Constructors
+    public CodeSequence() {}
+
+    // Getters and Setters
+    public String getSequenceName() { return sequenceName; }
+    public void setSequenceName(String sequenceName) { this.sequenceName = sequenceName; }
+
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+}
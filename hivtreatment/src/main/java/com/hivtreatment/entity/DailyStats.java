@@ -0,0 +1,131 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bảng tổng hợp số liệu theo ngày (rollup), được ScheduledTaskService cập nhật định kỳ.
+ * Biểu đồ dashboard đọc bảng này thay vì quét các bảng nghiệp vụ.
+ */
+@Entity
+@Table(name = "daily_stats",
+       uniqueConstraints = @UniqueConstraint(name = "uk_daily_stats_date", columnNames = "stat_date"))
+public class DailyStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "total_appointments", nullable = false)
+    private long totalAppointments;
+
+    @Column(name = "scheduled_appointments", nullable = false)
+    private long scheduledAppointments;
+
+    @Column(name = "confirmed_appointments", nullable = false)
+    private long confirmedAppointments;
+
+    @Column(name = "in_progress_appointments", nullable = false)
+    private long inProgressAppointments;
+
+    @Column(name = "completed_appointments", nullable = false)
+    private long completedAppointments;
+
+    @Column(name = "cancelled_appointments", nullable = false)
+    private long cancelledAppointments;
+
+    @Column(name = "no_show_appointments", nullable = false)
+    private long noShowAppointments;
+
+    @Column(name = "prescriptions", nullable = false)
+    private long prescriptions;
+
+    @Column(name = "lab_tests", nullable = false)
+    private long labTests;
+
+    @Column(name = "new_patients", nullable = false)
+    private long newPatients;
+
+    @Column(name = "symptom_reports", nullable = false)
+    private long symptomReports;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public DailyStats() {}
+
+    public DailyStats(LocalDate statDate) {
+        this.statDate = statDate;
+    }
+
+    /**
+     * Đặt lại toàn bộ bộ đếm về 0 trước khi tính lại một ngày.
+     */
+    public void reset() {
+        totalAppointments = 0;
+        scheduledAppointments = 0;
+        confirmedAppointments = 0;
+        inProgressAppointments = 0;
+        completedAppointments = 0;
+        cancelledAppointments = 0;
+        noShowAppointments = 0;
+        prescriptions = 0;
+        labTests = 0;
+        newPatients = 0;
+        symptomReports = 0;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDate getStatDate() { return statDate; }
+    public void setStatDate(LocalDate statDate) { this.statDate = statDate; }
+
+    public long getTotalAppointments() { return totalAppointments; }
+    public void setTotalAppointments(long totalAppointments) { this.totalAppointments = totalAppointments; }
+
+    public long getScheduledAppointments() { return scheduledAppointments; }
+    public void setScheduledAppointments(long scheduledAppointments) { this.scheduledAppointments = scheduledAppointments; }
+
+    public long getConfirmedAppointments() { return confirmedAppointments; }
+    public void setConfirmedAppointments(long confirmedAppointments) { this.confirmedAppointments = confirmedAppointments; }
+
+    public long getInProgressAppointments() { return inProgressAppointments; }
+    public void setInProgressAppointments(long inProgressAppointments) { this.inProgressAppointments = inProgressAppointments; }
+
+    public long getCompletedAppointments() { return completedAppointments; }
+    public void setCompletedAppointments(long completedAppointments) { this.completedAppointments = completedAppointments; }
+
+    public long getCancelledAppointments() { return cancelledAppointments; }
+    public void setCancelledAppointments(long cancelledAppointments) { this.cancelledAppointments = cancelledAppointments; }
+
+    public long getNoShowAppointments() { return noShowAppointments; }
+    public void setNoShowAppointments(long noShowAppointments) { this.noShowAppointments = noShowAppointments; }
+
+    public long getPrescriptions() { return prescriptions; }
+    public void setPrescriptions(long prescriptions) { this.prescriptions = prescriptions; }
+
+    public long getLabTests() { return labTests; }
+    public void setLabTests(long labTests) { this.labTests = labTests; }
+
+    public long getNewPatients() { return newPatients; }
+    public void setNewPatients(long newPatients) { this.newPatients = newPatients; }
+
+    public long getSymptomReports() { return symptomReports; }
+    public void setSymptomReports(long symptomReports) { this.symptomReports = symptomReports; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
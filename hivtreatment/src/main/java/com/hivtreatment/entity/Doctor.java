@@ -6,10 +6,18 @@ import jakarta.validation.constraints.PositiveOrZero;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "doctors")
+@Table(name = "doctors",
+       indexes = {
+           @Index(name = "idx_doctors_available_rating", columnList = "is_available, average_rating, id"),
+           @Index(name = "idx_doctors_experience", columnList = "experience_years")
+       })
 public class Doctor {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -50,6 +58,16 @@ public class Doctor {
     @Column(name = "is_available")
     private Boolean isAvailable = true;
 
+    // Đánh giá tổng hợp, cập nhật khi có đánh giá mới để lọc/sắp xếp danh bạ mà không phải tính lại
+    @Column(name = "average_rating")
+    private Double averageRating;
+
+    @Column(name = "rating_count")
+    private Integer ratingCount = 0;
+
+    @Column(name = "rating_sum")
+    private Long ratingSum = 0L;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -66,6 +84,10 @@ public class Doctor {
     @OneToMany(mappedBy = "doctor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Prescription> prescriptions;
 
+    // Đồng bộ từ chuỗi specialization trong setSpecialization
+    @OneToMany(mappedBy = "doctor", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    private List<DoctorSpecialization> specializationEntries = new ArrayList<>();
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -99,7 +121,27 @@ public class Doctor {
     public String getFullName() { return "BS. " + firstName + " " + lastName; }
 
     public String getSpecialization() { return specialization; }
-    public void setSpecialization(String specialization) { this.specialization = specialization; }
+    public void setSpecialization(String specialization) {
+        this.specialization = specialization;
+        syncSpecializationEntries();
+    }
+
+    /**
+     * Cập nhật bảng doctor_specializations theo chuỗi specialization: chỉ xóa mục không còn và thêm mục mới,
+     * để không chèn lại dòng trùng (doctor_id, name_key) trước khi dòng cũ bị xóa.
+     */
+    public void syncSpecializationEntries() {
+        Map<String, String> wanted = new LinkedHashMap<>();
+        if (specialization != null) {
+            Arrays.stream(specialization.split(","))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .forEach(name -> wanted.putIfAbsent(DoctorSpecialization.normalize(name), name));
+        }
+        specializationEntries.removeIf(entry -> !wanted.containsKey(entry.getNameKey()));
+        specializationEntries.forEach(entry -> wanted.remove(entry.getNameKey()));
+        wanted.values().forEach(name -> specializationEntries.add(new DoctorSpecialization(this, name)));
+    }
 
     public String getLicenseNumber() { return licenseNumber; }
     public void setLicenseNumber(String licenseNumber) { this.licenseNumber = licenseNumber; }
@@ -122,6 +164,15 @@ public class Doctor {
     public Boolean getIsAvailable() { return isAvailable; }
     public void setIsAvailable(Boolean isAvailable) { this.isAvailable = isAvailable; }
 
+    public Double getAverageRating() { return averageRating; }
+    public void setAverageRating(Double averageRating) { this.averageRating = averageRating; }
+
+    public Integer getRatingCount() { return ratingCount; }
+    public void setRatingCount(Integer ratingCount) { this.ratingCount = ratingCount; }
+
+    public Long getRatingSum() { return ratingSum; }
+    public void setRatingSum(Long ratingSum) { this.ratingSum = ratingSum; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -136,4 +187,7 @@ public class Doctor {
 
     public List<Prescription> getPrescriptions() { return prescriptions; }
     public void setPrescriptions(List<Prescription> prescriptions) { this.prescriptions = prescriptions; }
+
+    public List<DoctorSpecialization> getSpecializationEntries() { return specializationEntries; }
+    public void setSpecializationEntries(List<DoctorSpecialization> specializationEntries) { this.specializationEntries = specializationEntries; }
 }
@@ -0,0 +1,57 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.util.Locale;
+
+/**
+ * Một chuyên khoa của bác sĩ, tách từ chuỗi Doctor.specialization (phân tách bằng dấu phẩy)
+ * để lọc danh bạ bác sĩ bằng chỉ mục thay vì LIKE trên cả chuỗi.
+ */
+@Entity
+@Table(name = "doctor_specializations",
+       uniqueConstraints = @UniqueConstraint(name = "uk_doctor_specializations_doctor_key", columnNames = {"doctor_id", "name_key"}),
+       indexes = @Index(name = "idx_doctor_specializations_key_doctor", columnList = "name_key, doctor_id"))
+public class DoctorSpecialization {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private Doctor doctor;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    // Tên chuẩn hóa (chữ thường, gộp khoảng trắng) dùng để lọc và chống trùng
+    @Column(name = "name_key", nullable = false, length = 100)
+    private String nameKey;
+
+    // Constructors
+    public DoctorSpecialization() {}
+
+    public DoctorSpecialization(Doctor doctor, String name) {
+        this.doctor = doctor;
+        this.name = name;
+        this.nameKey = normalize(name);
+    }
+
+    public static String normalize(String name) {
+        return name == null ? null : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Doctor getDoctor() { return doctor; }
+    public void setDoctor(Doctor doctor) { this.doctor = doctor; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getNameKey() { return nameKey; }
+    public void setNameKey(String nameKey) { this.nameKey = nameKey; }
+}
@@ -6,7 +6,8 @@ import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "educational_resources")
+@Table(name = "educational_resources",
+       indexes = @Index(name = "idx_educational_resources_updated", columnList = "updated_at, id"))
 public class EducationalResource {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,42 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Khóa phân tán cho job định kỳ khi chạy nhiều instance.
+ * Node giữ khóa đến lockedUntil (lease); node chết thì khóa tự hết hạn và node khác nhận lại.
+ */
+@Entity
+@Table(name = "job_locks")
+public class JobLock {
+    @Id
+    @Column(name = "lock_name", length = 150)
+    private String lockName;
+
+    @Column(length = 100)
+    private String owner;
+
+    @Column(name = "locked_at")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    // Constructors
+    public JobLock() {}
+
+    // Getters and Setters
+    public String getLockName() { return lockName; }
+    public void setLockName(String lockName) { this.lockName = lockName; }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public LocalDateTime getLockedAt() { return lockedAt; }
+    public void setLockedAt(LocalDateTime lockedAt) { this.lockedAt = lockedAt; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+}
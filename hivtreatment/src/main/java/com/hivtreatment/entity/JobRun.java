@@ -0,0 +1,120 @@
+package com.hivtreatment.entity;
+
+import com.hivtreatment.enums.JobRunStatus;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một lần chạy của một phân vùng trong job định kỳ (ví dụ nhắc uống thuốc buổi sáng ngày 2024-05-01, phân vùng 3).
+ * checkpoint lưu ID cuối cùng đã xử lý xong để job chạy tiếp được nếu node khởi động lại giữa chừng.
+ * nodeId và durationMs cho biết node nào đã chạy và mất bao lâu.
+ */
+@Entity
+@Table(name = "job_runs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_job_runs_name_key_partition",
+                                             columnNames = {"job_name", "run_key", "partition_no"}))
+public class JobRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    // Khóa của lần chạy, ví dụ "2024-05-01T07"
+    @Column(name = "run_key", nullable = false, length = 100)
+    private String runKey;
+
+    @Column(name = "partition_no", nullable = false)
+    private int partitionNo = 0;
+
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobRunStatus status = JobRunStatus.RUNNING;
+
+    private Long checkpoint;
+
+    @Column(name = "items_processed", nullable = false)
+    private long itemsProcessed = 0;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (startedAt == null) {
+            startedAt = LocalDateTime.now();
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public JobRun() {}
+
+    public JobRun(String jobName, String runKey, int partitionNo) {
+        this.jobName = jobName;
+        this.runKey = runKey;
+        this.partitionNo = partitionNo;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+
+    public String getRunKey() { return runKey; }
+    public void setRunKey(String runKey) { this.runKey = runKey; }
+
+    public int getPartitionNo() { return partitionNo; }
+    public void setPartitionNo(int partitionNo) { this.partitionNo = partitionNo; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public JobRunStatus getStatus() { return status; }
+    public void setStatus(JobRunStatus status) { this.status = status; }
+
+    public Long getCheckpoint() { return checkpoint; }
+    public void setCheckpoint(Long checkpoint) { this.checkpoint = checkpoint; }
+
+    public long getItemsProcessed() { return itemsProcessed; }
+    public void setItemsProcessed(long itemsProcessed) { this.itemsProcessed = itemsProcessed; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public Long getDurationMs() { return durationMs; }
+    public void setDurationMs(Long durationMs) { this.durationMs = durationMs; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
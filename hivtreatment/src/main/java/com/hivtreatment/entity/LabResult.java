@@ -8,7 +8,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "lab_results")
+@Table(name = "lab_results",
+       indexes = {
+           @Index(name = "idx_lab_results_test_date", columnList = "test_date, id"),
+           @Index(name = "idx_lab_results_doctor_test_date", columnList = "doctor_id, test_date, id"),
+           @Index(name = "idx_lab_results_type_test_date", columnList = "test_type, test_date, id"),
+           @Index(name = "idx_lab_results_status_test_date", columnList = "status, test_date, id"),
+           @Index(name = "idx_lab_results_patient_type_date", columnList = "patient_id, test_type, test_date DESC, id DESC")
+       })
 public class LabResult {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
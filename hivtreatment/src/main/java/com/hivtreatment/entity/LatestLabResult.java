@@ -0,0 +1,92 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả mới nhất của mỗi loại xét nghiệm cho từng bệnh nhân, do LabResultService cập nhật
+ * mỗi khi thêm/sửa/xóa kết quả. Dashboard đọc một dòng theo khóa thay vì quét lịch sử xét nghiệm.
+ *
+ * labResultId không phải khóa ngoại để xóa kết quả xét nghiệm không phụ thuộc thứ tự xóa dòng này.
+ */
+@Entity
+@Table(name = "latest_lab_results",
+       uniqueConstraints = @UniqueConstraint(name = "uk_latest_lab_results_patient_type", columnNames = {"patient_id", "test_type"}))
+public class LatestLabResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+
+    @Column(name = "test_type", nullable = false, length = 100)
+    private String testType;
+
+    @Column(name = "lab_result_id", nullable = false)
+    private Long labResultId;
+
+    @Column(name = "test_date")
+    private LocalDate testDate;
+
+    @Column(name = "result_value")
+    private BigDecimal resultValue;
+
+    @Column(name = "result_text", columnDefinition = "TEXT")
+    private String resultText;
+
+    private String status;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public LatestLabResult() {}
+
+    public LatestLabResult(Patient patient, String testType) {
+        this.patient = patient;
+        this.testType = testType;
+    }
+
+    public void copyFrom(LabResult labResult) {
+        this.labResultId = labResult.getId();
+        this.testDate = labResult.getTestDate();
+        this.resultValue = labResult.getResultValue();
+        this.resultText = labResult.getResultText();
+        this.status = labResult.getStatus();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Patient getPatient() { return patient; }
+    public void setPatient(Patient patient) { this.patient = patient; }
+
+    public String getTestType() { return testType; }
+    public void setTestType(String testType) { this.testType = testType; }
+
+    public Long getLabResultId() { return labResultId; }
+    public void setLabResultId(Long labResultId) { this.labResultId = labResultId; }
+
+    public LocalDate getTestDate() { return testDate; }
+    public void setTestDate(LocalDate testDate) { this.testDate = testDate; }
+
+    public BigDecimal getResultValue() { return resultValue; }
+    public void setResultValue(BigDecimal resultValue) { this.resultValue = resultValue; }
+
+    public String getResultText() { return resultText; }
+    public void setResultText(String resultText) { this.resultText = resultText; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -6,7 +6,11 @@ import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = {
+           @Index(name = "idx_notifications_type_created", columnList = "type, created_at"),
+           @Index(name = "idx_notifications_user_read_created", columnList = "user_id, is_read, created_at")
+       })
 public class Notification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
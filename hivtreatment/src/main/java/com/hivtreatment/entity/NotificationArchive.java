@@ -0,0 +1,79 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lưu trữ các thông báo đã hết hạn trước khi xóa khỏi bảng notifications.
+ * Mỗi dòng chứa một lô thông báo cùng loại, nén GZIP dưới dạng JSON (payload).
+ */
+@Entity
+@Table(name = "notification_archive",
+       indexes = @Index(name = "idx_notification_archive_type_created", columnList = "notification_type, newest_created_at"))
+public class NotificationArchive {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "notification_type")
+    private String notificationType;
+
+    @Column(name = "first_notification_id", nullable = false)
+    private Long firstNotificationId;
+
+    @Column(name = "last_notification_id", nullable = false)
+    private Long lastNotificationId;
+
+    @Column(name = "row_count", nullable = false)
+    private int rowCount;
+
+    @Column(name = "oldest_created_at")
+    private LocalDateTime oldestCreatedAt;
+
+    @Column(name = "newest_created_at")
+    private LocalDateTime newestCreatedAt;
+
+    @Lob
+    @Column(nullable = false, length = 16777215)
+    private byte[] payload;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        archivedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public NotificationArchive() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getNotificationType() { return notificationType; }
+    public void setNotificationType(String notificationType) { this.notificationType = notificationType; }
+
+    public Long getFirstNotificationId() { return firstNotificationId; }
+    public void setFirstNotificationId(Long firstNotificationId) { this.firstNotificationId = firstNotificationId; }
+
+    public Long getLastNotificationId() { return lastNotificationId; }
+    public void setLastNotificationId(Long lastNotificationId) { this.lastNotificationId = lastNotificationId; }
+
+    public int getRowCount() { return rowCount; }
+    public void setRowCount(int rowCount) { this.rowCount = rowCount; }
+
+    public LocalDateTime getOldestCreatedAt() { return oldestCreatedAt; }
+    public void setOldestCreatedAt(LocalDateTime oldestCreatedAt) { this.oldestCreatedAt = oldestCreatedAt; }
+
+    public LocalDateTime getNewestCreatedAt() { return newestCreatedAt; }
+    public void setNewestCreatedAt(LocalDateTime newestCreatedAt) { this.newestCreatedAt = newestCreatedAt; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
@@ -82,6 +82,12 @@ public class Patient {
     @OneToMany(mappedBy = "patient", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<LabResult> labResults;
 
+    @OneToMany(mappedBy = "patient", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
+    private List<LatestLabResult> latestLabResults;
+
+    @OneToMany(mappedBy = "patient", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
+    private List<TestWorklistItem> testWorklistItems;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -166,4 +172,10 @@ public class Patient {
 
     public List<LabResult> getLabResults() { return labResults; }
     public void setLabResults(List<LabResult> labResults) { this.labResults = labResults; }
+
+    public List<LatestLabResult> getLatestLabResults() { return latestLabResults; }
+    public void setLatestLabResults(List<LatestLabResult> latestLabResults) { this.latestLabResults = latestLabResults; }
+
+    public List<TestWorklistItem> getTestWorklistItems() { return testWorklistItems; }
+    public void setTestWorklistItems(List<TestWorklistItem> testWorklistItems) { this.testWorklistItems = testWorklistItems; }
 }
@@ -8,7 +8,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "prescriptions")
+@Table(name = "prescriptions",
+       indexes = {
+           @Index(name = "idx_prescriptions_doctor_date", columnList = "doctor_id, prescription_date, id"),
+           @Index(name = "idx_prescriptions_status_patient", columnList = "status, patient_id")
+       })
 public class Prescription {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,71 @@
+package com.hivtreatment.entity;
+
+import com.hivtreatment.enums.PushEventType;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bản ghi chuyển tiếp sự kiện dashboard giữa các node. Node phát sự kiện ghi dòng này cùng transaction
+ * nghiệp vụ; các node khác đọc định kỳ và đẩy tới kết nối SSE của mình. Dòng cũ bị xóa sau vài phút.
+ */
+@Entity
+@Table(name = "push_events",
+       indexes = @Index(name = "idx_push_events_created_at", columnList = "created_at, id"))
+public class PushEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private PushEventType type;
+
+    // Danh sách user ID, phân tách bằng dấu phẩy
+    @Column(name = "user_ids", columnDefinition = "TEXT")
+    private String userIds;
+
+    // Danh sách vai trò, phân tách bằng dấu phẩy
+    @Column(length = 200)
+    private String roles;
+
+    // Dữ liệu sự kiện dạng JSON
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public PushEvent() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public PushEventType getType() { return type; }
+    public void setType(PushEventType type) { this.type = type; }
+
+    public String getUserIds() { return userIds; }
+    public void setUserIds(String userIds) { this.userIds = userIds; }
+
+    public String getRoles() { return roles; }
+    public void setRoles(String roles) { this.roles = roles; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public String getOriginNode() { return originNode; }
+    public void setOriginNode(String originNode) { this.originNode = originNode; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -9,7 +9,8 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "symptom_reports")
+@Table(name = "symptom_reports",
+       indexes = @Index(name = "idx_symptom_reports_created", columnList = "created_at, id"))
 public class SymptomReport {
 
     @Id
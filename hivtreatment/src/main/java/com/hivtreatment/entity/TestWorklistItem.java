@@ -0,0 +1,111 @@
+package com.hivtreatment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Một xét nghiệm CD4/tải lượng virus đã đến hạn hoặc quá hạn của một bệnh nhân, trong hàng đợi của bác sĩ phụ trách.
+ * Bảng do TestWorklistService dựng lại mỗi đêm và cập nhật ngay khi có kết quả xét nghiệm mới;
+ * danh sách sắp theo ngày đến hạn (quá hạn lâu nhất trước) rồi theo điểm nguy cơ.
+ */
+@Entity
+@Table(name = "test_worklist_items",
+       uniqueConstraints = @UniqueConstraint(name = "uk_test_worklist_patient_type", columnNames = {"patient_id", "test_type"}),
+       indexes = {
+           @Index(name = "idx_test_worklist_doctor_due", columnList = "doctor_id, due_date, risk_score, id"),
+           @Index(name = "idx_test_worklist_due", columnList = "due_date, risk_score, id")
+       })
+public class TestWorklistItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient;
+
+    // Null: bệnh nhân chưa được phân công bác sĩ, nhân viên xử lý
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id")
+    private Doctor doctor;
+
+    @Column(name = "test_type", nullable = false, length = 100)
+    private String testType;
+
+    // Null: bệnh nhân chưa từng làm xét nghiệm này
+    @Column(name = "last_test_date")
+    private LocalDate lastTestDate;
+
+    @Column(name = "due_date", nullable = false)
+    private LocalDate dueDate;
+
+    @Column(name = "risk_score", nullable = false)
+    private int riskScore;
+
+    @Column(name = "notified_at")
+    private LocalDateTime notifiedAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public TestWorklistItem() {}
+
+    public TestWorklistItem(Patient patient, String testType) {
+        this.patient = patient;
+        this.testType = testType;
+    }
+
+    public long getDaysOverdue(LocalDate today) {
+        return Math.max(0, ChronoUnit.DAYS.between(dueDate, today));
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Patient getPatient() { return patient; }
+    public void setPatient(Patient patient) { this.patient = patient; }
+
+    public Doctor getDoctor() { return doctor; }
+    public void setDoctor(Doctor doctor) { this.doctor = doctor; }
+
+    public String getTestType() { return testType; }
+    public void setTestType(String testType) { this.testType = testType; }
+
+    public LocalDate getLastTestDate() { return lastTestDate; }
+    public void setLastTestDate(LocalDate lastTestDate) { this.lastTestDate = lastTestDate; }
+
+    public LocalDate getDueDate() { return dueDate; }
+    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+
+    public int getRiskScore() { return riskScore; }
+    public void setRiskScore(int riskScore) { this.riskScore = riskScore; }
+
+    public LocalDateTime getNotifiedAt() { return notifiedAt; }
+    public void setNotifiedAt(LocalDateTime notifiedAt) { this.notifiedAt = notifiedAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -14,7 +14,8 @@ import java.util.Collection;
 import java.util.Collections;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+       indexes = @Index(name = "idx_users_created", columnList = "created_at, id"))
 public class User implements UserDetails {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
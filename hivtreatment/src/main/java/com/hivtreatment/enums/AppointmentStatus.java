@@ -17,4 +17,9 @@ public enum AppointmentStatus {
     public String getDisplayName() {
         return displayName;
     }
+
+    // Lịch hẹn ở trạng thái này giữ khung giờ của bác sĩ
+    public boolean occupiesSlot() {
+        return this != CANCELLED && this != NO_SHOW;
+    }
 }
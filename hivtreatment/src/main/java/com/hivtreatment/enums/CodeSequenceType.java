@@ -0,0 +1,44 @@
+package com.hivtreatment.enums;
+
+public enum CodeSequenceType {
+    PATIENT("Mã bệnh nhân", "BN", 6),
+    DOCTOR("Mã bác sĩ", "BS", 6),
+    PRESCRIPTION("Mã đơn thuốc", "DT", 8);
+
+    private final String displayName;
+    private final String prefix;
+    private final int digits;
+
+    CodeSequenceType(String displayName, String prefix, int digits) {
+        this.displayName = displayName;
+        this.prefix = prefix;
+        this.digits = digits;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    // Giữ định dạng cũ (BN000001, DT00000001); vượt số chữ số thì mã dài thêm chứ không bị cắt
+    public String format(long value) {
+        return prefix + String.format("%0" + digits + "d", value);
+    }
+
+    // Phần số của một mã đúng định dạng, hoặc -1 nếu không phải mã do hệ thống sinh
+    public long parse(String code) {
+        if (code == null || !code.startsWith(prefix) || code.length() == prefix.length()) return -1;
+        String number = code.substring(prefix.length());
+        for (int i = 0; i < number.length(); i++) {
+            if (!Character.isDigit(number.charAt(i))) return -1;
+        }
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
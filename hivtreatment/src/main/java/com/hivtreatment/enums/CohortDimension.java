@@ -0,0 +1,19 @@
+package com.hivtreatment.enums;
+
+public enum CohortDimension {
+    HIV_STAGE("Giai đoạn HIV"),
+    ARV_PROTOCOL("Phác đồ ARV"),
+    DOCTOR("Bác sĩ phụ trách"),
+    AGE_BAND("Nhóm tuổi"),
+    GENDER("Giới tính");
+
+    private final String displayName;
+
+    CohortDimension(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
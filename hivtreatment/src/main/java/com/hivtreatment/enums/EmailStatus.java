@@ -0,0 +1,18 @@
+package com.hivtreatment.enums;
+
+public enum EmailStatus {
+    PENDING("Chờ gửi"),
+    SENDING("Đang gửi"),
+    SENT("Đã gửi"),
+    DEAD("Gửi thất bại");
+    
+    private final String displayName;
+    
+    EmailStatus(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -1,5 +1,17 @@
 package com.hivtreatment.enums;
 
-public class Gender {
-  
+public enum Gender {
+    MALE("Nam"),
+    FEMALE("Nữ"),
+    OTHER("Khác");
+
+    private final String displayName;
+
+    Gender(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
 }
@@ -0,0 +1,17 @@
+package com.hivtreatment.enums;
+
+public enum JobRunStatus {
+    RUNNING("Đang chạy"),
+    COMPLETED("Hoàn thành"),
+    FAILED("Thất bại");
+    
+    private final String displayName;
+    
+    JobRunStatus(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hivtreatment.enums;
+
+public enum PushEventType {
+    APPOINTMENT_CREATED("Lịch hẹn mới"),
+    APPOINTMENT_CONFIRMED("Lịch hẹn đã xác nhận"),
+    URGENT_SYMPTOM("Triệu chứng khẩn cấp"),
+    NEW_NOTIFICATION("Thông báo mới"),
+    LAB_RESULT_REVIEWED("Kết quả xét nghiệm mới");
+
+    private final String displayName;
+
+    PushEventType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
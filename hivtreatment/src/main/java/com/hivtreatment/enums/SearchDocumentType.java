@@ -0,0 +1,16 @@
+package com.hivtreatment.enums;
+
+public enum SearchDocumentType {
+    BLOG_POST("Bài viết"),
+    EDUCATIONAL_RESOURCE("Tài liệu giáo dục");
+
+    private final String displayName;
+
+    SearchDocumentType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,54 @@
+package com.hivtreatment.event;
+
+import com.hivtreatment.entity.Appointment;
+import com.hivtreatment.enums.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Vị trí mới của một lịch hẹn sau khi lưu/hủy/đổi lịch/xóa. SlotAvailabilityService áp dụng sau khi commit
+ * để cập nhật chỉ mục khung giờ trống theo từng bit thay vì nạp lại từ database.
+ */
+public class AppointmentSlotEvent {
+
+    // Các trạng thái chiếm khung giờ của bác sĩ
+    public static final Set<AppointmentStatus> OCCUPYING_STATUSES = EnumSet.copyOf(
+            Arrays.stream(AppointmentStatus.values()).filter(AppointmentStatus::occupiesSlot).toList());
+
+    private final Long appointmentId;
+    private final Long doctorId;
+    private final LocalDate date;
+    private final LocalTime time;
+    private final boolean occupying;
+
+    // Constructors
+    public AppointmentSlotEvent(Long appointmentId, Long doctorId, LocalDate date, LocalTime time, boolean occupying) {
+        this.appointmentId = appointmentId;
+        this.doctorId = doctorId;
+        this.date = date;
+        this.time = time;
+        this.occupying = occupying;
+    }
+
+    public static AppointmentSlotEvent of(Appointment appointment) {
+        return new AppointmentSlotEvent(appointment.getId(),
+                appointment.getDoctor() != null ? appointment.getDoctor().getId() : null,
+                appointment.getAppointmentDate(), appointment.getAppointmentTime(),
+                appointment.getStatus() != null && appointment.getStatus().occupiesSlot());
+    }
+
+    public static AppointmentSlotEvent removed(Long appointmentId) {
+        return new AppointmentSlotEvent(appointmentId, null, null, null, false);
+    }
+
+    // Getters
+    public Long getAppointmentId() { return appointmentId; }
+    public Long getDoctorId() { return doctorId; }
+    public LocalDate getDate() { return date; }
+    public LocalTime getTime() { return time; }
+    public boolean isOccupying() { return occupying; }
+}
@@ -0,0 +1,110 @@
+package com.hivtreatment.event;
+
+import com.hivtreatment.entity.Appointment;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.SymptomReport;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.PushEventType;
+import com.hivtreatment.enums.UserRole;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sự kiện nghiệp vụ trong tiến trình, được DashboardPushService đẩy tới trình duyệt qua SSE sau khi commit.
+ * Người nhận là danh sách user ID và/hoặc các vai trò (mọi người dùng đang kết nối có vai trò đó).
+ */
+public class DashboardEvent {
+
+    private final PushEventType type;
+    private final Set<Long> userIds = new LinkedHashSet<>();
+    private final Set<UserRole> roles = EnumSet.noneOf(UserRole.class);
+    private final Map<String, Object> data = new LinkedHashMap<>();
+
+    // Constructors
+    public DashboardEvent(PushEventType type) {
+        this.type = type;
+    }
+
+    public static DashboardEvent appointmentCreated(Appointment appointment) {
+        return forAppointment(PushEventType.APPOINTMENT_CREATED, appointment)
+                .toRole(UserRole.STAFF).toRole(UserRole.ADMIN);
+    }
+
+    public static DashboardEvent appointmentConfirmed(Appointment appointment) {
+        return forAppointment(PushEventType.APPOINTMENT_CONFIRMED, appointment);
+    }
+
+    // Báo cáo đã phân công thì chỉ báo bác sĩ phụ trách, chưa phân công thì báo mọi bác sĩ đang trực tuyến
+    public static DashboardEvent urgentSymptom(SymptomReport report) {
+        DashboardEvent event = new DashboardEvent(PushEventType.URGENT_SYMPTOM)
+                .with("reportId", report.getId())
+                .with("severity", report.getSeverity() != null ? report.getSeverity().name() : null);
+        if (report.getReviewedByDoctor() != null) {
+            event.toUser(report.getReviewedByDoctor().getUser());
+        } else {
+            event.toRole(UserRole.DOCTOR);
+        }
+        return event.toRole(UserRole.ADMIN);
+    }
+
+    public static DashboardEvent newNotification(Notification notification) {
+        return new DashboardEvent(PushEventType.NEW_NOTIFICATION)
+                .with("notificationId", notification.getId())
+                .with("title", notification.getTitle())
+                .with("notificationType", notification.getType())
+                .toUser(notification.getUser());
+    }
+
+    public static DashboardEvent labResultReviewed(LabResult labResult) {
+        DashboardEvent event = new DashboardEvent(PushEventType.LAB_RESULT_REVIEWED)
+                .with("labResultId", labResult.getId())
+                .with("testType", labResult.getTestType());
+        if (labResult.getPatient() != null) event.toUser(labResult.getPatient().getUser());
+        return event;
+    }
+
+    private static DashboardEvent forAppointment(PushEventType type, Appointment appointment) {
+        DashboardEvent event = new DashboardEvent(type)
+                .with("appointmentId", appointment.getId())
+                .with("appointmentDate", appointment.getAppointmentDate() != null
+                        ? appointment.getAppointmentDate().toString() : null);
+        Doctor doctor = appointment.getDoctor();
+        Patient patient = appointment.getPatient();
+        if (doctor != null) event.toUser(doctor.getUser());
+        if (patient != null) event.toUser(patient.getUser());
+        return event;
+    }
+
+    public DashboardEvent toUser(User user) {
+        if (user != null && user.getId() != null) userIds.add(user.getId());
+        return this;
+    }
+
+    public DashboardEvent toUserId(Long userId) {
+        if (userId != null) userIds.add(userId);
+        return this;
+    }
+
+    public DashboardEvent toRole(UserRole role) {
+        roles.add(role);
+        return this;
+    }
+
+    public DashboardEvent with(String key, Object value) {
+        data.put(key, value);
+        return this;
+    }
+
+    // Getters
+    public PushEventType getType() { return type; }
+    public Set<Long> getUserIds() { return userIds; }
+    public Set<UserRole> getRoles() { return roles; }
+    public Map<String, Object> getData() { return data; }
+}
@@ -0,0 +1,21 @@
+package com.hivtreatment.event;
+
+/**
+ * Kết quả mới nhất của một loại xét nghiệm cho một bệnh nhân vừa thay đổi (thêm, sửa hoặc xóa kết quả).
+ * Phát trong transaction ghi kết quả; TestWorklistService cập nhật hàng đợi xét nghiệm quá hạn ngay trong đó.
+ */
+public class LatestLabResultChangedEvent {
+
+    private final Long patientId;
+    private final String testType;
+
+    // Constructors
+    public LatestLabResultChangedEvent(Long patientId, String testType) {
+        this.patientId = patientId;
+        this.testType = testType;
+    }
+
+    // Getters
+    public Long getPatientId() { return patientId; }
+    public String getTestType() { return testType; }
+}
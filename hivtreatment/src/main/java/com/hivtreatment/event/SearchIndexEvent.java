@@ -0,0 +1,31 @@
+package com.hivtreatment.event;
+
+import com.hivtreatment.enums.SearchDocumentType;
+
+/**
+ * Một bài viết/tài liệu vừa được tạo, sửa, xuất bản hoặc xóa. FullTextSearchService cập nhật chỉ mục
+ * tìm kiếm cho đúng tài liệu đó sau khi transaction commit.
+ */
+public class SearchIndexEvent {
+
+    private final SearchDocumentType type;
+    private final Long id;
+
+    // Constructors
+    public SearchIndexEvent(SearchDocumentType type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    public static SearchIndexEvent blogPost(Long id) {
+        return new SearchIndexEvent(SearchDocumentType.BLOG_POST, id);
+    }
+
+    public static SearchIndexEvent educationalResource(Long id) {
+        return new SearchIndexEvent(SearchDocumentType.EDUCATIONAL_RESOURCE, id);
+    }
+
+    // Getters
+    public SearchDocumentType getType() { return type; }
+    public Long getId() { return id; }
+}
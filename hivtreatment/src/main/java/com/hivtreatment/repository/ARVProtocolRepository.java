@@ -1,6 +1,7 @@
 package com.hivtreatment.repository;
 
 import com.hivtreatment.entity.ARVProtocol;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,14 +12,22 @@ import java.util.Optional;
 
 @Repository
 public interface ARVProtocolRepository extends JpaRepository<ARVProtocol, Long> {
+    // Các truy vấn danh sách nạp sẵn thuốc của phác đồ để dựng ARVProtocolDTO trong một lần đọc
+    @EntityGraph(attributePaths = {"protocolMedications", "protocolMedications.medication"})
+    @Query("SELECT p FROM ARVProtocol p ORDER BY p.id")
+    List<ARVProtocol> findAllWithMedications();
+
+    @EntityGraph(attributePaths = {"protocolMedications", "protocolMedications.medication"})
     List<ARVProtocol> findByIsActiveTrue();
     List<ARVProtocol> findByTargetGroup(String targetGroup);
     List<ARVProtocol> findByIsFirstLineTrue();
     Optional<ARVProtocol> findByProtocolCode(String protocolCode);
     
+    @EntityGraph(attributePaths = {"protocolMedications", "protocolMedications.medication"})
     @Query("SELECT p FROM ARVProtocol p WHERE p.targetGroup = :targetGroup AND p.isActive = true")
     List<ARVProtocol> findActiveProtocolsByTargetGroup(@Param("targetGroup") String targetGroup);
     
+    @EntityGraph(attributePaths = {"protocolMedications", "protocolMedications.medication"})
     @Query("SELECT p FROM ARVProtocol p WHERE p.isFirstLine = true AND p.isActive = true")
     List<ARVProtocol> findFirstLineProtocols();
 }
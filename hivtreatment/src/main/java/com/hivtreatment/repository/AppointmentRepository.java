@@ -1,25 +1,36 @@
 package com.hivtreatment.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.hivtreatment.dto.AppointmentSummaryDTO;
+import com.hivtreatment.dto.BookedSlotDTO;
+import com.hivtreatment.dto.DailyCountDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.Appointment;
 import com.hivtreatment.enums.AppointmentStatus;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, JpaSpecificationExecutor<Appointment> {
 
     List<Appointment> findByPatientId(Long patientId);
 
     List<Appointment> findByDoctorId(Long doctorId);
+    List<Appointment> findByDoctorIdAndCreatedAtAfter(Long doctorId, LocalDateTime since);
+
+    long countByDoctorIdAndCreatedAtAfter(Long doctorId, LocalDateTime since);
 
     List<Appointment> findByAppointmentDate(LocalDate date);
 
@@ -44,6 +55,50 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId ORDER BY a.appointmentDate DESC")
     List<Appointment> findRecentAppointmentsByPatientId(@Param("patientId") Long patientId, Pageable pageable);
 
+    // --- DASHBOARD: tải sẵn quan hệ LAZY trong cùng một câu SELECT (tránh N+1) ---
+
+    // Lịch hẹn có từ trước khi có cột slot_key, keyset theo id (dùng cho backfill)
+    @Query("SELECT a FROM Appointment a WHERE a.slotKey IS NULL AND a.status NOT IN :inactive " +
+           "AND a.id > :afterId ORDER BY a.id")
+    List<Appointment> findWithoutSlotKey(@Param("afterId") Long afterId,
+                                         @Param("inactive") Collection<AppointmentStatus> inactive,
+                                         Pageable pageable);
+
+    @Query("SELECT a.slotKey FROM Appointment a WHERE a.slotKey IN :keys")
+    List<String> findSlotKeysIn(@Param("keys") Collection<String> keys);
+
+    // Lịch hẹn cần nhắc trong một phân vùng bệnh nhân (patient.id % partitions), keyset theo id
+    @EntityGraph(attributePaths = {"patient", "patient.user", "doctor"})
+    @Query("SELECT a FROM Appointment a WHERE a.appointmentDate = :date AND a.status = :status " +
+           "AND MOD(a.patient.id, :partitions) = :partition AND a.id > :afterId ORDER BY a.id")
+    List<Appointment> findForReminders(@Param("date") LocalDate date,
+                                       @Param("status") AppointmentStatus status,
+                                       @Param("partition") int partition,
+                                       @Param("partitions") int partitions,
+                                       @Param("afterId") Long afterId,
+                                       Pageable pageable);
+
+    @EntityGraph(attributePaths = {"patient", "patient.user"})
+    List<Appointment> findWithPatientByDoctorIdAndAppointmentDateOrderByAppointmentTimeAsc(
+        Long doctorId, LocalDate appointmentDate
+    );
+
+    @EntityGraph(attributePaths = {"doctor", "doctor.user"})
+    List<Appointment> findWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
+        Long patientId, LocalDate date, AppointmentStatus status
+    );
+
+    @EntityGraph(attributePaths = {"doctor", "doctor.user"})
+    Optional<Appointment> findFirstWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
+        Long patientId, LocalDate date, AppointmentStatus status
+    );
+
+    @Query("SELECT new com.hivtreatment.dto.AppointmentSummaryDTO(a.id, a.appointmentDate, a.appointmentTime, " +
+           "a.status, a.appointmentType, d.id, d.firstName, d.lastName, p.id, p.firstName, p.lastName) " +
+           "FROM Appointment a JOIN a.doctor d JOIN a.patient p " +
+           "WHERE p.id = :patientId ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
+    List<AppointmentSummaryDTO> findRecentSummariesByPatientId(@Param("patientId") Long patientId, Pageable pageable);
+
     long countByDoctorIdAndAppointmentDate(Long doctorId, LocalDate appointmentDate);
 
     long countByDoctorIdAndAppointmentDateAfter(Long doctorId, LocalDate date);
@@ -87,4 +142,26 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     Page<Appointment> findByAppointmentDate(LocalDate date, Pageable pageable);
 
     Page<Appointment> findByAppointmentDateAndStatus(LocalDate date, AppointmentStatus status, Pageable pageable);
+
+    // Thống kê theo tháng và trạng thái, một truy vấn cho cả khoảng thời gian
+    @Query("SELECT new com.hivtreatment.dto.MonthlyCountDTO(MONTH(a.appointmentDate), a.status, COUNT(a)) " +
+           "FROM Appointment a WHERE a.appointmentDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY MONTH(a.appointmentDate), a.status")
+    List<MonthlyCountDTO> countByMonthAndStatus(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.hivtreatment.dto.DailyCountDTO(a.appointmentDate, a.status, COUNT(a)) " +
+           "FROM Appointment a WHERE a.appointmentDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY a.appointmentDate, a.status")
+    List<DailyCountDTO> countByDayAndStatus(@Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+
+    long countByStatusAndAppointmentDateBetween(AppointmentStatus status, LocalDate startDate, LocalDate endDate);
+
+    // Các lịch hẹn đang chiếm khung giờ trong khoảng ngày (nạp chỉ mục khung giờ trống theo tuần)
+    @Query("SELECT new com.hivtreatment.dto.BookedSlotDTO(a.id, a.doctor.id, a.appointmentDate, a.appointmentTime) " +
+           "FROM Appointment a WHERE a.appointmentDate BETWEEN :from AND :to AND a.status IN :statuses")
+    List<BookedSlotDTO> findBookedSlotsBetween(@Param("from") LocalDate from,
+                                               @Param("to") LocalDate to,
+                                               @Param("statuses") Collection<AppointmentStatus> statuses);
 }
@@ -4,10 +4,13 @@ import com.hivtreatment.entity.BlogPost;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +27,22 @@ public interface BlogPostRepository extends JpaRepository<BlogPost, Long> {
     @Query("SELECT b FROM BlogPost b WHERE b.status = 'PUBLISHED' AND b.category = :category ORDER BY b.publishedAt DESC")
     Page<BlogPost> findPublishedPostsByCategory(@Param("category") String category, Pageable pageable);
     
-    @Query("SELECT b FROM BlogPost b WHERE b.status = 'PUBLISHED' AND (b.title LIKE %:keyword% OR b.content LIKE %:keyword%)")
-    Page<BlogPost> searchPublishedPosts(@Param("keyword") String keyword, Pageable pageable);
+    // Đồng bộ chỉ mục tìm kiếm: các bài sửa từ thời điểm since, theo (updatedAt, id)
+    @Query("SELECT b FROM BlogPost b WHERE b.updatedAt > :since OR (b.updatedAt = :since AND b.id > :afterId)"
+            + " ORDER BY b.updatedAt ASC, b.id ASC")
+    List<BlogPost> findUpdatedAfter(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Dựng lại toàn bộ chỉ mục theo id (gồm cả dòng cũ chưa có updated_at)
+    List<BlogPost> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT b FROM BlogPost b WHERE b.status = 'PUBLISHED' AND b.id IN :ids")
+    List<BlogPost> findPublishedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.id FROM BlogPost b WHERE b.status = 'PUBLISHED' AND b.id IN :ids")
+    List<Long> findPublishedIdsIn(@Param("ids") Collection<Long> ids);
+
+    // Cộng dồn lượt xem từ bộ đếm trong bộ nhớ; không chạm updated_at và cột nội dung
+    @Modifying
+    @Query("UPDATE BlogPost b SET b.viewCount = COALESCE(b.viewCount, 0) + :delta WHERE b.id IN :ids")
+    int addViewCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
 }
@@ -0,0 +1,25 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.CodeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CodeSequenceRepository extends JpaRepository<CodeSequence, String> {
+
+    // Nhận một khối giá trị; dòng bị khóa đến hết transaction nên đọc lại ngay sau đó là giá trị của chính mình
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE CodeSequence s SET s.nextValue = s.nextValue + :blockSize WHERE s.sequenceName = :name")
+    int advance(@Param("name") String name, @Param("blockSize") long blockSize);
+
+    @Query("SELECT s.nextValue FROM CodeSequence s WHERE s.sequenceName = :name")
+    Long findNextValue(@Param("name") String name);
+
+    // Tạo bộ đếm lần đầu; trùng khóa chính nghĩa là node khác vừa tạo trước
+    @Modifying
+    @Query(value = "INSERT INTO code_sequences (sequence_name, next_value) VALUES (:name, :nextValue)", nativeQuery = true)
+    int insertSequence(@Param("name") String name, @Param("nextValue") long nextValue);
+}
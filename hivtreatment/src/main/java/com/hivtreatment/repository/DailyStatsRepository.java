@@ -0,0 +1,15 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.DailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyStatsRepository extends JpaRepository<DailyStats, Long> {
+    Optional<DailyStats> findByStatDate(LocalDate statDate);
+    List<DailyStats> findByStatDateBetweenOrderByStatDateAsc(LocalDate startDate, LocalDate endDate);
+}
@@ -2,6 +2,8 @@ package com.hivtreatment.repository;
 
 import com.hivtreatment.entity.Doctor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,7 +15,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, JpaSpecificationExecutor<Doctor> {
     Optional<Doctor> findByDoctorCode(String doctorCode);
     Optional<Doctor> findByUserId(Long userId);
     boolean existsByDoctorCode(String doctorCode);
@@ -27,4 +29,22 @@ public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     
     @Query("SELECT COUNT(d) FROM Doctor d WHERE d.isAvailable = true")
     long countAvailableDoctors();
+
+    // Bác sĩ có chuỗi chuyên khoa nhưng chưa có dòng trong doctor_specializations (dữ liệu trước khi tách bảng),
+    // keyset theo id: chuỗi chỉ có dấu phẩy/khoảng trắng không sinh dòng nào nhưng vẫn được bước qua
+    @Query("SELECT d FROM Doctor d WHERE d.specialization IS NOT NULL AND TRIM(d.specialization) <> ''"
+            + " AND NOT EXISTS (SELECT s.id FROM DoctorSpecialization s WHERE s.doctor = d)"
+            + " AND d.id > :afterId ORDER BY d.id")
+    List<Doctor> findWithoutSpecializationEntries(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Cộng một đánh giá vào số liệu tổng hợp; average_rating tính từ giá trị cũ nên đặt trước
+    @Modifying
+    @Query("UPDATE Doctor d SET d.averageRating = (COALESCE(d.ratingSum, 0) + :stars) * 1.0 / (COALESCE(d.ratingCount, 0) + 1),"
+            + " d.ratingSum = COALESCE(d.ratingSum, 0) + :stars, d.ratingCount = COALESCE(d.ratingCount, 0) + 1"
+            + " WHERE d.id = :doctorId")
+    int addRating(@Param("doctorId") Long doctorId, @Param("stars") long stars);
+
+    // Các mã lớn nhất theo tiền tố (mã dài hơn là số lớn hơn), dùng để khởi tạo bộ đếm mã
+    @Query("SELECT d.doctorCode FROM Doctor d WHERE d.doctorCode LIKE :prefix ORDER BY LENGTH(d.doctorCode) DESC, d.doctorCode DESC")
+    List<String> findHighestCodes(@Param("prefix") String prefix, Pageable pageable);
 }
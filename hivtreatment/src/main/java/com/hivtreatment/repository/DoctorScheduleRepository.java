@@ -0,0 +1,17 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.DoctorSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DoctorScheduleRepository extends JpaRepository<DoctorSchedule, Long> {
+    List<DoctorSchedule> findByDoctorIdAndIsActiveTrue(Long doctorId);
+
+    // Lịch làm việc đang áp dụng của các bác sĩ còn nhận bệnh (nạp chỉ mục khung giờ trống)
+    @Query("SELECT s FROM DoctorSchedule s JOIN FETCH s.doctor d WHERE s.isActive = true AND d.isAvailable = true")
+    List<DoctorSchedule> findActiveForAvailableDoctors();
+}
@@ -0,0 +1,18 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.DoctorSpecialization;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DoctorSpecializationRepository extends JpaRepository<DoctorSpecialization, Long> {
+
+    List<DoctorSpecialization> findByDoctorIdOrderByIdAsc(Long doctorId);
+
+    // Một tên hiển thị cho mỗi chuyên khoa (gộp các cách viết hoa/thường khác nhau)
+    @Query("SELECT MIN(s.name) FROM DoctorSpecialization s GROUP BY s.nameKey ORDER BY MIN(s.name)")
+    List<String> findDistinctNames();
+}
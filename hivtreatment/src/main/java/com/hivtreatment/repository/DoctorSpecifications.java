@@ -0,0 +1,70 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.DoctorSearchParams;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.DoctorSpecialization;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Các điều kiện lọc danh bạ bác sĩ, dịch thành WHERE trong SQL để phân trang và đếm chạy trên database.
+ * Chuyên khoa lọc qua bảng doctor_specializations (so khớp tiền tố trên name_key có chỉ mục).
+ */
+public final class DoctorSpecifications {
+
+    private DoctorSpecifications() {}
+
+    public static Specification<Doctor> fromParams(DoctorSearchParams params) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (hasText(params.getName())) {
+                Expression<String> fullName = cb.lower(cb.concat(cb.concat(root.get("firstName"), " "), root.get("lastName")));
+                String pattern = "%" + params.getName().trim().toLowerCase(Locale.ROOT) + "%";
+                predicates.add(cb.or(
+                    cb.like(fullName, pattern),
+                    cb.like(cb.lower(root.get("doctorCode")), pattern)
+                ));
+            }
+
+            if (hasText(params.getSpecialization())) {
+                Subquery<Long> specialization = query.subquery(Long.class);
+                Root<DoctorSpecialization> entry = specialization.from(DoctorSpecialization.class);
+                specialization.select(entry.get("id")).where(
+                    cb.equal(entry.get("doctor"), root),
+                    cb.like(entry.get("nameKey"), DoctorSpecialization.normalize(params.getSpecialization()) + "%")
+                );
+                predicates.add(cb.exists(specialization));
+            }
+
+            if (params.getMinExperience() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("experienceYears"), params.getMinExperience()));
+            }
+
+            if (params.getMaxExperience() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("experienceYears"), params.getMaxExperience()));
+            }
+
+            if (params.getAvailable() != null) {
+                predicates.add(cb.equal(root.get("isAvailable"), params.getAvailable()));
+            }
+
+            if (params.getMinRating() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("averageRating"), params.getMinRating()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
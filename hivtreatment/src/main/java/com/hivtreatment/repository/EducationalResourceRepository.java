@@ -1,11 +1,15 @@
 package com.hivtreatment.repository;
 
 import com.hivtreatment.entity.EducationalResource;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,6 +22,26 @@ public interface EducationalResourceRepository extends JpaRepository<Educational
     @Query("SELECT e FROM EducationalResource e WHERE e.isActive = true AND e.category = :category")
     List<EducationalResource> findActiveByCategoryOrderByCreatedAtDesc(@Param("category") String category);
     
-    @Query("SELECT e FROM EducationalResource e WHERE e.isActive = true AND (e.title LIKE %:keyword% OR e.description LIKE %:keyword%)")
-    List<EducationalResource> searchActiveResources(@Param("keyword") String keyword);
+    // Đồng bộ chỉ mục tìm kiếm: các tài liệu sửa từ thời điểm since, theo (updatedAt, id)
+    @Query("SELECT e FROM EducationalResource e WHERE e.updatedAt > :since OR (e.updatedAt = :since AND e.id > :afterId)"
+            + " ORDER BY e.updatedAt ASC, e.id ASC")
+    List<EducationalResource> findUpdatedAfter(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Dựng lại toàn bộ chỉ mục theo id (gồm cả dòng cũ chưa có updated_at)
+    List<EducationalResource> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT e FROM EducationalResource e WHERE e.isActive = true AND e.id IN :ids")
+    List<EducationalResource> findActiveByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e.id FROM EducationalResource e WHERE e.isActive = true AND e.id IN :ids")
+    List<Long> findActiveIdsIn(@Param("ids") Collection<Long> ids);
+
+    // Cộng dồn lượt xem/tải từ bộ đếm trong bộ nhớ; không chạm updated_at và cột nội dung
+    @Modifying
+    @Query("UPDATE EducationalResource e SET e.viewCount = COALESCE(e.viewCount, 0) + :delta WHERE e.id IN :ids")
+    int addViewCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
+
+    @Modifying
+    @Query("UPDATE EducationalResource e SET e.downloadCount = COALESCE(e.downloadCount, 0) + :delta WHERE e.id IN :ids")
+    int addDownloadCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
 }
@@ -0,0 +1,57 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.EmailOutbox;
+import com.hivtreatment.enums.EmailStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = com.hivtreatment.enums.EmailStatus.PENDING " +
+           "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt ASC, e.id ASC")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Chỉ nhận các dòng vẫn còn PENDING, nên hai instance không gửi trùng một email
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = com.hivtreatment.enums.EmailStatus.SENDING, " +
+           "e.claimToken = :token, e.claimedAt = :now " +
+           "WHERE e.id IN :ids AND e.status = com.hivtreatment.enums.EmailStatus.PENDING")
+    int claim(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    List<EmailOutbox> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    // Kết quả gửi chỉ ghi lên các dòng vẫn thuộc lượt claim này: dòng đã bị releaseStuck
+    // trả về hàng đợi và instance khác claim lại (token mới) thì không bị ghi đè
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = com.hivtreatment.enums.EmailStatus.SENT, " +
+           "e.sentAt = :now, e.claimToken = NULL, e.lastError = NULL " +
+           "WHERE e.id IN :ids AND e.claimToken = :token")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.lastError = :error, e.claimToken = NULL WHERE e.id = :id AND e.claimToken = :token")
+    int markFailed(@Param("id") Long id, @Param("token") String token, @Param("status") EmailStatus status,
+                   @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error);
+
+    // Trả các dòng bị kẹt ở SENDING (instance chết giữa chừng) về hàng đợi
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE EmailOutbox e SET e.status = com.hivtreatment.enums.EmailStatus.PENDING, e.claimToken = NULL " +
+           "WHERE e.status = com.hivtreatment.enums.EmailStatus.SENDING AND e.claimedAt < :cutoff")
+    int releaseStuck(@Param("cutoff") LocalDateTime cutoff);
+
+    long countByStatus(EmailStatus status);
+
+    Page<EmailOutbox> findByStatusOrderByCreatedAtDesc(EmailStatus status, Pageable pageable);
+}
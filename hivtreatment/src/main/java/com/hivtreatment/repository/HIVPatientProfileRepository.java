@@ -1,12 +1,17 @@
 package com.hivtreatment.repository;
 
+import com.hivtreatment.dto.CohortCellDTO;
 import com.hivtreatment.entity.HIVPatientProfile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,12 +24,52 @@ public interface HIVPatientProfileRepository extends JpaRepository<HIVPatientPro
     @Query("SELECT h FROM HIVPatientProfile h WHERE h.nextAppointmentDate = :date")
     List<HIVPatientProfile> findByNextAppointmentDate(@Param("date") LocalDate date);
     
-    @Query("SELECT h FROM HIVPatientProfile h WHERE h.lastCD4TestDate < :date")
+    // Kể cả hồ sơ chưa từng xét nghiệm; lâu nhất trước. Hàng đợi theo bác sĩ xem TestWorklistService
+    @Query("SELECT h FROM HIVPatientProfile h WHERE h.lastCD4TestDate IS NULL OR h.lastCD4TestDate < :date " +
+           "ORDER BY CASE WHEN h.lastCD4TestDate IS NULL THEN 0 ELSE 1 END, h.lastCD4TestDate ASC, h.id ASC")
     List<HIVPatientProfile> findPatientsNeedingCD4Test(@Param("date") LocalDate date);
     
-    @Query("SELECT h FROM HIVPatientProfile h WHERE h.lastViralLoadTestDate < :date")
+    @Query("SELECT h FROM HIVPatientProfile h WHERE h.lastViralLoadTestDate IS NULL OR h.lastViralLoadTestDate < :date " +
+           "ORDER BY CASE WHEN h.lastViralLoadTestDate IS NULL THEN 0 ELSE 1 END, h.lastViralLoadTestDate ASC, h.id ASC")
     List<HIVPatientProfile> findPatientsNeedingViralLoadTest(@Param("date") LocalDate date);
+
+    // Duyệt hồ sơ theo keyset patient.id cho job dựng hàng đợi xét nghiệm
+    @Query("SELECT h.patient.id FROM HIVPatientProfile h WHERE h.patient.id > :afterPatientId ORDER BY h.patient.id ASC")
+    List<Long> findPatientIdsAfter(@Param("afterPatientId") Long afterPatientId, Pageable pageable);
+
+    @Query("SELECT h FROM HIVPatientProfile h JOIN FETCH h.patient p LEFT JOIN FETCH p.doctor " +
+           "WHERE p.id IN :patientIds")
+    List<HIVPatientProfile> findWithPatientAndDoctorByPatientIds(@Param("patientIds") Collection<Long> patientIds);
     
-    @Query("SELECT COUNT(h) FROM HIVPatientProfile h WHERE h.currentViralLoad < 50")
-    long countViralSuppressedPatients();
+    @Query("SELECT COUNT(h) FROM HIVPatientProfile h WHERE h.currentViralLoad < :threshold")
+    long countViralSuppressedPatients(@Param("threshold") int threshold);
+
+    // Số đã chẩn đoán và đang điều trị ARV tại asOf, nhóm theo các chiều phân tích.
+    // Hồ sơ không có ngày chẩn đoán được tính từ ngày tạo hồ sơ
+    @Query("SELECT new com.hivtreatment.dto.CohortCellDTO(h.hivStage, h.currentARVProtocol, d.id, " +
+           "year(p.dateOfBirth), p.gender, COUNT(h.id), " +
+           "SUM(CASE WHEN h.artStartDate <= :asOf THEN 1 ELSE 0 END)) " +
+           "FROM HIVPatientProfile h JOIN h.patient p LEFT JOIN p.doctor d " +
+           "WHERE h.hivDiagnosisDate <= :asOf OR (h.hivDiagnosisDate IS NULL AND h.createdAt < :asOfEnd) " +
+           "GROUP BY h.hivStage, h.currentARVProtocol, d.id, year(p.dateOfBirth), p.gender")
+    List<CohortCellDTO> countDiagnosedAndOnArt(@Param("asOf") LocalDate asOf, @Param("asOfEnd") LocalDateTime asOfEnd);
+
+    // Bệnh nhân đang điều trị ARV có xét nghiệm tải lượng virus trong (windowStart, asOf]; chỉ lấy kết quả
+    // mới nhất theo (testDate, id) của mỗi người, đọc qua chỉ mục (patient_id, test_type, test_date)
+    @Query("SELECT new com.hivtreatment.dto.CohortCellDTO(h.hivStage, h.currentARVProtocol, d.id, " +
+           "year(p.dateOfBirth), p.gender, COUNT(l.id), " +
+           "SUM(CASE WHEN l.resultValue < :suppressedBelow THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.resultValue < :undetectableBelow THEN 1 ELSE 0 END)) " +
+           "FROM HIVPatientProfile h JOIN h.patient p LEFT JOIN p.doctor d " +
+           "JOIN LabResult l ON l.patient = p " +
+           "WHERE (h.hivDiagnosisDate <= :asOf OR (h.hivDiagnosisDate IS NULL AND h.createdAt < :asOfEnd)) " +
+           "AND h.artStartDate <= :asOf " +
+           "AND l.testType = 'VIRAL_LOAD' AND l.testDate > :windowStart AND l.testDate <= :asOf " +
+           "AND NOT EXISTS (SELECT l2.id FROM LabResult l2 WHERE l2.patient = p AND l2.testType = 'VIRAL_LOAD' " +
+           "AND l2.testDate <= :asOf AND (l2.testDate > l.testDate OR (l2.testDate = l.testDate AND l2.id > l.id))) " +
+           "GROUP BY h.hivStage, h.currentARVProtocol, d.id, year(p.dateOfBirth), p.gender")
+    List<CohortCellDTO> countViralLoadOutcomes(@Param("asOf") LocalDate asOf, @Param("asOfEnd") LocalDateTime asOfEnd,
+                                               @Param("windowStart") LocalDate windowStart,
+                                               @Param("suppressedBelow") BigDecimal suppressedBelow,
+                                               @Param("undetectableBelow") BigDecimal undetectableBelow);
 }
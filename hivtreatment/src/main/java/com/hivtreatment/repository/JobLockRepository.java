@@ -0,0 +1,33 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    // Nhận khóa đã hết hạn
+    @Modifying
+    @Query("UPDATE JobLock l SET l.owner = :owner, l.lockedAt = :now, l.lockedUntil = :until " +
+           "WHERE l.lockName = :name AND l.lockedUntil <= :now")
+    int acquireExpired(@Param("name") String name, @Param("owner") String owner,
+                       @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Tạo khóa lần đầu; trùng khóa chính nghĩa là node khác vừa tạo trước
+    @Modifying
+    @Query(value = "INSERT INTO job_locks (lock_name, owner, locked_at, locked_until) " +
+                   "VALUES (:name, :owner, :now, :until)", nativeQuery = true)
+    int insertLock(@Param("name") String name, @Param("owner") String owner,
+                   @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    // Gia hạn hoặc trả khóa (until = now); chỉ có tác dụng với node đang giữ khóa
+    @Modifying
+    @Query("UPDATE JobLock l SET l.lockedUntil = :until WHERE l.lockName = :name AND l.owner = :owner")
+    int extend(@Param("name") String name, @Param("owner") String owner, @Param("until") LocalDateTime until);
+}
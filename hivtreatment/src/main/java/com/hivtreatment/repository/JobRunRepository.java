@@ -0,0 +1,27 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.JobRun;
+import com.hivtreatment.enums.JobRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+
+    Optional<JobRun> findByJobNameAndRunKeyAndPartitionNo(String jobName, String runKey, int partitionNo);
+
+    // Các lần chạy (khóa) của job bắt đầu sau thời điểm cho trước
+    @Query("SELECT DISTINCT r.runKey FROM JobRun r WHERE r.jobName = :jobName AND r.startedAt > :startedAfter")
+    List<String> findRunKeysStartedAfter(@Param("jobName") String jobName,
+                                         @Param("startedAfter") LocalDateTime startedAfter);
+
+    long countByJobNameAndRunKeyAndStatus(String jobName, String runKey, JobRunStatus status);
+
+    List<JobRun> findTop50ByOrderByStartedAtDesc();
+}
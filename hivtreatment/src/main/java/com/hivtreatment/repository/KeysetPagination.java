@@ -0,0 +1,149 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.CursorPage;
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.ScrollPosition.Direction;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Phân trang keyset (seek): thay vì OFFSET N, truy vấn bắt đầu ngay sau/trước
+ * khóa sắp xếp của dòng cuối/đầu trang trước, nên trang sâu nhanh như trang đầu.
+ * Sort truyền vào phải tạo bằng keysetSort: kết thúc bằng "id" để khóa là duy nhất
+ * và chỉ gồm cột NOT NULL, vì dòng có khóa NULL không so sánh được trong điều kiện seek.
+ */
+public final class KeysetPagination {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private KeysetPagination() {}
+
+    /**
+     * Tạo Sort dùng làm khóa keyset, kiểm tra ngay khi khởi tạo rằng mỗi thuộc tính là @Id,
+     * kiểu nguyên thủy hoặc @Column(nullable = false) của entity.
+     */
+    public static Sort keysetSort(Class<?> entityType, Sort.Order... orders) {
+        if (orders.length == 0 || !"id".equals(orders[orders.length - 1].getProperty())) {
+            throw new IllegalArgumentException("Khóa keyset của " + entityType.getSimpleName() + " phải kết thúc bằng id");
+        }
+        for (Sort.Order order : orders) {
+            if (!isNonNullKey(entityType, order.getProperty())) {
+                throw new IllegalArgumentException("Khóa keyset phải là cột NOT NULL: "
+                        + entityType.getSimpleName() + "." + order.getProperty());
+            }
+        }
+        return Sort.by(orders);
+    }
+
+    public static <T> CursorPage<T> scroll(JpaSpecificationExecutor<T> repository, Specification<T> spec, Sort sort,
+                                           String after, String before, int size, boolean countTotal) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean backward = !hasText(after) && hasText(before);
+
+        KeysetScrollPosition position;
+        if (hasText(after)) {
+            position = decodeCursor(after, Direction.FORWARD);
+        } else if (backward) {
+            position = decodeCursor(before, Direction.BACKWARD);
+        } else {
+            position = ScrollPosition.keyset();
+        }
+
+        Window<T> window = repository.findBy(spec, query -> query.sortBy(sort).limit(limit).scroll(position));
+        List<T> content = window.getContent();
+
+        // Khi cuộn lùi, hasNext() của Window nghĩa là còn dữ liệu ở phía trước
+        boolean hasNext = backward || window.hasNext();
+        boolean hasPrevious = backward ? window.hasNext() : hasText(after);
+
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!content.isEmpty()) {
+            if (hasNext) {
+                nextCursor = encodeCursor((KeysetScrollPosition) window.positionAt(content.size() - 1));
+            }
+            if (hasPrevious) {
+                previousCursor = encodeCursor((KeysetScrollPosition) window.positionAt(0));
+            }
+        }
+
+        Long totalElements = countTotal ? repository.count(spec) : null;
+        return new CursorPage<>(content, limit, nextCursor, previousCursor, hasNext, hasPrevious, totalElements);
+    }
+
+    // --- CURSOR TOKEN ---
+
+    static String encodeCursor(KeysetScrollPosition position) {
+        StringJoiner joiner = new StringJoiner("&");
+        for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+            joiner.add(key.getKey() + "=" + encodeValue(key.getValue()));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static KeysetScrollPosition decodeCursor(String token, Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String part : raw.split("&")) {
+                int eq = part.indexOf('=');
+                keys.put(part.substring(0, eq), decodeValue(part.substring(eq + 1)));
+            }
+            return ScrollPosition.of(keys, direction);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor phân trang không hợp lệ", e);
+        }
+    }
+
+    private static String encodeValue(Object value) {
+        if (value == null) throw new IllegalStateException("Khóa cursor không được NULL");
+        if (value instanceof LocalDateTime) return "T:" + value;
+        if (value instanceof LocalDate) return "D:" + value;
+        if (value instanceof Long || value instanceof Integer) return "L:" + value;
+        throw new IllegalArgumentException("Không hỗ trợ khóa cursor kiểu " + value);
+    }
+
+    private static Object decodeValue(String encoded) {
+        String value = encoded.substring(2);
+        switch (encoded.charAt(0)) {
+            case 'T': return LocalDateTime.parse(value);
+            case 'D': return LocalDate.parse(value);
+            case 'L': return Long.valueOf(value);
+            default: throw new IllegalArgumentException("Kiểu khóa cursor không hợp lệ: " + encoded);
+        }
+    }
+
+    private static boolean isNonNullKey(Class<?> entityType, String property) {
+        for (Class<?> type = entityType; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(property);
+                Column column = field.getAnnotation(Column.class);
+                return field.isAnnotationPresent(Id.class) || field.getType().isPrimitive()
+                        || (column != null && !column.nullable());
+            } catch (NoSuchFieldException e) {
+                // Tìm tiếp ở lớp cha
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -5,22 +5,27 @@ import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.hivtreatment.dto.DailyCountDTO;
+import com.hivtreatment.dto.LabSeriesPointDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.LabResult;
 
 @Repository
-public interface LabResultRepository extends JpaRepository<LabResult, Long> {
+public interface LabResultRepository extends JpaRepository<LabResult, Long>, JpaSpecificationExecutor<LabResult> {
 
     // --- List return ---
     List<LabResult> findByPatientId(Long patientId);
     List<LabResult> findByTestType(String testType);
     List<LabResult> findByDoctorId(Long doctorId);
 
-    @Query("SELECT COUNT(l) FROM LabResult l WHERE l.doctor.id = :doctorId AND l.reviewedDate BETWEEN :startDate AND :endDate")
+    @Query("SELECT COUNT(l) FROM LabResult l WHERE l.doctor.id = :doctorId AND l.testDate BETWEEN :startDate AND :endDate")
     long countByDoctorIdAndReviewedDateBetween(@Param("doctorId") Long doctorId,
                                                 @Param("startDate") LocalDate startDate,
                                                 @Param("endDate") LocalDate endDate);
@@ -31,6 +36,42 @@ public interface LabResultRepository extends JpaRepository<LabResult, Long> {
     @Query("SELECT l FROM LabResult l WHERE l.patient.id = :patientId ORDER BY l.testDate DESC")
     List<LabResult> findByPatientOrderByTestDateDesc(@Param("patientId") Long patientId);
 
+    // N kết quả gần nhất kèm bác sĩ, LIMIT chạy trong SQL thay vì cắt danh sách trong bộ nhớ
+    @EntityGraph(attributePaths = {"doctor", "doctor.user"})
+    @Query("SELECT l FROM LabResult l WHERE l.patient.id = :patientId ORDER BY l.testDate DESC, l.id DESC")
+    List<LabResult> findRecentWithDoctorByPatient(@Param("patientId") Long patientId, Pageable pageable);
+
+    // N kết quả mới nhất của một loại xét nghiệm, đọc theo chỉ mục (patient_id, test_type, test_date DESC)
+    @Query("SELECT l FROM LabResult l WHERE l.patient.id = :patientId AND l.testType = :testType ORDER BY l.testDate DESC, l.id DESC")
+    List<LabResult> findTopByPatientAndTestType(@Param("patientId") Long patientId, @Param("testType") String testType,
+                                                Pageable pageable);
+
+    // Chuỗi giá trị số theo thời gian cho biểu đồ; chỉ đọc hai cột
+    @Query("SELECT new com.hivtreatment.dto.LabSeriesPointDTO(l.testDate, l.resultValue) FROM LabResult l " +
+           "WHERE l.patient.id = :patientId AND l.testType = :testType AND l.resultValue IS NOT NULL " +
+           "AND l.testDate BETWEEN :startDate AND :endDate ORDER BY l.testDate ASC, l.id ASC")
+    List<LabSeriesPointDTO> findSeries(@Param("patientId") Long patientId, @Param("testType") String testType,
+                                       @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT l.patient.id FROM LabResult l WHERE l.id = :id")
+    Long findPatientIdById(@Param("id") Long id);
+
+    @Query("SELECT l.testType FROM LabResult l WHERE l.id = :id")
+    String findTestTypeById(@Param("id") Long id);
+
+    // Đã được bác sĩ duyệt: có bác sĩ, có kết quả và không còn ở trạng thái chờ
+    @Query("SELECT COUNT(l) > 0 FROM LabResult l WHERE l.id = :id AND l.doctor IS NOT NULL " +
+           "AND (l.status IS NULL OR l.status <> 'PENDING') AND (l.resultValue IS NOT NULL OR l.resultText IS NOT NULL)")
+    boolean isReviewed(@Param("id") Long id);
+
+    // Bệnh nhân có loại xét nghiệm chưa có dòng trong latest_lab_results, cho lần chạy bù dữ liệu cũ
+    @Query("SELECT DISTINCT l.patient.id FROM LabResult l WHERE l.testType IS NOT NULL AND NOT EXISTS " +
+           "(SELECT x.id FROM LatestLabResult x WHERE x.patient.id = l.patient.id AND x.testType = l.testType)")
+    List<Long> findPatientIdsWithoutLatest(Pageable pageable);
+
+    @Query("SELECT DISTINCT l.testType FROM LabResult l WHERE l.patient.id = :patientId AND l.testType IS NOT NULL")
+    List<String> findTestTypesByPatient(@Param("patientId") Long patientId);
+
     @Query("SELECT l FROM LabResult l WHERE l.testDate BETWEEN :startDate AND :endDate")
     List<LabResult> findByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
@@ -38,4 +79,19 @@ public interface LabResultRepository extends JpaRepository<LabResult, Long> {
     Page<LabResult> findByTestType(String testType, Pageable pageable);
     Page<LabResult> findByPatientIdOrderByTestDateDesc(Long patientId, Pageable pageable);
     Page<LabResult> findByPatientIdAndTestType(Long patientId, String testType, Pageable pageable);
+
+    // --- Aggregation ---
+    @Query("SELECT new com.hivtreatment.dto.MonthlyCountDTO(MONTH(l.testDate), COUNT(l)) " +
+           "FROM LabResult l WHERE l.testDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY MONTH(l.testDate)")
+    List<MonthlyCountDTO> countByMonth(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    long countByTestDateBetween(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT new com.hivtreatment.dto.DailyCountDTO(l.testDate, COUNT(l)) " +
+           "FROM LabResult l WHERE l.testDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY l.testDate")
+    List<DailyCountDTO> countByDay(@Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
 }
@@ -0,0 +1,71 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.LabResultSearchParams;
+import com.hivtreatment.entity.LabResult;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Các điều kiện tìm kiếm kết quả xét nghiệm, dịch thành WHERE trong SQL. Mã bệnh nhân so khớp
+ * chính xác (không LIKE) để dùng chỉ mục duy nhất patient_code rồi chỉ mục (patient_id, test_type, test_date).
+ */
+public final class LabResultSpecifications {
+
+    private LabResultSpecifications() {}
+
+    public static Specification<LabResult> fromParams(LabResultSearchParams params) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (hasText(params.getPatientCode())) {
+                predicates.add(cb.equal(root.get("patient").get("patientCode"),
+                        params.getPatientCode().trim().toUpperCase(Locale.ROOT)));
+            }
+
+            if (hasText(params.getTestType())) {
+                predicates.add(cb.equal(root.get("testType"), params.getTestType().trim()));
+            }
+
+            if (params.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("testDate"), params.getStartDate()));
+            }
+
+            if (params.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("testDate"), params.getEndDate()));
+            }
+
+            if (hasText(params.getStatus())) {
+                predicates.add(cb.equal(root.get("status"), params.getStatus().trim().toUpperCase(Locale.ROOT)));
+            }
+
+            if (params.getDoctorId() != null) {
+                predicates.add(cb.equal(root.get("doctor").get("id"), params.getDoctorId()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Nạp bệnh nhân và bác sĩ trong cùng câu truy vấn để danh sách/xuất file không chạy N+1 SELECT.
+     * Bỏ qua với câu COUNT.
+     */
+    public static Specification<LabResult> fetchPatientAndDoctor() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("patient", JoinType.INNER);
+                root.fetch("doctor", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
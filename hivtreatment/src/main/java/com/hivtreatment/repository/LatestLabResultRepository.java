@@ -0,0 +1,25 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.LatestLabResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LatestLabResultRepository extends JpaRepository<LatestLabResult, Long> {
+
+    @Query("SELECT l FROM LatestLabResult l WHERE l.patient.id = :patientId AND l.testType = :testType")
+    Optional<LatestLabResult> findByPatientAndTestType(@Param("patientId") Long patientId, @Param("testType") String testType);
+
+    @Query("SELECT l FROM LatestLabResult l WHERE l.patient.id = :patientId ORDER BY l.testType ASC")
+    List<LatestLabResult> findByPatient(@Param("patientId") Long patientId);
+
+    @Query("SELECT l FROM LatestLabResult l WHERE l.patient.id IN :patientIds AND l.testType IN :testTypes")
+    List<LatestLabResult> findByPatientsAndTestTypes(@Param("patientIds") Collection<Long> patientIds,
+                                                     @Param("testTypes") Collection<String> testTypes);
+}
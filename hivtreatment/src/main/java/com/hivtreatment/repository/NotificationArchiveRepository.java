@@ -0,0 +1,13 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.NotificationArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificationArchiveRepository extends JpaRepository<NotificationArchive, Long> {
+
+    List<NotificationArchive> findByNotificationTypeOrderByIdAsc(String notificationType);
+}
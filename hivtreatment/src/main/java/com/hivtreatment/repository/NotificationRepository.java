@@ -1,9 +1,15 @@
 package com.hivtreatment.repository;
 
 import com.hivtreatment.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +18,42 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     List<Notification> findByUserIdAndIsReadFalse(Long userId);
     long countByUserIdAndIsReadFalse(Long userId);
     List<Notification> findByType(String type);
+
+    // N thông báo mới nhất của người dùng (thay cho tải toàn bộ rồi subList)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Đánh dấu đã đọc tất cả bằng một câu UPDATE
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllAsReadByUserId(@Param("userId") Long userId);
+
+    // Trả về 1 nếu thông báo vừa chuyển từ chưa đọc sang đã đọc
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.id = :id AND n.isRead = false")
+    int markAsReadById(@Param("id") Long id);
+
+    @Query("SELECT n.user.id FROM Notification n WHERE n.id = :id")
+    Long findUserIdById(@Param("id") Long id);
+
+    // --- RETENTION: xóa theo lô ID để mỗi transaction chỉ khóa ít dòng ---
+
+    // ID thông báo hết hạn của một loại
+    @Query("SELECT n.id FROM Notification n WHERE n.type = :type AND n.createdAt < :cutoff ORDER BY n.id")
+    List<Long> findExpiredIdsByType(@Param("type") String type,
+                                    @Param("cutoff") LocalDateTime cutoff,
+                                    Pageable pageable);
+
+    // ID thông báo hết hạn của các loại không có TTL riêng (dùng TTL mặc định)
+    @Query("SELECT n.id FROM Notification n WHERE (n.type IS NULL OR n.type NOT IN :types) " +
+           "AND n.createdAt < :cutoff ORDER BY n.id")
+    List<Long> findExpiredIdsExcludingTypes(@Param("types") Collection<String> types,
+                                            @Param("cutoff") LocalDateTime cutoff,
+                                            Pageable pageable);
+
+    List<Notification> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,18 +1,23 @@
 package com.hivtreatment.repository;
 
+import com.hivtreatment.dto.DailyCountDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.Patient;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, Long> {
+public interface PatientRepository extends JpaRepository<Patient, Long>, JpaSpecificationExecutor<Patient> {
 
     Optional<Patient> findByPatientCode(String patientCode);
     Optional<Patient> findByUserId(Long userId);
@@ -26,9 +31,30 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
 
     long countByDoctorId(Long doctorId);
 
-    long countByDoctorIdAndCreatedDateBetween(Long doctorId, LocalDate startDate, LocalDate endDate);
+    long countByDoctorIdAndCreatedAtBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
     List<Patient> findByDoctorId(Long doctorId);
     long countByIsActiveTrue();
-    @Query("SELECT p FROM Patient p WHERE p.doctor.id = :doctorId ORDER BY p.createdDate DESC")
-    List<Patient> findByDoctorIdOrderByCreatedDateDesc(@Param("doctorId") Long doctorId, Pageable pageable);
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT p FROM Patient p WHERE p.doctor.id = :doctorId ORDER BY p.createdAt DESC, p.id DESC")
+    List<Patient> findRecentWithUserByDoctorId(@Param("doctorId") Long doctorId, Pageable pageable);
+
+    // Số bệnh nhân mới theo tháng (khoảng nửa mở [start, end) để dùng được index trên created_at)
+    @Query("SELECT new com.hivtreatment.dto.MonthlyCountDTO(MONTH(p.createdAt), COUNT(p)) " +
+           "FROM Patient p WHERE p.createdAt >= :start AND p.createdAt < :end " +
+           "GROUP BY MONTH(p.createdAt)")
+    List<MonthlyCountDTO> countNewPatientsByMonth(@Param("start") LocalDateTime start,
+                                                  @Param("end") LocalDateTime end);
+
+    @Query("SELECT COUNT(p) FROM Patient p WHERE p.createdAt >= :start AND p.createdAt < :end")
+    long countNewPatients(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT new com.hivtreatment.dto.DailyCountDTO(CAST(p.createdAt AS LocalDate), COUNT(p)) " +
+           "FROM Patient p WHERE p.createdAt >= :start AND p.createdAt < :end " +
+           "GROUP BY CAST(p.createdAt AS LocalDate)")
+    List<DailyCountDTO> countNewPatientsByDay(@Param("start") LocalDateTime start,
+                                              @Param("end") LocalDateTime end);
+
+    // Các mã lớn nhất theo tiền tố (mã dài hơn là số lớn hơn), dùng để khởi tạo bộ đếm mã
+    @Query("SELECT p.patientCode FROM Patient p WHERE p.patientCode LIKE :prefix ORDER BY LENGTH(p.patientCode) DESC, p.patientCode DESC")
+    List<String> findHighestCodes(@Param("prefix") String prefix, Pageable pageable);
 }
@@ -0,0 +1,88 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.PatientSearchParams;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.enums.Gender;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Các điều kiện tìm kiếm bệnh nhân, được dịch thành WHERE trong SQL
+ * để phân trang, sắp xếp và đếm đều chạy trên cơ sở dữ liệu.
+ */
+public final class PatientSpecifications {
+
+    private PatientSpecifications() {}
+
+    public static Specification<Patient> fromParams(PatientSearchParams params) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            Expression<String> fullName = cb.lower(cb.concat(cb.concat(root.get("firstName"), " "), root.get("lastName")));
+
+            if (hasText(params.getName())) {
+                predicates.add(cb.like(fullName, contains(params.getName())));
+            }
+
+            if (hasText(params.getSearch())) {
+                String pattern = contains(params.getSearch());
+                predicates.add(cb.or(
+                    cb.like(fullName, pattern),
+                    cb.like(cb.lower(root.get("patientCode")), pattern),
+                    cb.like(root.get("phone"), pattern)
+                ));
+            }
+
+            if (hasText(params.getGender())) {
+                Gender gender = parseGender(params.getGender());
+                predicates.add(gender != null ? cb.equal(root.get("gender"), gender) : cb.disjunction());
+            }
+
+            if (params.getAge() != null) {
+                // Tuổi N <=> ngày sinh thuộc (hôm nay - (N+1) năm, hôm nay - N năm]
+                LocalDate today = LocalDate.now();
+                LocalDate latestBirthDate = today.minusYears(params.getAge());
+                LocalDate earliestBirthDate = today.minusYears(params.getAge() + 1L);
+                predicates.add(cb.greaterThan(root.get("dateOfBirth"), earliestBirthDate));
+                predicates.add(cb.lessThanOrEqualTo(root.get("dateOfBirth"), latestBirthDate));
+            }
+
+            if (hasText(params.getPhone())) {
+                predicates.add(cb.like(root.get("phone"), "%" + params.getPhone().trim() + "%"));
+            }
+
+            if (hasText(params.getTreatmentStatus())) {
+                predicates.add(cb.equal(cb.lower(root.get("treatmentStatus")),
+                        params.getTreatmentStatus().trim().toLowerCase(Locale.ROOT)));
+            }
+
+            if (params.getDoctorId() != null) {
+                predicates.add(cb.equal(root.get("doctor").get("id"), params.getDoctorId()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static String contains(String value) {
+        return "%" + value.trim().toLowerCase(Locale.ROOT) + "%";
+    }
+
+    private static Gender parseGender(String value) {
+        try {
+            return Gender.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
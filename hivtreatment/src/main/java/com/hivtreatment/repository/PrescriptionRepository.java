@@ -1,9 +1,13 @@
 package com.hivtreatment.repository;
 
+import com.hivtreatment.dto.DailyCountDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.Prescription;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +16,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
+public interface PrescriptionRepository extends JpaRepository<Prescription, Long>, JpaSpecificationExecutor<Prescription> {
     List<Prescription> findByPatientIdAndStatus(Long patientId, String status);
 
 
@@ -41,19 +45,46 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, Long
     @Query("SELECT p FROM Prescription p WHERE p.patient.id = :patientId AND p.status = 'ACTIVE'")
     List<Prescription> findActiveByPatient(@Param("patientId") Long patientId);
 
+    // Đơn thuốc ACTIVE kèm bác sĩ và danh sách thuốc, một câu SELECT cho dashboard
+    @EntityGraph(attributePaths = {"doctor", "doctor.user", "prescriptionMedications", "prescriptionMedications.medication"})
+    @Query("SELECT p FROM Prescription p WHERE p.patient.id = :patientId AND p.status = 'ACTIVE' " +
+           "ORDER BY p.prescriptionDate DESC")
+    List<Prescription> findActiveWithDetailsByPatient(@Param("patientId") Long patientId);
+
+    long countByPatientIdAndStatus(Long patientId, String status);
+
+    // Bệnh nhân có đơn thuốc còn hiệu lực trong một phân vùng (patient.id % partitions),
+    // duyệt theo keyset patient.id cho job nhắc uống thuốc
+    @Query("SELECT DISTINCT p.patient.id FROM Prescription p WHERE p.status = 'ACTIVE' " +
+           "AND (p.endDate IS NULL OR p.endDate > :today) AND p.patient.id > :afterPatientId " +
+           "AND MOD(p.patient.id, :partitions) = :partition ORDER BY p.patient.id")
+    List<Long> findActivePatientIdsAfter(@Param("today") LocalDate today,
+                                         @Param("partition") int partition,
+                                         @Param("partitions") int partitions,
+                                         @Param("afterPatientId") Long afterPatientId,
+                                         Pageable pageable);
+
+    // Đơn thuốc còn hiệu lực của một khối bệnh nhân, kèm bệnh nhân, tài khoản và thuốc trong một câu SELECT
+    @Query("SELECT DISTINCT p FROM Prescription p JOIN FETCH p.patient pt JOIN FETCH pt.user " +
+           "JOIN FETCH p.prescriptionMedications pm JOIN FETCH pm.medication " +
+           "WHERE pt.id IN :patientIds AND p.status = 'ACTIVE' AND (p.endDate IS NULL OR p.endDate > :today)")
+    List<Prescription> findActiveWithMedicationsByPatientIds(@Param("patientIds") List<Long> patientIds,
+                                                             @Param("today") LocalDate today);
+
     // Đơn thuốc trong khoảng thời gian
     @Query("SELECT p FROM Prescription p WHERE p.prescriptionDate BETWEEN :startDate AND :endDate")
     List<Prescription> findByDateRange(@Param("startDate") LocalDate startDate,
                                        @Param("endDate") LocalDate endDate);
 
     // Đếm đơn thuốc mới từ thời điểm cho trước
-    @Query("SELECT COUNT(p) FROM Prescription p WHERE p.doctor.id = :doctorId AND p.createdDate >= :startDate")
+    @Query("SELECT COUNT(p) FROM Prescription p WHERE p.doctor.id = :doctorId AND p.prescriptionDate >= :startDate")
     long countByDoctorIdAndCreatedDateAfter(@Param("doctorId") Long doctorId,
                                             @Param("startDate") LocalDate startDate);
                                             @Query("SELECT p FROM Prescription p " +
-       "WHERE (:code IS NULL OR p.code LIKE %:code%) " +
-       "AND (:patientName IS NULL OR LOWER(p.patient.fullName) LIKE LOWER(CONCAT('%', :patientName, '%'))) " +
-       "AND (:doctorName IS NULL OR LOWER(p.doctor.fullName) LIKE LOWER(CONCAT('%', :doctorName, '%'))) " +
+       "WHERE (:code IS NULL OR CAST(p.id AS string) LIKE %:code%) " +
+       "AND (:patientName IS NULL OR LOWER(CONCAT(p.patient.firstName, ' ', p.patient.lastName)) LIKE LOWER(CONCAT('%', :patientName, '%')) " +
+       "     OR p.patient.patientCode LIKE CONCAT('%', :patientName, '%')) " +
+       "AND (:doctorName IS NULL OR LOWER(CONCAT(p.doctor.firstName, ' ', p.doctor.lastName)) LIKE LOWER(CONCAT('%', :doctorName, '%'))) " +
        "AND (:status IS NULL OR p.status = :status) " +
        "AND (:prescriptionDate IS NULL OR p.prescriptionDate = :prescriptionDate)")
 List<Prescription> searchPrescriptions(@Param("code") String code,
@@ -62,4 +93,26 @@ List<Prescription> searchPrescriptions(@Param("code") String code,
                                        @Param("status") String status,
                                        @Param("prescriptionDate") LocalDate prescriptionDate);
 
+    // Thống kê số đơn thuốc theo tháng, không nạp entity
+    @Query("SELECT new com.hivtreatment.dto.MonthlyCountDTO(MONTH(p.prescriptionDate), COUNT(p)) " +
+           "FROM Prescription p WHERE p.prescriptionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY MONTH(p.prescriptionDate)")
+    List<MonthlyCountDTO> countByMonth(@Param("startDate") LocalDate startDate,
+                                       @Param("endDate") LocalDate endDate);
+
+    long countByPrescriptionDateBetween(LocalDate startDate, LocalDate endDate);
+
+    @Query("SELECT new com.hivtreatment.dto.DailyCountDTO(p.prescriptionDate, COUNT(p)) " +
+           "FROM Prescription p WHERE p.prescriptionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY p.prescriptionDate")
+    List<DailyCountDTO> countByDay(@Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+
+    // Thuốc được kê nhiều nhất trong khoảng thời gian
+    @Query("SELECT m.name FROM Prescription p JOIN p.prescriptionMedications pm JOIN pm.medication m " +
+           "WHERE p.prescriptionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY m.name ORDER BY COUNT(pm) DESC")
+    List<String> findMostPrescribedMedicationNames(@Param("startDate") LocalDate startDate,
+                                                   @Param("endDate") LocalDate endDate,
+                                                   Pageable pageable);
 }
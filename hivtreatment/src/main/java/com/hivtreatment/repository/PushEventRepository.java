@@ -0,0 +1,23 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.entity.PushEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PushEventRepository extends JpaRepository<PushEvent, Long> {
+
+    // Sự kiện do node khác phát từ một mốc thời gian (đã tính khoảng chồng lấn)
+    @Query("SELECT e FROM PushEvent e WHERE e.createdAt >= :since AND e.originNode <> :node ORDER BY e.id")
+    List<PushEvent> findFromOtherNodes(@Param("since") LocalDateTime since, @Param("node") String node);
+
+    @Modifying
+    @Query("DELETE FROM PushEvent e WHERE e.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -1,11 +1,13 @@
 package com.hivtreatment.repository;
 
+import com.hivtreatment.dto.DailyCountDTO;
 import com.hivtreatment.entity.SymptomReport;
 import com.hivtreatment.enums.ReportStatus;
 import com.hivtreatment.enums.SymptomSeverity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -14,7 +16,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface SymptomReportRepository extends JpaRepository<SymptomReport, Long> {
+public interface SymptomReportRepository extends JpaRepository<SymptomReport, Long>, JpaSpecificationExecutor<SymptomReport> {
     
     // Find by patient
     Page<SymptomReport> findByPatientIdOrderByCreatedAtDesc(Long patientId, Pageable pageable);
@@ -37,7 +39,7 @@ public interface SymptomReportRepository extends JpaRepository<SymptomReport, Lo
     List<SymptomReport> findByStatusOrderByCreatedAtDesc(ReportStatus status);
     
     // Find reports by patient and doctor
-    @Query("SELECT sr FROM SymptomReport sr WHERE sr.patient.currentDoctor.id = :doctorId ORDER BY sr.createdAt DESC")
+    @Query("SELECT sr FROM SymptomReport sr WHERE sr.patient.doctor.id = :doctorId ORDER BY sr.createdAt DESC")
     Page<SymptomReport> findByPatientDoctorIdOrderByCreatedAtDesc(@Param("doctorId") Long doctorId, Pageable pageable);
     
     // Count reports by status
@@ -64,4 +66,10 @@ public interface SymptomReportRepository extends JpaRepository<SymptomReport, Lo
     // Find reports requiring follow-up
     @Query("SELECT sr FROM SymptomReport sr WHERE sr.followUpRequired = true AND sr.followUpDate <= :date ORDER BY sr.followUpDate ASC")
     List<SymptomReport> findReportsRequiringFollowUp(@Param("date") LocalDateTime date);
+
+    // Count reports per day (rollup daily_stats)
+    @Query("SELECT new com.hivtreatment.dto.DailyCountDTO(CAST(sr.createdAt AS LocalDate), COUNT(sr)) " +
+           "FROM SymptomReport sr WHERE sr.createdAt >= :start AND sr.createdAt < :end " +
+           "GROUP BY CAST(sr.createdAt AS LocalDate)")
+    List<DailyCountDTO> countByDay(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
@@ -0,0 +1,42 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.WorklistCountDTO;
+import com.hivtreatment.entity.TestWorklistItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TestWorklistItemRepository extends JpaRepository<TestWorklistItem, Long>, JpaSpecificationExecutor<TestWorklistItem> {
+
+    @Query("SELECT w FROM TestWorklistItem w WHERE w.patient.id IN :patientIds")
+    List<TestWorklistItem> findByPatientIds(@Param("patientIds") Collection<Long> patientIds);
+
+    // Xét nghiệm quá hạn chưa nhắc, hoặc nhắc trước remindBefore, kèm tài khoản bệnh nhân để gửi thông báo
+    @Query("SELECT w FROM TestWorklistItem w JOIN FETCH w.patient p JOIN FETCH p.user " +
+           "WHERE p.id IN :patientIds AND (w.notifiedAt IS NULL OR w.notifiedAt < :remindBefore) " +
+           "ORDER BY p.id, w.testType")
+    List<TestWorklistItem> findDueForReminder(@Param("patientIds") Collection<Long> patientIds,
+                                              @Param("remindBefore") LocalDateTime remindBefore);
+
+    // Dòng của bệnh nhân không còn hồ sơ HIV
+    @Modifying
+    @Query("DELETE FROM TestWorklistItem w WHERE NOT EXISTS " +
+           "(SELECT h.id FROM HIVPatientProfile h WHERE h.patient = w.patient)")
+    int deleteWithoutProfile();
+
+    @Query("SELECT new com.hivtreatment.dto.WorklistCountDTO(w.doctor.id, COUNT(w.id), " +
+           "SUM(CASE WHEN w.notifiedAt >= :since THEN 1 ELSE 0 END)) " +
+           "FROM TestWorklistItem w WHERE w.doctor IS NOT NULL GROUP BY w.doctor.id")
+    List<WorklistCountDTO> countByDoctor(@Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(w) FROM TestWorklistItem w WHERE w.doctor.id = :doctorId")
+    long countByDoctorId(@Param("doctorId") Long doctorId);
+}
@@ -5,16 +5,18 @@ import com.hivtreatment.enums.UserRole;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
     Optional<User> findByUsername(String username);
 
@@ -44,5 +46,5 @@ public interface UserRepository extends JpaRepository<User, Long> {
             String usernameKeyword, String emailKeyword, Pageable pageable);
 
     // ✅ New method for count users created this month
-    long countByCreatedDateBetween(LocalDate start, LocalDate end);
+    long countByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
 }
@@ -1,15 +1,23 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.ARVProtocolDTO;
 import com.hivtreatment.entity.ARVProtocol;
 import com.hivtreatment.entity.Patient;
 import com.hivtreatment.repository.ARVProtocolRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Phác đồ ARV. Các danh sách được cache là ARVProtocolDTO chỉ đọc dựng trong transaction,
+ * không phải entity đang được quản lý; cần sửa thì đọc entity qua getProtocolById.
+ */
 @Service
 @Transactional
 public class ARVProtocolService {
@@ -17,12 +25,14 @@ public class ARVProtocolService {
     @Autowired
     private ARVProtocolRepository arvProtocolRepository;
 
-    public List<ARVProtocol> getAllProtocols() {
-        return arvProtocolRepository.findAll();
+    @Cacheable(cacheNames = CacheConfig.ARV_PROTOCOLS, key = "'all'")
+    public List<ARVProtocolDTO> getAllProtocols() {
+        return toDtos(arvProtocolRepository.findAllWithMedications());
     }
 
-    public List<ARVProtocol> getActiveProtocols() {
-        return arvProtocolRepository.findByIsActiveTrue();
+    @Cacheable(cacheNames = CacheConfig.ARV_PROTOCOLS, key = "'active'")
+    public List<ARVProtocolDTO> getActiveProtocols() {
+        return toDtos(arvProtocolRepository.findByIsActiveTrue());
     }
 
     public Optional<ARVProtocol> getProtocolById(Long id) {
@@ -33,32 +43,41 @@ public class ARVProtocolService {
         return arvProtocolRepository.findByProtocolCode(protocolCode);
     }
 
-    public List<ARVProtocol> getProtocolsByTargetGroup(String targetGroup) {
-        return arvProtocolRepository.findActiveProtocolsByTargetGroup(targetGroup);
+    @Cacheable(cacheNames = CacheConfig.ARV_PROTOCOLS, key = "'target:' + #targetGroup")
+    public List<ARVProtocolDTO> getProtocolsByTargetGroup(String targetGroup) {
+        return toDtos(arvProtocolRepository.findActiveProtocolsByTargetGroup(targetGroup));
     }
 
-    public List<ARVProtocol> getFirstLineProtocols() {
-        return arvProtocolRepository.findFirstLineProtocols();
+    @Cacheable(cacheNames = CacheConfig.ARV_PROTOCOLS, key = "'firstLine'")
+    public List<ARVProtocolDTO> getFirstLineProtocols() {
+        return toDtos(arvProtocolRepository.findFirstLineProtocols());
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ARV_PROTOCOLS, allEntries = true)
     public ARVProtocol createProtocol(ARVProtocol protocol) {
         return arvProtocolRepository.save(protocol);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ARV_PROTOCOLS, allEntries = true)
     public ARVProtocol updateProtocol(ARVProtocol protocol) {
         return arvProtocolRepository.save(protocol);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ARV_PROTOCOLS, allEntries = true)
     public void deleteProtocol(Long id) {
         arvProtocolRepository.deleteById(id);
     }
 
-    public List<ARVProtocol> getRecommendedProtocols(Patient patient) {
+    public List<ARVProtocolDTO> getRecommendedProtocols(Patient patient) {
         // Logic to recommend protocols based on patient characteristics
         String targetGroup = determineTargetGroup(patient);
         return getProtocolsByTargetGroup(targetGroup);
     }
 
+    private static List<ARVProtocolDTO> toDtos(List<ARVProtocol> protocols) {
+        return protocols.stream().map(ARVProtocolDTO::new).toList();
+    }
+
     private String determineTargetGroup(Patient patient) {
         if (patient.getIsPregnant() != null && patient.getIsPregnant()) {
             return "PREGNANT";
@@ -75,6 +94,7 @@ public class ARVProtocolService {
         return "ADULT";
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ARV_PROTOCOLS, allEntries = true)
     public void toggleProtocolStatus(Long id) {
         Optional<ARVProtocol> protocolOpt = arvProtocolRepository.findById(id);
         if (protocolOpt.isPresent()) {
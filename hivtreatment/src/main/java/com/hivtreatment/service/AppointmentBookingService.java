@@ -0,0 +1,114 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Appointment;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Đặt lịch hẹn mới, bảo đảm không có hai lịch hẹn hiệu lực cùng bác sĩ/ngày/khung giờ.
+ *
+ * Bảo đảm cuối cùng là ràng buộc UNIQUE trên appointments.slot_key, đúng cho mọi node. Trên một node,
+ * các yêu cầu cùng bác sĩ/ngày xếp hàng qua khóa phân dải (lock striping) nên tranh chấp chỉ xảy ra
+ * trong một ngày của một bác sĩ; trong khóa, khung đã có người đặt bị từ chối ngay từ chỉ mục
+ * SlotAvailabilityService mà không chạm database. Lỗi khóa tạm thời của database được thử lại.
+ *
+ * Không đặt @Transactional ở đây: mỗi lần thử là một transaction riêng của AppointmentService,
+ * commit (và cập nhật chỉ mục khung giờ) trước khi nhả khóa.
+ */
+@Service
+public class AppointmentBookingService {
+
+    public static final String SLOT_TAKEN_MESSAGE = "Khung giờ này đã có người đặt, vui lòng chọn giờ khác!";
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
+    @Value("${hiv.booking.lock-stripes:256}")
+    private int lockStripes;
+
+    @Value("${hiv.booking.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${hiv.booking.retry-backoff-ms:20}")
+    private long retryBackoffMs;
+
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    public void init() {
+        if (lockStripes <= 0) {
+            throw new IllegalStateException("hiv.booking.lock-stripes phải > 0: " + lockStripes);
+        }
+        locks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Đặt lịch hẹn (trạng thái đang hiệu lực). Ném IllegalStateException với SLOT_TAKEN_MESSAGE nếu khung
+     * giờ đã có người giữ.
+     */
+    public Appointment book(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getDoctor().getId() == null
+                || appointment.getAppointmentDate() == null || appointment.getAppointmentTime() == null) {
+            throw new IllegalArgumentException("Thiếu bác sĩ, ngày hoặc giờ hẹn");
+        }
+        Long doctorId = appointment.getDoctor().getId();
+        LocalDate date = appointment.getAppointmentDate();
+
+        ReentrantLock lock = lockFor(doctorId, date);
+        lock.lock();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                if (appointment.getStatus() != null && appointment.getStatus().occupiesSlot()
+                        && slotAvailabilityService.isBooked(doctorId, date, appointment.getAppointmentTime())) {
+                    throw new IllegalStateException(SLOT_TAKEN_MESSAGE);
+                }
+                try {
+                    return appointmentService.createAppointment(appointment);
+                } catch (DataIntegrityViolationException e) {
+                    // Node khác vừa giữ khung này (chỉ mục ở đây chưa biết)
+                    if (AppointmentService.isSlotKeyViolation(e)) {
+                        throw new IllegalStateException(SLOT_TAKEN_MESSAGE, e);
+                    }
+                    throw e;
+                } catch (TransientDataAccessException e) {
+                    // Deadlock, hết thời gian chờ khóa hàng...: thử lại sau một chút
+                    if (attempt >= maxRetries) throw e;
+                    appointment.setId(null);
+                    backoff(attempt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Long doctorId, LocalDate date) {
+        int hash = Objects.hash(doctorId, date);
+        // Trộn bit cao xuống để các ngày liên tiếp của cùng bác sĩ không dồn vào vài dải
+        hash ^= hash >>> 16;
+        return locks[Math.floorMod(hash, locks.length)];
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMs * (attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Đặt lịch hẹn bị gián đoạn", e);
+        }
+    }
+}
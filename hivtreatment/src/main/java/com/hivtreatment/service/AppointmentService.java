@@ -2,27 +2,55 @@ package com.hivtreatment.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.hivtreatment.dto.AppointmentSummaryDTO;
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.Appointment;
 import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.event.AppointmentSlotEvent;
+import com.hivtreatment.event.DashboardEvent;
 import com.hivtreatment.repository.AppointmentRepository;
+import com.hivtreatment.repository.KeysetPagination;
 
 @Service
 @Transactional
 public class AppointmentService {
 
+    // Khóa keyset cho danh sách lịch hẹn: (appointmentDate, id)
+    private static final Sort KEYSET_SORT = KeysetPagination.keysetSort(Appointment.class,
+            Sort.Order.desc("appointmentDate"), Sort.Order.desc("id"));
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Cùng độ dài khung giờ với chỉ mục khung trống, để slot_key trùng đúng khi hai lịch rơi vào một khung
+    @Value("${hiv.availability.slot-minutes:30}")
+    private int slotMinutes;
+
     public List<Appointment> getAllAppointments() {
         return appointmentRepository.findAll();
     }
@@ -44,19 +72,24 @@ public class AppointmentService {
         return appointmentRepository.findRecentAppointmentsByPatientId(patientId, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public List<AppointmentSummaryDTO> findRecentSummariesByPatientId(Long patientId, int limit) {
+        return appointmentRepository.findRecentSummariesByPatientId(patientId, PageRequest.of(0, limit));
+    }
+
     public List<Appointment> findRecentByPatientId(Long patientId, int limit) {
         Pageable pageable = PageRequest.of(0, limit);
         return appointmentRepository.findRecentAppointmentsByPatientId(patientId, pageable);
     }
 
     public List<Appointment> findUpcomingByPatientId(Long patientId) {
-        return appointmentRepository.findByPatientIdAndAppointmentDateAfterAndStatus(
+        return appointmentRepository.findWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
             patientId, LocalDate.now(), AppointmentStatus.CONFIRMED
         );
     }
 
     public Optional<Appointment> findNextByPatientId(Long patientId) {
-        return appointmentRepository.findFirstByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
+        return appointmentRepository.findFirstWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
             patientId, LocalDate.now(), AppointmentStatus.CONFIRMED
         );
     }
@@ -87,7 +120,8 @@ public class AppointmentService {
     }
 
     public List<Appointment> findTodayByDoctorId(Long doctorId) {
-        return appointmentRepository.findByDoctorIdAndAppointmentDate(doctorId, LocalDate.now());
+        return appointmentRepository.findWithPatientByDoctorIdAndAppointmentDateOrderByAppointmentTimeAsc(
+            doctorId, LocalDate.now());
     }
 
     public List<Appointment> getAppointmentsByDate(LocalDate date) {
@@ -99,6 +133,13 @@ public class AppointmentService {
         return appointmentRepository.findByAppointmentDate(date, pageable);
     }
 
+    // Lịch hẹn CONFIRMED cần nhắc của một phân vùng bệnh nhân, kèm bệnh nhân, tài khoản và bác sĩ
+    public List<Appointment> getAppointmentsForReminder(LocalDate date, int partition, int partitions,
+                                                        Long afterId, int limit) {
+        return appointmentRepository.findForReminders(date, AppointmentStatus.CONFIRMED, partition, partitions,
+                afterId, PageRequest.of(0, limit));
+    }
+
     public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
         return appointmentRepository.findByStatus(status);
     }
@@ -108,43 +149,140 @@ public class AppointmentService {
     }
 
     public Appointment createAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Appointment saved = saveHoldingSlot(appointment);
+        eventPublisher.publishEvent(AppointmentSlotEvent.of(saved));
+        eventPublisher.publishEvent(DashboardEvent.appointmentCreated(saved));
+        return saved;
     }
 
     public Appointment updateAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        Appointment saved = saveHoldingSlot(appointment);
+        eventPublisher.publishEvent(AppointmentSlotEvent.of(saved));
+        return saved;
     }
 
     // ✅ NEW: Save appointment (unified for create/update)
     public Appointment saveAppointment(Appointment appointment) {
-        return appointmentRepository.save(appointment);
+        boolean isNew = appointment.getId() == null;
+        Appointment saved = saveHoldingSlot(appointment);
+        eventPublisher.publishEvent(AppointmentSlotEvent.of(saved));
+        if (isNew) {
+            eventPublisher.publishEvent(DashboardEvent.appointmentCreated(saved));
+        }
+        return saved;
     }
 
     public void deleteAppointment(Long id) {
         appointmentRepository.deleteById(id);
+        eventPublisher.publishEvent(AppointmentSlotEvent.removed(id));
     }
 
     public void confirmAppointment(Long appointmentId) {
         appointmentRepository.findById(appointmentId).ifPresent(appointment -> {
             appointment.setStatus(AppointmentStatus.CONFIRMED);
-            appointmentRepository.save(appointment);
+            saveHoldingSlot(appointment);
+            eventPublisher.publishEvent(AppointmentSlotEvent.of(appointment));
+            eventPublisher.publishEvent(DashboardEvent.appointmentConfirmed(appointment));
         });
     }
 
     public void cancelAppointment(Long appointmentId) {
         appointmentRepository.findById(appointmentId).ifPresent(appointment -> {
             appointment.setStatus(AppointmentStatus.CANCELLED);
+            assignSlotKey(appointment);
             appointmentRepository.save(appointment);
+            eventPublisher.publishEvent(AppointmentSlotEvent.of(appointment));
         });
     }
 
     public void completeAppointment(Long appointmentId) {
         appointmentRepository.findById(appointmentId).ifPresent(appointment -> {
             appointment.setStatus(AppointmentStatus.COMPLETED);
+            assignSlotKey(appointment);
             appointmentRepository.save(appointment);
+            eventPublisher.publishEvent(AppointmentSlotEvent.of(appointment));
         });
     }
 
+    /**
+     * Khóa khung giờ "doctorId|ngày|giờ bắt đầu khung" cho ràng buộc UNIQUE slot_key;
+     * NULL khi lịch hẹn không còn chiếm khung (đã hủy, không đến) hoặc thiếu thông tin.
+     */
+    public String slotKeyOf(Appointment appointment) {
+        if (appointment.getDoctor() == null || appointment.getDoctor().getId() == null
+                || appointment.getAppointmentDate() == null || appointment.getAppointmentTime() == null
+                || appointment.getStatus() == null || !appointment.getStatus().occupiesSlot()) {
+            return null;
+        }
+        return slotKeyOf(appointment.getDoctor().getId(), appointment.getAppointmentDate(),
+                appointment.getAppointmentTime());
+    }
+
+    public String slotKeyOf(Long doctorId, LocalDate date, LocalTime time) {
+        int start = (time.getHour() * 60 + time.getMinute()) / slotMinutes * slotMinutes;
+        return doctorId + "|" + date + "|" + LocalTime.MIDNIGHT.plusMinutes(start);
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    private void assignSlotKey(Appointment appointment) {
+        appointment.setSlotKey(slotKeyOf(appointment));
+    }
+
+    /**
+     * Ghi lịch hẹn đang giữ khung và flush ngay: trùng slot_key (lịch khác, có thể từ node khác, đã giữ khung)
+     * được báo bằng IllegalStateException với AppointmentBookingService.SLOT_TAKEN_MESSAGE như khi đặt lịch.
+     */
+    private Appointment saveHoldingSlot(Appointment appointment) {
+        assignSlotKey(appointment);
+        try {
+            return appointmentRepository.saveAndFlush(appointment);
+        } catch (DataIntegrityViolationException e) {
+            if (isSlotKeyViolation(e)) {
+                throw new IllegalStateException(AppointmentBookingService.SLOT_TAKEN_MESSAGE, e);
+            }
+            throw e;
+        }
+    }
+
+    static boolean isSlotKeyViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(Appointment.SLOT_KEY_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gán slot_key cho lịch hẹn đang hiệu lực có từ trước khi có cột này, một lô id > afterId;
+     * trả về id các lịch hẹn đã xét (rỗng khi đã hết). Lịch cũ trùng khung với lịch đã giữ khóa được để NULL.
+     */
+    public List<Long> backfillSlotKeys(Long afterId, int batchSize) {
+        List<AppointmentStatus> inactive = Arrays.stream(AppointmentStatus.values())
+                .filter(status -> !status.occupiesSlot()).toList();
+        List<Appointment> appointments = appointmentRepository.findWithoutSlotKey(afterId, inactive,
+                PageRequest.of(0, batchSize));
+        if (appointments.isEmpty()) return List.of();
+
+        List<String> keys = appointments.stream().map(this::slotKeyOf).filter(key -> key != null).toList();
+        Set<String> taken = keys.isEmpty() ? new HashSet<>() : new HashSet<>(appointmentRepository.findSlotKeysIn(keys));
+        for (Appointment appointment : appointments) {
+            String key = slotKeyOf(appointment);
+            if (key == null) continue;
+            if (taken.add(key)) {
+                appointment.setSlotKey(key);
+            } else {
+                System.err.println("Lịch hẹn " + appointment.getId() + " trùng khung " + key + ", giữ slot_key NULL");
+            }
+        }
+        appointmentRepository.flush();
+        return appointments.stream().map(Appointment::getId).toList();
+    }
+
     public long getTodayAppointmentCount() {
         return appointmentRepository.countTodayAppointments();
     }
@@ -161,6 +299,24 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorIdAndStatus(doctorId, status, pageable);
     }
 
+    /**
+     * Danh sách lịch hẹn của bác sĩ theo keyset; status/date có thể null.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Appointment> scrollAppointmentsByDoctor(Long doctorId, AppointmentStatus status, LocalDate date,
+                                                              String after, String before, int size, boolean countTotal) {
+        List<Specification<Appointment>> filters = new ArrayList<>();
+        filters.add((root, query, cb) -> cb.equal(root.get("doctor").get("id"), doctorId));
+        if (status != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (date != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("appointmentDate"), date));
+        }
+        return KeysetPagination.scroll(appointmentRepository, Specification.allOf(filters),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
     // ✅ NEW: Pagination with Date + Status
     public Page<Appointment> getAppointmentsByDateAndStatus(LocalDate date, AppointmentStatus status, Pageable pageable) {
         return appointmentRepository.findByAppointmentDateAndStatus(date, status, pageable);
@@ -172,9 +328,11 @@ public class AppointmentService {
     }
 
     public List<Appointment> getNewAppointmentsSince(Long doctorId, LocalDateTime since) {
-        return appointmentRepository.findByDoctorId(doctorId).stream()
-            .filter(a -> a.getCreatedAt() != null && a.getCreatedAt().isAfter(since))
-            .toList();
+        return appointmentRepository.findByDoctorIdAndCreatedAtAfter(doctorId, since);
+    }
+
+    public long countNewAppointmentsSince(Long doctorId, LocalDateTime since) {
+        return appointmentRepository.countByDoctorIdAndCreatedAtAfter(doctorId, since);
     }
 
     public List<Appointment> getUpcomingAppointmentsByPatient(Long patientId) {
@@ -206,4 +364,14 @@ public List<Appointment> getUrgentAppointments() {
             patientId, LocalDate.now(), AppointmentStatus.COMPLETED
         );
     }
+
+    // --- THỐNG KÊ ---
+
+    public List<MonthlyCountDTO> countByMonthAndStatus(LocalDate startDate, LocalDate endDate) {
+        return appointmentRepository.countByMonthAndStatus(startDate, endDate);
+    }
+
+    public long countByStatusBetween(AppointmentStatus status, LocalDate startDate, LocalDate endDate) {
+        return appointmentRepository.countByStatusAndAppointmentDateBetween(status, startDate, endDate);
+    }
 }
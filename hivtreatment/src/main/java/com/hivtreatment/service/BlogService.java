@@ -5,12 +5,17 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.hivtreatment.dto.SearchHitDTO;
 import com.hivtreatment.entity.BlogPost;
+import com.hivtreatment.enums.SearchDocumentType;
+import com.hivtreatment.event.SearchIndexEvent;
 import com.hivtreatment.repository.BlogPostRepository;
 
 @Service
@@ -20,6 +25,15 @@ public class BlogService {
     @Autowired
     private BlogPostRepository blogPostRepository;
 
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
     public Page<BlogPost> getPublishedPosts(Pageable pageable) {
         return blogPostRepository.findPublishedPosts(pageable);
     }
@@ -28,8 +42,15 @@ public class BlogService {
         return blogPostRepository.findPublishedPostsByCategory(category, pageable);
     }
 
+    // Xếp hạng theo chỉ mục toàn văn, nạp bài viết từ database để luôn thấy trạng thái mới nhất
     public Page<BlogPost> searchPublishedPosts(String keyword, Pageable pageable) {
-        return blogPostRepository.searchPublishedPosts(keyword, pageable);
+        Page<SearchHitDTO> hits = fullTextSearchService.search(keyword, SearchDocumentType.BLOG_POST, pageable);
+        List<Long> ids = hits.map(SearchHitDTO::getId).getContent();
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, hits.getTotalElements());
+        }
+        List<BlogPost> posts = FullTextSearchService.inRankOrder(ids, blogPostRepository.findPublishedByIdIn(ids), BlogPost::getId);
+        return new PageImpl<>(posts, pageable, hits.getTotalElements());
     }
 
     public Optional<BlogPost> getPostBySlug(String slug) {
@@ -41,15 +62,20 @@ public class BlogService {
     }
 
     public BlogPost createPost(BlogPost post) {
-        return blogPostRepository.save(post);
+        BlogPost saved = blogPostRepository.save(post);
+        eventPublisher.publishEvent(SearchIndexEvent.blogPost(saved.getId()));
+        return saved;
     }
 
     public BlogPost updatePost(BlogPost post) {
-        return blogPostRepository.save(post);
+        BlogPost saved = blogPostRepository.save(post);
+        eventPublisher.publishEvent(SearchIndexEvent.blogPost(saved.getId()));
+        return saved;
     }
 
     public void deletePost(Long id) {
         blogPostRepository.deleteById(id);
+        eventPublisher.publishEvent(SearchIndexEvent.blogPost(id));
     }
 
     public void publishPost(Long id) {
@@ -59,16 +85,13 @@ public class BlogService {
             post.setStatus("PUBLISHED");
             post.setPublishedAt(LocalDateTime.now());
             blogPostRepository.save(post);
+            eventPublisher.publishEvent(SearchIndexEvent.blogPost(id));
         }
     }
 
+    // Đếm trong bộ nhớ, ViewCounterService ghi dồn xuống database định kỳ
     public void incrementViewCount(Long id) {
-        Optional<BlogPost> postOpt = blogPostRepository.findById(id);
-        if (postOpt.isPresent()) {
-            BlogPost post = postOpt.get();
-            post.setViewCount(post.getViewCount() + 1);
-            blogPostRepository.save(post);
-        }
+        viewCounterService.recordBlogView(id);
     }
 
     public List<BlogPost> getRecentPosts(int limit) {
@@ -0,0 +1,44 @@
+package com.hivtreatment.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.CacheStatsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Số liệu hit/miss của các cache dữ liệu danh mục và thao tác xóa cache thủ công cho admin.
+ */
+@Service
+public class CacheStatsService {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public List<CacheStatsDTO> getReferenceCacheStats() {
+        List<CacheStatsDTO> result = new ArrayList<>();
+        for (String name : CacheConfig.REFERENCE_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache == null) continue;
+            if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+                CacheStats stats = caffeine.stats();
+                result.add(new CacheStatsDTO(name, caffeine.estimatedSize(), stats.hitCount(), stats.missCount(),
+                        stats.hitRate(), stats.evictionCount()));
+            }
+        }
+        return result;
+    }
+
+    // Dùng khi sửa dữ liệu danh mục trực tiếp trong database
+    public void clearReferenceCaches() {
+        for (String name : CacheConfig.REFERENCE_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) cache.clear();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.MetricsConfig;
+import com.hivtreatment.dto.JobRunMetrics;
+import com.hivtreatment.entity.JobRun;
+import com.hivtreatment.enums.JobRunStatus;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chạy job định kỳ an toàn khi có nhiều instance.
+ *
+ * Mỗi lần chạy được chia thành {@code partitions} phân vùng (theo patient.id % partitions).
+ * Mỗi phân vùng có khóa riêng trong job_locks và một dòng job_runs: node nào nhận được khóa thì xử lý phân vùng đó,
+ * các node khác bỏ qua. Mỗi node bắt đầu từ một phân vùng khác nhau nên N node chia nhau làm song song.
+ * Phân vùng COMPLETED không bao giờ chạy lại; phân vùng dở dang được chạy tiếp từ checkpoint khi khóa hết hạn.
+ *
+ * Thời gian chạy thân job (chỉ khi node nhận được khóa) được ghi vào timer hiv.jobs.execution theo tên job,
+ * nên lần @Scheduled bỏ qua vì node khác giữ khóa không làm lệch số liệu như tasks.scheduled.execution.
+ */
+@Service
+public class ClusterJobRunner {
+
+    @FunctionalInterface
+    public interface PartitionTask {
+        void run(JobContext context) throws Exception;
+    }
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private JobRunService jobRunService;
+
+    // Số phân vùng phải giống nhau trên mọi node
+    @Value("${hiv.cluster.partitions:8}")
+    private int partitions;
+
+    @Value("${hiv.cluster.lock-lease-minutes:10}")
+    private long leaseMinutes;
+
+    @Value("${hiv.cluster.node-id:}")
+    private String nodeId;
+
+    private final Map<String, JobRunMetrics> metrics = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "node";
+            }
+            nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+    }
+
+    /**
+     * Chạy mọi phân vùng mà node này nhận được khóa; trả về số mục đã xử lý trên node này.
+     */
+    public long runPartitioned(String jobName, String runKey, PartitionTask task) {
+        return runPartitions(jobName, runKey, partitions, task);
+    }
+
+    /**
+     * Job không chia phân vùng: chỉ một node chạy cho mỗi runKey.
+     */
+    public long runOnce(String jobName, String runKey, PartitionTask task) {
+        return runPartitions(jobName, runKey, 1, task);
+    }
+
+    /**
+     * Chạy tiếp các lần chạy (của job dùng runPartitioned) chưa hoàn thành, bắt đầu sau {@code startedAfter}.
+     */
+    public long resumeIncomplete(String jobName, LocalDateTime startedAfter, PartitionTask task) {
+        long processed = 0;
+        for (String runKey : jobRunService.findIncompleteRunKeys(jobName, partitions, startedAfter)) {
+            processed += runPartitions(jobName, runKey, partitions, task);
+        }
+        return processed;
+    }
+
+    /**
+     * Công việc lặp lại thường xuyên, không cần ghi job_runs: chỉ chạy nếu node nhận được khóa.
+     */
+    public boolean runExclusive(String jobName, Runnable work) {
+        if (!tryLock(jobName)) return false;
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            work.run();
+            succeeded = true;
+        } finally {
+            jobLockService.release(jobName, nodeId);
+            record(jobName, startedAt, start, 0, succeeded);
+        }
+        return true;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Collection<JobRunMetrics> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    private long runPartitions(String jobName, String runKey, int partitionCount, PartitionTask task) {
+        long processed = 0;
+        // Mỗi node bắt đầu từ một phân vùng khác nhau để giảm tranh chấp khóa
+        int first = Math.floorMod(nodeId.hashCode(), partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            int partition = (first + i) % partitionCount;
+            String lockName = jobName + "#" + partition;
+            if (!tryLock(lockName)) continue;
+
+            try {
+                JobRun run = jobRunService.startOrResume(jobName, runKey, partition, nodeId);
+                if (run.getStatus() != JobRunStatus.COMPLETED) {
+                    processed += execute(run, partitionCount, lockName, task);
+                }
+            } finally {
+                jobLockService.release(lockName, nodeId);
+            }
+        }
+        return processed;
+    }
+
+    private long execute(JobRun run, int partitionCount, String lockName, PartitionTask task) {
+        Duration lease = Duration.ofMinutes(leaseMinutes);
+        JobContext context = new JobContext(run, partitionCount, jobRunService,
+                () -> jobLockService.renew(lockName, nodeId, lease));
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            task.run(context);
+            jobRunService.complete(run.getId(), elapsedMs(start));
+            succeeded = true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            System.err.println("Job " + run.getJobName() + " " + run.getRunKey() + " partition "
+                    + run.getPartitionNo() + " failed: " + e.getMessage());
+            jobRunService.fail(run.getId(), nodeId, e.getMessage(), elapsedMs(start));
+        } finally {
+            record(run.getJobName(), startedAt, start, context.getItemsProcessed(), succeeded);
+        }
+        return context.getItemsProcessed();
+    }
+
+    private boolean tryLock(String lockName) {
+        try {
+            return jobLockService.tryAcquire(lockName, nodeId, Duration.ofMinutes(leaseMinutes));
+        } catch (DataAccessException e) {
+            // Node khác vừa tạo khóa này trước
+            return false;
+        }
+    }
+
+    private void record(String jobName, LocalDateTime startedAt, long startNanos, long items, boolean succeeded) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        getMetrics(jobName).record(startedAt, elapsedNanos / 1_000_000, items, succeeded);
+        Metrics.timer(MetricsConfig.JOB_EXECUTION, "job", jobName, "outcome", succeeded ? "success" : "failure")
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (items > 0) {
+            Metrics.counter(MetricsConfig.JOB_ITEMS, "job", jobName).increment(items);
+        }
+    }
+
+    private JobRunMetrics getMetrics(String jobName) {
+        return metrics.computeIfAbsent(jobName, JobRunMetrics::new);
+    }
+
+    private long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,92 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.enums.CodeSequenceType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sinh mã nghiệp vụ (BN/BS/DT) theo kiểu hi-lo.
+ *
+ * Mỗi node nhận một khối block-size giá trị từ code_sequences rồi cấp lần lượt bằng AtomicLong, không
+ * chạm database và không khóa; chỉ luồng làm cạn khối mới đi lấy khối tiếp theo. Mã không trùng giữa
+ * các node và không phụ thuộc vào số dòng hiện có (xóa bệnh nhân không làm cấp lại mã cũ).
+ * Đổi lại, mã tăng dần theo từng node chứ không liên tục: phần còn lại của khối bị bỏ khi node khởi động lại.
+ */
+@Service
+public class CodeAllocator {
+
+    @Autowired
+    private CodeSequenceService codeSequenceService;
+
+    @Value("${hiv.codes.block-size:50}")
+    private int blockSize;
+
+    private final Map<CodeSequenceType, Sequence> sequences = new EnumMap<>(CodeSequenceType.class);
+
+    // Số lần đã lấy khối từ database, để theo dõi block-size có hợp lý không
+    private final AtomicLong blocksReserved = new AtomicLong();
+
+    public CodeAllocator() {
+        for (CodeSequenceType type : CodeSequenceType.values()) {
+            sequences.put(type, new Sequence());
+        }
+    }
+
+    public String nextCode(CodeSequenceType type) {
+        return type.format(nextValue(type));
+    }
+
+    public long nextValue(CodeSequenceType type) {
+        Sequence sequence = sequences.get(type);
+        while (true) {
+            Block block = sequence.current;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+            synchronized (sequence) {
+                // Luồng khác có thể đã lấy khối mới trong lúc chờ
+                if (sequence.current == block) {
+                    sequence.current = reserve(type);
+                }
+            }
+        }
+    }
+
+    public long getBlocksReserved() {
+        return blocksReserved.get();
+    }
+
+    private Block reserve(CodeSequenceType type) {
+        long first;
+        try {
+            first = codeSequenceService.reserveBlock(type, blockSize);
+        } catch (DataIntegrityViolationException e) {
+            // Node khác vừa tạo dòng bộ đếm: lần này UPDATE sẽ thành công
+            first = codeSequenceService.reserveBlock(type, blockSize);
+        }
+        blocksReserved.incrementAndGet();
+        return new Block(first, first + blockSize);
+    }
+
+    private static class Sequence {
+        // Khối rỗng ban đầu: lần gọi đầu tiên sẽ lấy khối từ database
+        volatile Block current = new Block(0, 0);
+    }
+
+    private static class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
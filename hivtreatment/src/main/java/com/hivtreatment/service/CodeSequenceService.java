@@ -0,0 +1,67 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.repository.CodeSequenceRepository;
+import com.hivtreatment.repository.DoctorRepository;
+import com.hivtreatment.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Cấp khối giá trị cho bộ đếm mã trong bảng code_sequences. Mỗi lần cấp là một UPDATE nguyên tử
+ * trong transaction riêng (không giữ khóa dòng suốt transaction nghiệp vụ của nơi gọi).
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class CodeSequenceService {
+
+    // Số mã lớn nhất được xem khi khởi tạo, phòng trường hợp có mã nhập tay không phải dạng số
+    private static final int SEED_SCAN = 20;
+
+    @Autowired
+    private CodeSequenceRepository codeSequenceRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    /**
+     * Nhận khối [first, first + blockSize) và trả về first. Lần đầu bộ đếm được tạo tiếp sau mã lớn nhất
+     * đang có trong database; nếu hai node cùng tạo, node chậm hơn nhận DataIntegrityViolationException.
+     */
+    public long reserveBlock(CodeSequenceType type, int blockSize) {
+        if (codeSequenceRepository.advance(type.name(), blockSize) == 0) {
+            long first = highestExistingValue(type) + 1;
+            codeSequenceRepository.insertSequence(type.name(), first + blockSize);
+            return first;
+        }
+        return codeSequenceRepository.findNextValue(type.name()) - blockSize;
+    }
+
+    private long highestExistingValue(CodeSequenceType type) {
+        List<String> codes;
+        switch (type) {
+            case PATIENT:
+                codes = patientRepository.findHighestCodes(type.getPrefix() + "%", PageRequest.of(0, SEED_SCAN));
+                break;
+            case DOCTOR:
+                codes = doctorRepository.findHighestCodes(type.getPrefix() + "%", PageRequest.of(0, SEED_SCAN));
+                break;
+            default:
+                // Đơn thuốc chưa lưu mã
+                codes = List.of();
+        }
+        long highest = 0;
+        for (String code : codes) {
+            highest = Math.max(highest, type.parse(code));
+        }
+        return highest;
+    }
+}
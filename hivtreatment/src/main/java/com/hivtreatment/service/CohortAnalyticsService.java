@@ -0,0 +1,195 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.CareCascadeDTO;
+import com.hivtreatment.dto.CohortCellDTO;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.enums.CohortDimension;
+import com.hivtreatment.enums.Gender;
+import com.hivtreatment.repository.DoctorRepository;
+import com.hivtreatment.repository.HIVPatientProfileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Phân tích chuỗi chăm sóc HIV (care cascade) trên hồ sơ HIV và kết quả xét nghiệm tải lượng virus.
+ *
+ * Mỗi ngày chốt chỉ chạy hai truy vấn GROUP BY theo tổ hợp (giai đoạn, phác đồ, bác sĩ, năm sinh, giới tính);
+ * tổng chung và mọi lát cắt được cộng dồn trong bộ nhớ từ các dòng đó. Kết quả được cache theo ngày chốt:
+ * kỳ đã đóng giữ lâu, số liệu đến hôm nay làm mới sau vài phút (xem CacheConfig.CARE_CASCADE).
+ *
+ * Ngày chẩn đoán, ngày bắt đầu ARV và xét nghiệm được lấy theo ngày chốt; giai đoạn, phác đồ và bác sĩ
+ * là giá trị hiện tại trên hồ sơ. Tuổi tính theo năm sinh.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CohortAnalyticsService {
+
+    private static final String UNKNOWN = "Không rõ";
+
+    // Cận dưới (tuổi) của từng nhóm tuổi, theo thứ tự hiển thị
+    private static final int[] AGE_BAND_LOWER_BOUNDS = {0, 15, 25, 35, 50};
+
+    @Autowired
+    private HIVPatientProfileRepository hivPatientProfileRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${hiv.cohort.suppressed-below:1000}")
+    private BigDecimal suppressedBelow;
+
+    @Value("${hiv.cohort.undetectable-below:50}")
+    private BigDecimal undetectableBelow;
+
+    @Value("${hiv.cohort.testing-window-months:12}")
+    private int testingWindowMonths;
+
+    /**
+     * Chuỗi chăm sóc của toàn bộ bệnh nhân tại ngày chốt asOf.
+     */
+    public CareCascadeDTO getCareCascade(LocalDate asOf) {
+        CareCascadeDTO total = new CareCascadeDTO("ALL", "Tất cả");
+        getCells(asOf).forEach(total::add);
+        return total;
+    }
+
+    /**
+     * Chuỗi chăm sóc tại ngày chốt asOf, tách theo một chiều phân tích.
+     */
+    public List<CareCascadeDTO> getCareCascade(LocalDate asOf, CohortDimension dimension) {
+        Function<CohortCellDTO, String> keyOf = switch (dimension) {
+            case HIV_STAGE -> cell -> cell.getHivStage();
+            case ARV_PROTOCOL -> cell -> cell.getArvProtocol();
+            case DOCTOR -> cell -> cell.getDoctorId() != null ? cell.getDoctorId().toString() : null;
+            case AGE_BAND -> cell -> ageBand(cell.getBirthYear(), asOf);
+            case GENDER -> cell -> cell.getGender() != null ? cell.getGender().name() : null;
+        };
+
+        Map<String, CareCascadeDTO> slices = new LinkedHashMap<>();
+        for (CohortCellDTO cell : getCells(asOf)) {
+            String key = keyOf.apply(cell);
+            slices.computeIfAbsent(key == null || key.isBlank() ? UNKNOWN : key,
+                    k -> new CareCascadeDTO(k, k)).add(cell);
+        }
+        List<CareCascadeDTO> result = new ArrayList<>(slices.values());
+        applyLabels(result, dimension);
+
+        if (dimension == CohortDimension.AGE_BAND) {
+            result.sort(Comparator.comparingInt(slice -> ageBandOrder(slice.getKey())));
+        } else {
+            result.sort(Comparator.comparingLong(CareCascadeDTO::getDiagnosed).reversed()
+                    .thenComparing(CareCascadeDTO::getLabel));
+        }
+        return result;
+    }
+
+    /**
+     * Chuỗi chăm sóc tại cuối tháng (hoặc hôm nay nếu là tháng hiện tại).
+     */
+    public CareCascadeDTO getCareCascade(YearMonth month) {
+        return getCareCascade(periodEnd(month));
+    }
+
+    public List<CareCascadeDTO> getCareCascade(YearMonth month, CohortDimension dimension) {
+        return getCareCascade(periodEnd(month), dimension);
+    }
+
+    // Các dòng tổ hợp của ngày chốt, nạp từ cache hoặc hai truy vấn GROUP BY
+    private List<CohortCellDTO> getCells(LocalDate asOf) {
+        Cache cache = cacheManager.getCache(CacheConfig.CARE_CASCADE);
+        if (cache == null) {
+            return loadCells(asOf);
+        }
+        return cache.get(asOf, () -> loadCells(asOf));
+    }
+
+    private List<CohortCellDTO> loadCells(LocalDate asOf) {
+        Map<List<Object>, CohortCellDTO> cells = new LinkedHashMap<>();
+        List<CohortCellDTO> rows = new ArrayList<>(
+                hivPatientProfileRepository.countDiagnosedAndOnArt(asOf, asOf.plusDays(1).atStartOfDay()));
+        rows.addAll(hivPatientProfileRepository.countViralLoadOutcomes(asOf, asOf.plusDays(1).atStartOfDay(),
+                asOf.minusMonths(testingWindowMonths), suppressedBelow, undetectableBelow));
+        for (CohortCellDTO row : rows) {
+            List<Object> key = Arrays.asList(row.getHivStage(), row.getArvProtocol(), row.getDoctorId(),
+                    row.getBirthYear(), row.getGender());
+            CohortCellDTO cell = cells.get(key);
+            if (cell == null) {
+                cells.put(key, row);
+            } else {
+                cell.add(row);
+            }
+        }
+        return List.copyOf(cells.values());
+    }
+
+    private void applyLabels(List<CareCascadeDTO> slices, CohortDimension dimension) {
+        if (dimension == CohortDimension.GENDER) {
+            for (CareCascadeDTO slice : slices) {
+                if (!UNKNOWN.equals(slice.getKey())) {
+                    slice.setLabel(Gender.valueOf(slice.getKey()).getDisplayName());
+                }
+            }
+        } else if (dimension == CohortDimension.DOCTOR) {
+            List<Long> doctorIds = slices.stream()
+                    .map(CareCascadeDTO::getKey)
+                    .filter(key -> !UNKNOWN.equals(key))
+                    .map(Long::valueOf)
+                    .toList();
+            Map<Long, String> names = doctorRepository.findAllById(doctorIds).stream()
+                    .collect(Collectors.toMap(Doctor::getId, Doctor::getFullName));
+            for (CareCascadeDTO slice : slices) {
+                if (UNKNOWN.equals(slice.getKey())) {
+                    slice.setLabel("Chưa phân công");
+                } else {
+                    slice.setLabel(Objects.requireNonNullElse(names.get(Long.valueOf(slice.getKey())), slice.getKey()));
+                }
+            }
+        }
+    }
+
+    static String ageBand(Integer birthYear, LocalDate asOf) {
+        if (birthYear == null) return UNKNOWN;
+        int age = asOf.getYear() - birthYear;
+        for (int i = AGE_BAND_LOWER_BOUNDS.length - 1; i > 0; i--) {
+            if (age >= AGE_BAND_LOWER_BOUNDS[i]) {
+                return i == AGE_BAND_LOWER_BOUNDS.length - 1
+                        ? AGE_BAND_LOWER_BOUNDS[i] + "+"
+                        : AGE_BAND_LOWER_BOUNDS[i] + "-" + (AGE_BAND_LOWER_BOUNDS[i + 1] - 1);
+            }
+        }
+        return "<" + AGE_BAND_LOWER_BOUNDS[1];
+    }
+
+    private static int ageBandOrder(String band) {
+        if (UNKNOWN.equals(band)) return Integer.MAX_VALUE;
+        if (band.startsWith("<")) return -1;
+        return Integer.parseInt(band.split("[-+]")[0]);
+    }
+
+    private static LocalDate periodEnd(YearMonth month) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = month.atEndOfMonth();
+        return end.isAfter(today) ? today : end;
+    }
+}
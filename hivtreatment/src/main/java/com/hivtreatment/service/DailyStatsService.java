@@ -0,0 +1,155 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.DailyCountDTO;
+import com.hivtreatment.entity.DailyStats;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.repository.AppointmentRepository;
+import com.hivtreatment.repository.DailyStatsRepository;
+import com.hivtreatment.repository.LabResultRepository;
+import com.hivtreatment.repository.PatientRepository;
+import com.hivtreatment.repository.PrescriptionRepository;
+import com.hivtreatment.repository.SymptomReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Quản lý bảng tổng hợp daily_stats.
+ * Mỗi lần rollup tính lại trọn vẹn các ngày trong khoảng bằng một truy vấn GROUP BY cho mỗi bảng,
+ * nên có thể chạy lại nhiều lần mà không bị cộng dồn sai.
+ */
+@Service
+@Transactional
+public class DailyStatsService {
+
+    // Số ngày tối đa xử lý trong một lần backfill để giới hạn bộ nhớ
+    private static final int BACKFILL_CHUNK_DAYS = 31;
+
+    @Autowired
+    private DailyStatsRepository dailyStatsRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private LabResultRepository labResultRepository;
+
+    @Autowired
+    private SymptomReportRepository symptomReportRepository;
+
+    @Transactional(readOnly = true)
+    public List<DailyStats> getStats(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, DailyStats> existing = dailyStatsRepository
+                .findByStatDateBetweenOrderByStatDateAsc(startDate, endDate).stream()
+                .collect(Collectors.toMap(DailyStats::getStatDate, Function.identity()));
+
+        // Trả về đủ mọi ngày trong khoảng, ngày chưa có dữ liệu là 0
+        List<DailyStats> result = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            result.add(existing.getOrDefault(day, new DailyStats(day)));
+        }
+        return result;
+    }
+
+    /**
+     * Cập nhật tăng dần: chỉ tính lại hôm qua và hôm nay.
+     * Hôm qua được tính lại để bắt các thay đổi muộn (ví dụ hủy lịch sau nửa đêm).
+     */
+    public int rollupRecent() {
+        LocalDate today = LocalDate.now();
+        return rollup(today.minusDays(1), today);
+    }
+
+    /**
+     * Backfill lịch sử theo từng khối ngày.
+     */
+    public int backfill(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Ngày bắt đầu phải trước ngày kết thúc");
+        }
+
+        int updated = 0;
+        LocalDate chunkStart = startDate;
+        while (!chunkStart.isAfter(endDate)) {
+            LocalDate chunkEnd = chunkStart.plusDays(BACKFILL_CHUNK_DAYS - 1L);
+            if (chunkEnd.isAfter(endDate)) {
+                chunkEnd = endDate;
+            }
+            updated += rollup(chunkStart, chunkEnd);
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        return updated;
+    }
+
+    /**
+     * Tính lại các dòng daily_stats cho khoảng [startDate, endDate].
+     */
+    public int rollup(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, DailyStats> rows = new LinkedHashMap<>();
+        for (DailyStats existing : dailyStatsRepository.findByStatDateBetweenOrderByStatDateAsc(startDate, endDate)) {
+            rows.put(existing.getStatDate(), existing);
+        }
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            rows.computeIfAbsent(day, DailyStats::new).reset();
+        }
+
+        for (DailyCountDTO row : appointmentRepository.countByDayAndStatus(startDate, endDate)) {
+            DailyStats stats = rows.get(row.getDay());
+            if (stats == null) continue;
+            stats.setTotalAppointments(stats.getTotalAppointments() + row.getCount());
+            applyAppointmentStatus(stats, row.getStatus(), row.getCount());
+        }
+
+        for (DailyCountDTO row : prescriptionRepository.countByDay(startDate, endDate)) {
+            DailyStats stats = rows.get(row.getDay());
+            if (stats != null) stats.setPrescriptions(row.getCount());
+        }
+
+        for (DailyCountDTO row : labResultRepository.countByDay(startDate, endDate)) {
+            DailyStats stats = rows.get(row.getDay());
+            if (stats != null) stats.setLabTests(row.getCount());
+        }
+
+        for (DailyCountDTO row : patientRepository.countNewPatientsByDay(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            DailyStats stats = rows.get(row.getDay());
+            if (stats != null) stats.setNewPatients(row.getCount());
+        }
+
+        for (DailyCountDTO row : symptomReportRepository.countByDay(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            DailyStats stats = rows.get(row.getDay());
+            if (stats != null) stats.setSymptomReports(row.getCount());
+        }
+
+        dailyStatsRepository.saveAll(rows.values());
+        return rows.size();
+    }
+
+    private void applyAppointmentStatus(DailyStats stats, String status, long count) {
+        if (status == null) return;
+
+        switch (AppointmentStatus.valueOf(status)) {
+            case SCHEDULED -> stats.setScheduledAppointments(stats.getScheduledAppointments() + count);
+            case CONFIRMED -> stats.setConfirmedAppointments(stats.getConfirmedAppointments() + count);
+            case IN_PROGRESS -> stats.setInProgressAppointments(stats.getInProgressAppointments() + count);
+            case COMPLETED -> stats.setCompletedAppointments(stats.getCompletedAppointments() + count);
+            case CANCELLED -> stats.setCancelledAppointments(stats.getCancelledAppointments() + count);
+            case NO_SHOW -> stats.setNoShowAppointments(stats.getNoShowAppointments() + count);
+        }
+    }
+}
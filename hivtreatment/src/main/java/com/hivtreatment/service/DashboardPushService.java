@@ -0,0 +1,273 @@
+package com.hivtreatment.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hivtreatment.entity.PushEvent;
+import com.hivtreatment.enums.PushEventType;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.event.DashboardEvent;
+import com.hivtreatment.repository.PushEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Kênh đẩy Server-Sent Events thay cho các endpoint polling của dashboard.
+ *
+ * Mỗi tab trình duyệt giữ một SseEmitter (request async, không chiếm thread khi rảnh), được đăng ký
+ * theo user ID và vai trò. DashboardEvent phát ra trong service được gửi sau khi transaction commit,
+ * trên thread riêng để request ghi dữ liệu không phải chờ client chậm.
+ *
+ * Để sự kiện đến được kết nối trên các node khác sau load balancer, mỗi sự kiện còn được ghi vào bảng
+ * push_events trong cùng transaction nghiệp vụ. Mỗi node đọc định kỳ các dòng do node khác ghi (lùi lại
+ * một khoảng chồng lấn để không sót transaction commit muộn, bỏ qua dòng đã đẩy) và đẩy tới kết nối của mình.
+ */
+@Service
+public class DashboardPushService {
+
+    @Value("${hiv.push.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${hiv.push.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    @Value("${hiv.push.workers:2}")
+    private int workerCount;
+
+    @Value("${hiv.push.relay.overlap-seconds:30}")
+    private long relayOverlapSeconds;
+
+    @Value("${hiv.push.relay.retention-minutes:10}")
+    private long relayRetentionMinutes;
+
+    @Autowired
+    private PushEventRepository pushEventRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Định danh tiến trình, để node không đẩy lại sự kiện do chính mình ghi
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, Set<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+    private final Map<UserRole, Set<Long>> usersByRole = new ConcurrentHashMap<>();
+
+    // Sự kiện từ node khác đã đẩy (id -> thời điểm ghi), giữ trong khoảng chồng lấn để không đẩy hai lần
+    private final Map<Long, LocalDateTime> relayedIds = new LinkedHashMap<>();
+    private LocalDateTime lastRelayPoll = LocalDateTime.now();
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "sse-push-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+        emittersByUser.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        emittersByUser.clear();
+    }
+
+    /**
+     * Mở một kết nối SSE cho người dùng. Vượt quá max-connections-per-user thì đóng kết nối cũ nhất.
+     */
+    public SseEmitter subscribe(Long userId, UserRole role) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Set<SseEmitter> emitters = emittersByUser.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>());
+        emitters.add(emitter);
+        if (role != null) {
+            usersByRole.computeIfAbsent(role, r -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+
+        Runnable remove = () -> unregister(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        while (emitters.size() > maxConnectionsPerUser) {
+            SseEmitter oldest = emitters.iterator().next();
+            emitters.remove(oldest);
+            oldest.complete();
+        }
+
+        try {
+            emitter.send(SseEmitter.event().name("connected").reconnectTime(5000).data(Map.of("userId", userId)));
+        } catch (IOException e) {
+            unregister(userId, emitter);
+        }
+        return emitter;
+    }
+
+    // Ghi bản chuyển tiếp cùng transaction nghiệp vụ: rollback thì các node khác cũng không thấy
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void relayDashboardEvent(DashboardEvent event) {
+        try {
+            PushEvent relay = new PushEvent();
+            relay.setType(event.getType());
+            relay.setUserIds(event.getUserIds().stream().map(String::valueOf).collect(Collectors.joining(",")));
+            relay.setRoles(event.getRoles().stream().map(Enum::name).collect(Collectors.joining(",")));
+            relay.setPayload(objectMapper.writeValueAsString(event.getData()));
+            relay.setOriginNode(nodeId);
+            pushEventRepository.save(relay);
+        } catch (Exception e) {
+            System.err.println("Failed to relay push event " + event.getType() + ": " + e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDashboardEvent(DashboardEvent event) {
+        dispatch(event.getType(), event.getUserIds(), event.getRoles(), event.getData());
+    }
+
+    /**
+     * Đẩy tới kết nối trên node này các sự kiện do node khác ghi từ lần đọc trước.
+     */
+    @Scheduled(fixedDelayString = "${hiv.push.relay.poll-ms:1000}")
+    public void pollRelayedEvents() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastRelayPoll.minusSeconds(relayOverlapSeconds);
+        lastRelayPoll = now;
+        synchronized (relayedIds) {
+            relayedIds.values().removeIf(createdAt -> createdAt.isBefore(since));
+        }
+        // Không có kết nối nào trên node này thì không cần đọc
+        if (emittersByUser.isEmpty()) return;
+
+        try {
+            for (PushEvent relay : pushEventRepository.findFromOtherNodes(since, nodeId)) {
+                synchronized (relayedIds) {
+                    if (relayedIds.putIfAbsent(relay.getId(), relay.getCreatedAt()) != null) continue;
+                }
+                dispatch(relay.getType(), parseUserIds(relay.getUserIds()), parseRoles(relay.getRoles()),
+                        objectMapper.readValue(relay.getPayload(), new TypeReference<Map<String, Object>>() {}));
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to read relayed push events: " + e.getMessage());
+        }
+    }
+
+    // Bản chuyển tiếp chỉ cần sống qua vài chu kỳ đọc; node nào xóa cũng được
+    @Scheduled(fixedDelayString = "${hiv.push.relay.purge-ms:300000}")
+    @Transactional
+    public void purgeRelayedEvents() {
+        pushEventRepository.deleteOlderThan(LocalDateTime.now().minusMinutes(relayRetentionMinutes));
+    }
+
+    // Giữ kết nối qua proxy và phát hiện tab đã đóng; comment SSE không kích hoạt onmessage ở client
+    @Scheduled(fixedDelayString = "${hiv.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (Map.Entry<Long, Set<SseEmitter>> entry : emittersByUser.entrySet()) {
+            for (SseEmitter emitter : entry.getValue()) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (Exception e) {
+                    unregister(entry.getKey(), emitter);
+                }
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return emittersByUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public int getConnectedUserCount() {
+        return emittersByUser.size();
+    }
+
+    private void dispatch(PushEventType type, Set<Long> userIds, Set<UserRole> roles, Map<String, Object> data) {
+        Set<Long> recipients = new LinkedHashSet<>(userIds);
+        for (UserRole role : roles) {
+            recipients.addAll(usersByRole.getOrDefault(role, Set.of()));
+        }
+        recipients.retainAll(emittersByUser.keySet());
+        if (recipients.isEmpty()) return;
+
+        try {
+            workers.execute(() -> deliver(recipients, type, data));
+        } catch (Exception e) {
+            System.err.println("Failed to queue push event " + type + ": " + e.getMessage());
+        }
+    }
+
+    private void deliver(Collection<Long> recipients, PushEventType type, Map<String, Object> data) {
+        for (Long userId : recipients) {
+            Set<SseEmitter> emitters = emittersByUser.get(userId);
+            if (emitters == null) continue;
+
+            List<SseEmitter> failed = new ArrayList<>();
+            for (SseEmitter emitter : emitters) {
+                try {
+                    // SseEventBuilder không dùng lại được sau khi build, nên tạo mới cho mỗi kết nối
+                    emitter.send(SseEmitter.event()
+                            .name(type.name())
+                            .data(data, MediaType.APPLICATION_JSON));
+                } catch (Exception e) {
+                    failed.add(emitter);
+                }
+            }
+            failed.forEach(emitter -> unregister(userId, emitter));
+        }
+    }
+
+    private static Set<Long> parseUserIds(String csv) {
+        if (csv == null || csv.isBlank()) return Set.of();
+        return Arrays.stream(csv.split(",")).map(Long::valueOf).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Set<UserRole> parseRoles(String csv) {
+        Set<UserRole> roles = EnumSet.noneOf(UserRole.class);
+        if (csv == null || csv.isBlank()) return roles;
+        for (String role : csv.split(",")) {
+            roles.add(UserRole.valueOf(role));
+        }
+        return roles;
+    }
+
+    private void unregister(Long userId, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(userId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        if (!emittersByUser.containsKey(userId)) {
+            usersByRole.values().forEach(users -> users.remove(userId));
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.DoctorSearchParams;
 import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.DoctorSpecialization;
 import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CodeSequenceType;
 import com.hivtreatment.repository.DoctorRepository;
+import com.hivtreatment.repository.DoctorSpecializationRepository;
+import com.hivtreatment.repository.DoctorSpecifications;
+import com.hivtreatment.repository.KeysetPagination;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 
 import java.util.*;
@@ -19,9 +30,18 @@ import java.util.stream.Collectors;
 @Transactional
 public class DoctorService {
 
+    // Danh sách bác sĩ cuộn vô hạn theo id, không cần COUNT(*)
+    private static final Sort KEYSET_SORT = KeysetPagination.keysetSort(Doctor.class, Sort.Order.asc("id"));
+
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private CodeAllocator codeAllocator;
+
+    @Autowired
+    private DoctorSpecializationRepository doctorSpecializationRepository;
+
     // --- CÁC PHƯƠNG THỨC CƠ BẢN ---
 
     public List<Doctor> getAllDoctors() {
@@ -52,6 +72,12 @@ public class DoctorService {
     return doctorRepository.findByIsAvailableTrue(pageable);
 }
 
+    @Transactional(readOnly = true)
+    public CursorPage<Doctor> scrollAvailableDoctors(String after, int size) {
+        Specification<Doctor> available = (root, query, cb) -> cb.isTrue(root.get("isAvailable"));
+        return KeysetPagination.scroll(doctorRepository, available, KEYSET_SORT, after, null, size, false);
+    }
+
 
     public List<Doctor> searchDoctorsByName(String name) {
         return doctorRepository.findByNameContaining(name);
@@ -61,14 +87,17 @@ public class DoctorService {
         return doctorRepository.findBySpecializationContaining(specialization);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.DOCTOR_SPECIALIZATIONS, allEntries = true)
     public Doctor createDoctor(Doctor doctor) {
         return doctorRepository.save(doctor);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.DOCTOR_SPECIALIZATIONS, allEntries = true)
     public Doctor updateDoctor(Doctor doctor) {
         return doctorRepository.save(doctor);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.DOCTOR_SPECIALIZATIONS, allEntries = true)
     public void deleteDoctor(Long id) {
         doctorRepository.deleteById(id);
     }
@@ -81,9 +110,9 @@ public class DoctorService {
         return doctorRepository.countAvailableDoctors();
     }
 
+    // Cấp từ khối mã trong bộ nhớ (hi-lo), không đếm bảng và không trùng khi tạo đồng thời
     public String generateDoctorCode() {
-        long count = doctorRepository.count();
-        return String.format("BS%06d", count + 1);
+        return codeAllocator.nextCode(CodeSequenceType.DOCTOR);
     }
 
     public void toggleDoctorAvailability(Long doctorId) {
@@ -125,111 +154,81 @@ public class DoctorService {
      * Lấy chuyên khoa của bác sĩ theo doctorId
      */
     public List<String> getDoctorSpecializations(Long doctorId) {
-    Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
-    return doctorOpt.map(Doctor::getSpecialization)
-            .map(spec -> Arrays.stream(spec.split(","))
-                               .map(String::trim)
-                               .filter(s -> !s.isBlank())
-                               .collect(Collectors.toList()))
-            .orElse(Collections.emptyList());
-}
+        return doctorSpecializationRepository.findByDoctorIdOrderByIdAsc(doctorId).stream()
+                .map(DoctorSpecialization::getName)
+                .collect(Collectors.toList());
+    }
 
     /**
-     * Lấy điểm trung bình đánh giá bác sĩ (nếu có hệ thống rating)
-     * Hiện chưa có bảng rating nên trả về null hoặc 0.0
+     * Điểm đánh giá trung bình (cột tổng hợp average_rating); 0.0 khi chưa có đánh giá
      */
     public Double getAverageRating(Long doctorId) {
-        // TODO: Thêm logic thực tế khi có bảng đánh giá
-        return null;
+        return doctorRepository.findById(doctorId)
+                .map(Doctor::getAverageRating)
+                .orElse(0.0);
     }
 
     /**
-     * Tìm bác sĩ với nhiều bộ lọc: tên, chuyên khoa, vị trí, trạng thái khả dụng
+     * Ghi nhận một đánh giá 1-5 sao: cập nhật tổng, số lượt và điểm trung bình trong một câu UPDATE.
      */
- public List<Doctor> searchDoctorsWithFilters(String specialization, String experience, String rating, Boolean isAvailable) {
-    final String finalSpecialization = specialization;
-    final String finalExperience = experience;
-    final String finalRating = rating;
-    final Boolean finalIsAvailable = isAvailable;
-
-    return doctorRepository.findAll().stream()
-        .filter(d -> finalSpecialization == null || 
-                     (d.getSpecialization() != null && d.getSpecialization().toLowerCase().contains(finalSpecialization.toLowerCase())))
-        .filter(d -> finalExperience == null || 
-                     (d.getExperienceYears() != null && d.getExperienceYears().toString().contains(finalExperience)))
-        .filter(d -> finalRating == null || 
-                     (getAverageRating(d.getId()) != null && 
-                      String.valueOf(getAverageRating(d.getId())).contains(finalRating)))
-        .filter(d -> finalIsAvailable == null || d.getIsAvailable().equals(finalIsAvailable))
-        .collect(Collectors.toList());
-}
-
+    public void recordRating(Long doctorId, int stars) {
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Số sao phải từ 1 đến 5: " + stars);
+        }
+        if (doctorRepository.addRating(doctorId, stars) == 0) {
+            throw new IllegalArgumentException("Không tìm thấy bác sĩ: " + doctorId);
+        }
+    }
 
     // --- CÁC PHƯƠNG THỨC TÌM KIẾM VÀ PHÂN TRANG ---
 
+    /**
+     * Tìm bác sĩ theo tên, chuyên khoa, kinh nghiệm, trạng thái khả dụng và điểm đánh giá.
+     * Lọc, sắp xếp, LIMIT/OFFSET và COUNT đều thực hiện trong SQL.
+     */
+    @Transactional(readOnly = true)
+    public Page<Doctor> searchDirectory(DoctorSearchParams params, Pageable pageable) {
+        return doctorRepository.findAll(DoctorSpecifications.fromParams(params), pageable);
+    }
+
     /**
      * Tìm bác sĩ theo tên với phân trang
      */
     public Page<Doctor> searchDoctors(String name, Pageable pageable) {
-        List<Doctor> filtered = doctorRepository.findAll().stream()
-            .filter(d -> name == null || (d.getFirstName() + " " + d.getLastName())
-                .toLowerCase().contains(name.toLowerCase()))
-            .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        return new PageImpl<>(filtered.subList(start, end), pageable, filtered.size());
+        return searchDirectory(DoctorSearchParams.builder().name(name).build(), pageable);
     }
 
     /**
      * Lấy bác sĩ theo chuyên khoa với phân trang
      */
     public Page<Doctor> getDoctorsBySpecialization(String specialization, Pageable pageable) {
-        List<Doctor> filtered = doctorRepository.findAll().stream()
-            .filter(d -> d.getSpecialization() != null && d.getSpecialization().toLowerCase().contains(specialization.toLowerCase()))
-            .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        return new PageImpl<>(filtered.subList(start, end), pageable, filtered.size());
+        return searchDirectory(DoctorSearchParams.builder().specialization(specialization).build(), pageable);
     }
 
     /**
      * Lấy bác sĩ theo trạng thái khả dụng với phân trang
      */
     public Page<Doctor> getDoctorsByAvailability(Boolean isAvailable, Pageable pageable) {
-        List<Doctor> filtered = doctorRepository.findAll().stream()
-            .filter(d -> isAvailable == null || Objects.equals(d.getIsAvailable(), isAvailable))
-            .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        return new PageImpl<>(filtered.subList(start, end), pageable, filtered.size());
+        return searchDirectory(DoctorSearchParams.builder().available(isAvailable).build(), pageable);
     }
 
     /**
      * Lấy danh sách tất cả chuyên khoa của bác sĩ
      */
+    @Cacheable(cacheNames = CacheConfig.DOCTOR_SPECIALIZATIONS, key = "'all'")
     public List<String> getAllSpecializations() {
-        return doctorRepository.findAll().stream()
-            .map(Doctor::getSpecialization)
-            .filter(s -> s != null && !s.isBlank())
-            .distinct()
-            .collect(Collectors.toList());
+        return List.copyOf(doctorSpecializationRepository.findDistinctNames());
+    }
+
+    /**
+     * Tách chuỗi chuyên khoa của một lô bác sĩ id > afterId chưa có dòng trong doctor_specializations.
+     * Trả về id các bác sĩ đã xét (rỗng khi đã hết); chuỗi chỉ có dấu phẩy/khoảng trắng không sinh dòng nào.
+     */
+    @CacheEvict(cacheNames = CacheConfig.DOCTOR_SPECIALIZATIONS, allEntries = true)
+    public List<Long> backfillSpecializationEntries(Long afterId, int batchSize) {
+        List<Doctor> doctors = doctorRepository.findWithoutSpecializationEntries(afterId, PageRequest.of(0, batchSize));
+        doctors.forEach(Doctor::syncSpecializationEntries);
+        doctorRepository.saveAll(doctors);
+        return doctors.stream().map(Doctor::getId).toList();
     }
 }
@@ -1,8 +1,17 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.EducationalResourceDTO;
 import com.hivtreatment.entity.EducationalResource;
+import com.hivtreatment.enums.SearchDocumentType;
+import com.hivtreatment.event.SearchIndexEvent;
 import com.hivtreatment.repository.EducationalResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,77 +25,114 @@ public class EducationalResourceService {
     @Autowired
     private EducationalResourceRepository educationalResourceRepository;
 
-    public List<EducationalResource> getAllResources() {
-        return educationalResourceRepository.findAll();
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    @Value("${hiv.search.resource-results:50}")
+    private int maxSearchResults;
+
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'all'")
+    public List<EducationalResourceDTO> getAllResources() {
+        return toDtos(educationalResourceRepository.findAll());
     }
 
-    public List<EducationalResource> getActiveResources() {
-        return educationalResourceRepository.findByIsActiveTrue();
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'active'")
+    public List<EducationalResourceDTO> getActiveResources() {
+        return toDtos(educationalResourceRepository.findByIsActiveTrue());
     }
 
     public Optional<EducationalResource> getResourceById(Long id) {
         return educationalResourceRepository.findById(id);
     }
 
-    public List<EducationalResource> getResourcesByCategory(String category) {
-        return educationalResourceRepository.findActiveByCategoryOrderByCreatedAtDesc(category);
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'category:' + #category")
+    public List<EducationalResourceDTO> getResourcesByCategory(String category) {
+        return toDtos(educationalResourceRepository.findActiveByCategoryOrderByCreatedAtDesc(category));
     }
 
-    public List<EducationalResource> getResourcesByType(String type) {
-        return educationalResourceRepository.findByType(type);
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'type:' + #type")
+    public List<EducationalResourceDTO> getResourcesByType(String type) {
+        return toDtos(educationalResourceRepository.findByType(type));
     }
 
-    public List<EducationalResource> getFeaturedResources() {
-        return educationalResourceRepository.findByIsFeaturedTrue();
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'featured'")
+    public List<EducationalResourceDTO> getFeaturedResources() {
+        return toDtos(educationalResourceRepository.findByIsFeaturedTrue());
     }
 
+    // Các tài liệu liên quan nhất theo chỉ mục toàn văn, theo thứ tự xếp hạng
     public List<EducationalResource> searchResources(String keyword) {
-        return educationalResourceRepository.searchActiveResources(keyword);
+        List<Long> ids = fullTextSearchService.searchIds(keyword, SearchDocumentType.EDUCATIONAL_RESOURCE,
+                PageRequest.of(0, maxSearchResults));
+        if (ids.isEmpty()) return List.of();
+        return FullTextSearchService.inRankOrder(ids, educationalResourceRepository.findActiveByIdIn(ids),
+                EducationalResource::getId);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, allEntries = true)
     public EducationalResource createResource(EducationalResource resource) {
-        return educationalResourceRepository.save(resource);
+        EducationalResource saved = educationalResourceRepository.save(resource);
+        eventPublisher.publishEvent(SearchIndexEvent.educationalResource(saved.getId()));
+        return saved;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, allEntries = true)
     public EducationalResource updateResource(EducationalResource resource) {
-        return educationalResourceRepository.save(resource);
+        EducationalResource saved = educationalResourceRepository.save(resource);
+        eventPublisher.publishEvent(SearchIndexEvent.educationalResource(saved.getId()));
+        return saved;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, allEntries = true)
     public void deleteResource(Long id) {
         educationalResourceRepository.deleteById(id);
+        eventPublisher.publishEvent(SearchIndexEvent.educationalResource(id));
     }
 
+    // Lượt xem/tải được đếm trong bộ nhớ và ghi dồn định kỳ; không xóa cache, số đếm trong danh sách cũ tối đa một TTL
     public void incrementViewCount(Long id) {
-        Optional<EducationalResource> resourceOpt = educationalResourceRepository.findById(id);
-        if (resourceOpt.isPresent()) {
-            EducationalResource resource = resourceOpt.get();
-            resource.setViewCount(resource.getViewCount() + 1);
-            educationalResourceRepository.save(resource);
-        }
+        viewCounterService.recordResourceView(id);
     }
 
     public void incrementDownloadCount(Long id) {
-        Optional<EducationalResource> resourceOpt = educationalResourceRepository.findById(id);
-        if (resourceOpt.isPresent()) {
-            EducationalResource resource = resourceOpt.get();
-            resource.setDownloadCount(resource.getDownloadCount() + 1);
-            educationalResourceRepository.save(resource);
-        }
+        viewCounterService.recordResourceDownload(id);
+    }
+
+    // Tài liệu đang hoạt động có nhiều lượt xem/tải nhất gần đây
+    public List<EducationalResource> getTrendingResources(int limit) {
+        List<Long> ids = viewCounterService.getTrendingResourceIds(limit);
+        if (ids.isEmpty()) return List.of();
+        return FullTextSearchService.inRankOrder(ids, educationalResourceRepository.findActiveByIdIn(ids),
+                EducationalResource::getId);
     }
 
-    public List<EducationalResource> getAntiStigmaResources() {
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'category:STIGMA'")
+    public List<EducationalResourceDTO> getAntiStigmaResources() {
         return getResourcesByCategory("STIGMA");
     }
 
-    public List<EducationalResource> getPreventionResources() {
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'category:PREVENTION'")
+    public List<EducationalResourceDTO> getPreventionResources() {
         return getResourcesByCategory("PREVENTION");
     }
 
-    public List<EducationalResource> getTreatmentResources() {
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'category:TREATMENT'")
+    public List<EducationalResourceDTO> getTreatmentResources() {
         return getResourcesByCategory("TREATMENT");
     }
 
-    public List<EducationalResource> getNutritionResources() {
+    @Cacheable(cacheNames = CacheConfig.EDUCATIONAL_RESOURCES, key = "'category:NUTRITION'")
+    public List<EducationalResourceDTO> getNutritionResources() {
         return getResourcesByCategory("NUTRITION");
     }
+
+    private static List<EducationalResourceDTO> toDtos(List<EducationalResource> resources) {
+        return resources.stream().map(EducationalResourceDTO::new).toList();
+    }
 }
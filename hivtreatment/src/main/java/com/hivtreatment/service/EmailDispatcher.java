@@ -0,0 +1,166 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.MetricsConfig;
+import com.hivtreatment.entity.EmailOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gửi email từ outbox bằng một nhóm worker có giới hạn.
+ * Mỗi worker gửi một lô qua một lần gọi JavaMailSender.send(...), tức là dùng chung một kết nối SMTP.
+ */
+@Service
+public class EmailDispatcher {
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${hiv.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${hiv.mail.outbox.workers:4}")
+    private int workerCount;
+
+    private ExecutorService workers;
+
+    private final Counter emailsSent = Metrics.counter(MetricsConfig.NOTIFICATIONS_SENT, "channel", "email", "type", "ALL");
+
+    private final Counter emailsFailed = Metrics.counter(MetricsConfig.NOTIFICATIONS_FAILED, "channel", "email");
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "email-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hiv.mail.outbox.poll-interval-ms:5000}")
+    public void drainOutbox() {
+        try {
+            drain();
+        } catch (Exception e) {
+            System.err.println("Failed to drain email outbox: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gửi hết các email đến hạn; trả về số email gửi thành công.
+     */
+    public int drain() throws InterruptedException {
+        emailOutboxService.releaseStuck();
+
+        int sent = 0;
+        int claimSize = batchSize * workerCount;
+        while (true) {
+            List<EmailOutbox> claimed = emailOutboxService.claimBatch(claimSize);
+            if (claimed.isEmpty()) break;
+
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int from = 0; from < claimed.size(); from += batchSize) {
+                List<EmailOutbox> batch = claimed.subList(from, Math.min(from + batchSize, claimed.size()));
+                tasks.add(() -> sendBatch(batch));
+            }
+            for (Future<Integer> result : workers.invokeAll(tasks)) {
+                try {
+                    sent += result.get();
+                } catch (ExecutionException e) {
+                    System.err.println("Email worker failed: " + e.getCause().getMessage());
+                }
+            }
+
+            if (claimed.size() < claimSize) break;
+        }
+        return sent;
+    }
+
+    private int sendBatch(List<EmailOutbox> batch) {
+        // Cả lô thuộc cùng một lượt claimBatch
+        String claimToken = batch.get(0).getClaimToken();
+        Map<SimpleMailMessage, EmailOutbox> outboxByMessage = new IdentityHashMap<>();
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutbox email = batch.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            messages[i] = message;
+            outboxByMessage.put(message, email);
+        }
+
+        try {
+            mailSender.send(messages);
+            emailOutboxService.markSent(claimToken, batch.stream().map(EmailOutbox::getId).toList());
+            emailsSent.increment(batch.size());
+            return batch.size();
+        } catch (MailSendException e) {
+            // Chỉ các email nằm trong failedMessages bị lỗi; nếu trống thì coi cả lô lỗi
+            Map<Object, Exception> failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                batch.forEach(email -> emailOutboxService.markFailed(email, e.getMessage()));
+                emailsFailed.increment(batch.size());
+                return 0;
+            }
+
+            Map<EmailOutbox, Exception> failedEmails = new IdentityHashMap<>();
+            failed.forEach((message, error) -> {
+                EmailOutbox email = outboxByMessage.get(message);
+                if (email != null) failedEmails.put(email, error);
+            });
+
+            List<Long> sentIds = new ArrayList<>();
+            for (EmailOutbox email : batch) {
+                Exception error = failedEmails.get(email);
+                if (error == null) {
+                    sentIds.add(email.getId());
+                } else {
+                    emailOutboxService.markFailed(email, error.getMessage());
+                }
+            }
+            emailOutboxService.markSent(claimToken, sentIds);
+            emailsSent.increment(sentIds.size());
+            emailsFailed.increment(batch.size() - sentIds.size());
+            return sentIds.size();
+        } catch (MailException e) {
+            batch.forEach(email -> emailOutboxService.markFailed(email, e.getMessage()));
+            emailsFailed.increment(batch.size());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.EmailOutbox;
+import com.hivtreatment.enums.EmailStatus;
+import com.hivtreatment.repository.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Quản lý bảng email_outbox: ghi email cần gửi, nhận (claim) lô để gửi,
+ * ghi nhận kết quả, thử lại với backoff lũy thừa và lưu các email thất bại hẳn (DEAD).
+ */
+@Service
+@Transactional
+public class EmailOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Value("${hiv.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${hiv.mail.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${hiv.mail.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    @Value("${hiv.mail.outbox.claim-timeout-minutes:10}")
+    private long claimTimeoutMinutes;
+
+    /**
+     * Ghi email vào outbox trong transaction hiện tại (cùng transaction với thông báo).
+     */
+    public EmailOutbox enqueue(String recipient, String subject, String body, String type) {
+        if (recipient == null || recipient.isBlank()) {
+            System.err.println("Bỏ qua email không có người nhận: " + subject);
+            return null;
+        }
+        return emailOutboxRepository.save(new EmailOutbox(recipient, subject, body, type));
+    }
+
+    /**
+     * Nhận tối đa {@code size} email đến hạn gửi. Các dòng được chuyển sang SENDING với một claim token riêng.
+     */
+    public List<EmailOutbox> claimBatch(int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = emailOutboxRepository.findDueIds(now, PageRequest.of(0, size));
+        if (dueIds.isEmpty()) {
+            return List.of();
+        }
+
+        String token = UUID.randomUUID().toString();
+        emailOutboxRepository.claim(dueIds, token, now);
+        return emailOutboxRepository.findByClaimTokenOrderByIdAsc(token);
+    }
+
+    // Chỉ cập nhật các dòng vẫn thuộc lượt claim claimToken
+    public void markSent(String claimToken, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            emailOutboxRepository.markSent(ids, claimToken, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Ghi nhận một lần gửi lỗi cho email vừa claim: hẹn thử lại với backoff, hoặc DEAD khi hết lượt.
+     * Số lần thử tính từ bản đã claim; bỏ qua nếu dòng không còn thuộc lượt claim đó.
+     */
+    public void markFailed(EmailOutbox email, String error) {
+        int attempts = email.getAttempts() + 1;
+        EmailStatus status = attempts >= maxAttempts ? EmailStatus.DEAD : EmailStatus.PENDING;
+        LocalDateTime nextAttemptAt = status == EmailStatus.DEAD
+                ? email.getNextAttemptAt()
+                : LocalDateTime.now().plusSeconds(backoffSeconds(attempts));
+        emailOutboxRepository.markFailed(email.getId(), email.getClaimToken(), status, attempts,
+                nextAttemptAt, truncate(error));
+    }
+
+    public int releaseStuck() {
+        return emailOutboxRepository.releaseStuck(LocalDateTime.now().minusMinutes(claimTimeoutMinutes));
+    }
+
+    /**
+     * Đưa một email DEAD trở lại hàng đợi (ví dụ sau khi sửa cấu hình SMTP).
+     */
+    public boolean requeue(Long id) {
+        Optional<EmailOutbox> emailOpt = emailOutboxRepository.findById(id);
+        if (emailOpt.isEmpty() || emailOpt.get().getStatus() != EmailStatus.DEAD) {
+            return false;
+        }
+
+        EmailOutbox email = emailOpt.get();
+        email.setStatus(EmailStatus.PENDING);
+        email.setAttempts(0);
+        email.setNextAttemptAt(LocalDateTime.now());
+        emailOutboxRepository.save(email);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return emailOutboxRepository.countByStatus(EmailStatus.PENDING);
+    }
+
+    @Transactional(readOnly = true)
+    public long countDead() {
+        return emailOutboxRepository.countByStatus(EmailStatus.DEAD);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<EmailOutbox> getDeadLetters(Pageable pageable) {
+        return emailOutboxRepository.findByStatusOrderByCreatedAtDesc(EmailStatus.DEAD, pageable);
+    }
+
+    // 30s, 60s, 120s, ... tối đa backoffMaxSeconds
+    private long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        return Math.min(delay, backoffMaxSeconds);
+    }
+
+    private String truncate(String error) {
+        if (error == null) return null;
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
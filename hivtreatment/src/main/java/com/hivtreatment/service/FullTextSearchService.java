@@ -0,0 +1,526 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.SearchHitDTO;
+import com.hivtreatment.entity.BlogPost;
+import com.hivtreatment.entity.EducationalResource;
+import com.hivtreatment.enums.SearchDocumentType;
+import com.hivtreatment.event.SearchIndexEvent;
+import com.hivtreatment.repository.BlogPostRepository;
+import com.hivtreatment.repository.EducationalResourceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Chỉ mục tìm kiếm toàn văn (Lucene nhúng) cho bài viết đã xuất bản và tài liệu giáo dục đang hoạt động.
+ *
+ * Bộ phân tích chuyển chữ thường và bỏ dấu tiếng Việt (ASCIIFoldingFilter, kể cả đ → d), nên
+ * "dieu tri" khớp "Điều trị". Tiêu đề có trọng số gấp ba nội dung; đoạn trích được tô sáng bằng &lt;mark&gt;.
+ *
+ * Chỉ mục cập nhật từng tài liệu qua SearchIndexEvent sau khi commit. Mỗi node có chỉ mục riêng nên
+ * sync-ms định kỳ quét các dòng có updated_at mới (kèm khoảng chồng lấn) để nhận thay đổi từ node khác;
+ * mốc quét lưu trong commit của chỉ mục để khởi động lại không phải dựng lại từ đầu.
+ *
+ * Dòng bị xóa hẳn ở node khác không còn updated_at để quét, nên trước khi trả kết quả, id các hit của trang
+ * được đối chiếu với database: hit không còn (hoặc đã gỡ xuất bản/ngừng hoạt động) bị bỏ và xóa khỏi chỉ mục.
+ */
+@Service
+public class FullTextSearchService {
+
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    // Không cho phân trang sâu hơn mức này: xếp hạng phải giữ toàn bộ top-N trong bộ nhớ
+    public static final int MAX_HITS = 1000;
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_CATEGORY = "category";
+    private static final String FIELD_URL = "url";
+
+    private static final String LAST_SYNCED_AT = "lastSyncedAt";
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private EducationalResourceRepository educationalResourceRepository;
+
+    // Để trống thì giữ chỉ mục trong bộ nhớ (dựng lại mỗi lần khởi động)
+    @Value("${hiv.search.index-dir:}")
+    private String indexDir;
+
+    @Value("${hiv.search.sync-batch-size:200}")
+    private int syncBatchSize;
+
+    // Bù cho lệch đồng hồ giữa các node và transaction commit chậm hơn updated_at
+    @Value("${hiv.search.sync-overlap-seconds:60}")
+    private long syncOverlapSeconds;
+
+    @Value("${hiv.search.snippet-length:200}")
+    private int snippetLength;
+
+    private Analyzer analyzer;
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    private volatile LocalDateTime lastSyncedAt;
+
+    @PostConstruct
+    public void open() throws IOException {
+        analyzer = new FoldingAnalyzer();
+        directory = indexDir == null || indexDir.isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Path.of(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+        if (commitData != null) {
+            for (Map.Entry<String, String> entry : commitData) {
+                if (LAST_SYNCED_AT.equals(entry.getKey())) {
+                    lastSyncedAt = LocalDateTime.parse(entry.getValue());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        analyzer.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialSync() {
+        scheduledSync();
+    }
+
+    @Scheduled(fixedDelayString = "${hiv.search.sync-ms:60000}", initialDelayString = "${hiv.search.sync-ms:60000}")
+    public void scheduledSync() {
+        try {
+            syncChanges();
+        } catch (Exception e) {
+            System.err.println("Failed to sync search index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cập nhật chỉ mục với các bài viết/tài liệu đã đổi kể từ lần đồng bộ trước; lần đầu thì dựng toàn bộ.
+     * Trả về số tài liệu đã ghi lại (kể cả tài liệu bị gỡ khỏi chỉ mục).
+     */
+    public synchronized int syncChanges() throws IOException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        int count;
+        if (lastSyncedAt == null) {
+            count = indexAll();
+        } else {
+            LocalDateTime since = lastSyncedAt.minusSeconds(syncOverlapSeconds);
+            count = syncUpdated(since, (after, id) -> blogPostRepository.findUpdatedAfter(after, id, batch()),
+                    BlogPost::getUpdatedAt, BlogPost::getId, (BlogPost post) -> index(post))
+                    + syncUpdated(since, (after, id) -> educationalResourceRepository.findUpdatedAfter(after, id, batch()),
+                    EducationalResource::getUpdatedAt, EducationalResource::getId,
+                    (EducationalResource resource) -> index(resource));
+        }
+        commit(startedAt);
+        return count;
+    }
+
+    /**
+     * Xóa và dựng lại toàn bộ chỉ mục từ database.
+     */
+    public synchronized int rebuild() throws IOException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        writer.deleteAll();
+        int count = indexAll();
+        commit(startedAt);
+        return count;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSearchIndexEvent(SearchIndexEvent event) {
+        try {
+            if (event.getType() == SearchDocumentType.BLOG_POST) {
+                Optional<BlogPost> post = blogPostRepository.findById(event.getId());
+                if (post.isPresent()) index(post.get());
+                else delete(SearchDocumentType.BLOG_POST, event.getId());
+            } else {
+                Optional<EducationalResource> resource = educationalResourceRepository.findById(event.getId());
+                if (resource.isPresent()) index(resource.get());
+                else delete(SearchDocumentType.EDUCATIONAL_RESOURCE, event.getId());
+            }
+            searcherManager.maybeRefresh();
+        } catch (Exception e) {
+            // Lần đồng bộ định kỳ sau sẽ ghi lại tài liệu này
+            System.err.println("Failed to index " + event.getType() + " " + event.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tìm kiếm theo mức độ liên quan. type = null thì tìm cả bài viết và tài liệu.
+     * Truy vấn được escape nên người dùng không dùng được cú pháp Lucene; các từ đều phải xuất hiện.
+     */
+    public Page<SearchHitDTO> search(String text, SearchDocumentType type, Pageable pageable) {
+        Query textQuery = parse(text);
+        if (textQuery == null || pageable.getOffset() >= MAX_HITS) {
+            return Page.empty(pageable);
+        }
+        Query query = textQuery;
+        if (type != null) {
+            query = new BooleanQuery.Builder()
+                    .add(textQuery, BooleanClause.Occur.MUST)
+                    .add(new TermQuery(new Term(FIELD_TYPE, type.name())), BooleanClause.Occur.FILTER)
+                    .build();
+        }
+
+        int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_HITS);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, limit);
+                Highlighter titleHighlighter = highlighter(textQuery, FIELD_TITLE, Integer.MAX_VALUE);
+                Highlighter bodyHighlighter = highlighter(textQuery, FIELD_BODY, snippetLength);
+
+                List<Document> documents = new ArrayList<>();
+                Map<SearchDocumentType, List<Long>> idsByType = new EnumMap<>(SearchDocumentType.class);
+                for (int i = (int) pageable.getOffset(); i < topDocs.scoreDocs.length; i++) {
+                    Document document = searcher.storedFields().document(topDocs.scoreDocs[i].doc);
+                    documents.add(document);
+                    idsByType.computeIfAbsent(typeOf(document), t -> new ArrayList<>()).add(idOf(document));
+                }
+                Map<SearchDocumentType, Set<Long>> liveIds = liveIds(idsByType);
+
+                List<SearchHitDTO> hits = new ArrayList<>();
+                int removed = 0;
+                for (int i = 0; i < documents.size(); i++) {
+                    Document document = documents.get(i);
+                    SearchDocumentType hitType = typeOf(document);
+                    Long id = idOf(document);
+                    if (!liveIds.get(hitType).contains(id)) {
+                        delete(hitType, id);
+                        removed++;
+                        continue;
+                    }
+                    String title = document.get(FIELD_TITLE);
+                    String body = document.get(FIELD_BODY);
+                    hits.add(new SearchHitDTO(
+                            hitType,
+                            id,
+                            title,
+                            highlight(titleHighlighter, FIELD_TITLE, title, Integer.MAX_VALUE),
+                            highlight(bodyHighlighter, FIELD_BODY, body, snippetLength),
+                            document.get(FIELD_CATEGORY),
+                            document.get(FIELD_URL),
+                            topDocs.scoreDocs[(int) pageable.getOffset() + i].score));
+                }
+                if (removed > 0) {
+                    searcherManager.maybeRefresh();
+                }
+                long total = Math.max(Math.min(topDocs.totalHits.value, MAX_HITS) - removed, 0);
+                return new PageImpl<>(hits, pageable, total);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            System.err.println("Search failed for '" + text + "': " + e.getMessage());
+            return Page.empty(pageable);
+        }
+    }
+
+    /**
+     * Id theo thứ tự xếp hạng, dùng khi nơi gọi tự nạp entity từ database.
+     */
+    public List<Long> searchIds(String text, SearchDocumentType type, Pageable pageable) {
+        return search(text, type, pageable).map(SearchHitDTO::getId).getContent();
+    }
+
+    /**
+     * Sắp các entity nạp từ database theo thứ tự id xếp hạng; id không còn trong database
+     * (bị xóa/gỡ xuất bản ở node khác, chỉ mục chưa đồng bộ) bị bỏ qua.
+     */
+    public static <T> List<T> inRankOrder(List<Long> rankedIds, Collection<T> entities, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : entities) {
+            byId.put(idOf.apply(entity), entity);
+        }
+        List<T> result = new ArrayList<>();
+        for (Long id : rankedIds) {
+            T entity = byId.get(id);
+            if (entity != null) result.add(entity);
+        }
+        return result;
+    }
+
+    // Id vẫn còn hiển thị được trong database (bài đã xuất bản, tài liệu đang hoạt động), theo loại
+    private Map<SearchDocumentType, Set<Long>> liveIds(Map<SearchDocumentType, List<Long>> idsByType) {
+        Map<SearchDocumentType, Set<Long>> live = new EnumMap<>(SearchDocumentType.class);
+        idsByType.forEach((type, ids) -> live.put(type, new HashSet<>(type == SearchDocumentType.BLOG_POST
+                ? blogPostRepository.findPublishedIdsIn(ids)
+                : educationalResourceRepository.findActiveIdsIn(ids))));
+        return live;
+    }
+
+    private static SearchDocumentType typeOf(Document document) {
+        return SearchDocumentType.valueOf(document.get(FIELD_TYPE));
+    }
+
+    private static Long idOf(Document document) {
+        return document.getField(FIELD_ID).numericValue().longValue();
+    }
+
+    public LocalDateTime getLastSyncedAt() {
+        return lastSyncedAt;
+    }
+
+    public int getIndexedDocumentCount() {
+        return writer.getDocStats().numDocs;
+    }
+
+    private Query parse(String text) {
+        if (text == null || text.isBlank()) return null;
+        String trimmed = text.strip();
+        if (trimmed.length() > MAX_QUERY_LENGTH) {
+            trimmed = trimmed.substring(0, MAX_QUERY_LENGTH);
+        }
+        // Chỉ giữ chữ và số: bỏ cú pháp Lucene (kể cả AND/OR/NOT viết hoa) khỏi từ khóa người dùng
+        trimmed = trimmed.replaceAll("[^\\p{L}\\p{N}]+", " ").toLowerCase(Locale.ROOT).strip();
+        if (trimmed.isEmpty()) return null;
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                new String[] {FIELD_TITLE, FIELD_BODY}, analyzer, Map.of(FIELD_TITLE, 3f, FIELD_BODY, 1f));
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            Query query = parser.parse(QueryParser.escape(trimmed));
+            // Chỉ có dấu câu: bộ phân tích không sinh từ nào
+            return query instanceof MatchNoDocsQuery || query instanceof BooleanQuery bq && bq.clauses().isEmpty()
+                    ? null : query;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private Highlighter highlighter(Query query, String field, int fragmentSize) {
+        QueryScorer scorer = new QueryScorer(query, field);
+        Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<mark>", "</mark>"), new SimpleHTMLEncoder(), scorer);
+        highlighter.setTextFragmenter(new SimpleSpanFragmenter(scorer, fragmentSize));
+        highlighter.setMaxDocCharsToAnalyze(Math.max(fragmentSize, 100_000));
+        return highlighter;
+    }
+
+    private String highlight(Highlighter highlighter, String field, String text, int fallbackLength) {
+        if (text == null || text.isEmpty()) return "";
+        try {
+            String fragment = highlighter.getBestFragment(analyzer, field, text);
+            if (fragment != null) return fragment;
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            System.err.println("Failed to highlight search hit: " + e.getMessage());
+        }
+        // Khớp ở trường khác: trả phần đầu văn bản
+        String head = text.length() > fallbackLength ? text.substring(0, fallbackLength) + "…" : text;
+        return SimpleHTMLEncoder.htmlEncode(head);
+    }
+
+    private int indexAll() throws IOException {
+        int count = 0;
+        long afterId = 0L;
+        List<BlogPost> posts;
+        do {
+            posts = blogPostRepository.findByIdGreaterThanOrderByIdAsc(afterId, batch());
+            for (BlogPost post : posts) {
+                index(post);
+                afterId = post.getId();
+            }
+            count += posts.size();
+        } while (posts.size() == syncBatchSize);
+
+        afterId = 0L;
+        List<EducationalResource> resources;
+        do {
+            resources = educationalResourceRepository.findByIdGreaterThanOrderByIdAsc(afterId, batch());
+            for (EducationalResource resource : resources) {
+                index(resource);
+                afterId = resource.getId();
+            }
+            count += resources.size();
+        } while (resources.size() == syncBatchSize);
+        return count;
+    }
+
+    // Duyệt theo (updated_at, id) để không bỏ sót các dòng có cùng updated_at ở ranh giới trang
+    private <T> int syncUpdated(LocalDateTime since, UpdatedPageLoader<T> loader, Function<T, LocalDateTime> updatedAtOf,
+                                Function<T, Long> idOf, IndexAction<T> action) throws IOException {
+        int count = 0;
+        LocalDateTime after = since;
+        long afterId = 0L;
+        List<T> rows;
+        do {
+            rows = loader.load(after, afterId);
+            for (T row : rows) {
+                action.apply(row);
+                after = updatedAtOf.apply(row);
+                afterId = idOf.apply(row);
+            }
+            count += rows.size();
+        } while (rows.size() == syncBatchSize);
+        return count;
+    }
+
+    private void commit(LocalDateTime syncedAt) throws IOException {
+        writer.setLiveCommitData(Map.of(LAST_SYNCED_AT, syncedAt.toString()).entrySet());
+        writer.commit();
+        searcherManager.maybeRefresh();
+        lastSyncedAt = syncedAt;
+    }
+
+    private PageRequest batch() {
+        return PageRequest.of(0, syncBatchSize);
+    }
+
+    private void index(BlogPost post) throws IOException {
+        if (!"PUBLISHED".equals(post.getStatus())) {
+            delete(SearchDocumentType.BLOG_POST, post.getId());
+            return;
+        }
+        writeDocument(SearchDocumentType.BLOG_POST, post.getId(), post.getTitle(),
+                join(post.getExcerpt(), post.getContent()), post.getCategory(), "/blog/" + post.getSlug());
+    }
+
+    private void index(EducationalResource resource) throws IOException {
+        if (!Boolean.TRUE.equals(resource.getIsActive())) {
+            delete(SearchDocumentType.EDUCATIONAL_RESOURCE, resource.getId());
+            return;
+        }
+        writeDocument(SearchDocumentType.EDUCATIONAL_RESOURCE, resource.getId(), resource.getTitle(),
+                join(resource.getDescription(), resource.getContent()), resource.getCategory(),
+                "/education/" + resource.getId());
+    }
+
+    private void writeDocument(SearchDocumentType type, Long id, String title, String body, String category,
+                               String url) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(FIELD_KEY, key(type, id), Field.Store.NO));
+        document.add(new StringField(FIELD_TYPE, type.name(), Field.Store.YES));
+        document.add(new StoredField(FIELD_ID, id));
+        document.add(new TextField(FIELD_TITLE, title == null ? "" : title, Field.Store.YES));
+        document.add(new TextField(FIELD_BODY, body, Field.Store.YES));
+        if (category != null) {
+            document.add(new StoredField(FIELD_CATEGORY, category));
+        }
+        document.add(new StoredField(FIELD_URL, url));
+        writer.updateDocument(new Term(FIELD_KEY, key(type, id)), document);
+    }
+
+    private void delete(SearchDocumentType type, Long id) {
+        try {
+            writer.deleteDocuments(new Term(FIELD_KEY, key(type, id)));
+        } catch (IOException e) {
+            System.err.println("Failed to remove " + type + " " + id + " from search index: " + e.getMessage());
+        }
+    }
+
+    private static String key(SearchDocumentType type, Long id) {
+        return type.name() + ":" + id;
+    }
+
+    // Nội dung bài viết là HTML từ trình soạn thảo: bỏ thẻ và giải mã entity trước khi đánh chỉ mục
+    private static String join(String summary, String content) {
+        StringBuilder text = new StringBuilder();
+        for (String part : new String[] {summary, content}) {
+            if (part == null || part.isBlank()) continue;
+            String plain = HtmlUtils.htmlUnescape(part.replaceAll("<[^>]*>", " ")).replaceAll("\\s+", " ").strip();
+            if (text.length() > 0) text.append(' ');
+            text.append(plain);
+        }
+        return text.toString();
+    }
+
+    @FunctionalInterface
+    private interface UpdatedPageLoader<T> {
+        List<T> load(LocalDateTime after, long afterId);
+    }
+
+    @FunctionalInterface
+    private interface IndexAction<T> {
+        void apply(T row) throws IOException;
+    }
+
+    /**
+     * Tách từ chuẩn Unicode, chữ thường, bỏ dấu (ASCIIFoldingFilter gộp cả đ/Đ thành d).
+     */
+    private static class FoldingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            stream = new ASCIIFoldingFilter(stream);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.hivtreatment.entity.HIVPatientProfile;
 import com.hivtreatment.entity.LabResult;
 import com.hivtreatment.repository.HIVPatientProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +19,9 @@ public class HIVPatientProfileService {
     @Autowired
     private HIVPatientProfileRepository hivPatientProfileRepository;
 
+    @Value("${hiv.cohort.suppressed-below:1000}")
+    private int suppressedBelow;
+
     public List<HIVPatientProfile> getAllProfiles() {
         return hivPatientProfileRepository.findAll();
     }
@@ -64,9 +68,10 @@ public class HIVPatientProfileService {
         return hivPatientProfileRepository.findPatientsNeedingViralLoadTest(sixMonthsAgo);
     }
 
+    // Theo tải lượng virus hiện tại trên hồ sơ; chuỗi chăm sóc đầy đủ xem CohortAnalyticsService
     public long getViralSuppressionRate() {
         long totalPatients = hivPatientProfileRepository.count();
-        long suppressedPatients = hivPatientProfileRepository.countViralSuppressedPatients();
+        long suppressedPatients = hivPatientProfileRepository.countViralSuppressedPatients(suppressedBelow);
         return totalPatients > 0 ? (suppressedPatients * 100) / totalPatients : 0;
     }
 
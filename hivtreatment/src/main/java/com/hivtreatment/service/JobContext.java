@@ -0,0 +1,48 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.JobRun;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Thông tin một phân vùng đang chạy, truyền cho job bởi ClusterJobRunner.
+ * Job đọc checkpoint để chạy tiếp và gọi saveCheckpoint sau mỗi lô; mỗi lần lưu cũng gia hạn khóa.
+ * Nếu khóa đã hết hạn và node khác nhận phân vùng, saveCheckpoint ném IllegalStateException để job dừng ngay.
+ */
+public class JobContext {
+
+    private final JobRun run;
+    private final int partitions;
+    private final JobRunService jobRunService;
+    private final BooleanSupplier renewLock;
+    private long itemsProcessed;
+
+    JobContext(JobRun run, int partitions, JobRunService jobRunService, BooleanSupplier renewLock) {
+        this.run = run;
+        this.partitions = partitions;
+        this.jobRunService = jobRunService;
+        this.renewLock = renewLock;
+    }
+
+    public String getRunKey() { return run.getRunKey(); }
+
+    public int getPartition() { return run.getPartitionNo(); }
+
+    public int getPartitions() { return partitions; }
+
+    public Long getCheckpoint() { return run.getCheckpoint(); }
+
+    // Số mục đã xử lý trong lần thực thi này (không tính phần đã chạy trước khi bị gián đoạn)
+    public long getItemsProcessed() { return itemsProcessed; }
+
+    public void saveCheckpoint(Long checkpoint, long items) {
+        // Gia hạn trước khi ghi: mất khóa thì không ghi đè tiến độ của node đang giữ phân vùng
+        if (!renewLock.getAsBoolean()) {
+            throw new IllegalStateException("Mất khóa phân vùng " + run.getPartitionNo() + " của job "
+                    + run.getJobName() + " (lease hết hạn, node khác đã nhận), dừng xử lý");
+        }
+        jobRunService.saveCheckpoint(run.getId(), checkpoint, items);
+        run.setCheckpoint(checkpoint);
+        itemsProcessed += items;
+    }
+}
@@ -0,0 +1,46 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.repository.JobLockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Khóa phân tán dựa trên bảng job_locks. Mỗi thao tác là một câu lệnh nguyên tử trong transaction riêng,
+ * số dòng được cập nhật quyết định node nào giữ khóa. Các node cần đồng bộ giờ (NTP).
+ */
+@Service
+@Transactional(propagation = Propagation.REQUIRES_NEW)
+public class JobLockService {
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    /**
+     * Nhận khóa nếu chưa ai giữ hoặc lease đã hết hạn. Khóa không reentrant: chính node đang giữ cũng không nhận lại được.
+     * Nếu hai node cùng tạo khóa lần đầu, node chậm hơn nhận DataIntegrityViolationException.
+     */
+    public boolean tryAcquire(String lockName, String owner, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(lease);
+        if (jobLockRepository.acquireExpired(lockName, owner, now, until) == 1) {
+            return true;
+        }
+        if (jobLockRepository.existsById(lockName)) {
+            return false;
+        }
+        return jobLockRepository.insertLock(lockName, owner, now, until) == 1;
+    }
+
+    public boolean renew(String lockName, String owner, Duration lease) {
+        return jobLockRepository.extend(lockName, owner, LocalDateTime.now().plus(lease)) == 1;
+    }
+
+    public void release(String lockName, String owner) {
+        jobLockRepository.extend(lockName, owner, LocalDateTime.now());
+    }
+}
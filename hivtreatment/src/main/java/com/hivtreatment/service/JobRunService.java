@@ -0,0 +1,93 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.JobRun;
+import com.hivtreatment.enums.JobRunStatus;
+import com.hivtreatment.repository.JobRunRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ghi nhận tiến độ các lần chạy job định kỳ (bảng job_runs), mỗi phân vùng một dòng.
+ * Mỗi lần cập nhật là một transaction ngắn, độc lập với transaction xử lý dữ liệu của job.
+ * Chỉ gọi khi đang giữ khóa của phân vùng (ClusterJobRunner), nên không có hai node cùng ghi một dòng.
+ */
+@Service
+@Transactional
+public class JobRunService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    /**
+     * Bắt đầu lần chạy mới của phân vùng, hoặc chạy tiếp từ checkpoint nếu chưa hoàn thành.
+     * Lần chạy đã COMPLETED được trả về nguyên trạng để job bỏ qua.
+     */
+    public JobRun startOrResume(String jobName, String runKey, int partition, String nodeId) {
+        Optional<JobRun> existing = jobRunRepository.findByJobNameAndRunKeyAndPartitionNo(jobName, runKey, partition);
+        JobRun run = existing.orElseGet(() -> new JobRun(jobName, runKey, partition));
+        if (run.getStatus() == JobRunStatus.COMPLETED) {
+            return run;
+        }
+
+        run.setStatus(JobRunStatus.RUNNING);
+        run.setNodeId(nodeId);
+        run.setLastError(null);
+        return jobRunRepository.save(run);
+    }
+
+    public void saveCheckpoint(Long runId, Long checkpoint, long itemsProcessed) {
+        jobRunRepository.findById(runId).ifPresent(run -> {
+            run.setCheckpoint(checkpoint);
+            run.setItemsProcessed(run.getItemsProcessed() + itemsProcessed);
+            jobRunRepository.save(run);
+        });
+    }
+
+    public void complete(Long runId, long durationMs) {
+        jobRunRepository.findById(runId).ifPresent(run -> {
+            run.setStatus(JobRunStatus.COMPLETED);
+            run.setDurationMs(durationMs);
+            run.setFinishedAt(LocalDateTime.now());
+            jobRunRepository.save(run);
+        });
+    }
+
+    /**
+     * Ghi FAILED cho lần chạy của node này. Bỏ qua nếu node khác đã nhận phân vùng (khóa hết hạn giữa chừng)
+     * hoặc phân vùng đã hoàn thành, để không làm hỏng trạng thái của node đó.
+     */
+    public void fail(Long runId, String nodeId, String error, long durationMs) {
+        jobRunRepository.findById(runId).ifPresent(run -> {
+            if (!nodeId.equals(run.getNodeId()) || run.getStatus() == JobRunStatus.COMPLETED) return;
+            run.setStatus(JobRunStatus.FAILED);
+            run.setDurationMs(durationMs);
+            run.setLastError(error != null && error.length() > MAX_ERROR_LENGTH
+                    ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            jobRunRepository.save(run);
+        });
+    }
+
+    /**
+     * Các lần chạy bắt đầu sau thời điểm cho trước mà chưa đủ {@code partitions} phân vùng hoàn thành,
+     * gồm cả phân vùng bị gián đoạn (node chết) lẫn phân vùng chưa node nào nhận.
+     */
+    @Transactional(readOnly = true)
+    public List<String> findIncompleteRunKeys(String jobName, int partitions, LocalDateTime startedAfter) {
+        return jobRunRepository.findRunKeysStartedAfter(jobName, startedAfter).stream()
+                .filter(runKey -> jobRunRepository.countByJobNameAndRunKeyAndStatus(
+                        jobName, runKey, JobRunStatus.COMPLETED) < partitions)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<JobRun> getRecentRuns() {
+        return jobRunRepository.findTop50ByOrderByStartedAtDesc();
+    }
+}
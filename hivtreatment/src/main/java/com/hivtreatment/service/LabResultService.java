@@ -1,24 +1,63 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.LabResultSearchParams;
+import com.hivtreatment.dto.LabSeriesPointDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.LatestLabResult;
+import com.hivtreatment.event.DashboardEvent;
+import com.hivtreatment.event.LatestLabResultChangedEvent;
+import com.hivtreatment.repository.KeysetPagination;
 import com.hivtreatment.repository.LabResultRepository;
+import com.hivtreatment.repository.LabResultSpecifications;
+import com.hivtreatment.repository.LatestLabResultRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.WindowIterator;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class LabResultService {
 
+    // Khóa keyset cho danh sách xét nghiệm: (testDate, id)
+    private static final Sort KEYSET_SORT = KeysetPagination.keysetSort(LabResult.class,
+            Sort.Order.desc("testDate"), Sort.Order.desc("id"));
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     @Autowired
     private LabResultRepository labResultRepository;
 
+    @Autowired
+    private LatestLabResultRepository latestLabResultRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     // --- LIST METHODS ---
 
     public List<LabResult> getAllLabResults() {
@@ -29,6 +68,27 @@ public class LabResultService {
         return labResultRepository.findAll(pageable);
     }
 
+    /**
+     * Danh sách xét nghiệm theo keyset; các bộ lọc có thể null.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LabResult> scrollLabResults(Long doctorId, Long patientId, String testType,
+                                                  String after, String before, int size, boolean countTotal) {
+        List<Specification<LabResult>> filters = new ArrayList<>();
+        if (doctorId != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("doctor").get("id"), doctorId));
+        }
+        if (patientId != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("patient").get("id"), patientId));
+        }
+        if (testType != null && !testType.isEmpty()) {
+            filters.add((root, query, cb) -> cb.equal(root.get("testType"), testType));
+        }
+        filters.add(LabResultSpecifications.fetchPatientAndDoctor());
+        return KeysetPagination.scroll(labResultRepository, Specification.allOf(filters),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
     public Optional<LabResult> getLabResultById(Long id) {
         return labResultRepository.findById(id);
     }
@@ -61,27 +121,102 @@ public class LabResultService {
         return labResultRepository.findByDateRange(startDate, endDate);
     }
 
+    public List<MonthlyCountDTO> countByMonth(LocalDate startDate, LocalDate endDate) {
+        return labResultRepository.countByMonth(startDate, endDate);
+    }
+
+    public long countBetween(LocalDate startDate, LocalDate endDate) {
+        return labResultRepository.countByTestDateBetween(startDate, endDate);
+    }
+
     public List<LabResult> getRecentLabResultsByPatient(Long patientId, int limit) {
-        List<LabResult> results = labResultRepository.findByPatientOrderByTestDateDesc(patientId);
-        return results.stream().limit(limit).toList();
+        return labResultRepository.findRecentWithDoctorByPatient(patientId, PageRequest.of(0, limit));
     }
 
     // --- CREATE / UPDATE / DELETE ---
 
     public LabResult createLabResult(LabResult labResult) {
-        return labResultRepository.save(labResult);
+        return saveAndPublish(labResult);
     }
     public LabResult saveLabResult(LabResult labResult) {
-    return labResultRepository.save(labResult);
+    return saveAndPublish(labResult);
 }
 
 
     public LabResult updateLabResult(LabResult labResult) {
-        return labResultRepository.save(labResult);
+        return saveAndPublish(labResult);
+    }
+
+    // Báo bệnh nhân đang trực tuyến khi kết quả vừa được bác sĩ duyệt (không báo lại khi sửa kết quả đã duyệt)
+    private LabResult saveAndPublish(LabResult labResult) {
+        Long previousPatientId = null;
+        String previousTestType = null;
+        boolean wasReviewed = false;
+        if (labResult.getId() != null) {
+            previousPatientId = labResultRepository.findPatientIdById(labResult.getId());
+            previousTestType = labResultRepository.findTestTypeById(labResult.getId());
+            wasReviewed = labResultRepository.isReviewed(labResult.getId());
+        }
+
+        LabResult saved = labResultRepository.save(labResult);
+        Long patientId = saved.getPatient() != null ? saved.getPatient().getId() : null;
+        refreshLatest(patientId, saved.getTestType());
+        // Sửa sang bệnh nhân/loại xét nghiệm khác thì dòng mới nhất cũ cũng phải tính lại
+        if (previousPatientId != null
+                && (!previousPatientId.equals(patientId) || !Objects.equals(previousTestType, saved.getTestType()))) {
+            refreshLatest(previousPatientId, previousTestType);
+        }
+        if (!wasReviewed && isReviewed(saved)) {
+            eventPublisher.publishEvent(DashboardEvent.labResultReviewed(saved));
+        }
+        return saved;
+    }
+
+    static boolean isReviewed(LabResult labResult) {
+        return labResult.getDoctor() != null
+                && !"PENDING".equals(labResult.getStatus())
+                && (labResult.getResultValue() != null || labResult.getResultText() != null);
     }
 
     public void deleteLabResult(Long id) {
+        Long patientId = labResultRepository.findPatientIdById(id);
+        String testType = labResultRepository.findTestTypeById(id);
         labResultRepository.deleteById(id);
+        if (patientId != null) {
+            refreshLatest(patientId, testType);
+        }
+    }
+
+    /**
+     * Tính lại dòng latest_lab_results của (bệnh nhân, loại xét nghiệm) từ kết quả mới nhất còn lại.
+     * Chạy trong transaction ghi kết quả nên bảng luôn khớp với lab_results sau commit.
+     */
+    private void refreshLatest(Long patientId, String testType) {
+        if (patientId == null || testType == null) return;
+        List<LabResult> top = labResultRepository.findTopByPatientAndTestType(patientId, testType, PageRequest.of(0, 1));
+        Optional<LatestLabResult> current = latestLabResultRepository.findByPatientAndTestType(patientId, testType);
+        if (top.isEmpty()) {
+            current.ifPresent(latestLabResultRepository::delete);
+        } else {
+            LabResult newest = top.get(0);
+            LatestLabResult latest = current.orElseGet(() -> new LatestLabResult(newest.getPatient(), testType));
+            latest.copyFrom(newest);
+            latestLabResultRepository.save(latest);
+        }
+        eventPublisher.publishEvent(new LatestLabResultChangedEvent(patientId, testType));
+    }
+
+    /**
+     * Tạo dòng latest_lab_results cho dữ liệu có từ trước khi có bảng này; trả về số bệnh nhân đã xử lý.
+     */
+    public int backfillLatestLabResults(int batchSize) {
+        List<Long> patientIds = labResultRepository.findPatientIdsWithoutLatest(PageRequest.of(0, batchSize));
+        for (Long patientId : patientIds) {
+            for (String testType : labResultRepository.findTestTypesByPatient(patientId)) {
+                refreshLatest(patientId, testType);
+            }
+        }
+        return patientIds.size();
     }
     public List<LabResult> getLabResultsByDoctor(Long doctorId) {
     return labResultRepository.findByDoctorId(doctorId);
@@ -99,30 +234,159 @@ public class LabResultService {
     }
 
     public Optional<LabResult> getLatestLabResult(Long patientId, String testType) {
-        List<LabResult> results = getLabResultsByPatientAndTestType(patientId, testType);
-        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
-    }
-    public List<LabResult> searchLabResults(String patientCode, String testType, String startDateStr, String endDateStr) {
-    // Bạn cần parse ngày tháng nếu truyền dưới dạng String
-    LocalDate startDate = (startDateStr == null || startDateStr.isBlank()) ? null : LocalDate.parse(startDateStr);
-    LocalDate endDate = (endDateStr == null || endDateStr.isBlank()) ? null : LocalDate.parse(endDateStr);
-
-    // Tùy theo repository, bạn có thể tạo query hoặc filter sau khi lấy tất cả
-    List<LabResult> results = labResultRepository.findAll();
-
-    return results.stream()
-        .filter(lr -> patientCode == null || patientCode.isBlank() || (lr.getPatient() != null && lr.getPatient().getPatientCode().equalsIgnoreCase(patientCode)))
-        .filter(lr -> testType == null || testType.isBlank() || testType.equalsIgnoreCase(lr.getTestType()))
-        .filter(lr -> {
-            if (startDate == null && endDate == null) return true;
-            if (lr.getTestDate() == null) return false;
-            if (startDate != null && lr.getTestDate().isBefore(startDate)) return false;
-            if (endDate != null && lr.getTestDate().isAfter(endDate)) return false;
-            return true;
-        })
-        .toList();
-}
+        return getRecentLabResultsByPatientAndTestType(patientId, testType, 1).stream().findFirst();
+    }
 
+    public List<LabResult> getRecentLabResultsByPatientAndTestType(Long patientId, String testType, int limit) {
+        return labResultRepository.findTopByPatientAndTestType(patientId, testType, PageRequest.of(0, limit));
+    }
+
+    // Kết quả mới nhất của mọi loại xét nghiệm, đọc từ latest_lab_results
+    @Transactional(readOnly = true)
+    public List<LatestLabResult> getLatestLabResults(Long patientId) {
+        return latestLabResultRepository.findByPatient(patientId);
+    }
+
+    /**
+     * Chuỗi giá trị theo thời gian cho biểu đồ, rút gọn còn tối đa maxPoints điểm.
+     * Giữ điểm đầu, điểm cuối và các điểm đo thật làm nên hình dạng đường (LTTB) thay vì lấy trung bình,
+     * để đỉnh/đáy CD4 hay tải lượng virus bật lại không bị làm phẳng.
+     */
+    @Transactional(readOnly = true)
+    public List<LabSeriesPointDTO> getLabSeries(Long patientId, String testType, LocalDate startDate,
+                                                LocalDate endDate, int maxPoints) {
+        LocalDate from = startDate != null ? startDate : LocalDate.of(1900, 1, 1);
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+        return downsample(labResultRepository.findSeries(patientId, testType, from, to), maxPoints);
+    }
+
+    // Largest-Triangle-Three-Buckets: mỗi nhóm giữ điểm tạo tam giác lớn nhất với điểm đã chọn trước
+    // và trung bình nhóm kế tiếp
+    static List<LabSeriesPointDTO> downsample(List<LabSeriesPointDTO> points, int maxPoints) {
+        int size = points.size();
+        int threshold = Math.max(maxPoints, 3);
+        if (size <= threshold) return points;
+
+        List<LabSeriesPointDTO> sampled = new ArrayList<>(threshold);
+        double bucketSize = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        sampled.add(points.get(0));
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x(points.get(i));
+                avgY += y(points.get(i));
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double selectedX = x(points.get(selected));
+            double selectedY = y(points.get(selected));
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((selectedX - avgX) * (y(points.get(i)) - selectedY)
+                        - (selectedX - x(points.get(i))) * (avgY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            sampled.add(points.get(best));
+            selected = best;
+        }
+        sampled.add(points.get(size - 1));
+        return sampled;
+    }
+
+    private static double x(LabSeriesPointDTO point) {
+        return point.getDate().toEpochDay();
+    }
+
+    private static double y(LabSeriesPointDTO point) {
+        return point.getValue().doubleValue();
+    }
+    /**
+     * Tìm kết quả xét nghiệm theo mã bệnh nhân, loại, khoảng ngày, trạng thái và bác sĩ;
+     * lọc, phân trang keyset theo (testDate, id) và nạp bệnh nhân/bác sĩ đều trong một câu SQL.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<LabResult> searchLabResults(LabResultSearchParams params, String after, String before,
+                                                  int size, boolean countTotal) {
+        return KeysetPagination.scroll(labResultRepository, searchSpecification(params),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
+    /**
+     * Ghi toàn bộ kết quả khớp bộ lọc ra CSV theo từng lô keyset EXPORT_BATCH_SIZE dòng.
+     * Không mở transaction bao cả lần xuất: mỗi lô là một truy vấn ngắn, kết nối không bị giữ trong lúc
+     * client tải chậm. Khi open-in-view gắn sẵn EntityManager của request vào luồng ghi, các dòng đã ghi
+     * vẫn nằm trong persistence context đó, nên context được clear sau mỗi lô để bộ nhớ không tăng theo số dòng.
+     * Trả về số dòng đã ghi.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long exportLabResults(LabResultSearchParams params, Writer writer) throws IOException {
+        Specification<LabResult> spec = searchSpecification(params);
+        WindowIterator<LabResult> rows = WindowIterator.of(position -> labResultRepository.findBy(spec,
+                query -> query.sortBy(KEYSET_SORT).limit(EXPORT_BATCH_SIZE).scroll(position)))
+                .startingAt(ScrollPosition.keyset());
+
+        writer.write("id,test_date,patient_code,patient_name,test_type,result_value,result_text,"
+                + "reference_range,status,doctor\n");
+        long written = 0;
+        while (rows.hasNext()) {
+            LabResult labResult = rows.next();
+            writer.write(String.join(",",
+                    String.valueOf(labResult.getId()),
+                    csv(labResult.getTestDate()),
+                    csv(labResult.getPatient().getPatientCode()),
+                    csv(labResult.getPatient().getFullName()),
+                    csv(labResult.getTestType()),
+                    csv(labResult.getResultValue() != null ? labResult.getResultValue().toPlainString() : null),
+                    csv(labResult.getResultText()),
+                    csv(labResult.getReferenceRange()),
+                    csv(labResult.getStatus()),
+                    csv(labResult.getDoctor() != null ? labResult.getDoctor().getFullName() : null)));
+            writer.write('\n');
+            if (++written % EXPORT_BATCH_SIZE == 0) {
+                entityManager.clear();
+            }
+        }
+        writer.flush();
+        return written;
+    }
+
+    private static Specification<LabResult> searchSpecification(LabResultSearchParams params) {
+        return LabResultSpecifications.fromParams(params).and(LabResultSpecifications.fetchPatientAndDoctor());
+    }
+
+    // Trường CSV theo RFC 4180; chặn công thức khi mở bằng Excel
+    private static String csv(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0 && !isNumber(text)) {
+            text = "'" + text;
+        }
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    private static boolean isNumber(String text) {
+        try {
+            new BigDecimal(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 
     public long countReviewedThisMonthByDoctorId(Long doctorId) {
         LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
@@ -0,0 +1,129 @@
+package com.hivtreatment.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Job nhắc uống thuốc. ClusterJobRunner chia bệnh nhân thành các phân vùng theo patient.id để nhiều node
+ * cùng chạy; trong mỗi phân vùng, bệnh nhân được duyệt theo keyset patient.id, chia thành các khối
+ * và xử lý song song trên một thread pool có giới hạn.
+ *
+ * Sau mỗi lượt, checkpoint của phân vùng tiến tới hết phần liên tục các khối đã thành công.
+ * Nếu node khởi động lại giữa chừng, phân vùng được chạy tiếp từ checkpoint; các khối đã commit
+ * nằm sau checkpoint (tối đa một lượt) có thể được gửi lại.
+ */
+@Service
+public class MedicationReminderJob {
+
+    public static final String JOB_NAME = "medication-reminders";
+
+    private static final DateTimeFormatter RUN_KEY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+
+    @Autowired
+    private MedicationReminderService medicationReminderService;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @Value("${hiv.reminders.medication.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${hiv.reminders.medication.parallelism:4}")
+    private int parallelism;
+
+    // Chỉ chạy tiếp các lần chạy bắt đầu trong khoảng này, tránh gửi nhắc buổi sáng vào buổi tối
+    @Value("${hiv.reminders.medication.resume-window-hours:3}")
+    private long resumeWindowHours;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "medication-reminder-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Chạy job cho khung giờ chứa {@code now}; trả về số bệnh nhân được nhắc bởi node này.
+     */
+    public long run(LocalDateTime now) {
+        return clusterJobRunner.runPartitioned(JOB_NAME, now.format(RUN_KEY_FORMAT), this::processPartition);
+    }
+
+    /**
+     * Chạy tiếp các phân vùng bị gián đoạn hoặc chưa node nào nhận của các lần chạy gần đây.
+     */
+    public long resumeInterrupted(LocalDateTime now) {
+        return clusterJobRunner.resumeIncomplete(JOB_NAME, now.minusHours(resumeWindowHours), this::processPartition);
+    }
+
+    private void processPartition(JobContext context) throws Exception {
+        // runKey có dạng yyyy-MM-ddTHH
+        LocalDate today = LocalDate.parse(context.getRunKey().substring(0, 10));
+        long checkpoint = context.getCheckpoint() != null ? context.getCheckpoint() : 0L;
+        int windowSize = chunkSize * parallelism;
+
+        while (true) {
+            List<Long> patientIds = medicationReminderService.findPatientIdsAfter(
+                    today, context.getPartition(), context.getPartitions(), checkpoint, windowSize);
+            if (patientIds.isEmpty()) break;
+
+            List<List<Long>> chunks = new ArrayList<>();
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int from = 0; from < patientIds.size(); from += chunkSize) {
+                List<Long> chunk = patientIds.subList(from, Math.min(from + chunkSize, patientIds.size()));
+                chunks.add(chunk);
+                tasks.add(() -> medicationReminderService.sendDigests(chunk, today));
+            }
+            List<Future<Integer>> results = workers.invokeAll(tasks);
+
+            // Checkpoint chỉ tiến tới hết phần liên tục các khối thành công
+            int windowProcessed = 0;
+            Throwable failure = null;
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    windowProcessed += results.get(i).get();
+                    List<Long> chunk = chunks.get(i);
+                    checkpoint = chunk.get(chunk.size() - 1);
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                    break;
+                }
+            }
+            context.saveCheckpoint(checkpoint, windowProcessed);
+
+            if (failure != null) {
+                throw new IllegalStateException("Chunk after patient " + checkpoint + " failed: " + failure.getMessage(), failure);
+            }
+            if (patientIds.size() < windowSize) break;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Prescription;
+import com.hivtreatment.entity.PrescriptionMedication;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.repository.PrescriptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Xử lý một khối bệnh nhân của job nhắc uống thuốc: mỗi bệnh nhân nhận một thông báo tổng hợp
+ * liệt kê mọi thuốc trong các đơn còn hiệu lực. Mỗi khối chạy trong một transaction riêng.
+ */
+@Service
+@Transactional
+public class MedicationReminderService {
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    // ID bệnh nhân trong phân vùng có đơn thuốc còn hiệu lực, tăng dần, sau afterPatientId
+    @Transactional(readOnly = true)
+    public List<Long> findPatientIdsAfter(LocalDate today, int partition, int partitions, Long afterPatientId, int limit) {
+        return prescriptionRepository.findActivePatientIdsAfter(today, partition, partitions, afterPatientId,
+                PageRequest.of(0, limit));
+    }
+
+    /**
+     * Gửi nhắc nhở tổng hợp cho các bệnh nhân trong khối; trả về số bệnh nhân đã được nhắc.
+     */
+    public int sendDigests(List<Long> patientIds, LocalDate today) {
+        List<Prescription> prescriptions = prescriptionRepository
+                .findActiveWithMedicationsByPatientIds(patientIds, today);
+
+        Map<Long, User> users = new LinkedHashMap<>();
+        Map<Long, Set<String>> medicationsByPatient = new LinkedHashMap<>();
+        for (Prescription prescription : prescriptions) {
+            Long patientId = prescription.getPatient().getId();
+            users.putIfAbsent(patientId, prescription.getPatient().getUser());
+            Set<String> names = medicationsByPatient.computeIfAbsent(patientId, id -> new TreeSet<>());
+            for (PrescriptionMedication item : prescription.getPrescriptionMedications()) {
+                names.add(item.getMedication().getName());
+            }
+        }
+
+        medicationsByPatient.forEach((patientId, names) ->
+                notificationService.sendMedicationDigest(users.get(patientId), new ArrayList<>(names)));
+        return medicationsByPatient.size();
+    }
+}
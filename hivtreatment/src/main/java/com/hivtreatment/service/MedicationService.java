@@ -4,9 +4,13 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.MedicationDTO;
 import com.hivtreatment.entity.Medication;
 import com.hivtreatment.repository.MedicationRepository;
 
@@ -17,38 +21,45 @@ public class MedicationService {
     @Autowired
     private MedicationRepository medicationRepository;
 
-    public List<Medication> getAllMedications() {
-        return medicationRepository.findAll();
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "'all'")
+    public List<MedicationDTO> getAllMedications() {
+        return toDtos(medicationRepository.findAll());
     }
 
-    public List<Medication> getActiveMedications() {
-        return medicationRepository.findByIsActiveTrue();
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "'active'")
+    public List<MedicationDTO> getActiveMedications() {
+        return toDtos(medicationRepository.findByIsActiveTrue());
     }
 
     public Optional<Medication> getMedicationById(Long id) {
         return medicationRepository.findById(id);
     }
 
-    public List<Medication> getMedicationsByCategory(String category) {
-        return medicationRepository.findByCategory(category);
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "'category:' + #category")
+    public List<MedicationDTO> getMedicationsByCategory(String category) {
+        return toDtos(medicationRepository.findByCategory(category));
     }
 
     public List<Medication> searchMedications(String keyword) {
         return medicationRepository.searchByKeyword(keyword);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, allEntries = true)
     public Medication createMedication(Medication medication) {
         return medicationRepository.save(medication);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, allEntries = true)
     public Medication updateMedication(Medication medication) {
         return medicationRepository.save(medication);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, allEntries = true)
     public void deleteMedication(Long id) {
         medicationRepository.deleteById(id);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.MEDICATIONS, allEntries = true)
     public void toggleMedicationStatus(Long id) {
         Optional<Medication> medicationOpt = medicationRepository.findById(id);
         if (medicationOpt.isPresent()) {
@@ -58,11 +69,18 @@ public class MedicationService {
         }
     }
 
-    public List<Medication> getARVMedications() {
-        return medicationRepository.findByCategory("ARV");
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "'category:ARV'")
+    public List<MedicationDTO> getARVMedications() {
+        return toDtos(medicationRepository.findByCategory("ARV"));
+    }
+
+    @Cacheable(cacheNames = CacheConfig.MEDICATIONS, key = "'active'")
+    public List<MedicationDTO> getAllActiveMedications() {
+        return toDtos(medicationRepository.findByIsActiveTrue());
     }
-    public List<Medication> getAllActiveMedications() {
-    return medicationRepository.findByIsActiveTrue();
-}
 
+
+    private static List<MedicationDTO> toDtos(List<Medication> medications) {
+        return medications.stream().map(MedicationDTO::new).toList();
+    }
 }
@@ -0,0 +1,95 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.NotificationPurgeResult;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Dọn các thông báo hết hạn theo TTL của từng loại.
+ *
+ * TTL cấu hình bằng hiv.notifications.retention.ttl-days (dạng TYPE:days, phân tách bằng dấu phẩy);
+ * loại không có trong danh sách dùng default-days. Mỗi lô tối đa batch-size dòng được xóa trong một
+ * transaction riêng, nên bảng notifications không bị khóa lâu.
+ */
+@Service
+public class NotificationRetentionJob {
+
+    public static final String DEFAULT_GROUP = "DEFAULT";
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+
+    @Value("${hiv.notifications.retention.ttl-days:MEDICATION_REMINDER:7,APPOINTMENT_REMINDER:30,URGENT_SYMPTOM:365}")
+    private String ttlDaysConfig;
+
+    @Value("${hiv.notifications.retention.default-days:90}")
+    private int defaultDays;
+
+    @Value("${hiv.notifications.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${hiv.notifications.retention.archive:true}")
+    private boolean archive;
+
+    private Map<String, Integer> ttlDaysByType = Collections.emptyMap();
+
+    @PostConstruct
+    public void init() {
+        Map<String, Integer> ttl = new LinkedHashMap<>();
+        for (String entry : ttlDaysConfig.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("TTL thông báo không hợp lệ: " + entry);
+            }
+            ttl.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        ttlDaysByType = Collections.unmodifiableMap(ttl);
+    }
+
+    public Map<String, Integer> getTtlDaysByType() {
+        return ttlDaysByType;
+    }
+
+    public NotificationPurgeResult purgeExpired(LocalDateTime now) {
+        long start = System.nanoTime();
+        NotificationPurgeResult result = new NotificationPurgeResult();
+
+        for (Map.Entry<String, Integer> ttl : ttlDaysByType.entrySet()) {
+            String type = ttl.getKey();
+            LocalDateTime cutoff = now.minusDays(ttl.getValue());
+            purgeGroup(type, result, () -> notificationRetentionService.findExpiredIds(type, cutoff, batchSize));
+        }
+
+        // Các loại còn lại dùng TTL mặc định; NOT IN cần ít nhất một phần tử
+        Set<String> typed = ttlDaysByType.isEmpty() ? Set.of(DEFAULT_GROUP) : ttlDaysByType.keySet();
+        LocalDateTime defaultCutoff = now.minusDays(defaultDays);
+        purgeGroup(DEFAULT_GROUP, result,
+                () -> notificationRetentionService.findExpiredIdsExcluding(typed, defaultCutoff, batchSize));
+
+        result.setDurationMs((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private void purgeGroup(String group, NotificationPurgeResult result, Supplier<List<Long>> nextBatch) {
+        while (true) {
+            List<Long> ids = nextBatch.get();
+            if (ids.isEmpty()) break;
+
+            int deleted = notificationRetentionService.purgeBatch(group, ids, archive);
+            result.addPurged(group, deleted);
+            if (archive) result.addArchivedBatch();
+            if (ids.size() < batchSize) break;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.hivtreatment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.NotificationArchive;
+import com.hivtreatment.repository.NotificationArchiveRepository;
+import com.hivtreatment.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Xóa một lô thông báo hết hạn trong một transaction ngắn, có thể lưu trữ lô vào notification_archive trước khi xóa.
+ */
+@Service
+@Transactional
+public class NotificationRetentionService {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository notificationArchiveRepository;
+
+    @Transactional(readOnly = true)
+    public List<Long> findExpiredIds(String type, LocalDateTime cutoff, int limit) {
+        return notificationRepository.findExpiredIdsByType(type, cutoff, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findExpiredIdsExcluding(Collection<String> types, LocalDateTime cutoff, int limit) {
+        return notificationRepository.findExpiredIdsExcludingTypes(types, cutoff, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Xóa các thông báo theo ID; nếu {@code archive} thì ghi một dòng lưu trữ nén cho cả lô trước.
+     * Trả về số dòng đã xóa.
+     */
+    public int purgeBatch(String group, List<Long> ids, boolean archive) {
+        if (ids.isEmpty()) return 0;
+
+        if (archive) {
+            List<Notification> notifications = notificationRepository.findByIdInOrderByIdAsc(ids);
+            if (!notifications.isEmpty()) {
+                notificationArchiveRepository.save(toArchive(group, notifications));
+            }
+        }
+        return notificationRepository.deleteByIdIn(ids);
+    }
+
+    // Giải nén một lô đã lưu trữ (dùng khi tra cứu lại)
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> readArchive(NotificationArchive archive) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(archive.getPayload()))) {
+            return objectMapper.readValue(in, objectMapper.getTypeFactory()
+                    .constructCollectionType(List.class, Map.class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đọc được lô lưu trữ " + archive.getId(), e);
+        }
+    }
+
+    private NotificationArchive toArchive(String group, List<Notification> notifications) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        LocalDateTime oldest = null;
+        LocalDateTime newest = null;
+        for (Notification notification : notifications) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", notification.getId());
+            // getId() trên proxy LAZY không cần truy vấn bảng users
+            row.put("userId", notification.getUser() != null ? notification.getUser().getId() : null);
+            row.put("type", notification.getType());
+            row.put("title", notification.getTitle());
+            row.put("message", notification.getMessage());
+            row.put("isRead", notification.getIsRead());
+            row.put("createdAt", notification.getCreatedAt() != null ? notification.getCreatedAt().toString() : null);
+            rows.add(row);
+
+            LocalDateTime createdAt = notification.getCreatedAt();
+            if (createdAt != null) {
+                if (oldest == null || createdAt.isBefore(oldest)) oldest = createdAt;
+                if (newest == null || createdAt.isAfter(newest)) newest = createdAt;
+            }
+        }
+
+        NotificationArchive archive = new NotificationArchive();
+        archive.setNotificationType(group);
+        archive.setFirstNotificationId(notifications.get(0).getId());
+        archive.setLastNotificationId(notifications.get(notifications.size() - 1).getId());
+        archive.setRowCount(notifications.size());
+        archive.setOldestCreatedAt(oldest);
+        archive.setNewestCreatedAt(newest);
+        archive.setPayload(compress(rows));
+        return archive;
+    }
+
+    private byte[] compress(List<Map<String, Object>> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không nén được lô thông báo", e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,13 +1,16 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.config.MetricsConfig;
 import com.hivtreatment.entity.Appointment;
 import com.hivtreatment.entity.Notification;
 import com.hivtreatment.entity.SymptomReport;
 import com.hivtreatment.entity.User;
+import com.hivtreatment.event.DashboardEvent;
 import com.hivtreatment.repository.NotificationRepository;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,7 +26,13 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private UnreadNotificationCounter unreadNotificationCounter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public List<Notification> getAllNotifications() {
         return notificationRepository.findAll();
@@ -33,6 +42,11 @@ public class NotificationService {
         return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    @Transactional(readOnly = true)
+    public List<Notification> getRecentNotifications(Long userId, int limit) {
+        return notificationRepository.findRecentByUserId(userId, PageRequest.of(0, limit));
+    }
+
     public List<Notification> getUnreadNotificationsByUser(Long userId) {
         return notificationRepository.findByUserIdAndIsReadFalse(userId);
     }
@@ -42,26 +56,34 @@ public class NotificationService {
     }
 
     public Notification createNotification(Notification notification) {
-        return notificationRepository.save(notification);
+        Notification saved = notificationRepository.save(notification);
+        Metrics.counter(MetricsConfig.NOTIFICATIONS_SENT, "channel", "in_app",
+                "type", saved.getType() != null ? saved.getType() : "UNKNOWN").increment();
+        if (!Boolean.TRUE.equals(saved.getIsRead()) && saved.getUser() != null) {
+            unreadNotificationCounter.increment(saved.getUser().getId());
+        }
+        eventPublisher.publishEvent(DashboardEvent.newNotification(saved));
+        return saved;
     }
 
     public void markAsRead(Long notificationId) {
-        Optional<Notification> notificationOpt = notificationRepository.findById(notificationId);
-        if (notificationOpt.isPresent()) {
-            Notification notification = notificationOpt.get();
-            notification.setIsRead(true);
-            notificationRepository.save(notification);
+        Long userId = notificationRepository.findUserIdById(notificationId);
+        if (userId != null && notificationRepository.markAsReadById(notificationId) > 0) {
+            unreadNotificationCounter.decrement(userId);
         }
     }
 
     public void markAllAsRead(Long userId) {
-        List<Notification> notifications = getUnreadNotificationsByUser(userId);
-        notifications.forEach(notification -> notification.setIsRead(true));
-        notificationRepository.saveAll(notifications);
+        notificationRepository.markAllAsReadByUserId(userId);
+        unreadNotificationCounter.reset(userId);
     }
 
     public void deleteNotification(Long id) {
+        Long userId = notificationRepository.findUserIdById(id);
         notificationRepository.deleteById(id);
+        if (userId != null) {
+            unreadNotificationCounter.evict(userId);
+        }
     }
 
     public void sendMedicationReminder(User user, String medicationName) {
@@ -73,21 +95,32 @@ public class NotificationService {
         notification.setType("MEDICATION_REMINDER");
         createNotification(notification);
 
-        // Send email
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("Nhắc nhở uống thuốc - HIV Treatment System");
-            message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                    "Đây là lời nhắc nhở uống thuốc " + medicationName + ".\n" +
-                    "Vui lòng tuân thủ đúng giờ để đảm bảo hiệu quả điều trị.\n\n" +
-                    "Trân trọng,\nHệ thống quản lý điều trị HIV");
-            mailSender.send(message);
-        } catch (Exception e) {
-            // Log error but don't fail the notification creation
-            System.err.println("Failed to send email: " + e.getMessage());
-        }
+        // Send email: ghi vào outbox cùng transaction, EmailDispatcher gửi sau
+        emailOutboxService.enqueue(user.getEmail(), "Nhắc nhở uống thuốc - HIV Treatment System",
+                "Xin chào " + user.getUsername() + ",\n\n" +
+                "Đây là lời nhắc nhở uống thuốc " + medicationName + ".\n" +
+                "Vui lòng tuân thủ đúng giờ để đảm bảo hiệu quả điều trị.\n\n" +
+                "Trân trọng,\nHệ thống quản lý điều trị HIV", notification.getType());
     }
+
+    // Một nhắc nhở tổng hợp cho tất cả thuốc đang dùng của bệnh nhân
+    public void sendMedicationDigest(User user, List<String> medicationNames) {
+        String medications = String.join(", ", medicationNames);
+
+        Notification notification = new Notification();
+        notification.setUser(user);
+        notification.setTitle("Nhắc nhở uống thuốc");
+        notification.setMessage("Đã đến giờ uống thuốc: " + medications);
+        notification.setType("MEDICATION_REMINDER");
+        createNotification(notification);
+
+        emailOutboxService.enqueue(user.getEmail(), "Nhắc nhở uống thuốc - HIV Treatment System",
+                "Xin chào " + user.getUsername() + ",\n\n" +
+                "Đây là lời nhắc nhở uống các thuốc sau:\n- " + String.join("\n- ", medicationNames) + "\n\n" +
+                "Vui lòng tuân thủ đúng giờ để đảm bảo hiệu quả điều trị.\n\n" +
+                "Trân trọng,\nHệ thống quản lý điều trị HIV", notification.getType());
+    }
+
     public void sendAppointmentConfirmation(Appointment appointment) {
     User user = appointment.getPatient().getUser(); // ✔️ đúng cú pháp
     String doctorName = appointment.getDoctor().getFullName();
@@ -106,16 +139,9 @@ public void sendAppointmentCancellation(Appointment appointment, String reason)
     notification.setType("APPOINTMENT_CANCELLED");
     createNotification(notification);
 
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Hủy lịch hẹn - HIV Treatment System");
-        message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                "Lịch hẹn của bạn đã bị hủy.\nLý do: " + reason + "\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send cancellation email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(user.getEmail(), "Hủy lịch hẹn - HIV Treatment System",
+            "Xin chào " + user.getUsername() + ",\n\n" +
+            "Lịch hẹn của bạn đã bị hủy.\nLý do: " + reason + "\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 public void sendAppointmentReschedule(Appointment appointment, String newTime) {
     User user = appointment.getPatient().getUser(); // ✔️ đúng cú pháp
@@ -128,16 +154,9 @@ public void sendAppointmentReschedule(Appointment appointment, String newTime) {
     notification.setType("APPOINTMENT_RESCHEDULED");
     createNotification(notification);
 
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Đổi lịch hẹn - HIV Treatment System");
-        message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                "Lịch hẹn của bạn đã được dời lại đến: " + newTime + "\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send reschedule email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(user.getEmail(), "Đổi lịch hẹn - HIV Treatment System",
+            "Xin chào " + user.getUsername() + ",\n\n" +
+            "Lịch hẹn của bạn đã được dời lại đến: " + newTime + "\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 
 public void notifyDoctorOfUrgentSymptomReport(SymptomReport report) {
@@ -154,16 +173,9 @@ public void notifyDoctorOfUrgentSymptomReport(SymptomReport report) {
     createNotification(notification);
 
     // Gửi email (nếu cần)
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(doctorUser.getEmail());
-        message.setSubject("Cảnh báo triệu chứng nghiêm trọng - HIV Treatment System");
-        message.setText("Xin chào " + doctorUser.getUsername() + ",\n\n" +
-                messageText + ".\nVui lòng xem và xử lý sớm.\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send doctor email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(doctorUser.getEmail(), "Cảnh báo triệu chứng nghiêm trọng - HIV Treatment System",
+            "Xin chào " + doctorUser.getUsername() + ",\n\n" +
+            messageText + ".\nVui lòng xem và xử lý sớm.\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 public void sendAppointmentNotification(User user, String doctorName, String appointmentTime) {
     Notification notification = new Notification();
@@ -173,17 +185,10 @@ public void sendAppointmentNotification(User user, String doctorName, String app
     notification.setType("APPOINTMENT");
     createNotification(notification);
 
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Xác nhận lịch hẹn - HIV Treatment System");
-        message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                "Lịch hẹn của bạn với bác sĩ " + doctorName + " vào lúc " + appointmentTime + " đã được xác nhận.\n\n" +
-                "Trân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send appointment email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(user.getEmail(), "Xác nhận lịch hẹn - HIV Treatment System",
+            "Xin chào " + user.getUsername() + ",\n\n" +
+            "Lịch hẹn của bạn với bác sĩ " + doctorName + " vào lúc " + appointmentTime + " đã được xác nhận.\n\n" +
+            "Trân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 public void sendAnonymousConsultationNotification(User user, String consultationTime, String details) {
     Notification notification = new Notification();
@@ -193,17 +198,10 @@ public void sendAnonymousConsultationNotification(User user, String consultation
     notification.setType("ANONYMOUS_CONSULTATION");
     createNotification(notification);
 
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Tư vấn ẩn danh - HIV Treatment System");
-        message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                "Bạn đã đặt cuộc tư vấn ẩn danh vào lúc " + consultationTime + ".\nChi tiết: " + details + "\n\n" +
-                "Trân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send anonymous consultation email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(user.getEmail(), "Tư vấn ẩn danh - HIV Treatment System",
+            "Xin chào " + user.getUsername() + ",\n\n" +
+            "Bạn đã đặt cuộc tư vấn ẩn danh vào lúc " + consultationTime + ".\nChi tiết: " + details + "\n\n" +
+            "Trân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 public void sendSymptomReportNotification(User doctorUser, String title, String messageText) {
     Notification notification = new Notification();
@@ -214,16 +212,9 @@ public void sendSymptomReportNotification(User doctorUser, String title, String
     createNotification(notification);
 
     // Gửi email
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(doctorUser.getEmail());
-        message.setSubject(title + " - HIV Treatment System");
-        message.setText("Xin chào " + doctorUser.getUsername() + ",\n\n" +
-                messageText + ".\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send symptom report email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(doctorUser.getEmail(), title + " - HIV Treatment System",
+            "Xin chào " + doctorUser.getUsername() + ",\n\n" +
+            messageText + ".\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 
 public void sendConsultationNotification(User user, String doctorName, String consultationTime) {
@@ -234,17 +225,10 @@ public void sendConsultationNotification(User user, String doctorName, String co
     notification.setType("CONSULTATION");
     createNotification(notification);
 
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(user.getEmail());
-        message.setSubject("Thông báo tư vấn - HIV Treatment System");
-        message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                "Bạn có cuộc tư vấn với bác sĩ " + doctorName + " vào lúc " + consultationTime + ".\n\n" +
-                "Trân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send consultation email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(user.getEmail(), "Thông báo tư vấn - HIV Treatment System",
+            "Xin chào " + user.getUsername() + ",\n\n" +
+            "Bạn có cuộc tư vấn với bác sĩ " + doctorName + " vào lúc " + consultationTime + ".\n\n" +
+            "Trân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 
 
@@ -260,16 +244,9 @@ public void notifyPatientOfDoctorResponse(SymptomReport report) {
     createNotification(notification);
 
     // Gửi email (nếu cần)
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(patientUser.getEmail());
-        message.setSubject("Phản hồi từ bác sĩ - HIV Treatment System");
-        message.setText("Xin chào " + patientUser.getUsername() + ",\n\n" +
-                messageText + "\n\nVui lòng đăng nhập để xem chi tiết.\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send patient email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(patientUser.getEmail(), "Phản hồi từ bác sĩ - HIV Treatment System",
+            "Xin chào " + patientUser.getUsername() + ",\n\n" +
+            messageText + "\n\nVui lòng đăng nhập để xem chi tiết.\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 
     public void sendAppointmentReminder(User user, LocalDateTime appointmentTime, String doctorName) {
@@ -281,18 +258,11 @@ public void notifyPatientOfDoctorResponse(SymptomReport report) {
         createNotification(notification);
 
         // Send email
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(user.getEmail());
-            message.setSubject("Nhắc nhở lịch hẹn - HIV Treatment System");
-            message.setText("Xin chào " + user.getUsername() + ",\n\n" +
-                    "Bạn có lịch hẹn với " + doctorName + " vào " + appointmentTime + ".\n" +
-                    "Vui lòng đến đúng giờ.\n\n" +
-                    "Trân trọng,\nHệ thống quản lý điều trị HIV");
-            mailSender.send(message);
-        } catch (Exception e) {
-            System.err.println("Failed to send email: " + e.getMessage());
-        }
+        emailOutboxService.enqueue(user.getEmail(), "Nhắc nhở lịch hẹn - HIV Treatment System",
+                "Xin chào " + user.getUsername() + ",\n\n" +
+                "Bạn có lịch hẹn với " + doctorName + " vào " + appointmentTime + ".\n" +
+                "Vui lòng đến đúng giờ.\n\n" +
+                "Trân trọng,\nHệ thống quản lý điều trị HIV", notification.getType());
     }
     public void notifyDoctorOfAssignedSymptomReport(SymptomReport report, com.hivtreatment.entity.Doctor doctor) {
     User doctorUser = doctor.getUser();
@@ -306,20 +276,48 @@ public void notifyPatientOfDoctorResponse(SymptomReport report) {
     createNotification(notification);
 
     // Gửi email
-    try {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(doctorUser.getEmail());
-        message.setSubject("Phân công báo cáo triệu chứng - HIV Treatment System");
-        message.setText("Xin chào " + doctorUser.getUsername() + ",\n\n" +
-                messageText + "\n\nVui lòng đăng nhập để xem chi tiết.\n\nTrân trọng,\nHệ thống điều trị HIV");
-        mailSender.send(message);
-    } catch (Exception e) {
-        System.err.println("Failed to send doctor assignment email: " + e.getMessage());
-    }
+    emailOutboxService.enqueue(doctorUser.getEmail(), "Phân công báo cáo triệu chứng - HIV Treatment System",
+            "Xin chào " + doctorUser.getUsername() + ",\n\n" +
+            messageText + "\n\nVui lòng đăng nhập để xem chi tiết.\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
 }
 
+    // Một nhắc nhở cho bệnh nhân liệt kê mọi xét nghiệm định kỳ đã đến hạn
+    public void sendOverdueTestReminder(User user, List<String> testNames) {
+        String tests = String.join(", ", testNames);
+
+        Notification notification = new Notification();
+        notification.setUser(user);
+        notification.setTitle("Đến hạn xét nghiệm định kỳ");
+        notification.setMessage("Bạn đã đến hạn xét nghiệm: " + tests + ". Vui lòng đặt lịch với bác sĩ.");
+        notification.setType("LAB_TEST_OVERDUE");
+        createNotification(notification);
+
+        emailOutboxService.enqueue(user.getEmail(), "Đến hạn xét nghiệm định kỳ - HIV Treatment System",
+                "Xin chào " + user.getUsername() + ",\n\n" +
+                "Bạn đã đến hạn làm các xét nghiệm sau:\n- " + String.join("\n- ", testNames) + "\n\n" +
+                "Xét nghiệm định kỳ giúp bác sĩ theo dõi hiệu quả điều trị. Vui lòng đặt lịch hẹn sớm.\n\n" +
+                "Trân trọng,\nHệ thống quản lý điều trị HIV", notification.getType());
+    }
+
+    // Thông báo tổng hợp hằng đêm cho bác sĩ về hàng đợi xét nghiệm quá hạn
+    public void sendTestWorklistDigest(User doctorUser, long total, long newlyOverdue) {
+        String messageText = "Có " + total + " xét nghiệm CD4/tải lượng virus quá hạn trong danh sách của bạn"
+                + (newlyOverdue > 0 ? " (" + newlyOverdue + " mới)" : "") + ".";
+
+        Notification notification = new Notification();
+        notification.setUser(doctorUser);
+        notification.setTitle("Danh sách xét nghiệm quá hạn");
+        notification.setMessage(messageText);
+        notification.setType("LAB_TEST_WORKLIST");
+        createNotification(notification);
+
+        emailOutboxService.enqueue(doctorUser.getEmail(), "Danh sách xét nghiệm quá hạn - HIV Treatment System",
+                "Xin chào " + doctorUser.getUsername() + ",\n\n" +
+                messageText + "\n\nVui lòng đăng nhập để xem chi tiết.\n\nTrân trọng,\nHệ thống điều trị HIV", notification.getType());
+    }
 
+    // Đọc từ bộ đếm trong bộ nhớ; chỉ COUNT khi chưa có hoặc đã hết hạn
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return unreadNotificationCounter.get(userId);
     }
 }
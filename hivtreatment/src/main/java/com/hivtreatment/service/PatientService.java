@@ -1,28 +1,39 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.dto.PatientSearchParams;
 import com.hivtreatment.entity.Patient;
 import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.repository.KeysetPagination;
 import com.hivtreatment.repository.PatientRepository;
+import com.hivtreatment.repository.PatientSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.time.Period;
+import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PatientService {
 
+    // Khóa keyset cho danh sách bệnh nhân: id (không đổi, NOT NULL).
+    // Trang OFFSET (?page=N) cũng sắp theo thứ tự này để tiếp nối trang keyset
+    public static final Sort KEYSET_SORT = KeysetPagination.keysetSort(Patient.class, Sort.Order.desc("id"));
+
     @Autowired
     private PatientRepository patientRepository;
 
+    @Autowired
+    private CodeAllocator codeAllocator;
+
     public long countByDoctorId(Long doctorId) {
         return patientRepository.countByDoctorId(doctorId);
     }
@@ -81,84 +92,60 @@ public class PatientService {
         return patientRepository.countByIsActiveTrue();
     }
 
+    // Cấp từ khối mã trong bộ nhớ (hi-lo), không đếm bảng và không trùng khi tạo đồng thời
     public String generatePatientCode() {
-        long count = patientRepository.count();
-        return String.format("BN%06d", count + 1);
+        return codeAllocator.nextCode(CodeSequenceType.PATIENT);
     }
 
     public Page<Patient> getPatientsByDoctor(Long doctorId, Pageable pageable) {
-        List<Patient> filtered = patientRepository.findByDoctorId(doctorId);
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        List<Patient> pageContent = filtered.subList(start, end);
-        return new PageImpl<>(pageContent, pageable, filtered.size());
+        PatientSearchParams params = PatientSearchParams.builder()
+            .doctorId(doctorId)
+            .build();
+        return searchPatients(params, pageable);
     }
 
     public Page<Patient> searchPatientsByDoctorAndKeyword(Long doctorId, String keyword, Pageable pageable) {
-        List<Patient> filtered = patientRepository.findByDoctorId(doctorId).stream()
-            .filter(p -> {
-                String fullName = (p.getFirstName() + " " + p.getLastName()).toLowerCase();
-                return keyword == null || fullName.contains(keyword.toLowerCase());
-            })
-            .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        List<Patient> pageContent = filtered.subList(start, end);
-        return new PageImpl<>(pageContent, pageable, filtered.size());
+        PatientSearchParams params = PatientSearchParams.builder()
+            .doctorId(doctorId)
+            .name(keyword)
+            .build();
+        return searchPatients(params, pageable);
     }
 
     public long countNewThisMonthByDoctorId(Long doctorId) {
         YearMonth currentMonth = YearMonth.now();
         LocalDate startOfMonth = currentMonth.atDay(1);
         LocalDate endOfMonth = currentMonth.atEndOfMonth();
-        return patientRepository.countByDoctorIdAndCreatedDateBetween(doctorId, startOfMonth, endOfMonth);
+        return patientRepository.countByDoctorIdAndCreatedAtBetween(
+                doctorId, startOfMonth.atStartOfDay(), endOfMonth.atTime(LocalTime.MAX));
     }
 
     public List<Patient> findRecentByDoctorId(Long doctorId, int limit) {
         Pageable pageable = PageRequest.of(0, limit);
-        return patientRepository.findByDoctorIdOrderByCreatedDateDesc(doctorId, pageable);
+        return patientRepository.findRecentWithUserByDoctorId(doctorId, pageable);
     }
 
     public Page<Patient> searchPatients(PatientSearchParams params, Pageable pageable) {
-        List<Patient> filtered = patientRepository.findAll().stream()
-            .filter(p -> params.getName() == null || (p.getFirstName() + " " + p.getLastName())
-                .toLowerCase().contains(params.getName().toLowerCase()))
-            .filter(p -> params.getGender() == null ||
-                (p.getGender() != null && p.getGender().name().equalsIgnoreCase(params.getGender())))
-            .filter(p -> params.getAge() == null ||
-                (p.getDateOfBirth() != null && calculateAge(p.getDateOfBirth()) == params.getAge()))
-            .filter(p -> params.getPhone() == null ||
-                (p.getPhone() != null && p.getPhone().contains(params.getPhone())))
-            .filter(p -> params.getTreatmentStatus() == null ||
-                (p.getTreatmentStatus() != null && p.getTreatmentStatus().equalsIgnoreCase(params.getTreatmentStatus())))
-            .filter(p -> params.getDoctorId() == null ||
-                (p.getDoctor() != null && p.getDoctor().getId().equals(params.getDoctorId())))
-            .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtered.size());
-
-        if (start > end) {
-            return new PageImpl<>(List.of(), pageable, filtered.size());
-        }
-
-        List<Patient> pageContent = filtered.subList(start, end);
-        return new PageImpl<>(pageContent, pageable, filtered.size());
-    }
-
-    private int calculateAge(LocalDate dob) {
-        return Period.between(dob, LocalDate.now()).getYears();
+        // Lọc, sắp xếp, LIMIT/OFFSET và COUNT đều thực hiện trong SQL
+        return patientRepository.findAll(PatientSpecifications.fromParams(params), pageable);
+    }
+
+    /**
+     * Như searchPatients nhưng phân trang keyset theo id giảm dần (bệnh nhân mới nhất trước).
+     * Không dùng updatedAt làm khóa: dòng được sửa giữa hai lần cuộn sẽ nhảy trang, bị bỏ sót hoặc lặp lại.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Patient> scrollPatients(PatientSearchParams params, String after, String before,
+                                              int size, boolean countTotal) {
+        return KeysetPagination.scroll(patientRepository, PatientSpecifications.fromParams(params),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
+    public List<MonthlyCountDTO> countNewPatientsByMonth(LocalDate startDate, LocalDate endDate) {
+        return patientRepository.countNewPatientsByMonth(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+    }
+
+    public long countNewPatientsBetween(LocalDate startDate, LocalDate endDate) {
+        return patientRepository.countNewPatients(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
     }
 }
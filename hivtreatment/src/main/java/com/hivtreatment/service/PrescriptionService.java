@@ -1,14 +1,22 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.entity.Prescription;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.repository.KeysetPagination;
 import com.hivtreatment.repository.PrescriptionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,9 +24,16 @@ import java.util.Optional;
 @Transactional
 public class PrescriptionService {
 
+    // Khóa keyset cho danh sách đơn thuốc: (prescriptionDate, id)
+    private static final Sort KEYSET_SORT = KeysetPagination.keysetSort(Prescription.class,
+            Sort.Order.desc("prescriptionDate"), Sort.Order.desc("id"));
+
     @Autowired
     private PrescriptionRepository prescriptionRepository;
 
+    @Autowired
+    private CodeAllocator codeAllocator;
+
     public long countActiveByDoctorId(Long doctorId) {
         return prescriptionRepository.countByDoctorIdAndStatus(doctorId, "ACTIVE");
     }
@@ -65,8 +80,24 @@ public class PrescriptionService {
         return prescriptionRepository.findByDoctorIdAndStatus(doctorId, status, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<Prescription> scrollPrescriptionsByDoctor(Long doctorId, String status,
+                                                                String after, String before, int size, boolean countTotal) {
+        List<Specification<Prescription>> filters = new ArrayList<>();
+        filters.add((root, query, cb) -> cb.equal(root.get("doctor").get("id"), doctorId));
+        if (status != null && !status.isEmpty()) {
+            filters.add((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        return KeysetPagination.scroll(prescriptionRepository, Specification.allOf(filters),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
     public List<Prescription> getActivePrescriptionsByPatient(Long patientId) {
-        return prescriptionRepository.findActiveByPatient(patientId);
+        return prescriptionRepository.findActiveWithDetailsByPatient(patientId);
+    }
+
+    public long countActiveByPatientId(Long patientId) {
+        return prescriptionRepository.countByPatientIdAndStatus(patientId, "ACTIVE");
     }
 
     public List<Prescription> getPrescriptionsByStatus(String status) {
@@ -77,6 +108,18 @@ public class PrescriptionService {
         return prescriptionRepository.findByDateRange(startDate, endDate);
     }
 
+    public List<MonthlyCountDTO> countByMonth(LocalDate startDate, LocalDate endDate) {
+        return prescriptionRepository.countByMonth(startDate, endDate);
+    }
+
+    public long countBetween(LocalDate startDate, LocalDate endDate) {
+        return prescriptionRepository.countByPrescriptionDateBetween(startDate, endDate);
+    }
+
+    public List<String> getMostPrescribedMedications(LocalDate startDate, LocalDate endDate, int limit) {
+        return prescriptionRepository.findMostPrescribedMedicationNames(startDate, endDate, PageRequest.of(0, limit));
+    }
+
     public Prescription createPrescription(Prescription prescription) {
         return prescriptionRepository.save(prescription);
     }
@@ -119,8 +162,8 @@ public List<Prescription> searchPrescriptions(String patientCode,
         }
     }
 
+    // Cấp từ khối mã trong bộ nhớ (hi-lo), không đếm bảng và không trùng khi tạo đồng thời
     public String generatePrescriptionCode() {
-        long count = prescriptionRepository.count();
-        return String.format("DT%08d", count + 1);
+        return codeAllocator.nextCode(CodeSequenceType.PRESCRIPTION);
     }
 }
@@ -1,20 +1,27 @@
 package com.hivtreatment.service;
 
 import com.hivtreatment.dto.DashboardStatsDTO;
+import com.hivtreatment.dto.MonthlyCountDTO;
 import com.hivtreatment.dto.PatientStatsDTO;
+import com.hivtreatment.entity.DailyStats;
+import com.hivtreatment.enums.AppointmentStatus;
 import com.hivtreatment.enums.UserRole;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class ReportService {
 
+    private static final int TOP_MEDICATIONS_LIMIT = 5;
+
     @Autowired
     private UserService userService;
 
@@ -33,6 +40,9 @@ public class ReportService {
     @Autowired
     private LabResultService labResultService;
 
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
     public DashboardStatsDTO getAdminDashboardStats() {
         DashboardStatsDTO stats = new DashboardStatsDTO();
         
@@ -63,7 +73,7 @@ public class ReportService {
         PatientStatsDTO stats = new PatientStatsDTO();
         
         stats.setTotalAppointments(appointmentService.getAppointmentsByPatient(patientId).size());
-        stats.setActivePrescriptions(prescriptionService.getActivePrescriptionsByPatient(patientId).size());
+        stats.setActivePrescriptions((int) prescriptionService.countActiveByPatientId(patientId));
         stats.setLabResultsCount(labResultService.getLabResultsByPatient(patientId).size());
         
         return stats;
@@ -74,13 +84,22 @@ public class ReportService {
         
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.plusMonths(1).minusDays(1);
+
+        // Một truy vấn GROUP BY trạng thái thay cho nhiều lần đếm riêng lẻ
+        Map<String, Integer> appointmentsByStatus = sumByStatus(
+                appointmentService.countByMonthAndStatus(startDate, endDate));
+        int totalAppointments = appointmentsByStatus.values().stream().mapToInt(Integer::intValue).sum();
         
         report.put("period", month + "/" + year);
         report.put("newPatients", getNewPatientsCount(startDate, endDate));
-        report.put("totalAppointments", getAppointmentsCount(startDate, endDate));
-        report.put("completedAppointments", getCompletedAppointmentsCount(startDate, endDate));
+        report.put("totalAppointments", totalAppointments);
+        report.put("confirmedAppointments", appointmentsByStatus.getOrDefault(AppointmentStatus.CONFIRMED.name(), 0));
+        report.put("cancelledAppointments", appointmentsByStatus.getOrDefault(AppointmentStatus.CANCELLED.name(), 0));
+        report.put("completedAppointments", appointmentsByStatus.getOrDefault(AppointmentStatus.COMPLETED.name(), 0));
         report.put("prescriptionsIssued", getPrescriptionsCount(startDate, endDate));
         report.put("labTestsPerformed", getLabTestsCount(startDate, endDate));
+        report.put("mostPrescribedMedications",
+                prescriptionService.getMostPrescribedMedications(startDate, endDate, TOP_MEDICATIONS_LIMIT));
         
         return report;
     }
@@ -90,47 +109,80 @@ public class ReportService {
         
         LocalDate startDate = LocalDate.of(year, 1, 1);
         LocalDate endDate = LocalDate.of(year, 12, 31);
+
+        // Mỗi bảng chỉ một truy vấn GROUP BY tháng cho cả năm
+        int[] newPatientsPerMonth = toMonthlyArray(patientService.countNewPatientsByMonth(startDate, endDate));
+        int[] appointmentsPerMonth = toMonthlyArray(appointmentService.countByMonthAndStatus(startDate, endDate));
+        int[] prescriptionsPerMonth = toMonthlyArray(prescriptionService.countByMonth(startDate, endDate));
+        int[] labTestsPerMonth = toMonthlyArray(labResultService.countByMonth(startDate, endDate));
         
         report.put("year", year);
-        report.put("totalPatients", patientService.getTotalPatientCount());
-        report.put("newPatients", getNewPatientsCount(startDate, endDate));
-        report.put("totalAppointments", getAppointmentsCount(startDate, endDate));
-        report.put("totalPrescriptions", getPrescriptionsCount(startDate, endDate));
-        report.put("totalLabTests", getLabTestsCount(startDate, endDate));
+        report.put("totalPatients", (int) patientService.getTotalPatientCount());
+        report.put("newPatients", sum(newPatientsPerMonth));
+        report.put("totalAppointments", sum(appointmentsPerMonth));
+        report.put("totalPrescriptions", sum(prescriptionsPerMonth));
+        report.put("totalLabTests", sum(labTestsPerMonth));
         
         // Monthly breakdown
         Map<String, Integer> monthlyBreakdown = new HashMap<>();
         for (int month = 1; month <= 12; month++) {
-            LocalDate monthStart = LocalDate.of(year, month, 1);
-            LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
-            monthlyBreakdown.put("month_" + month, getNewPatientsCount(monthStart, monthEnd));
+            monthlyBreakdown.put("month_" + month, newPatientsPerMonth[month]);
         }
         report.put("monthlyNewPatients", monthlyBreakdown);
+        report.put("appointmentsPerMonth", toMonthMap(appointmentsPerMonth));
+        report.put("prescriptionsPerMonth", toMonthMap(prescriptionsPerMonth));
+        report.put("labTestsPerMonth", toMonthMap(labTestsPerMonth));
         
         return report;
     }
 
     private int getNewPatientsCount(LocalDate startDate, LocalDate endDate) {
-        // Implementation would query database for patients created between dates
-        return 0; // Placeholder
-    }
-
-    private int getAppointmentsCount(LocalDate startDate, LocalDate endDate) {
-        // Implementation would query database for appointments between dates
-        return 0; // Placeholder
+        return (int) patientService.countNewPatientsBetween(startDate, endDate);
     }
 
     private int getCompletedAppointmentsCount(LocalDate startDate, LocalDate endDate) {
-        // Implementation would query database for completed appointments between dates
-        return 0; // Placeholder
+        return (int) appointmentService.countByStatusBetween(AppointmentStatus.COMPLETED, startDate, endDate);
     }
 
     private int getPrescriptionsCount(LocalDate startDate, LocalDate endDate) {
-        return prescriptionService.getPrescriptionsByDateRange(startDate, endDate).size();
+        return (int) prescriptionService.countBetween(startDate, endDate);
     }
 
     private int getLabTestsCount(LocalDate startDate, LocalDate endDate) {
-        return labResultService.getLabResultsByDateRange(startDate, endDate).size();
+        return (int) labResultService.countBetween(startDate, endDate);
+    }
+
+    // Gộp các dòng GROUP BY thành mảng 13 phần tử, chỉ số = tháng (1-12)
+    private int[] toMonthlyArray(List<MonthlyCountDTO> rows) {
+        int[] counts = new int[13];
+        for (MonthlyCountDTO row : rows) {
+            if (row.getMonth() >= 1 && row.getMonth() <= 12) {
+                counts[row.getMonth()] += (int) row.getCount();
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Integer> sumByStatus(List<MonthlyCountDTO> rows) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (MonthlyCountDTO row : rows) {
+            if (row.getStatus() != null) {
+                counts.merge(row.getStatus(), (int) row.getCount(), Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private Map<Integer, Integer> toMonthMap(int[] monthlyCounts) {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int month = 1; month <= 12; month++) {
+            result.put(month, monthlyCounts[month]);
+        }
+        return result;
+    }
+
+    private int sum(int[] monthlyCounts) {
+        return Arrays.stream(monthlyCounts).sum();
     }
    public Map<String, Integer> getUserDistribution() {
     Map<String, Integer> distribution = new HashMap<>();
@@ -150,29 +202,30 @@ public Map<String, Object> getSystemActivityChartData(String period) {
 
     LocalDate today = LocalDate.now();
 
+    // Đọc từ bảng tổng hợp daily_stats: một truy vấn theo khoảng ngày cho mọi kỳ
     switch (period.toLowerCase()) {
         case "week":
-            for (int i = 6; i >= 0; i--) {
-                LocalDate date = today.minusDays(i);
-                labels.add(date.toString());
-                values.add(getAppointmentsCount(date, date)); // Số cuộc hẹn mỗi ngày
+            for (DailyStats day : dailyStatsService.getStats(today.minusDays(6), today)) {
+                labels.add(day.getStatDate().toString());
+                values.add((int) day.getTotalAppointments()); // Số cuộc hẹn mỗi ngày
             }
             break;
 
         case "month":
-            for (int i = 1; i <= today.lengthOfMonth(); i++) {
-                LocalDate date = today.withDayOfMonth(i);
-                labels.add(String.valueOf(i));
-                values.add(getAppointmentsCount(date, date));
+            for (DailyStats day : dailyStatsService.getStats(today.withDayOfMonth(1), today.withDayOfMonth(today.lengthOfMonth()))) {
+                labels.add(String.valueOf(day.getStatDate().getDayOfMonth()));
+                values.add((int) day.getTotalAppointments());
             }
             break;
 
         case "year":
+            int[] monthly = new int[13];
+            for (DailyStats day : dailyStatsService.getStats(LocalDate.of(today.getYear(), 1, 1), LocalDate.of(today.getYear(), 12, 31))) {
+                monthly[day.getStatDate().getMonthValue()] += (int) day.getTotalAppointments();
+            }
             for (int i = 1; i <= 12; i++) {
-                LocalDate monthStart = LocalDate.of(today.getYear(), i, 1);
-                LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
                 labels.add("Tháng " + i);
-                values.add(getAppointmentsCount(monthStart, monthEnd));
+                values.add(monthly[i]);
             }
             break;
 
@@ -1,79 +1,199 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.NotificationPurgeResult;
 import com.hivtreatment.entity.Appointment;
-import com.hivtreatment.entity.Prescription;
-import com.hivtreatment.enums.AppointmentStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 
+/**
+ * Các job định kỳ. Mọi instance đều kích hoạt @Scheduled, ClusterJobRunner đảm bảo
+ * mỗi job (hoặc mỗi phân vùng của job) chỉ được một node xử lý.
+ */
 @Service
 public class ScheduledTaskService {
 
+    public static final String APPOINTMENT_REMINDERS = "appointment-reminders";
+
+    private static final int REMINDER_BATCH_SIZE = 200;
+
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
     @Autowired
     private AppointmentService appointmentService;
 
     @Autowired
-    private PrescriptionService prescriptionService;
+    private MedicationReminderJob medicationReminderJob;
 
     @Autowired
     private NotificationService notificationService;
 
-    // Send appointment reminders every day at 8:00 AM
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @Autowired
+    private NotificationRetentionJob notificationRetentionJob;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private TestWorklistJob testWorklistJob;
+
+    // Send appointment reminders every day at 8:00 AM, split by patient partition across nodes
     @Scheduled(cron = "0 0 8 * * ?")
     public void sendAppointmentReminders() {
-        LocalDate tomorrow = LocalDate.now().plusDays(1);
-        List<Appointment> tomorrowAppointments = appointmentService.getAppointmentsByDate(tomorrow);
-        
-        for (Appointment appointment : tomorrowAppointments) {
-            if (appointment.getStatus() == AppointmentStatus.CONFIRMED) {
-                LocalDateTime appointmentDateTime = LocalDateTime.of(
-                    appointment.getAppointmentDate(), 
-                    appointment.getAppointmentTime()
-                );
-                
-                notificationService.sendAppointmentReminder(
-                    appointment.getPatient().getUser(),
-                    appointmentDateTime,
-                    appointment.getDoctor().getFullName()
-                );
-            }
-        }
+        clusterJobRunner.runPartitioned(APPOINTMENT_REMINDERS, LocalDate.now().toString(),
+                this::sendAppointmentRemindersForPartition);
     }
 
-    // Send medication reminders every day at 7:00 AM and 7:00 PM
+    // Send medication reminders every day at 7:00 AM and 7:00 PM (one digest per patient)
     @Scheduled(cron = "0 0 7,19 * * ?")
     public void sendMedicationReminders() {
-        List<Prescription> activePrescriptions = prescriptionService.getPrescriptionsByStatus("ACTIVE");
-        
-        for (Prescription prescription : activePrescriptions) {
-            // Check if prescription is still valid
-            if (prescription.getEndDate() == null || prescription.getEndDate().isAfter(LocalDate.now())) {
-                prescription.getPrescriptionMedications().forEach(prescriptionMedication -> {
-                    notificationService.sendMedicationReminder(
-                        prescription.getPatient().getUser(),
-                        prescriptionMedication.getMedication().getName()
-                    );
-                });
-            }
+        medicationReminderJob.run(LocalDateTime.now());
+    }
+
+    // Resume reminder runs interrupted by a restart, or partitions no node has picked up (default every 5 minutes)
+    @Scheduled(fixedDelayString = "${hiv.reminders.medication.resume-check-ms:300000}")
+    public void resumeInterruptedReminders() {
+        try {
+            medicationReminderJob.resumeInterrupted(LocalDateTime.now());
+            clusterJobRunner.resumeIncomplete(APPOINTMENT_REMINDERS, LocalDate.now().atStartOfDay(),
+                    this::sendAppointmentRemindersForPartition);
+        } catch (Exception e) {
+            System.err.println("Failed to resume reminders: " + e.getMessage());
         }
     }
 
-    // Clean up old notifications every week
-    @Scheduled(cron = "0 0 2 * * SUN")
+    // Refresh the daily_stats rollup for yesterday and today (default every 5 minutes), one node at a time
+    @Scheduled(fixedDelayString = "${hiv.stats.rollup-interval-ms:300000}")
+    public void rollupDailyStats() {
+        try {
+            clusterJobRunner.runExclusive("daily-stats-rollup", () -> dailyStatsService.rollupRecent());
+        } catch (Exception e) {
+            System.err.println("Failed to roll up daily stats: " + e.getMessage());
+        }
+    }
+
+    // Purge notifications past their per-type TTL every day at 2:00 AM
+    @Scheduled(cron = "0 0 2 * * ?")
     public void cleanupOldNotifications() {
-        // Implementation to delete notifications older than 30 days
-        // This would require additional repository methods
+        clusterJobRunner.runOnce("notification-cleanup", LocalDate.now().toString(), context -> {
+            NotificationPurgeResult result = notificationRetentionJob.purgeExpired(LocalDateTime.now());
+            context.saveCheckpoint(null, result.getTotalPurged());
+        });
+    }
+
+    // Dựng lại hàng đợi xét nghiệm CD4/tải lượng virus quá hạn mỗi đêm (mặc định 1:30 AM)
+    @Scheduled(cron = "${hiv.worklist.cron:0 30 1 * * ?}")
+    public void refreshTestWorklist() {
+        try {
+            testWorklistJob.run(LocalDate.now());
+        } catch (Exception e) {
+            System.err.println("Failed to refresh test worklist: " + e.getMessage());
+        }
+    }
+
+    // Tách chuỗi chuyên khoa cũ sang doctor_specializations một lần cho cả cụm, khi ứng dụng khởi động xong
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillDoctorSpecializations() {
+        try {
+            // v2: bản v1 dừng sớm khi gặp cả lô chuỗi chỉ có dấu phẩy, chạy lại để tách nốt phần còn lại
+            clusterJobRunner.runOnce("doctor-specialization-backfill", "v2", context -> {
+                long checkpoint = context.getCheckpoint() != null ? context.getCheckpoint() : 0L;
+                List<Long> ids;
+                while (!(ids = doctorService.backfillSpecializationEntries(checkpoint, BACKFILL_BATCH_SIZE)).isEmpty()) {
+                    checkpoint = ids.get(ids.size() - 1);
+                    context.saveCheckpoint(checkpoint, ids.size());
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to backfill doctor specializations: " + e.getMessage());
+        }
+    }
+
+    // Tạo latest_lab_results cho kết quả xét nghiệm có từ trước, một lần cho cả cụm
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillLatestLabResults() {
+        try {
+            clusterJobRunner.runOnce("latest-lab-results-backfill", "v1", context -> {
+                long total = 0;
+                int filled;
+                while ((filled = labResultService.backfillLatestLabResults(BACKFILL_BATCH_SIZE)) > 0) {
+                    total += filled;
+                }
+                context.saveCheckpoint(null, total);
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to backfill latest lab results: " + e.getMessage());
+        }
+    }
+
+    // Gán slot_key cho lịch hẹn có từ trước để ràng buộc UNIQUE giữ cả các khung đã đặt, một lần cho cả cụm
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAppointmentSlotKeys() {
+        try {
+            clusterJobRunner.runOnce("appointment-slot-key-backfill", "v1", context -> {
+                long checkpoint = context.getCheckpoint() != null ? context.getCheckpoint() : 0L;
+                List<Long> ids;
+                while (!(ids = appointmentService.backfillSlotKeys(checkpoint, BACKFILL_BATCH_SIZE)).isEmpty()) {
+                    checkpoint = ids.get(ids.size() - 1);
+                    context.saveCheckpoint(checkpoint, ids.size());
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to backfill appointment slot keys: " + e.getMessage());
+        }
     }
 
     // Generate monthly reports on the 1st of each month
     @Scheduled(cron = "0 0 6 1 * ?")
     public void generateMonthlyReports() {
-        // Implementation to generate and email monthly reports to administrators
-        // This would integrate with ReportService and email functionality
+        clusterJobRunner.runOnce("monthly-reports", YearMonth.now().toString(), context -> {
+            // Implementation to generate and email monthly reports to administrators
+            // This would integrate with ReportService and email functionality
+        });
+    }
+
+    // Nhắc lịch hẹn ngày mai cho một phân vùng bệnh nhân, lưu checkpoint theo appointment.id sau mỗi lô
+    private void sendAppointmentRemindersForPartition(JobContext context) {
+        LocalDate tomorrow = LocalDate.parse(context.getRunKey()).plusDays(1);
+        long checkpoint = context.getCheckpoint() != null ? context.getCheckpoint() : 0L;
+
+        while (true) {
+            List<Appointment> appointments = appointmentService.getAppointmentsForReminder(
+                    tomorrow, context.getPartition(), context.getPartitions(), checkpoint, REMINDER_BATCH_SIZE);
+            if (appointments.isEmpty()) break;
+
+            for (Appointment appointment : appointments) {
+                LocalDateTime appointmentDateTime = LocalDateTime.of(
+                    appointment.getAppointmentDate(),
+                    appointment.getAppointmentTime()
+                );
+
+                notificationService.sendAppointmentReminder(
+                    appointment.getPatient().getUser(),
+                    appointmentDateTime,
+                    appointment.getDoctor().getFullName()
+                );
+            }
+
+            checkpoint = appointments.get(appointments.size() - 1).getId();
+            context.saveCheckpoint(checkpoint, appointments.size());
+            if (appointments.size() < REMINDER_BATCH_SIZE) break;
+        }
     }
 }
@@ -0,0 +1,428 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.AvailableSlotDTO;
+import com.hivtreatment.dto.BookedSlotDTO;
+import com.hivtreatment.dto.SlotSummaryDTO;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.DoctorSchedule;
+import com.hivtreatment.entity.DoctorSpecialization;
+import com.hivtreatment.event.AppointmentSlotEvent;
+import com.hivtreatment.repository.AppointmentRepository;
+import com.hivtreatment.repository.DoctorRepository;
+import com.hivtreatment.repository.DoctorScheduleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Chỉ mục khung giờ trống của bác sĩ, giữ trong bộ nhớ.
+ *
+ * Mỗi ngày được chia thành các khung slot-minutes phút, biểu diễn bằng một bitmap {@code long}
+ * (tối đa 64 khung/ngày). Lịch làm việc tuần của bác sĩ là 7 bitmap; lịch hẹn đã đặt của mỗi
+ * bác sĩ-tuần là 7 bitmap khác, nạp một lần cho cả tuần rồi cập nhật từng bit qua AppointmentSlotEvent
+ * sau khi commit. Khung trống = lịch làm việc AND NOT đã đặt, nên tra cứu không chạm database.
+ *
+ * Chỉ mục chỉ thấy lịch hẹn ghi trên node này; refresh-ms định kỳ nạp lại để đồng bộ với các node khác.
+ */
+@Service
+public class SlotAvailabilityService {
+
+    @Autowired
+    private DoctorScheduleRepository doctorScheduleRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Value("${hiv.availability.slot-minutes:30}")
+    private int slotMinutes;
+
+    @Value("${hiv.availability.horizon-days:28}")
+    private int horizonDays;
+
+    // Tùy chọn: giờ làm việc giả định cho bác sĩ chưa có DoctorSchedule (ví dụ 08:00-17:00).
+    // Mặc định để trống: bác sĩ chưa có lịch làm việc thì không có khung trống nào
+    @Value("${hiv.availability.default-hours:}")
+    private String defaultHours;
+
+    @Value("${hiv.availability.default-days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}")
+    private String defaultDays;
+
+    private int slotsPerDay;
+
+    private volatile Directory directory;
+
+    // Lịch đã đặt theo tuần (khóa là thứ Hai đầu tuần); ghi dưới khóa của service
+    private final Map<LocalDate, WeekBookings> weeks = new ConcurrentHashMap<>();
+
+    // Vị trí hiện tại của từng lịch hẹn trong các tuần đã nạp, để hủy/đổi lịch biết bit nào cần xóa
+    private final Map<Long, SlotPosition> positions = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (slotMinutes <= 0 || 1440 % slotMinutes != 0 || 1440 / slotMinutes > Long.SIZE) {
+            throw new IllegalStateException("hiv.availability.slot-minutes phải là ước của 1440 và >= 24"
+                    + " (tối đa 64 khung/ngày): " + slotMinutes);
+        }
+        slotsPerDay = 1440 / slotMinutes;
+    }
+
+    // Nạp lại lịch làm việc và bỏ các tuần đã nạp (sẽ nạp lại khi cần)
+    @Scheduled(fixedDelayString = "${hiv.availability.refresh-ms:600000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Failed to refresh slot availability index: " + e.getMessage());
+        }
+    }
+
+    public synchronized void refresh() {
+        directory = loadDirectory();
+        weeks.clear();
+        positions.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAppointmentSlotChanged(AppointmentSlotEvent event) {
+        if (event.getAppointmentId() == null) return;
+
+        SlotPosition previous = positions.remove(event.getAppointmentId());
+        if (previous != null) {
+            WeekBookings week = weeks.get(previous.weekStart);
+            if (week != null) week.release(previous);
+        }
+
+        if (!event.isOccupying() || event.getDoctorId() == null || event.getDate() == null || event.getTime() == null) {
+            return;
+        }
+        LocalDate weekStart = weekStart(event.getDate());
+        WeekBookings week = weeks.get(weekStart);
+        // Tuần chưa nạp: khi nạp sẽ đọc từ database, đã gồm lịch hẹn này
+        if (week == null) return;
+
+        SlotPosition position = new SlotPosition(weekStart, event.getDoctorId(),
+                dayIndex(event.getDate()), slotIndex(event.getTime()));
+        week.occupy(position);
+        positions.put(event.getAppointmentId(), position);
+    }
+
+    /**
+     * Các khung giờ trống của một bác sĩ trong ngày (bỏ các khung đã qua nếu là hôm nay).
+     */
+    public List<LocalTime> getFreeSlots(Long doctorId, LocalDate date, LocalDateTime now) {
+        DoctorSlots doctor = directory().doctors.get(doctorId);
+        if (doctor == null) return Collections.emptyList();
+
+        long free = freeMask(doctor, date, now);
+        List<LocalTime> slots = new ArrayList<>(Long.bitCount(free));
+        for (long bits = free; bits != 0; bits &= bits - 1) {
+            slots.add(slotTime(Long.numberOfTrailingZeros(bits)));
+        }
+        return slots;
+    }
+
+    public LocalDateTime getNextFreeSlot(Long doctorId, LocalDateTime now) {
+        DoctorSlots doctor = directory().doctors.get(doctorId);
+        if (doctor == null) return null;
+
+        for (int day = 0; day <= horizonDays; day++) {
+            LocalDate date = now.toLocalDate().plusDays(day);
+            long free = freeMask(doctor, date, now);
+            if (free != 0) {
+                return date.atTime(slotTime(Long.numberOfTrailingZeros(free)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * N khung giờ trống sớm nhất của tất cả bác sĩ thuộc chuyên khoa (null = mọi chuyên khoa),
+     * sắp theo thời gian rồi theo bác sĩ. Duyệt từng ngày trên bitmap, không truy vấn bảng lịch hẹn.
+     */
+    public List<AvailableSlotDTO> findNextFreeSlots(String specialization, LocalDateTime now, int limit) {
+        Directory current = directory();
+        List<DoctorSlots> candidates = specialization == null || specialization.isBlank()
+                ? current.ordered
+                : current.bySpecialization.getOrDefault(DoctorSpecialization.normalize(specialization),
+                        Collections.emptyList());
+
+        if (candidates.isEmpty() || limit <= 0) return new ArrayList<>();
+        List<AvailableSlotDTO> result = new ArrayList<>(Math.min(limit, 64));
+
+        long[] masks = new long[candidates.size()];
+        for (int day = 0; day <= horizonDays && result.size() < limit; day++) {
+            LocalDate date = now.toLocalDate().plusDays(day);
+            long any = 0;
+            for (int i = 0; i < masks.length; i++) {
+                masks[i] = freeMask(candidates.get(i), date, now);
+                any |= masks[i];
+            }
+
+            for (long bits = any; bits != 0 && result.size() < limit; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                long bit = 1L << slot;
+                for (int i = 0; i < masks.length && result.size() < limit; i++) {
+                    if ((masks[i] & bit) != 0) {
+                        DoctorSlots doctor = candidates.get(i);
+                        result.add(new AvailableSlotDTO(doctor.id, doctor.name, doctor.specialization,
+                                date, slotTime(slot)));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tình trạng từng khung giờ trong ngày của cả phòng khám (các khung có ít nhất một bác sĩ làm việc).
+     */
+    public List<SlotSummaryDTO> getDaySummary(LocalDate date) {
+        Directory current = directory();
+        int[] scheduled = new int[slotsPerDay];
+        int[] free = new int[slotsPerDay];
+        int day = dayIndex(date);
+        WeekBookings week = week(weekStart(date));
+
+        for (DoctorSlots doctor : current.ordered) {
+            long working = doctor.weekly[day];
+            long open = working & ~week.booked(doctor.id, day);
+            for (long bits = working; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                scheduled[slot]++;
+                if ((open & (1L << slot)) != 0) free[slot]++;
+            }
+        }
+
+        List<SlotSummaryDTO> summary = new ArrayList<>();
+        for (int slot = 0; slot < slotsPerDay; slot++) {
+            if (scheduled[slot] > 0) {
+                summary.add(new SlotSummaryDTO(slotTime(slot), scheduled[slot], free[slot]));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Khung giờ chứa thời điểm này đã có lịch hẹn đang hiệu lực chưa (chỉ xét lịch đã đặt, không xét lịch làm việc).
+     */
+    public boolean isBooked(Long doctorId, LocalDate date, LocalTime time) {
+        return (week(weekStart(date)).booked(doctorId, dayIndex(date)) & (1L << slotIndex(time))) != 0;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    // --- NỘI BỘ ---
+
+    private long freeMask(DoctorSlots doctor, LocalDate date, LocalDateTime now) {
+        int day = dayIndex(date);
+        long working = doctor.weekly[day];
+        if (working == 0 || date.isBefore(now.toLocalDate())) return 0;
+
+        long free = working & ~week(weekStart(date)).booked(doctor.id, day);
+        if (date.equals(now.toLocalDate())) {
+            // Bỏ các khung đã bắt đầu
+            int minutes = now.getHour() * 60 + now.getMinute();
+            int firstSlot = (minutes + slotMinutes - 1) / slotMinutes;
+            free &= firstSlot >= Long.SIZE ? 0 : -1L << firstSlot;
+        }
+        return free;
+    }
+
+    private Directory directory() {
+        Directory current = directory;
+        if (current == null) {
+            synchronized (this) {
+                if (directory == null) directory = loadDirectory();
+                current = directory;
+            }
+        }
+        return current;
+    }
+
+    private WeekBookings week(LocalDate weekStart) {
+        WeekBookings week = weeks.get(weekStart);
+        if (week != null) return week;
+
+        synchronized (this) {
+            week = weeks.get(weekStart);
+            if (week != null) return week;
+
+            week = new WeekBookings();
+            List<BookedSlotDTO> booked = appointmentRepository.findBookedSlotsBetween(
+                    weekStart, weekStart.plusDays(6), AppointmentSlotEvent.OCCUPYING_STATUSES);
+            for (BookedSlotDTO slot : booked) {
+                SlotPosition position = new SlotPosition(weekStart, slot.getDoctorId(),
+                        dayIndex(slot.getAppointmentDate()), slotIndex(slot.getAppointmentTime()));
+                week.occupy(position);
+                positions.put(slot.getAppointmentId(), position);
+            }
+            weeks.put(weekStart, week);
+            return week;
+        }
+    }
+
+    private Directory loadDirectory() {
+        Map<Long, DoctorSlots> doctors = new LinkedHashMap<>();
+        for (DoctorSchedule schedule : doctorScheduleRepository.findActiveForAvailableDoctors()) {
+            DoctorSlots doctor = doctors.computeIfAbsent(schedule.getDoctor().getId(),
+                    id -> new DoctorSlots(schedule.getDoctor()));
+            doctor.weekly[schedule.getDayOfWeek().getValue() - 1] |=
+                    rangeMask(schedule.getStartTime(), schedule.getEndTime());
+        }
+
+        if (defaultHours != null && !defaultHours.isBlank()) {
+            String[] range = defaultHours.split("-");
+            long mask = rangeMask(LocalTime.parse(range[0].trim()), LocalTime.parse(range[1].trim()));
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            for (String day : defaultDays.split(",")) {
+                if (!day.isBlank()) days.add(DayOfWeek.valueOf(day.trim()));
+            }
+            for (Doctor doctor : doctorRepository.findByIsAvailableTrue()) {
+                if (doctors.containsKey(doctor.getId())) continue;
+                DoctorSlots slots = new DoctorSlots(doctor);
+                days.forEach(day -> slots.weekly[day.getValue() - 1] = mask);
+                doctors.put(doctor.getId(), slots);
+            }
+        }
+
+        List<DoctorSlots> ordered = new ArrayList<>(doctors.values());
+        ordered.sort((a, b) -> Long.compare(a.id, b.id));
+        Map<String, List<DoctorSlots>> bySpecialization = new HashMap<>();
+        for (DoctorSlots doctor : ordered) {
+            if (doctor.specialization == null) continue;
+            // Mỗi chuyên khoa trong chuỗi "A, B" là một khóa, chuẩn hóa như doctor_specializations
+            Set<String> keys = new HashSet<>();
+            for (String name : doctor.specialization.split(",")) {
+                String key = DoctorSpecialization.normalize(name);
+                if (!key.isEmpty() && keys.add(key)) {
+                    bySpecialization.computeIfAbsent(key, k -> new ArrayList<>()).add(doctor);
+                }
+            }
+        }
+
+        Map<Long, DoctorSlots> byId = new HashMap<>();
+        ordered.forEach(doctor -> byId.put(doctor.id, doctor));
+        return new Directory(byId, ordered, bySpecialization);
+    }
+
+    // Các khung nằm trọn trong [start, end)
+    private long rangeMask(LocalTime start, LocalTime end) {
+        int from = (start.getHour() * 60 + start.getMinute() + slotMinutes - 1) / slotMinutes;
+        int to = end.equals(LocalTime.MIDNIGHT) ? slotsPerDay : (end.getHour() * 60 + end.getMinute()) / slotMinutes;
+        long mask = 0;
+        for (int slot = from; slot < to; slot++) {
+            mask |= 1L << slot;
+        }
+        return mask;
+    }
+
+    private int slotIndex(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / slotMinutes;
+    }
+
+    private LocalTime slotTime(int slot) {
+        return LocalTime.MIDNIGHT.plusMinutes((long) slot * slotMinutes);
+    }
+
+    private static int dayIndex(LocalDate date) {
+        return date.getDayOfWeek().getValue() - 1;
+    }
+
+    private static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static class Directory {
+        private final Map<Long, DoctorSlots> doctors;
+        private final List<DoctorSlots> ordered;
+        private final Map<String, List<DoctorSlots>> bySpecialization;
+
+        Directory(Map<Long, DoctorSlots> doctors, List<DoctorSlots> ordered,
+                  Map<String, List<DoctorSlots>> bySpecialization) {
+            this.doctors = doctors;
+            this.ordered = ordered;
+            this.bySpecialization = bySpecialization;
+        }
+    }
+
+    private static class DoctorSlots {
+        private final Long id;
+        private final String name;
+        private final String specialization;
+        private final long[] weekly = new long[7];
+
+        DoctorSlots(Doctor doctor) {
+            this.id = doctor.getId();
+            this.name = "BS. " + doctor.getFirstName() + " " + doctor.getLastName();
+            this.specialization = doctor.getSpecialization();
+        }
+    }
+
+    private static class SlotPosition {
+        private final LocalDate weekStart;
+        private final Long doctorId;
+        private final int day;
+        private final int slot;
+
+        SlotPosition(LocalDate weekStart, Long doctorId, int day, int slot) {
+            this.weekStart = weekStart;
+            this.doctorId = doctorId;
+            this.day = day;
+            this.slot = slot;
+        }
+    }
+
+    // Lịch đã đặt của một tuần: bitmap đọc không khóa, bộ đếm (nhiều lịch trùng khung) chỉ ghi dưới khóa
+    private class WeekBookings {
+        private final Map<Long, AtomicLongArray> masks = new ConcurrentHashMap<>();
+        private final Map<Long, byte[]> counts = new HashMap<>();
+
+        long booked(Long doctorId, int day) {
+            AtomicLongArray mask = masks.get(doctorId);
+            return mask == null ? 0 : mask.get(day);
+        }
+
+        void occupy(SlotPosition position) {
+            byte[] count = counts.computeIfAbsent(position.doctorId, id -> new byte[7 * slotsPerDay]);
+            int index = position.day * slotsPerDay + position.slot;
+            if (count[index] < Byte.MAX_VALUE) count[index]++;
+            AtomicLongArray mask = masks.computeIfAbsent(position.doctorId, id -> new AtomicLongArray(7));
+            mask.set(position.day, mask.get(position.day) | (1L << position.slot));
+        }
+
+        void release(SlotPosition position) {
+            byte[] count = counts.get(position.doctorId);
+            if (count == null) return;
+            int index = position.day * slotsPerDay + position.slot;
+            if (count[index] > 0 && --count[index] == 0) {
+                AtomicLongArray mask = masks.get(position.doctorId);
+                mask.set(position.day, mask.get(position.day) & ~(1L << position.slot));
+            }
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.CursorPage;
 import com.hivtreatment.entity.SymptomReport;
 import com.hivtreatment.entity.Doctor;
 import com.hivtreatment.enums.ReportStatus;
 import com.hivtreatment.enums.SymptomSeverity;
+import com.hivtreatment.event.DashboardEvent;
+import com.hivtreatment.repository.KeysetPagination;
 import com.hivtreatment.repository.SymptomReportRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,11 +26,18 @@ import java.util.Optional;
 @Transactional
 public class SymptomReportService {
     
+    // Khóa keyset cho danh sách báo cáo: (createdAt, id)
+    private static final Sort KEYSET_SORT = KeysetPagination.keysetSort(SymptomReport.class,
+            Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    
     @Autowired
     private SymptomReportRepository symptomReportRepository;
     
     @Autowired
     private NotificationService notificationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     
     public SymptomReport createReport(SymptomReport report) {
         report.setCreatedAt(LocalDateTime.now());
@@ -45,6 +59,7 @@ public class SymptomReportService {
         // Send notification to doctor if urgent
         if (savedReport.isUrgent()) {
             notificationService.notifyDoctorOfUrgentSymptomReport(savedReport);
+            eventPublisher.publishEvent(DashboardEvent.urgentSymptom(savedReport));
         }
         
         return savedReport;
@@ -77,6 +92,29 @@ public class SymptomReportService {
         return symptomReportRepository.findBySeverityOrderByCreatedAtDesc(severity, pageable);
     }
     
+    /**
+     * Danh sách báo cáo theo keyset; các bộ lọc có thể null và được kết hợp với nhau.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<SymptomReport> scrollReports(ReportStatus status, SymptomSeverity severity, Long patientId, Long doctorId,
+                                                   String after, String before, int size, boolean countTotal) {
+        List<Specification<SymptomReport>> filters = new ArrayList<>();
+        if (status != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+        if (severity != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("severity"), severity));
+        }
+        if (patientId != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("patient").get("id"), patientId));
+        }
+        if (doctorId != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("patient").get("doctor").get("id"), doctorId));
+        }
+        return KeysetPagination.scroll(symptomReportRepository, Specification.allOf(filters),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+    
     public List<SymptomReport> getUrgentReports() {
         return symptomReportRepository.findUrgentReports();
     }
@@ -0,0 +1,54 @@
+package com.hivtreatment.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Job hằng đêm dựng lại hàng đợi xét nghiệm quá hạn. Một node chạy cho mỗi ngày; bệnh nhân có hồ sơ HIV
+ * được duyệt theo keyset patient.id, mỗi lô tính lại hàng đợi và gửi nhắc bệnh nhân trong transaction riêng,
+ * checkpoint sau mỗi lô để chạy tiếp khi bị gián đoạn. Cuối lượt, mỗi bác sĩ nhận một thông báo tổng hợp.
+ */
+@Service
+public class TestWorklistJob {
+
+    public static final String JOB_NAME = "test-worklist";
+
+    @Autowired
+    private TestWorklistService testWorklistService;
+
+    @Autowired
+    private ClusterJobRunner clusterJobRunner;
+
+    @Value("${hiv.worklist.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Chạy job cho ngày today; trả về số xét nghiệm quá hạn (0 nếu node khác đã/đang chạy).
+     */
+    public long run(LocalDate today) {
+        return clusterJobRunner.runOnce(JOB_NAME, today.toString(), context -> {
+            LocalDate runDate = LocalDate.parse(context.getRunKey());
+            LocalDateTime startedAt = LocalDateTime.now();
+            long checkpoint = context.getCheckpoint() != null ? context.getCheckpoint() : 0L;
+
+            while (true) {
+                List<Long> patientIds = testWorklistService.findPatientIdsAfter(checkpoint, batchSize);
+                if (patientIds.isEmpty()) break;
+
+                int overdue = testWorklistService.refreshPatients(patientIds, runDate);
+                testWorklistService.sendPatientReminders(patientIds, LocalDateTime.now());
+                checkpoint = patientIds.get(patientIds.size() - 1);
+                context.saveCheckpoint(checkpoint, overdue);
+                if (patientIds.size() < batchSize) break;
+            }
+
+            testWorklistService.deleteItemsWithoutProfile();
+            testWorklistService.sendDoctorDigests(startedAt);
+        });
+    }
+}
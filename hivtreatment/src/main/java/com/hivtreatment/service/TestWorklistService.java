@@ -0,0 +1,280 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.WorklistCountDTO;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.HIVPatientProfile;
+import com.hivtreatment.entity.LatestLabResult;
+import com.hivtreatment.entity.TestWorklistItem;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.event.LatestLabResultChangedEvent;
+import com.hivtreatment.repository.DoctorRepository;
+import com.hivtreatment.repository.HIVPatientProfileRepository;
+import com.hivtreatment.repository.KeysetPagination;
+import com.hivtreatment.repository.LatestLabResultRepository;
+import com.hivtreatment.repository.TestWorklistItemRepository;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Hàng đợi xét nghiệm CD4/tải lượng virus quá hạn theo bác sĩ (bảng test_worklist_items).
+ *
+ * Hạn xét nghiệm = ngày xét nghiệm gần nhất + chu kỳ của loại xét nghiệm; bệnh nhân chưa từng xét nghiệm
+ * đến hạn từ ngày bắt đầu ARV (hoặc ngày chẩn đoán). Ngày xét nghiệm gần nhất lấy từ latest_lab_results,
+ * hoặc từ hồ sơ HIV nếu kết quả không được nhập vào hệ thống. Điểm nguy cơ cộng dồn từ: chưa từng xét nghiệm,
+ * tải lượng virus chưa ức chế, CD4 thấp và kháng thuốc.
+ *
+ * TestWorklistJob dựng lại toàn bộ bảng mỗi đêm theo lô bệnh nhân; giữa hai lần chạy, mỗi lần thêm/sửa/xóa
+ * kết quả CD4 hoặc tải lượng virus cập nhật dòng của bệnh nhân đó trong cùng transaction.
+ */
+@Service
+@Transactional
+public class TestWorklistService {
+
+    public static final String CD4 = "CD4";
+    public static final String VIRAL_LOAD = "VIRAL_LOAD";
+    public static final List<String> TRACKED_TESTS = List.of(CD4, VIRAL_LOAD);
+
+    // Quá hạn lâu nhất trước, cùng ngày thì nguy cơ cao trước
+    private static final Sort WORKLIST_SORT = KeysetPagination.keysetSort(TestWorklistItem.class,
+            Sort.Order.asc("dueDate"), Sort.Order.desc("riskScore"), Sort.Order.asc("id"));
+
+    @Autowired
+    private TestWorklistItemRepository testWorklistItemRepository;
+
+    @Autowired
+    private HIVPatientProfileRepository hivPatientProfileRepository;
+
+    @Autowired
+    private LatestLabResultRepository latestLabResultRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Value("${hiv.worklist.cd4-interval-months:6}")
+    private int cd4IntervalMonths;
+
+    @Value("${hiv.worklist.viral-load-interval-months:6}")
+    private int viralLoadIntervalMonths;
+
+    @Value("${hiv.worklist.remind-every-days:30}")
+    private int remindEveryDays;
+
+    @Value("${hiv.cohort.suppressed-below:1000}")
+    private BigDecimal suppressedBelow;
+
+    // --- HÀNG ĐỢI ---
+
+    /**
+     * Hàng đợi theo keyset (dueDate, riskScore, id). doctorId null và unassignedOnly = false: mọi bác sĩ.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TestWorklistItem> getWorklist(Long doctorId, boolean unassignedOnly, String testType,
+                                                    String after, String before, int size, boolean countTotal) {
+        List<Specification<TestWorklistItem>> filters = new ArrayList<>();
+        if (doctorId != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("doctor").get("id"), doctorId));
+        } else if (unassignedOnly) {
+            filters.add((root, query, cb) -> cb.isNull(root.get("doctor")));
+        }
+        if (testType != null && !testType.isEmpty()) {
+            filters.add((root, query, cb) -> cb.equal(root.get("testType"), testType));
+        }
+        // Nạp bệnh nhân cùng trang để hiển thị tên, mã; bỏ qua với câu COUNT
+        filters.add((root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("patient", JoinType.INNER);
+            }
+            return null;
+        });
+        return KeysetPagination.scroll(testWorklistItemRepository, Specification.allOf(filters),
+                WORKLIST_SORT, after, before, size, countTotal);
+    }
+
+    @Transactional(readOnly = true)
+    public long countForDoctor(Long doctorId) {
+        return testWorklistItemRepository.countByDoctorId(doctorId);
+    }
+
+    // --- CẬP NHẬT ---
+
+    @Transactional(readOnly = true)
+    public List<Long> findPatientIdsAfter(Long afterPatientId, int limit) {
+        return hivPatientProfileRepository.findPatientIdsAfter(afterPatientId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Tính lại hàng đợi của các bệnh nhân tại ngày today; trả về số xét nghiệm quá hạn của các bệnh nhân này.
+     */
+    public int refreshPatients(List<Long> patientIds, LocalDate today) {
+        if (patientIds.isEmpty()) return 0;
+
+        Map<Long, HIVPatientProfile> profiles = hivPatientProfileRepository
+                .findWithPatientAndDoctorByPatientIds(patientIds).stream()
+                .collect(Collectors.toMap(profile -> profile.getPatient().getId(), Function.identity()));
+        Map<String, LatestLabResult> latest = latestLabResultRepository
+                .findByPatientsAndTestTypes(patientIds, TRACKED_TESTS).stream()
+                .collect(Collectors.toMap(result -> key(result.getPatient().getId(), result.getTestType()),
+                        Function.identity()));
+        Map<String, TestWorklistItem> existing = new HashMap<>();
+        for (TestWorklistItem item : testWorklistItemRepository.findByPatientIds(patientIds)) {
+            existing.put(key(item.getPatient().getId(), item.getTestType()), item);
+        }
+
+        int overdue = 0;
+        for (Long patientId : patientIds) {
+            HIVPatientProfile profile = profiles.get(patientId);
+            if (profile == null) continue;
+            int riskScore = riskScore(profile, latest.get(key(patientId, CD4)), latest.get(key(patientId, VIRAL_LOAD)));
+            for (String testType : TRACKED_TESTS) {
+                TestWorklistItem item = existing.remove(key(patientId, testType));
+                LatestLabResult lastResult = latest.get(key(patientId, testType));
+                LocalDate lastTestDate = lastTestDate(profile, testType, lastResult);
+                LocalDate dueDate = dueDate(profile, testType, lastTestDate);
+
+                if (dueDate.isAfter(today)) {
+                    if (item != null) testWorklistItemRepository.delete(item);
+                    continue;
+                }
+                if (item == null) {
+                    item = new TestWorklistItem(profile.getPatient(), testType);
+                }
+                item.setDoctor(profile.getPatient().getDoctor());
+                item.setLastTestDate(lastTestDate);
+                item.setDueDate(dueDate);
+                item.setRiskScore(riskScore + (lastTestDate == null ? 3 : 0));
+                testWorklistItemRepository.save(item);
+                overdue++;
+            }
+        }
+        // Còn lại: bệnh nhân không còn hồ sơ HIV
+        testWorklistItemRepository.deleteAll(existing.values());
+        return overdue;
+    }
+
+    // Kết quả CD4/tải lượng virus vừa thay đổi: tính lại cả hai dòng vì điểm nguy cơ phụ thuộc cả hai
+    @EventListener
+    public void onLatestLabResultChanged(LatestLabResultChangedEvent event) {
+        if (event.getPatientId() != null && TRACKED_TESTS.contains(event.getTestType())) {
+            refreshPatients(List.of(event.getPatientId()), LocalDate.now());
+        }
+    }
+
+    public int deleteItemsWithoutProfile() {
+        return testWorklistItemRepository.deleteWithoutProfile();
+    }
+
+    // --- NHẮC NHỞ ---
+
+    /**
+     * Mỗi bệnh nhân có xét nghiệm quá hạn chưa được nhắc (hoặc nhắc đã quá remind-every-days ngày) nhận một
+     * thông báo liệt kê các xét nghiệm đó. Trả về số bệnh nhân đã nhắc.
+     */
+    public int sendPatientReminders(List<Long> patientIds, LocalDateTime now) {
+        if (patientIds.isEmpty()) return 0;
+
+        Map<Long, List<TestWorklistItem>> itemsByPatient = new LinkedHashMap<>();
+        for (TestWorklistItem item : testWorklistItemRepository.findDueForReminder(patientIds, now.minusDays(remindEveryDays))) {
+            itemsByPatient.computeIfAbsent(item.getPatient().getId(), id -> new ArrayList<>()).add(item);
+        }
+        for (List<TestWorklistItem> items : itemsByPatient.values()) {
+            User user = items.get(0).getPatient().getUser();
+            notificationService.sendOverdueTestReminder(user, items.stream()
+                    .map(item -> displayName(item.getTestType())).toList());
+            items.forEach(item -> item.setNotifiedAt(now));
+        }
+        return itemsByPatient.size();
+    }
+
+    /**
+     * Một thông báo tổng hợp cho mỗi bác sĩ có xét nghiệm quá hạn; "mới" là các dòng được nhắc từ since.
+     */
+    public int sendDoctorDigests(LocalDateTime since) {
+        List<WorklistCountDTO> counts = testWorklistItemRepository.countByDoctor(since);
+        Map<Long, Doctor> doctors = doctorRepository.findAllById(
+                        counts.stream().map(WorklistCountDTO::getDoctorId).toList()).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+
+        int sent = 0;
+        for (WorklistCountDTO count : counts) {
+            Doctor doctor = doctors.get(count.getDoctorId());
+            if (doctor == null || doctor.getUser() == null) continue;
+            notificationService.sendTestWorklistDigest(doctor.getUser(), count.getTotal(), count.getNewlyNotified());
+            sent++;
+        }
+        return sent;
+    }
+
+    // --- QUY TẮC ---
+
+    private LocalDate lastTestDate(HIVPatientProfile profile, String testType, LatestLabResult lastResult) {
+        LocalDate fromLab = lastResult != null ? lastResult.getTestDate() : null;
+        LocalDate fromProfile = CD4.equals(testType) ? profile.getLastCD4TestDate() : profile.getLastViralLoadTestDate();
+        if (fromLab == null) return fromProfile;
+        if (fromProfile == null) return fromLab;
+        return fromLab.isAfter(fromProfile) ? fromLab : fromProfile;
+    }
+
+    private LocalDate dueDate(HIVPatientProfile profile, String testType, LocalDate lastTestDate) {
+        if (lastTestDate != null) {
+            return lastTestDate.plusMonths(CD4.equals(testType) ? cd4IntervalMonths : viralLoadIntervalMonths);
+        }
+        if (profile.getArtStartDate() != null) return profile.getArtStartDate();
+        if (profile.getHivDiagnosisDate() != null) return profile.getHivDiagnosisDate();
+        return profile.getCreatedAt() != null ? profile.getCreatedAt().toLocalDate() : LocalDate.now();
+    }
+
+    // Điểm nguy cơ của bệnh nhân (chưa gồm điểm "chưa từng xét nghiệm" của từng loại)
+    private int riskScore(HIVPatientProfile profile, LatestLabResult cd4, LatestLabResult viralLoad) {
+        int score = 0;
+        BigDecimal viralLoadValue = viralLoad != null && viralLoad.getResultValue() != null
+                ? viralLoad.getResultValue()
+                : profile.getCurrentViralLoad() != null ? BigDecimal.valueOf(profile.getCurrentViralLoad()) : null;
+        if (viralLoadValue != null && viralLoadValue.compareTo(suppressedBelow) >= 0) {
+            score += 3;
+        }
+        BigDecimal cd4Value = cd4 != null && cd4.getResultValue() != null
+                ? cd4.getResultValue()
+                : profile.getCurrentCD4Count() != null ? BigDecimal.valueOf(profile.getCurrentCD4Count()) : null;
+        if (cd4Value != null) {
+            if (cd4Value.compareTo(BigDecimal.valueOf(200)) < 0) {
+                score += 3;
+            } else if (cd4Value.compareTo(BigDecimal.valueOf(350)) < 0) {
+                score += 1;
+            }
+        }
+        if (Boolean.TRUE.equals(profile.getHasDrugResistance())) {
+            score += 2;
+        }
+        return score;
+    }
+
+    public static String displayName(String testType) {
+        return VIRAL_LOAD.equals(testType) ? "Tải lượng virus" : testType;
+    }
+
+    private static String key(Long patientId, String testType) {
+        return patientId + ":" + testType;
+    }
+}
@@ -0,0 +1,93 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ đếm thông báo chưa đọc theo người dùng, giữ trong bộ nhớ để API polling không phải COUNT mỗi lần.
+ *
+ * Giá trị được nạp từ database khi chưa có, sau đó cộng/trừ khi tạo hoặc đánh dấu đã đọc.
+ * Thay đổi chỉ áp dụng sau khi transaction commit. Mỗi giá trị hết hạn sau ttl-seconds để
+ * các node khác trong cluster (không thấy thay đổi của nhau) tự đồng bộ lại.
+ */
+@Component
+public class UnreadNotificationCounter {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${hiv.notifications.unread-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${hiv.notifications.unread-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<Long, CachedCount> counts = new ConcurrentHashMap<>();
+
+    public long get(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = counts.get(userId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.value;
+        }
+
+        if (counts.size() >= maxEntries) {
+            counts.values().removeIf(c -> c.expiresAt <= now);
+            if (counts.size() >= maxEntries) counts.clear();
+        }
+        long value = notificationRepository.countByUserIdAndIsReadFalse(userId);
+        counts.put(userId, new CachedCount(value, now + ttlSeconds * 1000));
+        return value;
+    }
+
+    public void increment(Long userId) {
+        afterCommit(() -> counts.computeIfPresent(userId, (id, c) -> c.plus(1)));
+    }
+
+    public void decrement(Long userId) {
+        afterCommit(() -> counts.computeIfPresent(userId, (id, c) -> c.plus(-1)));
+    }
+
+    // Sau markAllAsRead: biết chắc giá trị là 0, không cần đếm lại
+    public void reset(Long userId) {
+        afterCommit(() -> counts.put(userId, new CachedCount(0, System.currentTimeMillis() + ttlSeconds * 1000)));
+    }
+
+    public void evict(Long userId) {
+        afterCommit(() -> counts.remove(userId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class CachedCount {
+        private final long value;
+        private final long expiresAt;
+
+        CachedCount(long value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        CachedCount plus(long delta) {
+            return new CachedCount(Math.max(0, value + delta), expiresAt);
+        }
+    }
+}
@@ -1,20 +1,26 @@
 package com.hivtreatment.service;
 
+import com.hivtreatment.dto.CursorPage;
 import com.hivtreatment.entity.User;
 import com.hivtreatment.enums.UserRole;
 import com.hivtreatment.entity.UserActivity;
+import com.hivtreatment.repository.KeysetPagination;
 import com.hivtreatment.repository.UserActivityRepository;
 import com.hivtreatment.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +28,10 @@ import java.util.Optional;
 @Transactional
 public class UserService {
 
+    // Khóa keyset cho danh sách người dùng: id (users.created_at cho phép NULL nên không dùng làm khóa).
+    // Trang OFFSET (?page=N) cũng sắp theo thứ tự này để tiếp nối trang keyset
+    public static final Sort KEYSET_SORT = KeysetPagination.keysetSort(User.class, Sort.Order.desc("id"));
+
     @Autowired
     private UserRepository userRepository;
 
@@ -64,6 +74,20 @@ public class UserService {
         return userRepository.findByIsActive(isActive, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<User> scrollUsers(UserRole role, Boolean isActive,
+                                        String after, String before, int size, boolean countTotal) {
+        List<Specification<User>> filters = new ArrayList<>();
+        if (role != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("role"), role));
+        }
+        if (isActive != null) {
+            filters.add((root, query, cb) -> cb.equal(root.get("isActive"), isActive));
+        }
+        return KeysetPagination.scroll(userRepository, Specification.allOf(filters),
+                KEYSET_SORT, after, before, size, countTotal);
+    }
+
     public Page<User> searchUsers(String keyword, Pageable pageable) {
         return userRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase(keyword, keyword, pageable);
     }
@@ -81,7 +105,7 @@ public class UserService {
         YearMonth currentMonth = YearMonth.now();
         LocalDate start = currentMonth.atDay(1);
         LocalDate end = currentMonth.atEndOfMonth();
-        return userRepository.countByCreatedDateBetween(start, end);
+        return userRepository.countByCreatedAtBetween(start.atStartOfDay(), end.atTime(LocalTime.MAX));
     }
 
     public User createUser(User user) {
@@ -0,0 +1,217 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.repository.BlogPostRepository;
+import com.hivtreatment.repository.EducationalResourceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Bộ đếm lượt xem/lượt tải ghi trễ (write-behind).
+ *
+ * Mỗi lượt xem chỉ cộng vào một LongAdder trong bộ nhớ; flush-ms định kỳ ghi phần chênh lệch bằng
+ * UPDATE ... SET view_count = view_count + ? (gộp các id có cùng chênh lệch vào một câu IN), nên
+ * không còn đọc rồi lưu cả dòng (kèm cột LONGTEXT) cho mỗi lượt xem và không mất lượt khi xem đồng thời.
+ * Lượt chưa ghi được flush khi tắt ứng dụng; nếu node chết đột ngột thì mất tối đa flush-ms lượt xem.
+ *
+ * Phần chênh lệch đã ghi cũng được cộng vào các ô thời gian bucket-minutes phút để xếp hạng
+ * tài liệu thịnh hành trong window-hours giờ gần nhất (theo lượt xem/tải trên node này).
+ */
+@Service
+public class ViewCounterService {
+
+    // Số id tối đa trong một mệnh đề IN
+    private static final int MAX_IDS_PER_UPDATE = 500;
+
+    @Autowired
+    private BlogPostRepository blogPostRepository;
+
+    @Autowired
+    private EducationalResourceRepository educationalResourceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${hiv.counters.trending.window-hours:24}")
+    private int trendingWindowHours;
+
+    @Value("${hiv.counters.trending.bucket-minutes:60}")
+    private int trendingBucketMinutes;
+
+    private final Map<Long, LongAdder> blogViews = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> resourceViews = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> resourceDownloads = new ConcurrentHashMap<>();
+
+    // Các ô thời gian cũ nhất ở đầu; chỉ truy cập dưới khóa trendingBuckets
+    private final Deque<TrendingBucket> trendingBuckets = new ArrayDeque<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public void recordBlogView(Long postId) {
+        increment(blogViews, postId);
+    }
+
+    public void recordResourceView(Long resourceId) {
+        increment(resourceViews, resourceId);
+    }
+
+    public void recordResourceDownload(Long resourceId) {
+        increment(resourceDownloads, resourceId);
+    }
+
+    /**
+     * Ghi các lượt xem/tải đang chờ xuống database. Trả về số lượt đã ghi.
+     */
+    @Scheduled(fixedDelayString = "${hiv.counters.flush-ms:10000}")
+    public synchronized long flush() {
+        long written = 0;
+        written += flush(blogViews, blogPostRepository::addViewCount, null);
+        Map<Long, Long> trending = new HashMap<>();
+        written += flush(resourceViews, educationalResourceRepository::addViewCount, trending);
+        written += flush(resourceDownloads, educationalResourceRepository::addDownloadCount, trending);
+        if (!trending.isEmpty()) {
+            addTrending(trending, System.currentTimeMillis());
+        }
+        return written;
+    }
+
+    public long getPendingCount() {
+        return pending(blogViews) + pending(resourceViews) + pending(resourceDownloads);
+    }
+
+    /**
+     * Id tài liệu có nhiều lượt xem + tải nhất trong cửa sổ gần đây, giảm dần.
+     */
+    public List<Long> getTrendingResourceIds(int limit) {
+        return getTrendingResourceIds(limit, System.currentTimeMillis());
+    }
+
+    List<Long> getTrendingResourceIds(int limit, long nowMillis) {
+        Map<Long, Long> totals = new HashMap<>();
+        synchronized (trendingBuckets) {
+            expireBuckets(nowMillis);
+            for (TrendingBucket bucket : trendingBuckets) {
+                bucket.counts.forEach((id, count) -> totals.merge(id, count, Long::sum));
+            }
+        }
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    void addTrending(Map<Long, Long> counts, long nowMillis) {
+        long bucketMillis = trendingBucketMinutes * 60_000L;
+        long bucketStart = nowMillis - nowMillis % bucketMillis;
+        synchronized (trendingBuckets) {
+            expireBuckets(nowMillis);
+            TrendingBucket current = trendingBuckets.peekLast();
+            if (current == null || current.start != bucketStart) {
+                current = new TrendingBucket(bucketStart);
+                trendingBuckets.addLast(current);
+            }
+            for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+                current.counts.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+    }
+
+    private void expireBuckets(long nowMillis) {
+        long windowStart = nowMillis - trendingWindowHours * 3_600_000L;
+        while (!trendingBuckets.isEmpty() && trendingBuckets.peekFirst().start + trendingBucketMinutes * 60_000L <= windowStart) {
+            trendingBuckets.removeFirst();
+        }
+    }
+
+    private static void increment(Map<Long, LongAdder> counters, Long id) {
+        if (id == null) return;
+        counters.computeIfAbsent(id, key -> new LongAdder()).increment();
+    }
+
+    private static long pending(Map<Long, LongAdder> counters) {
+        long total = 0;
+        for (LongAdder adder : counters.values()) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Lấy phần đếm hiện có của từng id (trừ đúng phần đã lấy, lượt cộng đồng thời vẫn giữ lại),
+     * gộp theo chênh lệch rồi ghi trong một transaction. Lỗi thì trả phần đã lấy về bộ đếm để lần sau ghi lại.
+     */
+    private long flush(Map<Long, LongAdder> counters, BiFunction<Collection<Long>, Long, Integer> update,
+                       Map<Long, Long> trending) {
+        Map<Long, Long> drained = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+            LongAdder adder = entry.getValue();
+            long count = adder.sum();
+            // Không xóa bộ đếm về 0 khỏi map: luồng khác có thể đang giữ nó để cộng tiếp.
+            // Số khóa bị chặn bởi số bài viết/tài liệu vì chỉ id đã tìm thấy mới được ghi nhận
+            if (count == 0) continue;
+            adder.add(-count);
+            drained.put(entry.getKey(), count);
+        }
+        if (drained.isEmpty()) return 0;
+
+        // Phần lớn id có cùng chênh lệch nhỏ (1, 2, 3...) nên số câu UPDATE thấp hơn nhiều so với số id
+        Map<Long, List<Long>> idsByDelta = new TreeMap<>();
+        drained.forEach((id, count) -> idsByDelta.computeIfAbsent(count, key -> new ArrayList<>()).add(id));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Map.Entry<Long, List<Long>> entry : idsByDelta.entrySet()) {
+                    List<Long> ids = entry.getValue();
+                    for (int from = 0; from < ids.size(); from += MAX_IDS_PER_UPDATE) {
+                        update.apply(ids.subList(from, Math.min(from + MAX_IDS_PER_UPDATE, ids.size())), entry.getKey());
+                    }
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to flush view counters: " + e.getMessage());
+            drained.forEach((id, count) -> counters.computeIfAbsent(id, key -> new LongAdder()).add(count));
+            return 0;
+        }
+
+        if (trending != null) {
+            drained.forEach((id, count) -> trending.merge(id, count, Long::sum));
+        }
+        return drained.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static class TrendingBucket {
+        final long start;
+        final Map<Long, Long> counts = new HashMap<>();
+
+        TrendingBucket(long start) {
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.hivtreatment.repository;
+
+import com.hivtreatment.dto.AppointmentSummaryDTO;
+import com.hivtreatment.entity.*;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đếm số câu SQL mà dữ liệu của mỗi dashboard cần, bằng Hibernate statistics trên H2.
+ * Số câu phải cố định, không tăng theo số lịch hẹn / đơn thuốc / xét nghiệm.
+ */
+class DashboardQueryCountTest {
+
+    private static final int APPOINTMENTS_TODAY = 30;
+
+    private static SessionFactory sessionFactory;
+
+    private EntityManager entityManager;
+    private Statistics statistics;
+
+    private AppointmentRepository appointmentRepository;
+    private PrescriptionRepository prescriptionRepository;
+    private LabResultRepository labResultRepository;
+    private PatientRepository patientRepository;
+
+    private Doctor doctor;
+    private Patient patient;
+
+    @BeforeAll
+    static void buildSessionFactory() throws ClassNotFoundException {
+        Configuration configuration = new Configuration();
+        configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:dashboard;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        configuration.setProperty("jakarta.persistence.validation.mode", "none");
+
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (BeanDefinition entity : scanner.findCandidateComponents("com.hivtreatment.entity")) {
+            configuration.addAnnotatedClass(Class.forName(entity.getBeanClassName()));
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        entityManager = sessionFactory.createEntityManager();
+        JpaRepositoryFactory factory = new JpaRepositoryFactory(entityManager);
+        appointmentRepository = factory.getRepository(AppointmentRepository.class);
+        prescriptionRepository = factory.getRepository(PrescriptionRepository.class);
+        labResultRepository = factory.getRepository(LabResultRepository.class);
+        patientRepository = factory.getRepository(PatientRepository.class);
+
+        entityManager.getTransaction().begin();
+        seedClinic();
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManager.getTransaction().begin();
+        for (String entity : List.of("PrescriptionMedication", "Prescription", "LabResult", "Appointment",
+                "Medication", "Patient", "Doctor", "User")) {
+            entityManager.createQuery("DELETE FROM " + entity).executeUpdate();
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @Test
+    void lazyDayViewTriggersNPlusOne() {
+        // Đối chứng: finder cũ nạp bệnh nhân từng dòng một
+        List<Appointment> appointments = appointmentRepository.findByDoctorIdAndAppointmentDate(doctor.getId(), LocalDate.now());
+        appointments.forEach(a -> a.getPatient().getFullName());
+
+        assertThat(appointments).hasSize(APPOINTMENTS_TODAY);
+        assertThat(statistics.getPrepareStatementCount()).isGreaterThan(APPOINTMENTS_TODAY);
+    }
+
+    @Test
+    void doctorDashboardUsesFixedQueryCount() {
+        List<Appointment> todayAppointments = appointmentRepository
+                .findWithPatientByDoctorIdAndAppointmentDateOrderByAppointmentTimeAsc(doctor.getId(), LocalDate.now());
+        for (Appointment appointment : todayAppointments) {
+            appointment.getPatient().getFullName();
+            appointment.getPatient().getUser().getEmail();
+        }
+
+        List<Patient> recentPatients = patientRepository.findRecentWithUserByDoctorId(doctor.getId(), PageRequest.of(0, 5));
+        recentPatients.forEach(p -> p.getUser().getEmail());
+
+        assertThat(todayAppointments).hasSize(APPOINTMENTS_TODAY);
+        assertThat(recentPatients).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void patientDashboardUsesFixedQueryCount() {
+        LocalDate today = LocalDate.now();
+
+        List<Appointment> upcoming = appointmentRepository
+                .findWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
+                        patient.getId(), today, AppointmentStatus.CONFIRMED);
+        upcoming.forEach(a -> a.getDoctor().getUser().getEmail());
+
+        appointmentRepository
+                .findFirstWithDoctorByPatientIdAndAppointmentDateAfterAndStatusOrderByAppointmentDateAsc(
+                        patient.getId(), today, AppointmentStatus.CONFIRMED)
+                .map(a -> a.getDoctor().getFullName());
+
+        List<Prescription> prescriptions = prescriptionRepository.findActiveWithDetailsByPatient(patient.getId());
+        for (Prescription prescription : prescriptions) {
+            prescription.getDoctor().getFullName();
+            prescription.getPrescriptionMedications().forEach(pm -> pm.getMedication().getName());
+        }
+
+        List<LabResult> labResults = labResultRepository.findRecentWithDoctorByPatient(patient.getId(), PageRequest.of(0, 5));
+        labResults.forEach(l -> l.getDoctor().getFullName());
+
+        List<AppointmentSummaryDTO> timeline = appointmentRepository.findRecentSummariesByPatientId(
+                patient.getId(), PageRequest.of(0, 3));
+
+        assertThat(upcoming).hasSize(5);
+        assertThat(prescriptions).hasSize(4);
+        assertThat(labResults).hasSize(5);
+        assertThat(timeline).hasSize(3);
+        assertThat(timeline.get(0).getDoctorName()).startsWith("BS. ");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+    }
+
+    // --- DỮ LIỆU MẪU ---
+
+    private void seedClinic() {
+        doctor = persistDoctor(0);
+        List<Doctor> otherDoctors = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            otherDoctors.add(persistDoctor(i));
+        }
+
+        List<Medication> medications = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Medication medication = new Medication();
+            medication.setName("Thuốc " + i);
+            entityManager.persist(medication);
+            medications.add(medication);
+        }
+
+        for (int i = 0; i < APPOINTMENTS_TODAY; i++) {
+            Patient p = persistPatient(i);
+            Appointment appointment = new Appointment(p, doctor, LocalDate.now(), LocalTime.of(8, 0).plusMinutes(15L * i));
+            entityManager.persist(appointment);
+            if (i == 0) {
+                patient = p;
+            }
+        }
+
+        // Bệnh nhân đầu tiên có lịch hẹn sắp tới với nhiều bác sĩ khác nhau
+        for (int i = 0; i < 5; i++) {
+            Appointment appointment = new Appointment(patient, otherDoctors.get(i % otherDoctors.size()),
+                    LocalDate.now().plusDays(i + 1L), LocalTime.of(9, 0));
+            appointment.setStatus(AppointmentStatus.CONFIRMED);
+            entityManager.persist(appointment);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            Prescription prescription = new Prescription();
+            prescription.setPatient(patient);
+            prescription.setDoctor(otherDoctors.get(i % otherDoctors.size()));
+            prescription.setPrescriptionDate(LocalDate.now().minusDays(i));
+            prescription.setStartDate(LocalDate.now().minusDays(i));
+            List<PrescriptionMedication> items = new ArrayList<>();
+            for (Medication medication : medications.subList(0, 2)) {
+                PrescriptionMedication item = new PrescriptionMedication();
+                item.setPrescription(prescription);
+                item.setMedication(medication);
+                item.setDosage("1 viên");
+                item.setFrequency("Ngày 1 lần");
+                item.setDurationDays(30);
+                item.setQuantity(30);
+                items.add(item);
+            }
+            prescription.setPrescriptionMedications(items);
+            entityManager.persist(prescription);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            LabResult labResult = new LabResult();
+            labResult.setPatient(patient);
+            labResult.setDoctor(otherDoctors.get(i % otherDoctors.size()));
+            labResult.setTestDate(LocalDate.now().minusMonths(i));
+            labResult.setTestType("CD4");
+            labResult.setResultValue(BigDecimal.valueOf(500 + i));
+            entityManager.persist(labResult);
+        }
+    }
+
+    private Doctor persistDoctor(int index) {
+        User user = persistUser("doctor" + index, UserRole.DOCTOR);
+        Doctor d = new Doctor();
+        d.setUser(user);
+        d.setDoctorCode("BS" + index);
+        d.setFirstName("Bác sĩ");
+        d.setLastName(String.valueOf(index));
+        entityManager.persist(d);
+        return d;
+    }
+
+    private Patient persistPatient(int index) {
+        User user = persistUser("patient" + index, UserRole.PATIENT);
+        Patient p = new Patient();
+        p.setUser(user);
+        p.setPatientCode("BN" + index);
+        p.setFirstName("Bệnh nhân");
+        p.setLastName(String.valueOf(index));
+        p.setDoctor(doctor);
+        entityManager.persist(p);
+        return p;
+    }
+
+    private User persistUser(String username, UserRole role) {
+        User user = new User(username, username + "@example.com", "secret", role);
+        user.setFirstName(username);
+        user.setLastName(role.name());
+        entityManager.persist(user);
+        return user;
+    }
+}
@@ -0,0 +1,121 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.config.MetricsConfig;
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.EmailOutboxRepository;
+import com.hivtreatment.repository.NotificationRepository;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra số liệu riêng của ứng dụng: độ sâu hàng đợi email, tỷ lệ hit cache
+ * và bộ đếm thông báo trong ứng dụng theo loại.
+ */
+@SpringJUnitConfig(ApplicationMetricsTest.Config.class)
+class ApplicationMetricsTest {
+
+    @Autowired
+    private List<MeterBinder> meterBinders;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        meterBinders.forEach(binder -> binder.bindTo(meterRegistry));
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+        notificationRepository.deleteAll();
+        emailOutboxRepository.deleteAll();
+        deleteAll(entityManagerFactory, "User");
+    }
+
+    @Test
+    void gaugesFollowOutboxDepthAndCacheHitRate() {
+        assertThat(meterRegistry.get("hiv.mail.outbox.pending").gauge().value()).isZero();
+        for (int i = 0; i < 4; i++) {
+            emailOutboxService.enqueue("patient" + i + "@example.com", "Nhắc nhở", "Nội dung", "MEDICATION_REMINDER");
+        }
+        // Gauge đọc lại database ở mỗi lần scrape
+        assertThat(meterRegistry.get("hiv.mail.outbox.pending").gauge().value()).isEqualTo(4);
+        assertThat(meterRegistry.get("hiv.mail.outbox.dead").gauge().value()).isZero();
+
+        Cache medications = cacheManager.getCache(CacheConfig.MEDICATIONS);
+        medications.get("missing");
+        medications.put("all", "danh mục");
+        medications.get("all");
+        medications.get("all");
+        medications.get("all");
+        assertThat(meterRegistry.get("hiv.cache.hit.ratio").tag("cache", CacheConfig.MEDICATIONS).gauge().value())
+                .isEqualTo(0.75);
+        assertThat(meterRegistry.get("hiv.cache.hit.ratio").gauges())
+                .hasSize(CacheConfig.REFERENCE_CACHES.size() + 1);
+    }
+
+    @Test
+    void countsInAppNotificationsByType() {
+        User user = new User("patient", "patient@example.com", "secret", UserRole.PATIENT);
+        user.setFirstName("Bệnh nhân");
+        user.setLastName("Một");
+        inTransaction(entityManagerFactory, entityManager -> entityManager.persist(user));
+
+        notificationService.sendMedicationDigest(user, List.of("TDF/3TC/DTG"));
+        notificationService.sendMedicationDigest(user, List.of("TDF/3TC/DTG"));
+        notificationService.createNotification(new Notification(user, "Thông báo", "Nội dung", "SYSTEM"));
+
+        assertThat(meterRegistry.get(MetricsConfig.NOTIFICATIONS_SENT)
+                .tags("channel", "in_app", "type", "MEDICATION_REMINDER").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(MetricsConfig.NOTIFICATIONS_SENT)
+                .tags("channel", "in_app", "type", "SYSTEM").counter().count()).isEqualTo(1);
+        // Email chỉ được đếm khi EmailDispatcher gửi thật, không phải lúc ghi vào outbox
+        assertThat(meterRegistry.find(MetricsConfig.NOTIFICATIONS_SENT).tag("channel", "email").counters())
+                .allMatch(counter -> counter.count() == 0);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, MetricsConfig.class, NotificationService.class,
+            UnreadNotificationCounter.class, EmailOutboxService.class})
+    static class Config {
+    }
+}
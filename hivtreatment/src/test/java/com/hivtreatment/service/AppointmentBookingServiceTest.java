@@ -0,0 +1,281 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.*;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra đặt lịch đồng thời: 200 luồng đặt cùng lúc không bao giờ tạo hai lịch hẹn hiệu lực
+ * trong cùng một khung giờ của một bác sĩ; sửa/xác nhận lịch và backfill slot_key cũng giữ ràng buộc đó.
+ */
+@SpringJUnitConfig(AppointmentBookingServiceTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.availability.slot-minutes=30",
+        "hiv.booking.lock-stripes=64"
+})
+class AppointmentBookingServiceTest {
+
+    private static final int BOOKERS = 200;
+    private static final int DOCTORS = 10;
+
+    @Autowired
+    private AppointmentBookingService appointmentBookingService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private final List<Doctor> doctors = new ArrayList<>();
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (int i = 0; i < DOCTORS; i++) {
+                doctors.add(persistDoctor(entityManager, "bs" + i, String.valueOf(i), null));
+            }
+            patient = new Patient();
+            patient.setUser(persistUser(entityManager, "patient", UserRole.PATIENT));
+            patient.setPatientCode("BN1");
+            patient.setFirstName("Bệnh nhân");
+            patient.setLastName("Một");
+            entityManager.persist(patient);
+        });
+        slotAvailabilityService.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "Appointment", "DoctorSchedule", "Patient", "DoctorSpecialization",
+                "Doctor", "User");
+    }
+
+    @Test
+    void twoHundredBookersOnOneSlotProduceExactlyOneAppointment() throws Exception {
+        Doctor doctor = doctors.get(0);
+        Result result = runBookers(i -> new Appointment(patient, doctor, monday, LocalTime.of(9, 0)));
+
+        assertThat(result.booked).isEqualTo(1);
+        assertThat(result.rejected).isEqualTo(BOOKERS - 1);
+        assertThat(countActive(doctor, LocalTime.of(9, 0))).isEqualTo(1);
+        // Giờ khác trong cùng khung 30 phút cũng bị từ chối
+        assertThatThrownBy(() -> appointmentBookingService.book(
+                new Appointment(patient, doctor, monday, LocalTime.of(9, 15))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(AppointmentBookingService.SLOT_TAKEN_MESSAGE);
+    }
+
+    @Test
+    void bookersSpreadOverManySlotsEachGetTheirOwnSlotOnce() throws Exception {
+        // 200 luồng trên 10 bác sĩ x 10 khung giờ: mỗi khung có 2 người tranh
+        Result result = runBookers(i -> new Appointment(patient, doctors.get(i % DOCTORS), monday,
+                LocalTime.of(8, 0).plusMinutes(30L * (i / DOCTORS % 10))));
+
+        assertThat(result.booked).isEqualTo(100);
+        assertThat(result.rejected).isEqualTo(100);
+        long distinctSlots = querySingle("SELECT COUNT(DISTINCT a.slotKey) FROM Appointment a");
+        assertThat(distinctSlots).isEqualTo(100);
+        assertThat(querySingle("SELECT COUNT(a) FROM Appointment a")).isEqualTo(100);
+    }
+
+    @Test
+    void databaseConstraintRejectsSlotTakenOnAnotherNodeAndCancelFreesIt() {
+        Doctor doctor = doctors.get(1);
+        slotAvailabilityService.isBooked(doctor.getId(), monday, LocalTime.of(10, 0));
+
+        // Node khác giữ khung 10:00 (chỉ mục trên node này không biết)
+        inTransaction(entityManagerFactory, entityManager -> {
+            Appointment other = new Appointment(patient, doctor, monday, LocalTime.of(10, 0));
+            other.setSlotKey(appointmentService.slotKeyOf(other));
+            entityManager.persist(other);
+        });
+        assertThat(slotAvailabilityService.isBooked(doctor.getId(), monday, LocalTime.of(10, 0))).isFalse();
+
+        assertThatThrownBy(() -> appointmentBookingService.book(
+                new Appointment(patient, doctor, monday, LocalTime.of(10, 0))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(AppointmentBookingService.SLOT_TAKEN_MESSAGE);
+
+        // Hủy thì slot_key về NULL, khung được đặt lại
+        Appointment booked = appointmentBookingService.book(new Appointment(patient, doctor, monday, LocalTime.of(10, 30)));
+        appointmentService.cancelAppointment(booked.getId());
+        Appointment rebooked = appointmentBookingService.book(new Appointment(patient, doctor, monday, LocalTime.of(10, 30)));
+        assertThat(rebooked.getId()).isNotEqualTo(booked.getId());
+        assertThat(countActive(doctor, LocalTime.of(10, 30))).isEqualTo(1);
+    }
+
+    @Test
+    void updateAndConfirmReportSlotTakenOnConstraintViolation() {
+        Doctor doctor = doctors.get(2);
+        // Node khác giữ khung 11:00
+        inTransaction(entityManagerFactory, entityManager -> {
+            Appointment other = new Appointment(patient, doctor, monday, LocalTime.of(11, 0));
+            other.setSlotKey(appointmentService.slotKeyOf(other));
+            entityManager.persist(other);
+        });
+
+        Appointment moved = appointmentBookingService.book(new Appointment(patient, doctor, monday, LocalTime.of(11, 30)));
+        moved.setAppointmentTime(LocalTime.of(11, 0));
+        assertThatThrownBy(() -> appointmentService.updateAppointment(moved))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(AppointmentBookingService.SLOT_TAKEN_MESSAGE);
+
+        Appointment cancelled = new Appointment(patient, doctor, monday, LocalTime.of(11, 0));
+        cancelled.setStatus(AppointmentStatus.CANCELLED);
+        Long cancelledId = appointmentService.createAppointment(cancelled).getId();
+        assertThatThrownBy(() -> appointmentService.confirmAppointment(cancelledId))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage(AppointmentBookingService.SLOT_TAKEN_MESSAGE);
+        assertThat(countActive(doctor, LocalTime.of(11, 0))).isEqualTo(1);
+    }
+
+    @Test
+    void backfillGivesLegacyAppointmentsSlotKeysAndSkipsDuplicates() {
+        Doctor doctor = doctors.get(3);
+        List<Appointment> legacy = new ArrayList<>();
+        // Dữ liệu từ trước khi có cột slot_key: hai lịch cùng khung 8:00, một lịch đã hủy
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (LocalTime time : List.of(LocalTime.of(8, 0), LocalTime.of(8, 0), LocalTime.of(9, 0), LocalTime.of(9, 30))) {
+                Appointment appointment = new Appointment(patient, doctor, monday, time);
+                if (time.equals(LocalTime.of(9, 0))) appointment.setStatus(AppointmentStatus.CANCELLED);
+                entityManager.persist(appointment);
+                legacy.add(appointment);
+            }
+        });
+
+        // Lô 2 dòng như job: dừng khi lô rỗng, kể cả khi có dòng trùng phải để NULL
+        long checkpoint = 0;
+        int batches = 0;
+        List<Long> ids;
+        while (!(ids = appointmentService.backfillSlotKeys(checkpoint, 2)).isEmpty()) {
+            checkpoint = ids.get(ids.size() - 1);
+            batches++;
+        }
+        assertThat(batches).isEqualTo(2);
+
+        assertThat(legacy).extracting(appointment -> slotKeyOf(appointment.getId())).containsExactly(
+                doctor.getId() + "|" + monday + "|08:00", null, null, doctor.getId() + "|" + monday + "|09:30");
+        // Chạy lại từ đầu chỉ còn dòng trùng, vẫn để NULL
+        assertThat(appointmentService.backfillSlotKeys(0L, 10)).containsExactly(legacy.get(1).getId());
+        assertThat(slotKeyOf(legacy.get(1).getId())).isNull();
+    }
+
+    private String slotKeyOf(Long appointmentId) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(Appointment.class, appointmentId).getSlotKey();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private Result runBookers(IntFunction<Appointment> request) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BOOKERS);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(BOOKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < BOOKERS; i++) {
+                Appointment appointment = request.apply(i);
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    try {
+                        appointmentBookingService.book(appointment);
+                        booked.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            ready.await();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(booked.get(), rejected.get());
+    }
+
+    private long countActive(Doctor doctor, LocalTime time) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("SELECT COUNT(a) FROM Appointment a WHERE a.doctor.id = :doctorId"
+                            + " AND a.appointmentDate = :date AND a.appointmentTime = :time AND a.status <> :cancelled", Long.class)
+                    .setParameter("doctorId", doctor.getId())
+                    .setParameter("date", monday)
+                    .setParameter("time", time)
+                    .setParameter("cancelled", AppointmentStatus.CANCELLED)
+                    .getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private long querySingle(String jpql) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(jpql, Long.class).getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static class Result {
+        final int booked;
+        final int rejected;
+
+        Result(int booked, int rejected) {
+            this.booked = booked;
+            this.rejected = rejected;
+        }
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, AppointmentService.class, SlotAvailabilityService.class, AppointmentBookingService.class})
+    static class Config {
+    }
+}
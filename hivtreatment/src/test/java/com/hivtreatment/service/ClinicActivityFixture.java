@@ -0,0 +1,121 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Appointment;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Medication;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.Prescription;
+import com.hivtreatment.entity.PrescriptionMedication;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+
+/**
+ * Hoạt động phòng khám năm 2024 dùng chung cho test báo cáo tháng/năm và test daily_stats:
+ * 3 bệnh nhân (2 tạo tháng 3, 1 tháng 7), 7 lịch hẹn, 3 đơn thuốc và 4 xét nghiệm.
+ */
+final class ClinicActivityFixture {
+
+    private ClinicActivityFixture() {}
+
+    // Trả về id lịch hẹn COMPLETED ngày 2/7/2024 để test có thể đổi trạng thái muộn
+    static Long persist(EntityManager entityManager) {
+        Doctor doctor = persistDoctor(entityManager, "bs1", "Trần", null);
+        Patient p1 = persistPatient(entityManager, "bn1", LocalDate.of(2024, 3, 5));
+        Patient p2 = persistPatient(entityManager, "bn2", LocalDate.of(2024, 3, 20));
+        Patient p3 = persistPatient(entityManager, "bn3", LocalDate.of(2024, 7, 1));
+
+        persistAppointment(entityManager, p1, doctor, LocalDate.of(2024, 3, 10), AppointmentStatus.SCHEDULED);
+        persistAppointment(entityManager, p1, doctor, LocalDate.of(2024, 3, 11), AppointmentStatus.CONFIRMED);
+        persistAppointment(entityManager, p2, doctor, LocalDate.of(2024, 3, 12), AppointmentStatus.CANCELLED);
+        persistAppointment(entityManager, p2, doctor, LocalDate.of(2024, 3, 13), AppointmentStatus.COMPLETED);
+        persistAppointment(entityManager, p1, doctor, LocalDate.of(2024, 3, 13), AppointmentStatus.COMPLETED);
+        Long completedInJuly = persistAppointment(entityManager, p3, doctor, LocalDate.of(2024, 7, 2),
+                AppointmentStatus.COMPLETED).getId();
+        // Ngoài năm báo cáo
+        persistAppointment(entityManager, p3, doctor, LocalDate.of(2025, 1, 2), AppointmentStatus.COMPLETED);
+
+        Medication dtg = persistMedication(entityManager, "TDF/3TC/DTG");
+        Medication azt = persistMedication(entityManager, "AZT/3TC/NVP");
+        persistPrescription(entityManager, p1, doctor, LocalDate.of(2024, 3, 11), dtg, azt);
+        persistPrescription(entityManager, p2, doctor, LocalDate.of(2024, 3, 13), dtg);
+        persistPrescription(entityManager, p3, doctor, LocalDate.of(2024, 7, 2), azt);
+
+        persistLabResult(entityManager, p1, LocalDate.of(2024, 3, 11));
+        persistLabResult(entityManager, p2, LocalDate.of(2024, 3, 13));
+        persistLabResult(entityManager, p2, LocalDate.of(2024, 3, 13));
+        persistLabResult(entityManager, p3, LocalDate.of(2024, 12, 31));
+        return completedInJuly;
+    }
+
+    private static Patient persistPatient(EntityManager entityManager, String username, LocalDate createdOn) {
+        User user = persistUser(entityManager, username, UserRole.PATIENT);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(username.toUpperCase());
+        patient.setFirstName("Bệnh nhân");
+        patient.setLastName(username);
+        entityManager.persist(patient);
+        entityManager.flush();
+        // @PrePersist luôn gán thời điểm hiện tại: sửa ngày tạo bằng UPDATE trực tiếp
+        entityManager.createQuery("UPDATE Patient p SET p.createdAt = :createdAt WHERE p.id = :id")
+                .setParameter("createdAt", createdOn.atTime(9, 0))
+                .setParameter("id", patient.getId())
+                .executeUpdate();
+        return patient;
+    }
+
+    private static Appointment persistAppointment(EntityManager entityManager, Patient patient, Doctor doctor,
+                                                  LocalDate date, AppointmentStatus status) {
+        Appointment appointment = new Appointment(patient, doctor, date, LocalTime.of(9, 0));
+        appointment.setStatus(status);
+        entityManager.persist(appointment);
+        return appointment;
+    }
+
+    private static Medication persistMedication(EntityManager entityManager, String name) {
+        Medication medication = new Medication();
+        medication.setName(name);
+        entityManager.persist(medication);
+        return medication;
+    }
+
+    private static void persistPrescription(EntityManager entityManager, Patient patient, Doctor doctor, LocalDate date,
+                                            Medication... medications) {
+        Prescription prescription = new Prescription();
+        prescription.setPatient(patient);
+        prescription.setDoctor(doctor);
+        prescription.setPrescriptionDate(date);
+        prescription.setStartDate(date);
+        entityManager.persist(prescription);
+        for (Medication medication : medications) {
+            PrescriptionMedication line = new PrescriptionMedication();
+            line.setPrescription(prescription);
+            line.setMedication(medication);
+            line.setDosage("1 viên");
+            line.setFrequency("Ngày 1 lần");
+            line.setDurationDays(30);
+            line.setQuantity(30);
+            entityManager.persist(line);
+        }
+    }
+
+    private static void persistLabResult(EntityManager entityManager, Patient patient, LocalDate testDate) {
+        LabResult labResult = new LabResult();
+        labResult.setPatient(patient);
+        labResult.setTestType("CD4");
+        labResult.setTestDate(testDate);
+        labResult.setResultValue(BigDecimal.valueOf(500));
+        entityManager.persist(labResult);
+    }
+}
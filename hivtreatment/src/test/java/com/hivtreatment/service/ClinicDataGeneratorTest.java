@@ -0,0 +1,172 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.datagen.ClinicDataGenerator;
+import com.hivtreatment.datagen.DataGenerationSpec;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.PatientRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra bộ sinh dữ liệu tổng hợp: ghi đủ các bảng đọc được qua JPA, dựng bảng dẫn xuất,
+ * gán slot_key không trùng cho lịch hẹn giữ khung, không chặn id tự tăng của Hibernate
+ * và cho ra cùng dữ liệu với cùng seed.
+ */
+@SpringJUnitConfig(ClinicDataGeneratorTest.Config.class)
+class ClinicDataGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 30);
+
+    @Autowired
+    private ClinicDataGenerator clinicDataGenerator;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "SymptomReport", "Notification", "PrescriptionMedication", "Prescription",
+                "LatestLabResult", "LabResult", "Appointment", "HIVPatientProfile", "Patient",
+                "DoctorSpecialization", "Doctor", "Medication", "User", "CodeSequence");
+    }
+
+    @Test
+    void writesEveryTableAndDerivedRows() {
+        Map<String, Long> counts = clinicDataGenerator.generate(spec(42));
+
+        assertThat(counts).containsEntry("doctors", 5L).containsEntry("patients", 40L)
+                .containsEntry("hiv_patient_profiles", 40L).containsEntry("users", 45L);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (String table : List.of("appointments", "lab_results", "prescriptions", "prescription_medications",
+                "notifications", "symptom_reports")) {
+            assertThat(counts.get(table)).as(table).isPositive()
+                    .isEqualTo(jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class));
+        }
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM doctor_specializations", Long.class)).isPositive();
+        assertThat(jdbc.queryForObject("SELECT COUNT(DISTINCT patient_id) FROM latest_lab_results", Long.class))
+                .isEqualTo(jdbc.queryForObject("SELECT COUNT(DISTINCT patient_id) FROM lab_results", Long.class));
+
+        // Mã cấp từ code_sequences, đọc lại được qua JPA kèm tài khoản
+        Patient first = patientRepository.findByPatientCode("BN000001").orElseThrow();
+        assertThat(first.getUser().getUsername()).isEqualTo("bn000001");
+        assertThat(first.getDateOfBirth()).isBefore(TODAY);
+    }
+
+    @Test
+    void appointmentsHoldingSlotsGetUniqueSlotKeys() {
+        // Dồn nhiều lịch hẹn vào ít bác sĩ để khung trùng chắc chắn xảy ra
+        clinicDataGenerator.generate(DataGenerationSpec.builder()
+                .doctors(1).patients(30).appointmentsPerPatient(20).labResultsPerPatient(1)
+                .prescriptionsPerPatient(0).notificationsPerPatient(0).symptomReportsPerPatient(0)
+                .historyYears(1).seed(3).batchSize(50).today(TODAY).build());
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM appointments WHERE appointment_date > ? "
+                + "AND status IN ('SCHEDULED', 'CONFIRMED')", Long.class, TODAY)).isPositive();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM appointments "
+                + "WHERE status IN ('SCHEDULED', 'CONFIRMED', 'COMPLETED') AND slot_key IS NULL", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM appointments WHERE status IN ('CANCELLED', 'NO_SHOW') "
+                + "AND slot_key IS NOT NULL", Long.class)).isZero();
+        // Khóa khớp với khóa ứng dụng tính lại cho cùng lịch hẹn
+        Map<String, Object> row = jdbc.queryForMap("SELECT doctor_id, appointment_date, appointment_time, slot_key "
+                + "FROM appointments WHERE slot_key IS NOT NULL ORDER BY id LIMIT 1");
+        assertThat(row.get("SLOT_KEY")).isEqualTo(appointmentService.slotKeyOf(((Number) row.get("DOCTOR_ID")).longValue(),
+                ((Date) row.get("APPOINTMENT_DATE")).toLocalDate(),
+                ((Time) row.get("APPOINTMENT_TIME")).toLocalTime()));
+    }
+
+    @Test
+    void hibernateInsertsContinueAfterGeneratedIds() {
+        clinicDataGenerator.generate(spec(42));
+        Long maxUserId = new JdbcTemplate(dataSource).queryForObject("SELECT MAX(id) FROM users", Long.class);
+
+        User user = new User("moi", "moi@example.com", "secret", UserRole.PATIENT);
+        user.setFirstName("moi");
+        user.setLastName("PATIENT");
+        inTransaction(entityManagerFactory, entityManager -> entityManager.persist(user));
+
+        assertThat(user.getId()).isGreaterThan(maxUserId);
+    }
+
+    @Test
+    void sameSeedGivesSameData() {
+        clinicDataGenerator.generate(spec(7));
+        List<String> first = labSeries();
+        tearDown();
+
+        clinicDataGenerator.generate(spec(7));
+        assertThat(labSeries()).isEqualTo(first);
+        tearDown();
+
+        clinicDataGenerator.generate(spec(8));
+        assertThat(labSeries()).isNotEqualTo(first);
+    }
+
+    private DataGenerationSpec spec(long seed) {
+        return DataGenerationSpec.builder()
+                .doctors(5)
+                .patients(40)
+                .appointmentsPerPatient(4)
+                .labResultsPerPatient(6)
+                .prescriptionsPerPatient(2)
+                .notificationsPerPatient(3)
+                .symptomReportsPerPatient(2)
+                .historyYears(2)
+                .seed(seed)
+                .batchSize(50)
+                .today(TODAY)
+                .build();
+    }
+
+    // Id thay đổi giữa các lần chạy: so sánh theo mã bệnh nhân và nội dung
+    private List<String> labSeries() {
+        return new JdbcTemplate(dataSource).queryForList(
+                "SELECT p.patient_code || '|' || l.test_type || '|' || l.test_date || '|' || l.result_value "
+                        + "FROM lab_results l JOIN patients p ON p.id = l.patient_id "
+                        + "ORDER BY p.patient_code, l.test_date, l.id", String.class);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, ClinicDataGenerator.class, CodeSequenceService.class,
+            CodeAllocator.class, DoctorService.class, LabResultService.class, AppointmentService.class})
+    static class Config {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            // Độ mạnh thấp nhất cho nhanh; bộ sinh chỉ băm mật khẩu mặc định một lần
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.MetricsConfig;
+import com.hivtreatment.dto.JobRunMetrics;
+import com.hivtreatment.entity.JobLock;
+import com.hivtreatment.entity.JobRun;
+import com.hivtreatment.enums.JobRunStatus;
+import com.hivtreatment.repository.JobLockRepository;
+import com.hivtreatment.repository.JobRunRepository;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Giả lập hai node dùng chung một database: mỗi node là một ApplicationContext con
+ * có ClusterJobRunner riêng, dùng chung JobLockService/JobRunService của context cha.
+ */
+@SpringJUnitConfig(ClusterJobRunnerTest.Config.class)
+class ClusterJobRunnerTest {
+
+    private static final String JOB = "test-job";
+    private static final int PARTITIONS = 8;
+
+    @Autowired
+    private ApplicationContext sharedContext;
+
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private JobRunService jobRunService;
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(meterRegistry);
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+        nodeA.close();
+        nodeB.close();
+        jobRunRepository.deleteAll();
+        jobLockRepository.deleteAll();
+    }
+
+    @Test
+    void twoNodesSplitPartitionsWithoutOverlap() throws Exception {
+        Map<Integer, List<String>> processedBy = new ConcurrentHashMap<>();
+        CountDownLatch ready = new CountDownLatch(2);
+
+        ExecutorService nodes = Executors.newFixedThreadPool(2);
+        Future<Long> a = nodes.submit(() -> runAll(nodeA, "node-a", processedBy, ready));
+        Future<Long> b = nodes.submit(() -> runAll(nodeB, "node-b", processedBy, ready));
+        long total = a.get() + b.get();
+        nodes.shutdown();
+
+        assertThat(total).isEqualTo(PARTITIONS);
+        assertThat(processedBy).hasSize(PARTITIONS);
+        assertThat(processedBy.values()).allMatch(owners -> owners.size() == 1);
+        assertThat(a.get()).isPositive();
+        assertThat(b.get()).isPositive();
+
+        List<JobRun> runs = jobRunRepository.findAll();
+        assertThat(runs).hasSize(PARTITIONS);
+        assertThat(runs).allSatisfy(run -> {
+            assertThat(run.getStatus()).isEqualTo(JobRunStatus.COMPLETED);
+            assertThat(run.getNodeId()).isIn("node-a", "node-b");
+            assertThat(run.getDurationMs()).isNotNull();
+        });
+
+        // Chạy lại cùng runKey: mọi phân vùng đã COMPLETED nên không làm gì
+        assertThat(runner(nodeB).runPartitioned(JOB, "2024-05-01", context -> {
+            throw new AssertionError("Partition " + context.getPartition() + " ran twice");
+        })).isZero();
+
+        JobRunMetrics metrics = runner(nodeA).getMetrics().iterator().next();
+        assertThat(metrics.getRuns()).isEqualTo(a.get());
+        assertThat(metrics.getTotalItemsProcessed()).isEqualTo(a.get());
+        assertThat(metrics.getFailures()).isZero();
+    }
+
+    @Test
+    void expiredLockIsTakenOverAndRunContinuesFromCheckpoint() {
+        // Node chết khi đang giữ khóa phân vùng duy nhất, để lại checkpoint 42
+        assertThat(jobLockService.tryAcquire(JOB + "#0", "dead-node", Duration.ofMinutes(10))).isTrue();
+        JobRun abandoned = new JobRun(JOB, "2024-05", 0);
+        abandoned.setNodeId("dead-node");
+        abandoned.setCheckpoint(42L);
+        jobRunRepository.save(abandoned);
+
+        AtomicLong seenCheckpoint = new AtomicLong(-1);
+        ClusterJobRunner.PartitionTask task = context -> {
+            seenCheckpoint.set(context.getCheckpoint());
+            context.saveCheckpoint(50L, 8);
+        };
+
+        // Lease còn hạn: không node nào khác chạy được
+        assertThat(runner(nodeB).runOnce(JOB, "2024-05", task)).isZero();
+        assertThat(seenCheckpoint.get()).isEqualTo(-1);
+
+        JobLock lock = jobLockRepository.findById(JOB + "#0").orElseThrow();
+        lock.setLockedUntil(LocalDateTime.now().minusSeconds(1));
+        jobLockRepository.save(lock);
+
+        assertThat(runner(nodeB).runOnce(JOB, "2024-05", task)).isEqualTo(8);
+        assertThat(seenCheckpoint.get()).isEqualTo(42);
+        JobRun run = jobRunRepository.findById(abandoned.getId()).orElseThrow();
+        assertThat(run.getStatus()).isEqualTo(JobRunStatus.COMPLETED);
+        assertThat(run.getNodeId()).isEqualTo("node-b");
+        assertThat(run.getCheckpoint()).isEqualTo(50);
+        assertThat(run.getItemsProcessed()).isEqualTo(8);
+    }
+
+    @Test
+    void failedPartitionIsRetriedOnResume() {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        ClusterJobRunner.PartitionTask task = context -> {
+            if (context.getPartition() == 3 && failOnce.getAndSet(false)) {
+                throw new IllegalStateException("SMTP down");
+            }
+            processed.add(context.getPartition());
+            context.saveCheckpoint(null, 1);
+        };
+
+        assertThat(runner(nodeA).runPartitioned(JOB, "2024-05-01", task)).isEqualTo(PARTITIONS - 1);
+        JobRun failed = jobRunRepository.findByJobNameAndRunKeyAndPartitionNo(JOB, "2024-05-01", 3).orElseThrow();
+        assertThat(failed.getStatus()).isEqualTo(JobRunStatus.FAILED);
+        assertThat(failed.getLastError()).isEqualTo("SMTP down");
+        assertThat(runner(nodeA).getMetrics().iterator().next().getFailures()).isEqualTo(1);
+        // Timer theo tên job chỉ đếm các lần thân job thực sự chạy
+        assertThat(meterRegistry.get(MetricsConfig.JOB_EXECUTION).tags("job", JOB, "outcome", "success")
+                .timer().count()).isEqualTo(PARTITIONS - 1);
+        assertThat(meterRegistry.get(MetricsConfig.JOB_EXECUTION).tags("job", JOB, "outcome", "failure")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(MetricsConfig.JOB_ITEMS).tag("job", JOB).counter().count())
+                .isEqualTo(PARTITIONS - 1);
+
+        processed.clear();
+        assertThat(runner(nodeB).resumeIncomplete(JOB, LocalDateTime.now().minusHours(1), task)).isEqualTo(1);
+        assertThat(processed).containsExactly(3);
+        assertThat(jobRunRepository.countByJobNameAndRunKeyAndStatus(JOB, "2024-05-01", JobRunStatus.COMPLETED))
+                .isEqualTo(PARTITIONS);
+    }
+
+    @Test
+    void partitionStopsWhenItsLeaseWasTakenOver() {
+        List<Long> sent = new CopyOnWriteArrayList<>();
+        ClusterJobRunner.PartitionTask task = context -> {
+            sent.add(1L);
+            context.saveCheckpoint(1L, 1);
+
+            // Lô tiếp theo chạy lâu hơn lease: khóa hết hạn và node B nhận phân vùng như khi chạy tiếp
+            JobLock lock = jobLockRepository.findById(JOB + "#0").orElseThrow();
+            lock.setLockedUntil(LocalDateTime.now().minusSeconds(1));
+            jobLockRepository.save(lock);
+            assertThat(jobLockService.tryAcquire(JOB + "#0", "node-b", Duration.ofMinutes(10))).isTrue();
+            jobRunService.startOrResume(JOB, "2024-05", 0, "node-b");
+
+            sent.add(2L);
+            context.saveCheckpoint(2L, 1);
+            sent.add(3L);
+        };
+
+        assertThat(runner(nodeA).runOnce(JOB, "2024-05", task)).isEqualTo(1);
+        assertThat(sent).containsExactly(1L, 2L);
+
+        // Tiến độ và trạng thái của node B không bị node A ghi đè, khóa vẫn thuộc node B
+        JobRun run = jobRunRepository.findByJobNameAndRunKeyAndPartitionNo(JOB, "2024-05", 0).orElseThrow();
+        assertThat(run.getNodeId()).isEqualTo("node-b");
+        assertThat(run.getStatus()).isEqualTo(JobRunStatus.RUNNING);
+        assertThat(run.getCheckpoint()).isEqualTo(1L);
+        assertThat(jobLockRepository.findById(JOB + "#0").orElseThrow().getOwner()).isEqualTo("node-b");
+        assertThat(runner(nodeA).getMetrics().iterator().next().getFailures()).isEqualTo(1);
+        assertThat(meterRegistry.get(MetricsConfig.JOB_EXECUTION).tags("job", JOB, "outcome", "failure")
+                .timer().count()).isEqualTo(1);
+    }
+
+    private long runAll(AnnotationConfigApplicationContext node, String name,
+                        Map<Integer, List<String>> processedBy, CountDownLatch ready) throws InterruptedException {
+        ready.countDown();
+        ready.await();
+        return runner(node).runPartitioned(JOB, "2024-05-01", context -> {
+            processedBy.computeIfAbsent(context.getPartition(), p -> new CopyOnWriteArrayList<>()).add(name);
+            Thread.sleep(100);
+            context.saveCheckpoint(null, 1);
+        });
+    }
+
+    private AnnotationConfigApplicationContext startNode(String nodeId) {
+        AnnotationConfigApplicationContext node = new AnnotationConfigApplicationContext();
+        node.setParent(sharedContext);
+        node.getEnvironment().getPropertySources().addFirst(new MapPropertySource("node", Map.of(
+                "hiv.cluster.node-id", nodeId,
+                "hiv.cluster.partitions", String.valueOf(PARTITIONS))));
+        node.register(ClusterJobRunner.class);
+        node.refresh();
+        return node;
+    }
+
+    private ClusterJobRunner runner(AnnotationConfigApplicationContext node) {
+        return node.getBean(ClusterJobRunner.class);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, JobLockService.class, JobRunService.class})
+    static class Config {
+    }
+}
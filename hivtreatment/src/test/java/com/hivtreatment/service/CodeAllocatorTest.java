@@ -0,0 +1,166 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CodeSequenceType;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra bộ sinh mã hi-lo: tiếp nối mã cũ, không trùng khi nhiều luồng và nhiều node cùng cấp,
+ * và đăng ký đồng thời không sinh mã trùng.
+ */
+@SpringJUnitConfig(CodeAllocatorTest.Config.class)
+@TestPropertySource(properties = "hiv.codes.block-size=50")
+class CodeAllocatorTest {
+
+    private static final int BLOCK_SIZE = 50;
+
+    @Autowired
+    private CodeAllocator codeAllocator;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "Patient", "User");
+    }
+
+    @Test
+    void firstBlockContinuesAfterHighestExistingCodeInLegacyFormat() {
+        // Mã cũ sinh bằng count()+1 (có lỗ hổng do xóa) và một mã nhập tay
+        inTransaction(entityManagerFactory, entityManager -> {
+            persistPatient(entityManager, "legacy1", "BN000007");
+            persistPatient(entityManager, "legacy2", "BN000120");
+            persistPatient(entityManager, "manual", "BN-NGOAI-VIEN");
+
+            // Bộ đếm chưa được tạo (lần chạy đầu sau khi nâng cấp)
+            entityManager.createQuery("DELETE FROM CodeSequence").executeUpdate();
+        });
+        CodeAllocator freshNode = beanFactory.createBean(CodeAllocator.class);
+
+        assertThat(freshNode.nextCode(CodeSequenceType.PATIENT)).isEqualTo("BN000121");
+        assertThat(freshNode.nextCode(CodeSequenceType.PATIENT)).isEqualTo("BN000122");
+        assertThat(freshNode.nextCode(CodeSequenceType.PRESCRIPTION)).isEqualTo("DT00000001");
+        assertThat(freshNode.getBlocksReserved()).isEqualTo(2);
+        assertThat(CodeSequenceType.PATIENT.format(1_234_567)).isEqualTo("BN1234567");
+        assertThat(CodeSequenceType.PATIENT.parse("BN-NGOAI-VIEN")).isEqualTo(-1);
+    }
+
+    @Test
+    void concurrentAllocationOnTwoNodesNeverRepeatsAValue() throws Exception {
+        // Node thứ hai: một CodeAllocator khác dùng chung bảng code_sequences
+        CodeAllocator otherNode = beanFactory.createBean(CodeAllocator.class);
+        CodeAllocator[] nodes = {codeAllocator, otherNode};
+        long blocksBefore = codeAllocator.getBlocksReserved() + otherNode.getBlocksReserved();
+
+        int threads = 16;
+        int perThread = 2_000;
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        run(threads, perThread, t -> values.add(nodes[t % 2].nextValue(CodeSequenceType.PRESCRIPTION)));
+
+        assertThat(values).hasSize(threads * perThread);
+        long blocks = codeAllocator.getBlocksReserved() + otherNode.getBlocksReserved() - blocksBefore;
+        // Một lần ghi database cho mỗi khối; mỗi node bỏ dở nhiều nhất một khối
+        assertThat(blocks).isBetween((long) threads * perThread / BLOCK_SIZE, (long) threads * perThread / BLOCK_SIZE + 2);
+    }
+
+    @Test
+    void concurrentRegistrationProducesUniqueCodes() throws Exception {
+        // Thông lượng theo số luồng đo trong RegistrationBenchmark (profile benchmark)
+        int threads = 16;
+        int patientsPerThread = 100;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        run(threads, patientsPerThread, t -> {
+            String code = patientService.generatePatientCode();
+            codes.add(code);
+            inTransaction(entityManagerFactory, entityManager -> persistPatient(entityManager, code.toLowerCase(), code));
+        });
+
+        assertThat(codes).hasSize(threads * patientsPerThread);
+        assertThat(querySingle("SELECT COUNT(DISTINCT p.patientCode) FROM Patient p"))
+                .isEqualTo(threads * patientsPerThread);
+    }
+
+    // Chạy threads luồng, mỗi luồng gọi work perThread lần
+    private void run(int threads, int perThread, IntConsumer work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        work.accept(thread);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long querySingle(String jpql) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(jpql, Long.class).getSingleResult();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private void persistPatient(EntityManager entityManager, String username, String code) {
+        User user = persistUser(entityManager, username, UserRole.PATIENT);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(code);
+        patient.setFirstName("Bệnh nhân");
+        patient.setLastName(username);
+        entityManager.persist(patient);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CodeAllocator.class, CodeSequenceService.class, PatientService.class})
+    static class Config {
+    }
+}
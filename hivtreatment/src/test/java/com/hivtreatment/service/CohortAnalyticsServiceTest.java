@@ -0,0 +1,190 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.CareCascadeDTO;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.HIVPatientProfile;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.CohortDimension;
+import com.hivtreatment.enums.Gender;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Kiểm tra chuỗi chăm sóc HIV: các bước tính theo ngày chốt, chỉ lấy xét nghiệm tải lượng virus
+ * mới nhất trong 12 tháng, lát cắt theo các chiều và cache theo kỳ.
+ */
+@SpringJUnitConfig(CohortAnalyticsServiceTest.Config.class)
+@TestPropertySource(properties = "hiv.cohort.cache.current-ttl-seconds=0")
+class CohortAnalyticsServiceTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2025, 6, 30);
+
+    @Autowired
+    private CohortAnalyticsService cohortAnalyticsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Doctor doctor;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.CARE_CASCADE).clear();
+        inTransaction(entityManagerFactory, entityManager -> {
+            doctor = persistDoctor(entityManager, "bs1", "Trần", null);
+
+            // Đang điều trị, xét nghiệm sau ngày chốt bị bỏ qua: không phát hiện
+            Patient p1 = persistProfile(entityManager, "bn1", "STAGE_1", "TDF/3TC/DTG", doctor, 1990, Gender.MALE,
+                    LocalDate.of(2020, 1, 1), LocalDate.of(2020, 2, 1));
+            persistViralLoad(entityManager, p1, LocalDate.of(2025, 3, 1), 30);
+            persistViralLoad(entityManager, p1, LocalDate.of(2025, 9, 1), 5000);
+
+            // Hai kết quả cùng ngày: lấy kết quả nhập sau; ức chế nhưng còn phát hiện
+            Patient p2 = persistProfile(entityManager, "bn2", "STAGE_2", "TDF/3TC/DTG", null, 2012, Gender.FEMALE,
+                    LocalDate.of(2021, 1, 1), LocalDate.of(2022, 1, 1));
+            persistViralLoad(entityManager, p2, LocalDate.of(2025, 1, 1), 80);
+            persistViralLoad(entityManager, p2, LocalDate.of(2025, 5, 1), 20000);
+            persistViralLoad(entityManager, p2, LocalDate.of(2025, 5, 1), 200);
+
+            // Chưa điều trị ARV: không tính vào bước xét nghiệm dù có kết quả
+            Patient p3 = persistProfile(entityManager, "bn3", "STAGE_1", null, doctor, 1970, Gender.MALE,
+                    LocalDate.of(2023, 1, 1), null);
+            persistViralLoad(entityManager, p3, LocalDate.of(2025, 4, 1), 10);
+
+            // Xét nghiệm quá 12 tháng trước ngày chốt
+            Patient p4 = persistProfile(entityManager, "bn4", "STAGE_1", "AZT/3TC/NVP", doctor, 1995, Gender.FEMALE,
+                    LocalDate.of(2024, 1, 1), LocalDate.of(2023, 6, 1));
+            persistViralLoad(entityManager, p4, LocalDate.of(2024, 3, 1), 10);
+
+            // Chẩn đoán sau ngày chốt
+            persistProfile(entityManager, "bn5", "STAGE_1", null, doctor, 1980, Gender.OTHER,
+                    LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 1));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "LabResult", "HIVPatientProfile", "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void cascadeStepsUseAsOfDateAndLatestViralLoadInWindow() {
+        CareCascadeDTO cascade = cohortAnalyticsService.getCareCascade(AS_OF);
+
+        assertThat(cascade.getDiagnosed()).isEqualTo(4);
+        assertThat(cascade.getOnArt()).isEqualTo(3);
+        assertThat(cascade.getViralLoadTested()).isEqualTo(2);
+        assertThat(cascade.getSuppressed()).isEqualTo(2);
+        assertThat(cascade.getUndetectable()).isEqualTo(1);
+        assertThat(cascade.getOnArtRate()).isEqualTo(75.0);
+        assertThat(cascade.getTestedRate()).isEqualTo(66.7);
+        assertThat(cascade.getUndetectableRate()).isEqualTo(50.0);
+
+        // Tháng 6/2025 đã đóng: chốt ở ngày cuối tháng
+        assertThat(cohortAnalyticsService.getCareCascade(YearMonth.of(2025, 6)).getDiagnosed()).isEqualTo(4);
+    }
+
+    @Test
+    void slicesByEachDimension() {
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF, CohortDimension.HIV_STAGE))
+                .extracting(CareCascadeDTO::getLabel, CareCascadeDTO::getDiagnosed, CareCascadeDTO::getOnArt,
+                        CareCascadeDTO::getViralLoadTested, CareCascadeDTO::getSuppressed, CareCascadeDTO::getUndetectable)
+                .containsExactly(tuple("STAGE_1", 3L, 2L, 1L, 1L, 1L), tuple("STAGE_2", 1L, 1L, 1L, 1L, 0L));
+
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF, CohortDimension.AGE_BAND))
+                .extracting(CareCascadeDTO::getLabel)
+                .containsExactly("<15", "25-34", "35-49", "50+");
+
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF, CohortDimension.DOCTOR))
+                .extracting(CareCascadeDTO::getLabel, CareCascadeDTO::getDiagnosed)
+                .containsExactly(tuple("BS. Bác sĩ Trần", 3L), tuple("Chưa phân công", 1L));
+
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF, CohortDimension.GENDER))
+                .extracting(CareCascadeDTO::getLabel).containsExactly("Nam", "Nữ");
+
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF, CohortDimension.ARV_PROTOCOL))
+                .extracting(CareCascadeDTO::getKey, CareCascadeDTO::getOnArt)
+                .containsExactly(tuple("TDF/3TC/DTG", 2L), tuple("AZT/3TC/NVP", 1L), tuple("Không rõ", 0L));
+    }
+
+    @Test
+    void closedPeriodsAreCachedWhileTodayIsRecomputed() {
+        LocalDate today = LocalDate.now();
+        long closedBefore = cohortAnalyticsService.getCareCascade(AS_OF).getDiagnosed();
+        long todayBefore = cohortAnalyticsService.getCareCascade(today).getDiagnosed();
+
+        // Hồ sơ mới không có ngày chẩn đoán: tính từ ngày tạo hồ sơ (hôm nay)
+        inTransaction(entityManagerFactory, entityManager -> persistProfile(entityManager, "bn6", "STAGE_1",
+                null, null, 2000, Gender.MALE, null, null));
+
+        assertThat(cohortAnalyticsService.getCareCascade(AS_OF).getDiagnosed()).isEqualTo(closedBefore);
+        assertThat(cohortAnalyticsService.getCareCascade(today).getDiagnosed()).isEqualTo(todayBefore + 1);
+        assertThat(todayBefore).isEqualTo(5);
+    }
+
+    private Patient persistProfile(EntityManager entityManager, String username, String stage, String protocol,
+                                   Doctor assignedDoctor, int birthYear, Gender gender,
+                                   LocalDate diagnosisDate, LocalDate artStartDate) {
+        User user = persistUser(entityManager, username, UserRole.PATIENT);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(username.toUpperCase());
+        patient.setFirstName("Bệnh nhân");
+        patient.setLastName(username);
+        patient.setDoctor(assignedDoctor);
+        patient.setDateOfBirth(LocalDate.of(birthYear, 7, 1));
+        patient.setGender(gender);
+        entityManager.persist(patient);
+
+        HIVPatientProfile profile = new HIVPatientProfile();
+        profile.setPatient(patient);
+        profile.setHivStage(stage);
+        profile.setCurrentARVProtocol(protocol);
+        profile.setHivDiagnosisDate(diagnosisDate);
+        profile.setArtStartDate(artStartDate);
+        entityManager.persist(profile);
+        return patient;
+    }
+
+    private void persistViralLoad(EntityManager entityManager, Patient patient, LocalDate testDate, int copies) {
+        LabResult labResult = new LabResult();
+        labResult.setPatient(patient);
+        labResult.setTestType("VIRAL_LOAD");
+        labResult.setTestDate(testDate);
+        labResult.setResultValue(BigDecimal.valueOf(copies));
+        entityManager.persist(labResult);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, CohortAnalyticsService.class})
+    static class Config {
+    }
+}
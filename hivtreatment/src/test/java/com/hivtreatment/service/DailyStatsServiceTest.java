@@ -0,0 +1,101 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Appointment;
+import com.hivtreatment.entity.DailyStats;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.repository.DailyStatsRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra bảng tổng hợp daily_stats: backfill theo khối ngày, chạy lại không cộng dồn
+ * và bắt được thay đổi trạng thái muộn.
+ */
+@SpringJUnitConfig(DailyStatsServiceTest.Config.class)
+class DailyStatsServiceTest {
+
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    @Autowired
+    private DailyStatsRepository dailyStatsRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long completedInJulyId;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory,
+                entityManager -> completedInJulyId = ClinicActivityFixture.persist(entityManager));
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "DailyStats", "LabResult", "PrescriptionMedication", "Prescription",
+                "Medication", "Appointment", "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void backfillRollsUpEveryDayAcrossChunksAndCanBeRerun() {
+        // 46 ngày: vượt một khối 31 ngày
+        assertThat(dailyStatsService.backfill(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 15))).isEqualTo(46);
+        assertThat(dailyStatsService.backfill(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 4, 15))).isEqualTo(46);
+        assertThat(dailyStatsRepository.count()).isEqualTo(46);
+
+        DailyStats busyDay = dailyStatsRepository.findByStatDate(LocalDate.of(2024, 3, 13)).orElseThrow();
+        assertThat(busyDay.getTotalAppointments()).isEqualTo(2);
+        assertThat(busyDay.getCompletedAppointments()).isEqualTo(2);
+        assertThat(busyDay.getPrescriptions()).isEqualTo(1);
+        assertThat(busyDay.getLabTests()).isEqualTo(2);
+        assertThat(dailyStatsRepository.findByStatDate(LocalDate.of(2024, 3, 5)).orElseThrow().getNewPatients())
+                .isEqualTo(1);
+        assertThat(dailyStatsRepository.findByStatDate(LocalDate.of(2024, 3, 12)).orElseThrow()
+                .getCancelledAppointments()).isEqualTo(1);
+
+        // getStats trả đủ ngày, ngày chưa tổng hợp là 0
+        List<DailyStats> march = dailyStatsService.getStats(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        assertThat(march).hasSize(31);
+        assertThat(march.stream().mapToLong(DailyStats::getTotalAppointments).sum()).isEqualTo(5);
+        assertThat(dailyStatsService.getStats(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 2)))
+                .allMatch(day -> day.getTotalAppointments() == 0);
+    }
+
+    @Test
+    void rollupRecomputesDaysAfterLateChanges() {
+        LocalDate day = LocalDate.of(2024, 7, 2);
+        dailyStatsService.rollup(day, day);
+        assertThat(dailyStatsRepository.findByStatDate(day).orElseThrow().getCompletedAppointments()).isEqualTo(1);
+
+        inTransaction(entityManagerFactory, entityManager -> entityManager.find(Appointment.class, completedInJulyId)
+                .setStatus(AppointmentStatus.CANCELLED));
+        dailyStatsService.rollup(day, day);
+
+        DailyStats stats = dailyStatsRepository.findByStatDate(day).orElseThrow();
+        assertThat(stats.getTotalAppointments()).isEqualTo(1);
+        assertThat(stats.getCompletedAppointments()).isZero();
+        assertThat(stats.getCancelledAppointments()).isEqualTo(1);
+        assertThatThrownBy(() -> dailyStatsService.backfill(day, day.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, DailyStatsService.class})
+    static class Config {
+    }
+}
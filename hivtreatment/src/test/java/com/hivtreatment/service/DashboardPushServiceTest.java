@@ -0,0 +1,173 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.controller.api.PushApiController;
+import com.hivtreatment.entity.PushEvent;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.PushEventType;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.event.DashboardEvent;
+import com.hivtreatment.repository.PushEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Kiểm tra kênh SSE: sự kiện chỉ được đẩy sau khi transaction commit, tới đúng người dùng/vai trò,
+ * và sự kiện do node khác ghi vào push_events cũng đến được kết nối trên node này.
+ */
+@SpringJUnitConfig(DashboardPushServiceTest.Config.class)
+@TestPropertySource(properties = "hiv.push.max-connections-per-user=2")
+class DashboardPushServiceTest {
+
+    @Autowired
+    private PushApiController pushApiController;
+
+    @Autowired
+    private DashboardPushService dashboardPushService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PushEventRepository pushEventRepository;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(pushApiController).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pushEventRepository.deleteAll();
+    }
+
+    @Test
+    void eventsAreFannedOutToUsersAndRolesAfterCommit() throws Exception {
+        MockHttpServletResponse doctor = subscribe(1L, UserRole.DOCTOR);
+        MockHttpServletResponse patient = subscribe(2L, UserRole.PATIENT);
+        MockHttpServletResponse staff = subscribe(3L, UserRole.STAFF);
+        assertThat(doctor.getContentAsString()).contains("event:connected");
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new DashboardEvent(PushEventType.APPOINTMENT_CREATED)
+                    .with("appointmentId", 42L).toUserId(1L).toRole(UserRole.STAFF));
+            // Chưa commit: chưa có gì được đẩy
+            assertThat(contains(doctor, "event:APPOINTMENT_CREATED")).isFalse();
+        });
+
+        waitUntil(() -> contains(doctor, "event:APPOINTMENT_CREATED") && contains(staff, "event:APPOINTMENT_CREATED"));
+        assertThat(doctor.getContentAsString()).contains("\"appointmentId\":42");
+        assertThat(patient.getContentAsString()).doesNotContain("APPOINTMENT_CREATED");
+
+        // Transaction bị rollback thì không đẩy
+        transaction.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new DashboardEvent(PushEventType.URGENT_SYMPTOM).toUserId(2L));
+            status.setRollbackOnly();
+        });
+        eventPublisher.publishEvent(new DashboardEvent(PushEventType.NEW_NOTIFICATION).toUserId(2L));
+        waitUntil(() -> contains(patient, "event:NEW_NOTIFICATION"));
+        assertThat(patient.getContentAsString()).doesNotContain("URGENT_SYMPTOM");
+        // Chỉ sự kiện đã commit được ghi lại cho các node khác
+        assertThat(pushEventRepository.findAll()).extracting(PushEvent::getType)
+                .containsExactly(PushEventType.APPOINTMENT_CREATED, PushEventType.NEW_NOTIFICATION);
+    }
+
+    @Test
+    void eventsWrittenByOtherNodesAreDeliveredOnce() throws Exception {
+        MockHttpServletResponse doctor = subscribe(11L, UserRole.DOCTOR);
+        MockHttpServletResponse patient = subscribe(12L, UserRole.PATIENT);
+
+        // Sự kiện do node khác phát: báo cho mọi bác sĩ
+        PushEvent relay = new PushEvent();
+        relay.setType(PushEventType.URGENT_SYMPTOM);
+        relay.setUserIds("");
+        relay.setRoles("DOCTOR,ADMIN");
+        relay.setPayload("{\"reportId\":5}");
+        relay.setOriginNode("other-node");
+        pushEventRepository.save(relay);
+
+        dashboardPushService.pollRelayedEvents();
+        waitUntil(() -> contains(doctor, "\"reportId\":5"));
+        assertThat(doctor.getContentAsString()).contains("event:URGENT_SYMPTOM");
+        assertThat(patient.getContentAsString()).doesNotContain("URGENT_SYMPTOM");
+
+        // Lần đọc sau vẫn thấy dòng này (khoảng chồng lấn) nhưng không đẩy lại
+        dashboardPushService.pollRelayedEvents();
+        Thread.sleep(200);
+        assertThat(doctor.getContentAsString().split("event:URGENT_SYMPTOM", -1)).hasSize(2);
+
+        // Sự kiện do chính node này ghi đã được đẩy trực tiếp, không đẩy lần nữa khi đọc bảng
+        eventPublisher.publishEvent(new DashboardEvent(PushEventType.NEW_NOTIFICATION).toUserId(12L));
+        waitUntil(() -> contains(patient, "event:NEW_NOTIFICATION"));
+        dashboardPushService.pollRelayedEvents();
+        Thread.sleep(200);
+        assertThat(patient.getContentAsString().split("event:NEW_NOTIFICATION", -1)).hasSize(2);
+    }
+
+    @Test
+    void oldestConnectionIsClosedWhenUserExceedsLimit() throws Exception {
+        int before = dashboardPushService.getConnectionCount();
+        for (int i = 0; i < 4; i++) {
+            subscribe(9L, UserRole.PATIENT);
+        }
+        assertThat(dashboardPushService.getConnectionCount() - before).isEqualTo(2);
+    }
+
+    private MockHttpServletResponse subscribe(Long userId, UserRole role) throws Exception {
+        User user = new User("user" + userId, "user" + userId + "@example.com", "secret", role);
+        user.setId(userId);
+        return mockMvc.perform(get("/api/push/stream")
+                        .principal(new UsernamePasswordAuthenticationToken(user, null, List.of())))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static boolean contains(MockHttpServletResponse response, String text) {
+        try {
+            return response.getContentAsString().contains(text);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for push event");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, DashboardPushService.class, PushApiController.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,144 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.DoctorSearchParams;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.DoctorSpecialization;
+import com.hivtreatment.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra tìm kiếm danh bạ bác sĩ: lọc và phân trang trong SQL qua doctor_specializations
+ * và cột đánh giá tổng hợp.
+ */
+@SpringJUnitConfig(DoctorDirectoryServiceTest.Config.class)
+class DoctorDirectoryServiceTest {
+
+    private static final Sort BY_RATING = Sort.by(Sort.Order.desc("averageRating"), Sort.Order.asc("id"));
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Doctor nguyen;
+    private Doctor tran;
+    private Doctor le;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            nguyen = persistDoctor(entityManager, "bs1", "Nguyễn", "Truyền nhiễm, Nhi khoa");
+            nguyen.setExperienceYears(12);
+            tran = persistDoctor(entityManager, "bs2", "Trần", "truyền  nhiễm");
+            tran.setExperienceYears(4);
+            le = persistDoctor(entityManager, "bs3", "Lê", "Da liễu");
+            le.setExperienceYears(8);
+            le.setIsAvailable(false);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "DoctorSpecialization", "Doctor", "User");
+    }
+
+    @Test
+    void filtersBySpecializationExperienceAvailabilityAndRatingInDatabase() {
+        doctorService.recordRating(nguyen.getId(), 5);
+        doctorService.recordRating(nguyen.getId(), 4);
+        doctorService.recordRating(tran.getId(), 3);
+
+        assertThat(search(DoctorSearchParams.builder().specialization("TRUYỀN NHIỄM").build()))
+                .extracting(Doctor::getId).containsExactly(nguyen.getId(), tran.getId());
+        // Tiền tố chuyên khoa, chuyên khoa thứ hai trong chuỗi
+        assertThat(search(DoctorSearchParams.builder().specialization("nhi").build()))
+                .extracting(Doctor::getId).containsExactly(nguyen.getId());
+        assertThat(search(DoctorSearchParams.builder().minExperience(5).maxExperience(10).build()))
+                .extracting(Doctor::getId).containsExactly(le.getId());
+        assertThat(search(DoctorSearchParams.builder().available(true).minRating(4.0).build()))
+                .extracting(Doctor::getId).containsExactly(nguyen.getId());
+        assertThat(search(DoctorSearchParams.builder().name("trần").build()))
+                .extracting(Doctor::getId).containsExactly(tran.getId());
+
+        assertThat(doctorService.getAverageRating(nguyen.getId())).isEqualTo(4.5);
+        assertThat(doctorService.getAverageRating(le.getId())).isEqualTo(0.0);
+        assertThatThrownBy(() -> doctorService.recordRating(le.getId(), 6)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pagesAndCountsInDatabase() {
+        Page<Doctor> first = doctorService.searchDirectory(new DoctorSearchParams(), PageRequest.of(0, 2, BY_RATING));
+        assertThat(first.getTotalElements()).isEqualTo(3);
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(doctorService.getDoctorsBySpecialization("da liễu", PageRequest.of(0, 10)).getContent())
+                .extracting(Doctor::getId).containsExactly(le.getId());
+    }
+
+    @Test
+    void specializationTableFollowsProfileEditsAndBackfillsLegacyRows() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            Doctor doctor = entityManager.find(Doctor.class, nguyen.getId());
+            // Giữ "Truyền nhiễm", bỏ "Nhi khoa", thêm "Dinh dưỡng"
+            doctor.setSpecialization("truyền nhiễm, Dinh dưỡng");
+        });
+        assertThat(doctorService.getDoctorSpecializations(nguyen.getId()))
+                .containsExactly("Truyền nhiễm", "Dinh dưỡng");
+        assertThat(doctorService.getAllSpecializations()).containsExactly("Da liễu", "Dinh dưỡng", "Truyền nhiễm");
+
+        // Dữ liệu trước khi có bảng doctor_specializations; giữa Lê và Phạm là cả một lô chuỗi chỉ có
+        // dấu phẩy/khoảng trắng, không sinh dòng nào nhưng không được làm backfill dừng trước Phạm
+        List<Long> blankIds = new ArrayList<>();
+        Long[] phamId = new Long[1];
+        inTransaction(entityManagerFactory, entityManager -> {
+            blankIds.add(persistDoctor(entityManager, "bs4", "Trống", " , ,, ").getId());
+            blankIds.add(persistDoctor(entityManager, "bs5", "Trống", ",").getId());
+            phamId[0] = persistDoctor(entityManager, "bs6", "Phạm", "Nội khoa").getId();
+            entityManager.createQuery("DELETE FROM DoctorSpecialization s WHERE s.doctor.id IN :ids")
+                    .setParameter("ids", List.of(le.getId(), phamId[0])).executeUpdate();
+        });
+        assertThat(search(DoctorSearchParams.builder().specialization("da").build())).isEmpty();
+
+        List<Long> scanned = new ArrayList<>();
+        List<Long> ids = List.of(0L);
+        while (!(ids = doctorService.backfillSpecializationEntries(ids.get(ids.size() - 1), 2)).isEmpty()) {
+            scanned.addAll(ids);
+        }
+        assertThat(scanned).containsExactly(le.getId(), blankIds.get(0), blankIds.get(1), phamId[0]);
+        assertThat(doctorService.getDoctorSpecializations(phamId[0])).containsExactly("Nội khoa");
+        assertThat(doctorService.getDoctorSpecializations(blankIds.get(0))).isEmpty();
+        assertThat(search(DoctorSearchParams.builder().specialization("da").build()))
+                .extracting(Doctor::getId).containsExactly(le.getId());
+    }
+
+    private List<Doctor> search(DoctorSearchParams params) {
+        return doctorService.searchDirectory(params, PageRequest.of(0, 10, BY_RATING)).getContent();
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, DoctorService.class,
+            CodeAllocator.class, CodeSequenceService.class})
+    static class Config {
+    }
+}
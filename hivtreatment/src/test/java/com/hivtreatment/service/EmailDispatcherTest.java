@@ -0,0 +1,196 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.MetricsConfig;
+import com.hivtreatment.entity.EmailOutbox;
+import com.hivtreatment.enums.EmailStatus;
+import com.hivtreatment.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra đường gửi email qua outbox với một SMTP server giả (GreenMail) và H2.
+ */
+@SpringJUnitConfig(EmailDispatcherTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.mail.outbox.batch-size=20",
+        "hiv.mail.outbox.workers=3",
+        "hiv.mail.outbox.max-attempts=3",
+        "hiv.mail.outbox.backoff-base-seconds=30"
+})
+class EmailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(meterRegistry);
+        ReflectionTestUtils.setField(emailDispatcher, "mailSender", mailSender);
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void drainDeliversQueuedEmailsInBatches() throws Exception {
+        // 130 email > batch-size * workers, nên cần nhiều vòng claim
+        for (int i = 0; i < 130; i++) {
+            emailOutboxService.enqueue("patient" + i + "@example.com", "Nhắc nhở " + i, "Nội dung " + i, "MEDICATION_REMINDER");
+        }
+
+        int sent = emailDispatcher.drain();
+
+        assertThat(sent).isEqualTo(130);
+        assertThat(greenMail.getReceivedMessages()).hasSize(130);
+        assertThat(emailOutboxRepository.countByStatus(EmailStatus.SENT)).isEqualTo(130);
+        assertThat(emailOutboxService.countPending()).isZero();
+        assertThat(emailCount(MetricsConfig.NOTIFICATIONS_SENT)).isEqualTo(130);
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(email -> {
+            assertThat(email.getSentAt()).isNotNull();
+            assertThat(email.getClaimToken()).isNull();
+        });
+    }
+
+    @Test
+    void failedSendsBackOffThenBecomeDeadLetters() throws Exception {
+        ReflectionTestUtils.setField(emailDispatcher, "mailSender", unreachableMailSender());
+        for (int i = 0; i < 3; i++) {
+            emailOutboxService.enqueue("doctor" + i + "@example.com", "Cảnh báo " + i, "Nội dung " + i, "URGENT_SYMPTOM");
+        }
+
+        assertThat(emailDispatcher.drain()).isZero();
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(EmailStatus.PENDING);
+            assertThat(email.getAttempts()).isEqualTo(1);
+            assertThat(email.getLastError()).isNotBlank();
+            assertThat(email.getNextAttemptAt()).isAfter(now.plusSeconds(20));
+        });
+
+        // Chưa đến hạn thử lại nên lần drain tiếp theo không làm gì
+        assertThat(emailDispatcher.drain()).isZero();
+        assertThat(emailOutboxRepository.findAll()).allMatch(email -> email.getAttempts() == 1);
+
+        makeAllDue();
+        emailDispatcher.drain();
+        makeAllDue();
+        emailDispatcher.drain();
+
+        assertThat(emailOutboxService.countDead()).isEqualTo(3);
+        assertThat(emailOutboxRepository.findAll()).allMatch(email -> email.getAttempts() == 3);
+        assertThat(emailCount(MetricsConfig.NOTIFICATIONS_FAILED)).isEqualTo(9);
+
+        // Sau khi SMTP hoạt động lại, admin đưa dead letter về hàng đợi và email được gửi
+        ReflectionTestUtils.setField(emailDispatcher, "mailSender", mailSender);
+        emailOutboxRepository.findAll().forEach(email -> emailOutboxService.requeue(email.getId()));
+
+        assertThat(emailDispatcher.drain()).isEqualTo(3);
+        assertThat(greenMail.getReceivedMessages()).hasSize(3);
+        assertThat(emailCount(MetricsConfig.NOTIFICATIONS_SENT)).isEqualTo(3);
+    }
+
+    @Test
+    void resultOfAStaleClaimDoesNotOverwriteTheNewClaim() {
+        emailOutboxService.enqueue("patient1@example.com", "Nhắc nhở 1", "Nội dung 1", "MEDICATION_REMINDER");
+        emailOutboxService.enqueue("patient2@example.com", "Nhắc nhở 2", "Nội dung 2", "MEDICATION_REMINDER");
+
+        // Instance A claim rồi treo quá claim-timeout: dòng được trả về hàng đợi và instance B claim lại
+        List<EmailOutbox> stale = emailOutboxService.claimBatch(10);
+        List<EmailOutbox> claimed = emailOutboxRepository.findAll();
+        claimed.forEach(email -> email.setClaimedAt(LocalDateTime.now().minusHours(1)));
+        emailOutboxRepository.saveAll(claimed);
+        assertThat(emailOutboxService.releaseStuck()).isEqualTo(2);
+        List<EmailOutbox> fresh = emailOutboxService.claimBatch(10);
+        String freshToken = fresh.get(0).getClaimToken();
+        assertThat(freshToken).isNotEqualTo(stale.get(0).getClaimToken());
+
+        // Kết quả muộn của A không được ghi đè lượt claim của B
+        emailOutboxService.markSent(stale.get(0).getClaimToken(), List.of(stale.get(0).getId()));
+        emailOutboxService.markFailed(stale.get(1), "Read timed out");
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(EmailStatus.SENDING);
+            assertThat(email.getClaimToken()).isEqualTo(freshToken);
+            assertThat(email.getAttempts()).isZero();
+        });
+
+        emailOutboxService.markSent(freshToken, fresh.stream().map(EmailOutbox::getId).toList());
+        assertThat(emailOutboxRepository.countByStatus(EmailStatus.SENT)).isEqualTo(2);
+    }
+
+    private double emailCount(String name) {
+        return meterRegistry.get(name).tag("channel", "email").counter().count();
+    }
+
+    private void makeAllDue() {
+        List<EmailOutbox> emails = emailOutboxRepository.findAll();
+        emails.forEach(email -> email.setNextAttemptAt(LocalDateTime.now().minusSeconds(1)));
+        emailOutboxRepository.saveAll(emails);
+    }
+
+    private JavaMailSender unreachableMailSender() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(closedPort);
+        return sender;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, EmailOutboxService.class, EmailDispatcher.class})
+    static class Config {
+
+        @Bean
+        JavaMailSender mailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost("localhost");
+            sender.setPort(ServerSetupTest.SMTP.getPort());
+            Properties mailProperties = new Properties();
+            mailProperties.setProperty("mail.from", "noreply@hivtreatment.test");
+            sender.setJavaMailProperties(mailProperties);
+            return sender;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.SearchHitDTO;
+import com.hivtreatment.entity.BlogPost;
+import com.hivtreatment.entity.EducationalResource;
+import com.hivtreatment.enums.SearchDocumentType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra chỉ mục toàn văn: khớp không dấu, xếp hạng tiêu đề trước nội dung, tô sáng,
+ * phân trang và cập nhật chỉ mục khi bài viết/tài liệu thay đổi.
+ */
+@SpringJUnitConfig(FullTextSearchServiceTest.Config.class)
+@TestPropertySource(properties = "hiv.search.sync-overlap-seconds=0")
+class FullTextSearchServiceTest {
+
+    @Autowired
+    private FullTextSearchService fullTextSearchService;
+
+    @Autowired
+    private BlogService blogService;
+
+    @Autowired
+    private EducationalResourceService educationalResourceService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BlogPost titleMatch;
+    private BlogPost bodyMatch;
+    private BlogPost draft;
+    private EducationalResource resource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        inTransaction(entityManagerFactory, entityManager -> {
+            titleMatch = post(entityManager, "dieu-tri-arv", "Điều trị ARV cho người mới",
+                    "<p>Hướng dẫn bắt đầu phác đồ &amp; tuân thủ thuốc.</p>", "PUBLISHED");
+            bodyMatch = post(entityManager, "dinh-duong", "Dinh dưỡng hằng ngày",
+                    "<p>Ăn uống đủ chất giúp quá trình <b>điều trị</b> hiệu quả hơn.</p>", "PUBLISHED");
+            draft = post(entityManager, "ban-nhap", "Điều trị dự phòng (bản nháp)", "Chưa xuất bản", "DRAFT");
+            resource = new EducationalResource();
+            resource.setTitle("Tài liệu phác đồ ARV");
+            resource.setDescription("Tóm tắt các bước điều trị");
+            resource.setCategory("TREATMENT");
+            entityManager.persist(resource);
+        });
+        fullTextSearchService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        deleteAll(entityManagerFactory, "BlogPost", "EducationalResource");
+        fullTextSearchService.rebuild();
+    }
+
+    @Test
+    void matchesWithoutDiacriticsRanksTitleFirstAndHighlights() {
+        Page<SearchHitDTO> hits = fullTextSearchService.search("dieu tri", null, PageRequest.of(0, 10));
+
+        assertThat(hits.getTotalElements()).isEqualTo(3);
+        assertThat(hits.getContent()).extracting(SearchHitDTO::getId)
+                .doesNotContain(draft.getId());
+        SearchHitDTO top = hits.getContent().get(0);
+        assertThat(top.getType()).isEqualTo(SearchDocumentType.BLOG_POST);
+        assertThat(top.getId()).isEqualTo(titleMatch.getId());
+        assertThat(top.getTitleHighlight()).isEqualTo("<mark>Điều</mark> <mark>trị</mark> ARV cho người mới");
+        assertThat(top.getUrl()).isEqualTo("/blog/dieu-tri-arv");
+        // Thẻ HTML của nội dung bị bỏ, entity được giải mã rồi escape lại
+        assertThat(top.getSnippet()).contains("phác đồ &amp; tuân thủ").doesNotContain("<p>");
+
+        SearchHitDTO body = hits.getContent().stream()
+                .filter(hit -> hit.getId().equals(bodyMatch.getId())).findFirst().orElseThrow();
+        assertThat(body.getSnippet()).contains("<mark>điều</mark> <mark>trị</mark>");
+        assertThat(body.getScore()).isLessThan(top.getScore());
+
+        // Các từ đều phải có; ký tự cú pháp Lucene trong từ khóa bị bỏ qua
+        assertThat(fullTextSearchService.search("điều trị vaccine", null, PageRequest.of(0, 10))).isEmpty();
+        assertThat(fullTextSearchService.search("ARV + (", null, PageRequest.of(0, 10))).hasSize(2);
+        assertThat(fullTextSearchService.search("  ?! ", null, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void servicesSearchThroughIndexAndPageInRankOrder() {
+        Page<BlogPost> first = blogService.searchPublishedPosts("DIEU TRI", PageRequest.of(0, 1));
+        Page<BlogPost> second = blogService.searchPublishedPosts("DIEU TRI", PageRequest.of(1, 1));
+
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        assertThat(first.getContent()).extracting(BlogPost::getId).containsExactly(titleMatch.getId());
+        assertThat(second.getContent()).extracting(BlogPost::getId).containsExactly(bodyMatch.getId());
+        assertThat(educationalResourceService.searchResources("phac do"))
+                .extracting(EducationalResource::getId).containsExactly(resource.getId());
+    }
+
+    @Test
+    void writesThroughServicesUpdateTheIndexAfterCommit() {
+        blogService.publishPost(draft.getId());
+        assertThat(fullTextSearchService.search("du phong", SearchDocumentType.BLOG_POST, PageRequest.of(0, 10)))
+                .extracting(SearchHitDTO::getId).containsExactly(draft.getId());
+
+        BlogPost renamed = blogService.getPostBySlug("dinh-duong").orElseThrow();
+        renamed.setTitle("Chế độ ăn cho người nhiễm HIV");
+        blogService.updatePost(renamed);
+        assertThat(fullTextSearchService.search("che do an", null, PageRequest.of(0, 10)))
+                .extracting(SearchHitDTO::getId).containsExactly(bodyMatch.getId());
+
+        blogService.deletePost(titleMatch.getId());
+        resource.setIsActive(false);
+        educationalResourceService.updateResource(resource);
+        assertThat(fullTextSearchService.search("arv", null, PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void periodicSyncPicksUpRowsWrittenElsewhere() throws Exception {
+        // Ghi thẳng vào database (như từ node khác): chỉ mục chưa biết
+        inTransaction(entityManagerFactory, entityManager -> post(entityManager, "xet-nghiem",
+                "Xét nghiệm tải lượng virus", "Nên làm định kỳ", "PUBLISHED"));
+        assertThat(fullTextSearchService.search("tai luong", null, PageRequest.of(0, 10))).isEmpty();
+
+        assertThat(fullTextSearchService.syncChanges()).isEqualTo(1);
+        assertThat(fullTextSearchService.search("tai luong", null, PageRequest.of(0, 10))).hasSize(1);
+        assertThat(fullTextSearchService.getIndexedDocumentCount()).isEqualTo(4);
+    }
+
+    @Test
+    void hitsDeletedOnAnotherNodeAreDroppedAndRemovedFromIndex() {
+        // Xóa hẳn ở node khác: không có sự kiện, không còn updated_at để lần đồng bộ định kỳ thấy
+        inTransaction(entityManagerFactory, entityManager -> entityManager
+                .createQuery("DELETE FROM BlogPost b WHERE b.id = :id")
+                .setParameter("id", titleMatch.getId()).executeUpdate());
+
+        Page<SearchHitDTO> hits = fullTextSearchService.search("dieu tri", null, PageRequest.of(0, 10));
+        assertThat(hits.getContent()).extracting(SearchHitDTO::getId)
+                .containsExactlyInAnyOrder(bodyMatch.getId(), resource.getId());
+        assertThat(hits.getTotalElements()).isEqualTo(2);
+        assertThat(fullTextSearchService.searchIds("dieu tri", SearchDocumentType.BLOG_POST, PageRequest.of(0, 10)))
+                .containsExactly(bodyMatch.getId());
+    }
+
+    private BlogPost post(EntityManager entityManager, String slug, String title, String content, String status) {
+        BlogPost post = new BlogPost();
+        post.setSlug(slug);
+        post.setTitle(title);
+        post.setContent(content);
+        post.setStatus(status);
+        entityManager.persist(post);
+        return post;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, FullTextSearchService.class, BlogService.class,
+            EducationalResourceService.class, ViewCounterService.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,59 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Tiện ích dùng chung cho các test service chạy trên JpaTestConfig.
+ * Dữ liệu mẫu ghi trong transaction riêng và commit ngay, nên service và các thread khác đều đọc được.
+ */
+final class JpaTestSupport {
+
+    private JpaTestSupport() {}
+
+    static void inTransaction(EntityManagerFactory entityManagerFactory, Consumer<EntityManager> work) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            work.accept(entityManager);
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    // Xóa sạch các entity theo thứ tự truyền vào (bảng con trước bảng cha)
+    static void deleteAll(EntityManagerFactory entityManagerFactory, String... entities) {
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (String entity : entities) {
+                entityManager.createQuery("DELETE FROM " + entity).executeUpdate();
+            }
+        });
+    }
+
+    static User persistUser(EntityManager entityManager, String username, UserRole role) {
+        User user = new User(username, username + "@example.com", "secret", role);
+        user.setFirstName(username);
+        user.setLastName(role.name());
+        entityManager.persist(user);
+        return user;
+    }
+
+    // Bác sĩ kèm tài khoản: mã là username viết hoa, tên "BS. Bác sĩ <lastName>", đang nhận bệnh.
+    // Các thuộc tính khác (kinh nghiệm, ngừng nhận bệnh...) đặt trên entity trả về trong cùng transaction
+    static Doctor persistDoctor(EntityManager entityManager, String username, String lastName, String specialization) {
+        Doctor doctor = new Doctor();
+        doctor.setUser(persistUser(entityManager, username, UserRole.DOCTOR));
+        doctor.setDoctorCode(username.toUpperCase());
+        doctor.setFirstName("Bác sĩ");
+        doctor.setLastName(lastName);
+        doctor.setSpecialization(specialization);
+        entityManager.persist(doctor);
+        return doctor;
+    }
+}
@@ -0,0 +1,199 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.LabResultSearchParams;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.stat.SessionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra tìm kiếm kết quả xét nghiệm trong SQL: lọc theo mã bệnh nhân, loại, khoảng ngày,
+ * trạng thái và bác sĩ, phân trang keyset có nạp sẵn bệnh nhân/bác sĩ, và xuất CSV theo lô.
+ */
+@SpringJUnitConfig(LabResultSearchServiceTest.Config.class)
+class LabResultSearchServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Patient an;
+    private Patient binh;
+    private Doctor doctor;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            an = persistPatient(entityManager, "bn1", "BN000001", "An");
+            binh = persistPatient(entityManager, "bn2", "BN000002", "Bình");
+
+            doctor = persistDoctor(entityManager, "bs1", "Trần", null);
+
+            for (int day = 0; day < 30; day++) {
+                entityManager.persist(labResult(an, day % 2 == 0 ? "CD4" : "VIRAL_LOAD", START.plusDays(day),
+                        day % 3 == 0 ? "ABNORMAL" : "NORMAL", day < 10 ? doctor : null));
+            }
+            entityManager.persist(labResult(binh, "CD4", START.plusDays(5), "NORMAL", doctor));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "LatestLabResult", "LabResult", "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void filtersInDatabaseAndLoadsPatientAndDoctorWithTheRows() {
+        CursorPage<LabResult> page = labResultService.searchLabResults(LabResultSearchParams.builder()
+                .patientCode(" bn000001 ").testType("CD4").status("abnormal")
+                .startDate(START.plusDays(1)).endDate(START.plusDays(20)).build(), null, null, 20, true);
+
+        // Ngày 6, 12, 18: chẵn (CD4) và chia hết cho 3 (ABNORMAL), trong khoảng ngày
+        assertThat(page.getContent()).extracting(LabResult::getTestDate)
+                .containsExactly(START.plusDays(18), START.plusDays(12), START.plusDays(6));
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        // Đọc bên ngoài transaction: bệnh nhân và bác sĩ đã được nạp cùng câu truy vấn
+        assertThat(page.getContent().get(2).getPatient().getPatientCode()).isEqualTo("BN000001");
+        assertThat(page.getContent().get(2).getDoctor().getFullName()).isEqualTo("BS. Bác sĩ Trần");
+
+        assertThat(labResultService.searchLabResults(LabResultSearchParams.builder().doctorId(doctor.getId()).build(),
+                null, null, 20, true).getTotalElements()).isEqualTo(11);
+        assertThat(labResultService.searchLabResults(LabResultSearchParams.builder().patientCode("BN999999").build(),
+                null, null, 20, true).getContent()).isEmpty();
+    }
+
+    @Test
+    void pagesWithKeysetCursorsInTestDateOrder() {
+        LabResultSearchParams params = LabResultSearchParams.builder().patientCode("BN000001").build();
+        List<LocalDate> dates = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPage<LabResult> page = labResultService.searchLabResults(params, after, null, 7, false);
+            page.getContent().forEach(labResult -> dates.add(labResult.getTestDate()));
+            assertThat(page.getTotalElements()).isNull();
+            after = page.getNextCursor();
+        } while (after != null);
+
+        assertThat(dates).hasSize(30).isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    void exportsAllMatchingRowsAcrossBatchesAsCsv() throws Exception {
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (int i = 0; i < 1_200; i++) {
+                LabResult labResult = labResult(binh, "HIV_RNA", START.minusDays(i % 400), "NORMAL", null);
+                labResult.setResultText(i == 0 ? "Âm tính, \"không phát hiện\"" : "=HYPERLINK(\"x\")");
+                entityManager.persist(labResult);
+            }
+        });
+
+        StringWriter csv = new StringWriter();
+        long written = labResultService.exportLabResults(
+                LabResultSearchParams.builder().patientCode("BN000002").testType("HIV_RNA").build(), csv);
+
+        String[] lines = csv.toString().split("\n");
+        assertThat(written).isEqualTo(1_200);
+        assertThat(lines).hasSize(1_201);
+        assertThat(lines[0]).startsWith("id,test_date,patient_code");
+        assertThat(csv.toString()).contains(",\"Âm tính, \"\"không phát hiện\"\"\",");
+        assertThat(lines[1]).contains(",BN000002,Bệnh nhân Bình,HIV_RNA,").contains("'=HYPERLINK");
+        // Không trùng dòng khi đi qua ranh giới các lô có cùng test_date
+        assertThat(List.of(lines).subList(1, lines.length).stream().map(line -> line.split(",")[0]).distinct())
+                .hasSize(1_200);
+    }
+
+    @Test
+    void exportKeepsPersistenceContextSmallWhenOpenInViewBindsAnEntityManager() throws Exception {
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (int i = 0; i < 1_200; i++) {
+                entityManager.persist(labResult(binh, "HIV_RNA", START.minusDays(i % 400), "NORMAL", null));
+            }
+        });
+
+        // Như OpenEntityManagerInViewInterceptor: EntityManager của request gắn vào luồng ghi CSV
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(requestEntityManager));
+        try {
+            SessionStatistics statistics = requestEntityManager.unwrap(Session.class).getStatistics();
+            AtomicInteger maxManaged = new AtomicInteger();
+            Writer csv = new StringWriter() {
+                @Override
+                public void write(int c) {
+                    super.write(c);
+                    if (c == '\n') maxManaged.accumulateAndGet(statistics.getEntityCount(), Math::max);
+                }
+            };
+
+            long written = labResultService.exportLabResults(
+                    LabResultSearchParams.builder().patientCode("BN000002").testType("HIV_RNA").build(), csv);
+
+            assertThat(written).isEqualTo(1_200);
+            // Tối đa một lô (500 dòng) cùng bệnh nhân của nó, không phải cả 1.200 dòng
+            assertThat(maxManaged.get()).isPositive().isLessThan(600);
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEntityManager.close();
+        }
+    }
+
+    private LabResult labResult(Patient patient, String testType, LocalDate testDate, String status, Doctor doctor) {
+        LabResult labResult = new LabResult();
+        labResult.setPatient(patient);
+        labResult.setDoctor(doctor);
+        labResult.setTestType(testType);
+        labResult.setTestDate(testDate);
+        labResult.setStatus(status);
+        labResult.setResultValue(BigDecimal.valueOf(350));
+        return labResult;
+    }
+
+    private Patient persistPatient(EntityManager entityManager, String username, String code, String lastName) {
+        User user = persistUser(entityManager, username, UserRole.PATIENT);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(code);
+        patient.setFirstName("Bệnh nhân");
+        patient.setLastName(lastName);
+        entityManager.persist(patient);
+        return patient;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, LabResultService.class})
+    static class Config {
+    }
+}
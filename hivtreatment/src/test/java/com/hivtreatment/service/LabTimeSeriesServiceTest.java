@@ -0,0 +1,214 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.LabSeriesPointDTO;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.LatestLabResult;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.PushEventType;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.event.DashboardEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra bảng kết quả xét nghiệm mới nhất (cập nhật khi thêm/sửa/xóa, chạy bù dữ liệu cũ),
+ * truy vấn N kết quả gần nhất, rút gọn chuỗi giá trị cho biểu đồ và chỉ báo bệnh nhân khi kết quả được duyệt.
+ */
+@SpringJUnitConfig(LabTimeSeriesServiceTest.Config.class)
+class LabTimeSeriesServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DashboardEvents dashboardEvents;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            User user = persistUser(entityManager, "bn1", UserRole.PATIENT);
+
+            patient = new Patient();
+            patient.setUser(user);
+            patient.setPatientCode("BN000001");
+            patient.setFirstName("Bệnh nhân");
+            patient.setLastName("Một");
+            entityManager.persist(patient);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "LatestLabResult", "LabResult", "Patient", "Doctor", "User");
+        dashboardEvents.received.clear();
+    }
+
+    @Test
+    void reviewEventIsPublishedOnlyWhenResultBecomesReviewed() {
+        Doctor[] doctor = new Doctor[1];
+        inTransaction(entityManagerFactory, entityManager -> doctor[0] = persistDoctor(entityManager, "bs1", "Một", null));
+
+        // Kết quả nhập từ phòng xét nghiệm, chưa có bác sĩ duyệt
+        LabResult result = labResult("CD4", START, 350);
+        result.setStatus("PENDING");
+        result = labResultService.createLabResult(result);
+        assertThat(dashboardEvents.received).isEmpty();
+
+        result.setDoctor(doctor[0]);
+        result.setStatus("NORMAL");
+        result = labResultService.updateLabResult(result);
+        assertThat(dashboardEvents.received).extracting(DashboardEvent::getType)
+                .containsExactly(PushEventType.LAB_RESULT_REVIEWED);
+
+        // Sửa ghi chú trên kết quả đã duyệt: không báo lại
+        result.setNotes("Đã trao đổi với bệnh nhân");
+        labResultService.updateLabResult(result);
+        assertThat(dashboardEvents.received).hasSize(1);
+    }
+
+    @Test
+    void latestRowFollowsInsertsUpdatesAndDeletes() {
+        LabResult older = labResultService.createLabResult(labResult("CD4", START, 350));
+        LabResult newer = labResultService.createLabResult(labResult("CD4", START.plusMonths(6), 480));
+        // Kết quả nhập muộn cho ngày cũ không thay giá trị mới nhất
+        labResultService.createLabResult(labResult("CD4", START.minusMonths(6), 200));
+        labResultService.createLabResult(labResult("VIRAL_LOAD", START, 40));
+
+        assertThat(labResultService.getLatestLabResults(patient.getId()))
+                .extracting(LatestLabResult::getTestType).containsExactly("CD4", "VIRAL_LOAD");
+        assertThat(findLatest("CD4").getLabResultId()).isEqualTo(newer.getId());
+        assertThat(findLatest("CD4").getResultValue()).isEqualByComparingTo("480");
+
+        newer.setResultValue(new BigDecimal("510"));
+        labResultService.updateLabResult(newer);
+        assertThat(findLatest("CD4").getResultValue()).isEqualByComparingTo("510");
+
+        // Đổi loại xét nghiệm: loại cũ quay về kết quả trước đó, loại mới nhận kết quả này
+        newer.setTestType("CD8");
+        labResultService.updateLabResult(newer);
+        assertThat(findLatest("CD4").getLabResultId()).isEqualTo(older.getId());
+        assertThat(findLatest("CD8").getLabResultId()).isEqualTo(newer.getId());
+
+        labResultService.deleteLabResult(newer.getId());
+        assertThat(labResultService.getLatestLabResults(patient.getId()))
+                .extracting(LatestLabResult::getTestType).containsExactly("CD4", "VIRAL_LOAD");
+        assertThat(labResultService.getLatestLabResult(patient.getId(), "CD4"))
+                .get().extracting(LabResult::getId).isEqualTo(older.getId());
+    }
+
+    @Test
+    void recentResultsAndSeriesReadOnlyWhatIsAsked() {
+        for (int month = 0; month < 24; month++) {
+            labResultService.createLabResult(labResult("CD4", START.plusMonths(month), 200 + month * 10));
+        }
+
+        assertThat(labResultService.getRecentLabResultsByPatientAndTestType(patient.getId(), "CD4", 3))
+                .extracting(LabResult::getTestDate)
+                .containsExactly(START.plusMonths(23), START.plusMonths(22), START.plusMonths(21));
+
+        List<LabSeriesPointDTO> year = labResultService.getLabSeries(patient.getId(), "CD4",
+                START.plusMonths(12), START.plusMonths(23), 100);
+        assertThat(year).hasSize(12);
+        assertThat(year.get(0).getDate()).isEqualTo(START.plusMonths(12));
+
+        List<LabSeriesPointDTO> chart = labResultService.getLabSeries(patient.getId(), "CD4", null, null, 5);
+        assertThat(chart).hasSize(5);
+        assertThat(chart.get(0).getDate()).isEqualTo(START);
+        assertThat(chart.get(4).getDate()).isEqualTo(START.plusMonths(23));
+    }
+
+    @Test
+    void downsamplingKeepsEndpointsAndPeaks() {
+        List<LabSeriesPointDTO> points = new ArrayList<>();
+        for (int day = 0; day < 1_000; day++) {
+            // Đường phẳng với một đỉnh duy nhất: trung bình theo nhóm sẽ làm mất đỉnh này
+            points.add(new LabSeriesPointDTO(START.plusDays(day), BigDecimal.valueOf(day == 437 ? 100_000 : 20)));
+        }
+
+        List<LabSeriesPointDTO> sampled = LabResultService.downsample(points, 50);
+
+        assertThat(sampled).hasSize(50);
+        assertThat(sampled.get(0)).isSameAs(points.get(0));
+        assertThat(sampled.get(49)).isSameAs(points.get(999));
+        assertThat(sampled).contains(points.get(437));
+        assertThat(sampled).extracting(LabSeriesPointDTO::getDate).isSorted();
+        assertThat(LabResultService.downsample(points.subList(0, 2), 1)).hasSize(2);
+    }
+
+    @Test
+    void backfillCreatesMissingLatestRows() {
+        LabResult cd4 = labResultService.createLabResult(labResult("CD4", START, 350));
+        labResultService.createLabResult(labResult("VIRAL_LOAD", START, 40));
+        // Dữ liệu trước khi có bảng latest_lab_results
+        deleteAll(entityManagerFactory, "LatestLabResult");
+        assertThat(labResultService.getLatestLabResults(patient.getId())).isEmpty();
+
+        assertThat(labResultService.backfillLatestLabResults(100)).isEqualTo(1);
+        assertThat(labResultService.backfillLatestLabResults(100)).isZero();
+        assertThat(findLatest("CD4").getLabResultId()).isEqualTo(cd4.getId());
+        assertThat(labResultService.getLatestLabResults(patient.getId())).hasSize(2);
+    }
+
+    private LatestLabResult findLatest(String testType) {
+        return labResultService.getLatestLabResults(patient.getId()).stream()
+                .filter(latest -> latest.getTestType().equals(testType)).findFirst().orElseThrow();
+    }
+
+    private LabResult labResult(String testType, LocalDate testDate, int value) {
+        LabResult labResult = new LabResult();
+        labResult.setPatient(patient);
+        labResult.setTestType(testType);
+        labResult.setTestDate(testDate);
+        labResult.setResultValue(BigDecimal.valueOf(value));
+        return labResult;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, LabResultService.class})
+    static class Config {
+
+        @Bean
+        DashboardEvents dashboardEvents() {
+            return new DashboardEvents();
+        }
+    }
+
+    static class DashboardEvents {
+
+        final List<DashboardEvent> received = new CopyOnWriteArrayList<>();
+
+        @EventListener
+        void onDashboardEvent(DashboardEvent event) {
+            received.add(event);
+        }
+    }
+}
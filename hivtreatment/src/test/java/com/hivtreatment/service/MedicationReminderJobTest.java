@@ -0,0 +1,195 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.*;
+import com.hivtreatment.enums.JobRunStatus;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.EmailOutboxRepository;
+import com.hivtreatment.repository.JobRunRepository;
+import com.hivtreatment.repository.NotificationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra job nhắc uống thuốc: mỗi bệnh nhân một thông báo tổng hợp, xử lý theo khối song song,
+ * và chạy tiếp từ checkpoint sau khi bị gián đoạn.
+ */
+@SpringJUnitConfig(MedicationReminderJobTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.reminders.medication.chunk-size=4",
+        "hiv.reminders.medication.parallelism=3",
+        "hiv.cluster.partitions=3"
+})
+class MedicationReminderJobTest {
+
+    private static final int PATIENTS = 25;
+
+    @Autowired
+    private MedicationReminderJob medicationReminderJob;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JobRunRepository jobRunRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> patientIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, this::seedPrescriptions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "EmailOutbox", "Notification", "JobRun", "JobLock",
+                "PrescriptionMedication", "Prescription", "Medication", "Patient", "DoctorSpecialization",
+                "Doctor", "User");
+        patientIds.clear();
+    }
+
+    @Test
+    void runSendsOneDigestPerPatient() {
+        LocalDateTime now = LocalDate.now().atTime(7, 0);
+
+        long reminded = medicationReminderJob.run(now);
+
+        assertThat(reminded).isEqualTo(PATIENTS);
+        List<Notification> notifications = notificationRepository.findByType("MEDICATION_REMINDER");
+        assertThat(notifications).hasSize(PATIENTS);
+        assertThat(notifications).allSatisfy(notification ->
+                assertThat(notification.getMessage()).contains("Efavirenz", "Lamivudine", "Tenofovir"));
+        assertThat(emailOutboxRepository.count()).isEqualTo(PATIENTS);
+
+        List<JobRun> runs = jobRunRepository.findAll();
+        assertThat(runs).hasSize(3);
+        assertThat(runs).allMatch(run -> run.getStatus() == JobRunStatus.COMPLETED);
+        assertThat(runs.stream().mapToLong(JobRun::getItemsProcessed).sum()).isEqualTo(PATIENTS);
+
+        // Cùng khung giờ đã hoàn thành thì không gửi lại
+        assertThat(medicationReminderJob.run(now.plusMinutes(10))).isZero();
+        assertThat(notificationRepository.count()).isEqualTo(PATIENTS);
+    }
+
+    @Test
+    void resumesInterruptedRunFromCheckpoint() {
+        // Node chết khi đang chạy phân vùng 0; phân vùng 1 đã xong; phân vùng 2 chưa node nào nhận
+        String runKey = LocalDate.now() + "T07";
+        LocalDateTime startedAt = LocalDate.now().atTime(7, 0);
+        List<Long> partition0 = patientIds.stream().filter(id -> id % 3 == 0).toList();
+        List<Long> partition2 = patientIds.stream().filter(id -> id % 3 == 2).toList();
+
+        JobRun interrupted = new JobRun(MedicationReminderJob.JOB_NAME, runKey, 0);
+        interrupted.setStartedAt(startedAt);
+        interrupted.setCheckpoint(partition0.get(1));
+        interrupted.setItemsProcessed(2);
+        jobRunRepository.save(interrupted);
+
+        JobRun completed = new JobRun(MedicationReminderJob.JOB_NAME, runKey, 1);
+        completed.setStartedAt(startedAt);
+        completed.setStatus(JobRunStatus.COMPLETED);
+        jobRunRepository.save(completed);
+
+        long reminded = medicationReminderJob.resumeInterrupted(startedAt.plusMinutes(30));
+
+        long expected = (partition0.size() - 2) + partition2.size();
+        assertThat(reminded).isEqualTo(expected);
+        assertThat(notificationRepository.count()).isEqualTo(expected);
+        JobRun run = jobRunRepository.findById(interrupted.getId()).orElseThrow();
+        assertThat(run.getStatus()).isEqualTo(JobRunStatus.COMPLETED);
+        assertThat(run.getItemsProcessed()).isEqualTo(partition0.size());
+
+        // Không còn lần chạy nào cần chạy tiếp
+        assertThat(medicationReminderJob.resumeInterrupted(startedAt.plusMinutes(35))).isZero();
+    }
+
+    // --- DỮ LIỆU MẪU ---
+
+    private void seedPrescriptions(EntityManager entityManager) {
+        Doctor doctor = persistDoctor(entityManager, "doctor", "Một", null);
+
+        List<Medication> medications = new ArrayList<>();
+        for (String name : List.of("Tenofovir", "Lamivudine", "Efavirenz")) {
+            Medication medication = new Medication();
+            medication.setName(name);
+            entityManager.persist(medication);
+            medications.add(medication);
+        }
+
+        for (int i = 0; i < PATIENTS + 2; i++) {
+            Patient patient = new Patient();
+            patient.setUser(persistUser(entityManager, "patient" + i, UserRole.PATIENT));
+            patient.setPatientCode("BN" + i);
+            patient.setFirstName("Bệnh nhân");
+            patient.setLastName(String.valueOf(i));
+            entityManager.persist(patient);
+
+            if (i == PATIENTS) {
+                // Đơn đã hết hạn: không nhắc
+                persistPrescription(entityManager, patient, doctor, medications, "ACTIVE", LocalDate.now().minusDays(1));
+            } else if (i == PATIENTS + 1) {
+                persistPrescription(entityManager, patient, doctor, medications, "COMPLETED", null);
+            } else {
+                // Hai đơn còn hiệu lực, thuốc trùng nhau chỉ nhắc một lần
+                persistPrescription(entityManager, patient, doctor, medications.subList(0, 2), "ACTIVE", null);
+                persistPrescription(entityManager, patient, doctor, medications.subList(1, 3), "ACTIVE",
+                        LocalDate.now().plusMonths(1));
+                patientIds.add(patient.getId());
+            }
+        }
+    }
+
+    private void persistPrescription(EntityManager entityManager, Patient patient, Doctor doctor,
+                                     List<Medication> medications, String status, LocalDate endDate) {
+        Prescription prescription = new Prescription();
+        prescription.setPatient(patient);
+        prescription.setDoctor(doctor);
+        prescription.setPrescriptionDate(LocalDate.now().minusMonths(1));
+        prescription.setStartDate(LocalDate.now().minusMonths(1));
+        prescription.setEndDate(endDate);
+        prescription.setStatus(status);
+        List<PrescriptionMedication> items = new ArrayList<>();
+        for (Medication medication : medications) {
+            PrescriptionMedication item = new PrescriptionMedication();
+            item.setPrescription(prescription);
+            item.setMedication(medication);
+            item.setDosage("1 viên");
+            item.setFrequency("Ngày 2 lần");
+            item.setDurationDays(30);
+            item.setQuantity(60);
+            items.add(item);
+        }
+        prescription.setPrescriptionMedications(items);
+        entityManager.persist(prescription);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, EmailOutboxService.class, NotificationService.class, UnreadNotificationCounter.class, JobRunService.class,
+            JobLockService.class, ClusterJobRunner.class, MedicationReminderService.class, MedicationReminderJob.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,141 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.NotificationPurgeResult;
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.NotificationArchive;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.NotificationArchiveRepository;
+import com.hivtreatment.repository.NotificationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Kiểm tra dọn thông báo theo TTL từng loại, xóa theo lô và lưu trữ nén trước khi xóa.
+ */
+@SpringJUnitConfig(NotificationRetentionJobTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.notifications.retention.ttl-days=MEDICATION_REMINDER:7,URGENT_SYMPTOM:365",
+        "hiv.notifications.retention.default-days=90",
+        "hiv.notifications.retention.batch-size=4",
+        "hiv.notifications.retention.archive=true"
+})
+class NotificationRetentionJobTest {
+
+    @Autowired
+    private NotificationRetentionJob notificationRetentionJob;
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationArchiveRepository notificationArchiveRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            User user = new User("patient", "patient@example.com", "secret", UserRole.PATIENT);
+            user.setFirstName("Bệnh nhân");
+            user.setLastName("Một");
+            entityManager.persist(user);
+
+            persistNotifications(entityManager, user, "MEDICATION_REMINDER", 10, 10);
+            persistNotifications(entityManager, user, "MEDICATION_REMINDER", 3, 2);
+            persistNotifications(entityManager, user, "URGENT_SYMPTOM", 2, 100);
+            persistNotifications(entityManager, user, "URGENT_SYMPTOM", 1, 400);
+            persistNotifications(entityManager, user, "GENERAL", 5, 100);
+            persistNotifications(entityManager, user, "GENERAL", 1, 30);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationArchiveRepository.deleteAll();
+        deleteAll(entityManagerFactory, "Notification", "User");
+    }
+
+    @Test
+    void purgesExpiredNotificationsPerTypeInBatches() {
+        NotificationPurgeResult result = notificationRetentionJob.purgeExpired(now);
+
+        assertThat(result.getTotalPurged()).isEqualTo(16);
+        assertThat(result.getPurgedByType()).containsExactly(entry("MEDICATION_REMINDER", 10L),
+                entry("URGENT_SYMPTOM", 1L), entry(NotificationRetentionJob.DEFAULT_GROUP, 5L));
+        // 10 dòng với lô 4 dòng = 3 lô, cộng 1 lô URGENT_SYMPTOM và 2 lô mặc định
+        assertThat(result.getArchivedBatches()).isEqualTo(6);
+        assertThat(result.getDurationMs()).isNotNegative();
+
+        List<Notification> remaining = notificationRepository.findAll();
+        assertThat(remaining).hasSize(6);
+        assertThat(remaining).allMatch(n -> !n.getCreatedAt().isBefore(now.minusDays(
+                n.getType().equals("URGENT_SYMPTOM") ? 365 : n.getType().equals("MEDICATION_REMINDER") ? 7 : 90)));
+
+        // Chạy lại không xóa thêm gì
+        assertThat(notificationRetentionJob.purgeExpired(now).getTotalPurged()).isZero();
+    }
+
+    @Test
+    void archivesCompressedBatchesBeforeDeleting() {
+        notificationRetentionJob.purgeExpired(now);
+
+        List<NotificationArchive> reminders = notificationArchiveRepository
+                .findByNotificationTypeOrderByIdAsc("MEDICATION_REMINDER");
+        assertThat(reminders).extracting(NotificationArchive::getRowCount).containsExactly(4, 4, 2);
+
+        List<Map<String, Object>> rows = notificationRetentionService.readArchive(reminders.get(0));
+        assertThat(rows).hasSize(4);
+        assertThat(rows).allSatisfy(row -> {
+            assertThat(row.get("type")).isEqualTo("MEDICATION_REMINDER");
+            assertThat(row.get("title")).isEqualTo("Nhắc nhở uống thuốc");
+            assertThat(row.get("userId")).isNotNull();
+        });
+
+        long archivedRows = notificationArchiveRepository.findAll().stream()
+                .mapToLong(NotificationArchive::getRowCount).sum();
+        assertThat(archivedRows).isEqualTo(16);
+    }
+
+    private void persistNotifications(EntityManager entityManager, User user, String type, int count, int ageDays) {
+        for (int i = 0; i < count; i++) {
+            Notification notification = new Notification(user, "MEDICATION_REMINDER".equals(type)
+                    ? "Nhắc nhở uống thuốc" : "Thông báo", "Nội dung " + i, type);
+            entityManager.persist(notification);
+            entityManager.flush();
+            // created_at luôn được @PrePersist gán bằng giờ hiện tại, nên lùi lại sau khi lưu
+            entityManager.createQuery("UPDATE Notification n SET n.createdAt = :createdAt WHERE n.id = :id")
+                    .setParameter("createdAt", now.minusDays(ageDays))
+                    .setParameter("id", notification.getId())
+                    .executeUpdate();
+        }
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, NotificationRetentionService.class, NotificationRetentionJob.class})
+    static class Config {
+    }
+}
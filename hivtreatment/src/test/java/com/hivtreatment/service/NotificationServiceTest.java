@@ -0,0 +1,108 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.EmailOutboxRepository;
+import com.hivtreatment.repository.NotificationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra truy vấn N thông báo mới nhất và bộ đếm chưa đọc dùng cho API polling.
+ */
+@SpringJUnitConfig(NotificationServiceTest.Config.class)
+@TestPropertySource(properties = "hiv.notifications.unread-cache.ttl-seconds=3600")
+class NotificationServiceTest {
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("patient", "patient@example.com", "secret", UserRole.PATIENT);
+        user.setFirstName("Bệnh nhân");
+        user.setLastName("Một");
+        inTransaction(entityManagerFactory, entityManager -> entityManager.persist(user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailOutboxRepository.deleteAll();
+        deleteAll(entityManagerFactory, "Notification", "User");
+    }
+
+    @Test
+    void recentNotificationsReturnsNewestFirstLimitedToN() {
+        for (int i = 0; i < 15; i++) {
+            notificationService.createNotification(new Notification(user, "Thông báo " + i, "Nội dung", "GENERAL"));
+        }
+
+        List<Notification> recent = notificationService.getRecentNotifications(user.getId(), 10);
+
+        assertThat(recent).hasSize(10);
+        assertThat(recent).extracting(Notification::getTitle)
+                .startsWith("Thông báo 14", "Thông báo 13")
+                .endsWith("Thông báo 5");
+    }
+
+    @Test
+    void unreadCountIsServedFromCounterAndKeptInSync() {
+        for (int i = 0; i < 3; i++) {
+            notificationService.sendAppointmentReminder(user, LocalDateTime.now().plusDays(1), "Bác sĩ A");
+        }
+        assertThat(notificationService.getUnreadCount(user.getId())).isEqualTo(3);
+
+        // Thêm dòng trực tiếp vào database: bộ đếm đã nạp nên không COUNT lại
+        insertUnreadBehindServiceBack();
+        assertThat(notificationService.getUnreadCount(user.getId())).isEqualTo(3);
+
+        notificationService.createNotification(new Notification(user, "Mới", "Nội dung", "GENERAL"));
+        assertThat(notificationService.getUnreadCount(user.getId())).isEqualTo(4);
+
+        Long firstId = notificationService.getRecentNotifications(user.getId(), 10).get(0).getId();
+        notificationService.markAsRead(firstId);
+        notificationService.markAsRead(firstId);
+        assertThat(notificationService.getUnreadCount(user.getId())).isEqualTo(3);
+
+        notificationService.markAllAsRead(user.getId());
+        assertThat(notificationService.getUnreadCount(user.getId())).isZero();
+        assertThat(notificationRepository.countByUserIdAndIsReadFalse(user.getId())).isZero();
+        assertThat(notificationRepository.findAll()).hasSize(5).allMatch(Notification::getIsRead);
+    }
+
+    private void insertUnreadBehindServiceBack() {
+        inTransaction(entityManagerFactory, entityManager -> entityManager.persist(
+                new Notification(entityManager.find(User.class, user.getId()), "Ngoài service", "Nội dung", "GENERAL")));
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, NotificationService.class, UnreadNotificationCounter.class, EmailOutboxService.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,129 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.dto.PatientSearchParams;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.enums.UserRole;
+import com.hivtreatment.repository.KeysetPagination;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra phân trang keyset theo id: cuộn tới/lùi không sót, không lặp kể cả khi dòng bị sửa giữa chừng,
+ * trang OFFSET nối tiếp trang keyset đầu tiên, và chỉ cột NOT NULL mới được làm khóa.
+ */
+@SpringJUnitConfig(PatientKeysetPagingTest.Config.class)
+class PatientKeysetPagingTest {
+
+    private static final int PATIENTS = 10;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final PatientSearchParams all = PatientSearchParams.builder().build();
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            for (int i = 0; i < PATIENTS; i++) {
+                Patient patient = new Patient();
+                patient.setUser(persistUser(entityManager, "bn" + i, UserRole.PATIENT));
+                patient.setPatientCode("BN00000" + i);
+                patient.setFirstName("Bệnh nhân");
+                patient.setLastName(String.valueOf(i));
+                entityManager.persist(patient);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "Patient", "User");
+    }
+
+    @Test
+    void scrollsForwardAndBackByIdWithoutGapsOrRepeats() {
+        List<Long> seen = new ArrayList<>();
+
+        CursorPage<Patient> first = patientService.scrollPatients(all, null, null, 4, true);
+        assertThat(first.getTotalElements()).isEqualTo(PATIENTS);
+        assertThat(first.isHasPrevious()).isFalse();
+        first.getContent().forEach(patient -> seen.add(patient.getId()));
+
+        // Sửa một dòng chưa đọc tới giữa hai lần cuộn: khóa id không đổi nên vẫn gặp đúng một lần
+        Long untouchedLater = first.getContent().get(first.getContent().size() - 1).getId() - 1;
+        inTransaction(entityManagerFactory,
+                entityManager -> entityManager.find(Patient.class, untouchedLater).setPhone("0999999999"));
+
+        CursorPage<Patient> page = first;
+        while (page.isHasNext()) {
+            page = patientService.scrollPatients(all, page.getNextCursor(), null, 4, false);
+            assertThat(page.getTotalElements()).isNull();
+            page.getContent().forEach(patient -> seen.add(patient.getId()));
+        }
+        assertThat(seen).hasSize(PATIENTS).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+
+        CursorPage<Patient> second = patientService.scrollPatients(all, first.getNextCursor(), null, 4, false);
+        CursorPage<Patient> back = patientService.scrollPatients(all, null, second.getPreviousCursor(), 4, false);
+        assertThat(back.getContent()).extracting(Patient::getId)
+                .containsExactlyElementsOf(first.getContent().stream().map(Patient::getId).toList());
+    }
+
+    @Test
+    void offsetPagesContinueTheKeysetFirstPage() {
+        CursorPage<Patient> first = patientService.scrollPatients(all, null, null, 4, true);
+        // Sửa một bệnh nhân ở trang đầu: thứ tự theo id không đổi
+        inTransaction(entityManagerFactory, entityManager ->
+                entityManager.find(Patient.class, first.getContent().get(0).getId()).setPhone("0999999999"));
+
+        List<Long> seen = new ArrayList<>();
+        first.getContent().forEach(patient -> seen.add(patient.getId()));
+        for (int page = 1; page < 3; page++) {
+            patientService.searchPatients(all, PageRequest.of(page, 4, PatientService.KEYSET_SORT)).getContent()
+                    .forEach(patient -> seen.add(patient.getId()));
+        }
+        assertThat(seen).hasSize(PATIENTS).doesNotHaveDuplicates()
+                .isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    @Test
+    void cursorsOnlyUseNonNullKeys() {
+        // updated_at/created_at của bệnh nhân cho phép NULL và đổi khi sửa: không được làm khóa
+        assertThatThrownBy(() -> KeysetPagination.keysetSort(Patient.class,
+                Sort.Order.desc("updatedAt"), Sort.Order.desc("id")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetPagination.keysetSort(Patient.class, Sort.Order.desc("patientCode")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(KeysetPagination.keysetSort(Patient.class, Sort.Order.asc("patientCode"), Sort.Order.asc("id")))
+                .isNotNull();
+
+        assertThatThrownBy(() -> patientService.scrollPatients(all, "not-a-cursor", null, 4, false))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, PatientService.class, CodeAllocator.class, CodeSequenceService.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,153 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.PatientSearchParams;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.Gender;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra tìm kiếm bệnh nhân bằng Specification: lọc, sắp xếp và đếm đều chạy trong SQL.
+ */
+@SpringJUnitConfig(PatientSearchServiceTest.Config.class)
+class PatientSearchServiceTest {
+
+    private static final int EXTRA_PATIENTS = 7;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long firstDoctorId;
+    private Long secondDoctorId;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            Doctor first = persistDoctor(entityManager, "bs1", "Một", null);
+            Doctor second = persistDoctor(entityManager, "bs2", "Hai", null);
+            firstDoctorId = first.getId();
+            secondDoctorId = second.getId();
+
+            LocalDate today = LocalDate.now();
+            persistPatient(entityManager, "BN000001", "Nguyen", "An", Gender.MALE, today.minusYears(30),
+                    "0901111111", "ACTIVE", first);
+            persistPatient(entityManager, "BN000002", "Tran", "Binh", Gender.FEMALE, today.minusYears(25),
+                    "0902222222", "ACTIVE", first);
+            persistPatient(entityManager, "BN000003", "Le", "Cuc", Gender.FEMALE, today.minusYears(30).minusDays(1),
+                    "0903333333", "PAUSED", second);
+            for (int i = 0; i < EXTRA_PATIENTS; i++) {
+                persistPatient(entityManager, "BN10000" + i, "Pham", "Duc" + i, Gender.MALE, today.minusYears(40),
+                        "0910000000", "ACTIVE", second);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void eachFilterIsAppliedInTheQuery() {
+        assertThat(codes(PatientSearchParams.builder().name("BINH").build())).containsExactly("BN000002");
+        assertThat(codes(PatientSearchParams.builder().search("bn000003").build())).containsExactly("BN000003");
+        assertThat(codes(PatientSearchParams.builder().search("0902").build())).containsExactly("BN000002");
+        assertThat(codes(PatientSearchParams.builder().gender("female").build()))
+                .containsExactlyInAnyOrder("BN000002", "BN000003");
+        // Giới tính không hợp lệ: không trả về ai thay vì bỏ qua điều kiện
+        assertThat(codes(PatientSearchParams.builder().gender("X").build())).isEmpty();
+        assertThat(codes(PatientSearchParams.builder().age(30).build()))
+                .containsExactlyInAnyOrder("BN000001", "BN000003");
+        assertThat(codes(PatientSearchParams.builder().treatmentStatus("paused").build())).containsExactly("BN000003");
+        assertThat(codes(PatientSearchParams.builder().doctorId(firstDoctorId).build()))
+                .containsExactlyInAnyOrder("BN000001", "BN000002");
+        assertThat(codes(PatientSearchParams.builder().doctorId(firstDoctorId).gender("FEMALE").build()))
+                .containsExactly("BN000002");
+    }
+
+    @Test
+    void pageIsSortedAndCountedInTheDatabase() {
+        Page<Patient> page = patientService.searchPatients(PatientSearchParams.builder().doctorId(secondDoctorId).build(),
+                PageRequest.of(1, 3, Sort.by("lastName")));
+
+        assertThat(page.getTotalElements()).isEqualTo(EXTRA_PATIENTS + 1);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(Patient::getLastName).containsExactly("Duc2", "Duc3", "Duc4");
+    }
+
+    @Test
+    void requestedSortIsAppliedInTheQuery() {
+        // Trang /admin/patients sắp theo updatedAt: bệnh nhân vừa sửa phải lên đầu
+        inTransaction(entityManagerFactory, entityManager -> entityManager.createQuery(
+                        "UPDATE Patient p SET p.updatedAt = :updatedAt WHERE p.patientCode = :code")
+                .setParameter("updatedAt", LocalDateTime.now().plusDays(1))
+                .setParameter("code", "BN000003")
+                .executeUpdate());
+
+        Page<Patient> page = patientService.searchPatients(PatientSearchParams.builder().build(),
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "updatedAt")));
+        assertThat(page.getContent()).extracting(Patient::getPatientCode).containsExactly("BN000003");
+        assertThat(page.getTotalElements()).isEqualTo(EXTRA_PATIENTS + 3);
+
+        assertThat(patientService.searchPatients(PatientSearchParams.builder().treatmentStatus("ACTIVE").build(),
+                        PageRequest.of(0, 3, Sort.by("dateOfBirth", "patientCode"))).getContent())
+                .extracting(Patient::getPatientCode).containsExactly("BN100000", "BN100001", "BN100002");
+    }
+
+    private List<String> codes(PatientSearchParams params) {
+        return patientService.searchPatients(params, PageRequest.of(0, 20)).getContent().stream()
+                .map(Patient::getPatientCode)
+                .toList();
+    }
+
+    private void persistPatient(EntityManager entityManager, String code, String firstName, String lastName,
+                                Gender gender, LocalDate dateOfBirth, String phone, String treatmentStatus,
+                                Doctor doctor) {
+        User user = new User(code.toLowerCase(), code.toLowerCase() + "@example.com", "secret", UserRole.PATIENT);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        entityManager.persist(user);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(code);
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        patient.setGender(gender);
+        patient.setDateOfBirth(dateOfBirth);
+        patient.setPhone(phone);
+        patient.setTreatmentStatus(treatmentStatus);
+        patient.setDoctor(doctor);
+        entityManager.persist(patient);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, PatientService.class, CodeAllocator.class, CodeSequenceService.class})
+    static class Config {
+    }
+}
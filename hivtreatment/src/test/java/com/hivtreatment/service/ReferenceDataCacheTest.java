@@ -0,0 +1,173 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.dto.ARVProtocolDTO;
+import com.hivtreatment.dto.CacheStatsDTO;
+import com.hivtreatment.dto.MedicationDTO;
+import com.hivtreatment.entity.ARVProtocol;
+import com.hivtreatment.entity.ARVProtocolMedication;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.Medication;
+import com.hivtreatment.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Kiểm tra cache dữ liệu danh mục: đọc lặp lại không chạm database, ghi thì xóa đúng cache sau commit,
+ * và giá trị trong cache là DTO chỉ đọc dùng được ngoài transaction.
+ */
+@SpringJUnitConfig(ReferenceDataCacheTest.Config.class)
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private MedicationService medicationService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private ARVProtocolService arvProtocolService;
+
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Medication tenofovir;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            tenofovir = medication(entityManager, "Tenofovir", "ARV");
+            medication(entityManager, "Cotrimoxazole", "OI");
+            persistDoctor(entityManager, "bs1", "Một", "Truyền nhiễm");
+            persistDoctor(entityManager, "bs2", "Hai", "Da liễu");
+            persistDoctor(entityManager, "bs3", "Ba", "Truyền nhiễm");
+            persistDoctor(entityManager, "bs4", "Bốn", " ");
+        });
+        cacheStatsService.clearReferenceCaches();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "ARVProtocolMedication", "ARVProtocol", "Medication",
+                "DoctorSpecialization", "Doctor", "User");
+    }
+
+    @Test
+    void repeatedReadsAreServedFromImmutableSnapshot() {
+        // Số liệu cộng dồn từ lúc khởi động, nên so phần tăng thêm
+        CacheStatsDTO before = stats(CacheConfig.MEDICATIONS);
+        long specializationHits = stats(CacheConfig.DOCTOR_SPECIALIZATIONS).getHits();
+        List<MedicationDTO> first = medicationService.getActiveMedications();
+        // Thêm thẳng vào database: cache không biết nên vẫn trả snapshot cũ
+        inTransaction(entityManagerFactory, entityManager -> medication(entityManager, "Dolutegravir", "ARV"));
+        List<MedicationDTO> second = medicationService.getAllActiveMedications();
+
+        assertThat(second).isSameAs(first).hasSize(2);
+        assertThatThrownBy(() -> second.add(second.get(0))).isInstanceOf(UnsupportedOperationException.class);
+        CacheStatsDTO stats = stats(CacheConfig.MEDICATIONS);
+        assertThat(stats.getMisses() - before.getMisses()).isEqualTo(1);
+        assertThat(stats.getHits() - before.getHits()).isEqualTo(1);
+
+        assertThat(doctorService.getAllSpecializations()).containsExactly("Da liễu", "Truyền nhiễm");
+        assertThat(doctorService.getAllSpecializations()).hasSize(2);
+        assertThat(stats(CacheConfig.DOCTOR_SPECIALIZATIONS).getHits() - specializationHits).isEqualTo(1);
+    }
+
+    @Test
+    void writesEvictOnlyTheirOwnCacheAfterCommit() {
+        medicationService.getActiveMedications();
+        medicationService.getMedicationsByCategory("ARV");
+        doctorService.getAllSpecializations();
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            medicationService.toggleMedicationStatus(tenofovir.getId());
+            // Chưa commit: cache còn nguyên, request khác không thấy dữ liệu chưa commit
+            assertThat(stats(CacheConfig.MEDICATIONS).getSize()).isEqualTo(2);
+        });
+
+        assertThat(stats(CacheConfig.MEDICATIONS).getSize()).isZero();
+        assertThat(stats(CacheConfig.DOCTOR_SPECIALIZATIONS).getSize()).isEqualTo(1);
+        assertThat(medicationService.getActiveMedications()).extracting(MedicationDTO::getName)
+                .containsExactly("Cotrimoxazole");
+
+        // Rollback thì không xóa cache
+        medicationService.getMedicationsByCategory("ARV");
+        transaction.executeWithoutResult(status -> {
+            medicationService.deleteMedication(tenofovir.getId());
+            status.setRollbackOnly();
+        });
+        assertThat(stats(CacheConfig.MEDICATIONS).getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void cachedProtocolsCarryTheirMedicationsOutsideTheTransaction() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            ARVProtocol protocol = new ARVProtocol();
+            protocol.setName("TDF + 3TC + DTG");
+            protocol.setProtocolCode("TDF+3TC+DTG");
+            protocol.setTargetGroup("ADULT");
+            entityManager.persist(protocol);
+
+            ARVProtocolMedication line = new ARVProtocolMedication();
+            line.setProtocol(protocol);
+            line.setMedication(entityManager.find(Medication.class, tenofovir.getId()));
+            line.setDosage("300mg");
+            line.setFrequency("1 lần/ngày");
+            entityManager.persist(line);
+        });
+
+        // Gọi ngoài transaction: danh sách thuốc (LAZY trên entity) đã được chép vào DTO
+        List<ARVProtocolDTO> protocols = arvProtocolService.getProtocolsByTargetGroup("ADULT");
+        assertThat(protocols).singleElement().satisfies(protocol -> {
+            assertThat(protocol.getProtocolCode()).isEqualTo("TDF+3TC+DTG");
+            assertThat(protocol.getMedications()).extracting(ARVProtocolDTO.MedicationLine::getMedicationName)
+                    .containsExactly("Tenofovir");
+        });
+        assertThat(arvProtocolService.getProtocolsByTargetGroup("ADULT")).isSameAs(protocols);
+    }
+
+    private CacheStatsDTO stats(String cacheName) {
+        return cacheStatsService.getReferenceCacheStats().stream()
+                .filter(stats -> stats.getCacheName().equals(cacheName))
+                .findFirst().orElseThrow();
+    }
+
+    private Medication medication(EntityManager entityManager, String name, String category) {
+        Medication medication = new Medication();
+        medication.setName(name);
+        medication.setCategory(category);
+        medication.setIsActive(true);
+        entityManager.persist(medication);
+        return medication;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, CacheStatsService.class, MedicationService.class, DoctorService.class,
+            ARVProtocolService.class, CodeAllocator.class, CodeSequenceService.class})
+    static class Config {
+    }
+}
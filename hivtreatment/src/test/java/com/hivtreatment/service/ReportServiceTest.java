@@ -0,0 +1,109 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra báo cáo tháng/năm tính bằng truy vấn GROUP BY trên dữ liệu của ClinicActivityFixture.
+ */
+@SpringJUnitConfig(ReportServiceTest.Config.class)
+class ReportServiceTest {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, ClinicActivityFixture::persist);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "DailyStats", "LabResult", "PrescriptionMedication", "Prescription",
+                "Medication", "Appointment", "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void monthlyReportCountsByStatusAndTable() {
+        Map<String, Object> report = reportService.getMonthlyReport(2024, 3);
+
+        assertThat(report).containsEntry("period", "3/2024")
+                .containsEntry("newPatients", 2)
+                .containsEntry("totalAppointments", 5)
+                .containsEntry("confirmedAppointments", 1)
+                .containsEntry("cancelledAppointments", 1)
+                .containsEntry("completedAppointments", 2)
+                .containsEntry("prescriptionsIssued", 2)
+                .containsEntry("labTestsPerformed", 3);
+        assertThat(report.get("mostPrescribedMedications")).isEqualTo(List.of("TDF/3TC/DTG", "AZT/3TC/NVP"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void annualReportBreaksDownByMonth() {
+        Map<String, Object> report = reportService.getAnnualReport(2024);
+
+        assertThat(report).containsEntry("year", 2024)
+                .containsEntry("totalPatients", 3)
+                .containsEntry("newPatients", 3)
+                .containsEntry("totalAppointments", 6)
+                .containsEntry("totalPrescriptions", 3)
+                .containsEntry("totalLabTests", 4);
+        assertThat((Map<String, Integer>) report.get("monthlyNewPatients"))
+                .containsEntry("month_3", 2).containsEntry("month_7", 1).containsEntry("month_1", 0);
+        assertThat((Map<Integer, Integer>) report.get("appointmentsPerMonth"))
+                .hasSize(12).containsEntry(3, 5).containsEntry(7, 1).containsEntry(1, 0);
+        assertThat((Map<Integer, Integer>) report.get("labTestsPerMonth")).containsEntry(3, 3).containsEntry(12, 1);
+    }
+
+    @Test
+    void reportsAggregateInSqlWithoutLoadingEntities() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            reportService.getAnnualReport(2024);
+            // Cả năm: một truy vấn GROUP BY cho mỗi bảng và một COUNT tổng bệnh nhân, không lặp 12 tháng
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+
+            reportService.getMonthlyReport(2024, 3);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, ReportService.class, DailyStatsService.class,
+            UserService.class, PatientService.class, DoctorService.class, AppointmentService.class,
+            PrescriptionService.class, LabResultService.class, CodeAllocator.class, CodeSequenceService.class})
+    static class Config {
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+}
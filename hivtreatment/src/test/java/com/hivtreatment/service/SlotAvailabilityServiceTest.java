@@ -0,0 +1,227 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.AvailableSlotDTO;
+import com.hivtreatment.dto.SlotSummaryDTO;
+import com.hivtreatment.entity.*;
+import com.hivtreatment.enums.AppointmentStatus;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Kiểm tra chỉ mục khung giờ trống: tính từ DoctorSchedule trừ lịch hẹn đã đặt,
+ * và cập nhật từng bit khi đặt/hủy/đổi lịch mà không nạp lại từ database.
+ */
+@SpringJUnitConfig(SlotAvailabilityServiceTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.availability.slot-minutes=30",
+        "hiv.availability.default-hours=08:00-17:00",
+        "hiv.availability.default-days=MONDAY"
+})
+class SlotAvailabilityServiceTest {
+
+    private static final String INFECTIOUS = "Truyền nhiễm";
+
+    @Autowired
+    private SlotAvailabilityService slotAvailabilityService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private final LocalDateTime now = monday.atTime(7, 0);
+
+    private Doctor first;
+    private Doctor second;
+    private Doctor dermatologist;
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            first = persistDoctor(entityManager, "bs1", "Một", INFECTIOUS);
+            second = persistDoctor(entityManager, "bs2", "Hai", INFECTIOUS);
+            // Không có DoctorSchedule: chỉ có khung vì test bật giờ mặc định 08:00-17:00 thứ Hai
+            dermatologist = persistDoctor(entityManager, "bs3", "Ba", "Da liễu");
+            persistDoctor(entityManager, "bs4", "Bốn", INFECTIOUS).setIsAvailable(false);
+
+            persistSchedule(entityManager, first, LocalTime.of(8, 0), LocalTime.of(10, 0));
+            persistSchedule(entityManager, second, LocalTime.of(9, 0), LocalTime.of(11, 0));
+
+            patient = new Patient();
+            patient.setUser(persistUser(entityManager, "patient", UserRole.PATIENT));
+            patient.setPatientCode("BN1");
+            patient.setFirstName("Bệnh nhân");
+            patient.setLastName("Một");
+            entityManager.persist(patient);
+
+            persistAppointment(entityManager, first, LocalTime.of(8, 0), AppointmentStatus.SCHEDULED);
+            persistAppointment(entityManager, first, LocalTime.of(8, 30), AppointmentStatus.CANCELLED);
+        });
+        slotAvailabilityService.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "Appointment", "DoctorSchedule", "Patient", "DoctorSpecialization",
+                "Doctor", "User");
+    }
+
+    @Test
+    void freeSlotsAreScheduleMinusActiveBookings() {
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now))
+                .containsExactly(LocalTime.of(8, 30), LocalTime.of(9, 0), LocalTime.of(9, 30));
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday.plusDays(1), now)).isEmpty();
+        assertThat(slotAvailabilityService.getFreeSlots(dermatologist.getId(), monday, now)).hasSize(18);
+
+        // Đã qua 9:10 thì chỉ còn 9:30
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, monday.atTime(9, 10)))
+                .containsExactly(LocalTime.of(9, 30));
+        assertThat(slotAvailabilityService.getNextFreeSlot(second.getId(), now)).isEqualTo(monday.atTime(9, 0));
+    }
+
+    @Test
+    void doctorWithoutScheduleHasNoSlotsUnlessDefaultHoursAreSet() {
+        ReflectionTestUtils.setField(slotAvailabilityService, "defaultHours", "");
+        try {
+            slotAvailabilityService.refresh();
+            assertThat(slotAvailabilityService.getFreeSlots(dermatologist.getId(), monday, now)).isEmpty();
+            assertThat(slotAvailabilityService.findNextFreeSlots(null, now, 100))
+                    .extracting(AvailableSlotDTO::getDoctorId).containsOnly(first.getId(), second.getId());
+        } finally {
+            ReflectionTestUtils.setField(slotAvailabilityService, "defaultHours", "08:00-17:00");
+            slotAvailabilityService.refresh();
+        }
+    }
+
+    @Test
+    void nextFreeSlotsAcrossSpecializationAreOrderedByTimeThenDoctor() {
+        List<AvailableSlotDTO> slots = slotAvailabilityService.findNextFreeSlots(" truyền NHIỄM ", now, 5);
+
+        assertThat(slots).extracting(AvailableSlotDTO::getTime, AvailableSlotDTO::getDoctorId).containsExactly(
+                tuple(LocalTime.of(8, 30), first.getId()),
+                tuple(LocalTime.of(9, 0), first.getId()),
+                tuple(LocalTime.of(9, 0), second.getId()),
+                tuple(LocalTime.of(9, 30), first.getId()),
+                tuple(LocalTime.of(9, 30), second.getId()));
+        assertThat(slots).allMatch(slot -> slot.getDate().equals(monday));
+
+        // Bác sĩ không nhận bệnh không xuất hiện
+        assertThat(slotAvailabilityService.findNextFreeSlots(null, now, 100))
+                .extracting(AvailableSlotDTO::getDoctorId).containsOnly(first.getId(), second.getId(), dermatologist.getId());
+    }
+
+    @Test
+    void doctorWithSeveralSpecializationsIsFoundUnderEachOfThem() {
+        Doctor[] pediatrician = new Doctor[1];
+        inTransaction(entityManagerFactory, entityManager -> {
+            pediatrician[0] = persistDoctor(entityManager, "bs5", "Năm", "Nhi khoa,  truyền   NHIỄM");
+            persistSchedule(entityManager, pediatrician[0], LocalTime.of(10, 0), LocalTime.of(11, 0));
+        });
+        slotAvailabilityService.refresh();
+
+        // Giá trị dropdown là từng tên chuyên khoa đơn lẻ (getAllSpecializations)
+        assertThat(slotAvailabilityService.findNextFreeSlots("Nhi khoa", now, 3))
+                .extracting(AvailableSlotDTO::getDate, AvailableSlotDTO::getTime, AvailableSlotDTO::getDoctorId)
+                .containsExactly(
+                        tuple(monday, LocalTime.of(10, 0), pediatrician[0].getId()),
+                        tuple(monday, LocalTime.of(10, 30), pediatrician[0].getId()),
+                        tuple(monday.plusWeeks(1), LocalTime.of(10, 0), pediatrician[0].getId()));
+        assertThat(slotAvailabilityService.findNextFreeSlots(INFECTIOUS, now, 100))
+                .extracting(AvailableSlotDTO::getDoctorId)
+                .containsOnly(first.getId(), second.getId(), pediatrician[0].getId());
+        assertThat(slotAvailabilityService.findNextFreeSlots("Nhi khoa, Truyền nhiễm", now, 5)).isEmpty();
+    }
+
+    @Test
+    void bookingCancelAndRescheduleUpdateIndexIncrementally() {
+        slotAvailabilityService.getFreeSlots(first.getId(), monday, now);
+
+        Appointment booked = appointmentService.createAppointment(
+                new Appointment(patient, first, monday, LocalTime.of(9, 0)));
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now))
+                .containsExactly(LocalTime.of(8, 30), LocalTime.of(9, 30));
+
+        // Hủy thẳng trong database (không qua service): chỉ mục không đọc lại nên vẫn thấy khung 9:00 đã đặt
+        inTransaction(entityManagerFactory, entityManager -> entityManager.createQuery(
+                        "UPDATE Appointment a SET a.status = :status WHERE a.id = :id")
+                .setParameter("status", AppointmentStatus.CANCELLED)
+                .setParameter("id", booked.getId()).executeUpdate());
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now))
+                .doesNotContain(LocalTime.of(9, 0));
+
+        appointmentService.cancelAppointment(booked.getId());
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now))
+                .containsExactly(LocalTime.of(8, 30), LocalTime.of(9, 0), LocalTime.of(9, 30));
+
+        Appointment rebooked = appointmentService.createAppointment(
+                new Appointment(patient, first, monday, LocalTime.of(9, 0)));
+        rebooked.setAppointmentTime(LocalTime.of(9, 30));
+        appointmentService.updateAppointment(rebooked);
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now))
+                .containsExactly(LocalTime.of(8, 30), LocalTime.of(9, 0));
+
+        appointmentService.deleteAppointment(rebooked.getId());
+        assertThat(slotAvailabilityService.getFreeSlots(first.getId(), monday, now)).hasSize(3);
+    }
+
+    @Test
+    void daySummaryCountsScheduledAndFreeDoctorsPerSlot() {
+        List<SlotSummaryDTO> summary = slotAvailabilityService.getDaySummary(monday);
+
+        assertThat(summary).hasSize(18);
+        SlotSummaryDTO eight = summary.get(0);
+        assertThat(eight.getTime()).isEqualTo(LocalTime.of(8, 0));
+        assertThat(eight.getScheduledDoctors()).isEqualTo(2);
+        assertThat(eight.getFreeDoctors()).isEqualTo(1);
+        SlotSummaryDTO nine = summary.get(2);
+        assertThat(nine.getScheduledDoctors()).isEqualTo(3);
+        assertThat(nine.getFreeDoctors()).isEqualTo(3);
+    }
+
+    private void persistSchedule(EntityManager entityManager, Doctor doctor, LocalTime start, LocalTime end) {
+        DoctorSchedule schedule = new DoctorSchedule();
+        schedule.setDoctor(doctor);
+        schedule.setDayOfWeek(DayOfWeek.MONDAY);
+        schedule.setStartTime(start);
+        schedule.setEndTime(end);
+        entityManager.persist(schedule);
+    }
+
+    private void persistAppointment(EntityManager entityManager, Doctor doctor, LocalTime time, AppointmentStatus status) {
+        Appointment appointment = new Appointment(patient, doctor, monday, time);
+        appointment.setStatus(status);
+        entityManager.persist(appointment);
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, AppointmentService.class, SlotAvailabilityService.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,218 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.dto.CursorPage;
+import com.hivtreatment.entity.Doctor;
+import com.hivtreatment.entity.HIVPatientProfile;
+import com.hivtreatment.entity.LabResult;
+import com.hivtreatment.entity.Notification;
+import com.hivtreatment.entity.Patient;
+import com.hivtreatment.entity.TestWorklistItem;
+import com.hivtreatment.entity.User;
+import com.hivtreatment.enums.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static com.hivtreatment.service.JpaTestSupport.persistDoctor;
+import static com.hivtreatment.service.JpaTestSupport.persistUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Kiểm tra hàng đợi xét nghiệm quá hạn: job hằng đêm dựng lại theo lô (kể cả bệnh nhân chưa từng xét nghiệm),
+ * thứ tự quá hạn/nguy cơ, cập nhật ngay khi có kết quả mới, nhắc bệnh nhân và thông báo tổng hợp cho bác sĩ.
+ */
+@SpringJUnitConfig(TestWorklistServiceTest.Config.class)
+@TestPropertySource(properties = "hiv.worklist.batch-size=2")
+class TestWorklistServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private TestWorklistService testWorklistService;
+
+    @Autowired
+    private TestWorklistJob testWorklistJob;
+
+    @Autowired
+    private LabResultService labResultService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Doctor doctor;
+    private Patient an;
+    private Patient binh;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            doctor = persistDoctor(entityManager, "bs1", "Trần", null);
+
+            // Tải lượng virus cao đã quá hạn, CD4 thấp còn trong hạn
+            an = persistPatient(entityManager, "bn1", doctor, TODAY.minusYears(3)).getPatient();
+            entityManager.persist(labResult(an, "VIRAL_LOAD", TODAY.minusMonths(12), 5000));
+            entityManager.persist(labResult(an, "CD4", TODAY.minusMonths(2), 150));
+
+            // Chưa từng xét nghiệm, kháng thuốc: đến hạn từ ngày bắt đầu ARV
+            HIVPatientProfile binhProfile = persistPatient(entityManager, "bn2", doctor, TODAY.minusDays(30));
+            binhProfile.setHasDrugResistance(true);
+            binh = binhProfile.getPatient();
+
+            // Chưa phân công bác sĩ, ngày xét nghiệm chỉ có trong hồ sơ
+            HIVPatientProfile chiProfile = persistPatient(entityManager, "bn3", null, TODAY.minusYears(2));
+            chiProfile.setLastViralLoadTestDate(TODAY.minusMonths(12));
+            chiProfile.setLastCD4TestDate(TODAY.minusMonths(1));
+
+            // Sắp bắt đầu ARV: chưa đến hạn
+            persistPatient(entityManager, "bn4", doctor, TODAY.plusDays(10));
+        });
+        // Kết quả nhập trước khi có hàng đợi: tạo latest_lab_results
+        labResultService.backfillLatestLabResults(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        deleteAll(entityManagerFactory, "EmailOutbox", "Notification", "JobRun", "JobLock", "TestWorklistItem",
+                "LatestLabResult", "LabResult", "HIVPatientProfile", "Patient", "Doctor", "User");
+    }
+
+    @Test
+    void nightlyRunMaterializesOverdueTestsInDueDateAndRiskOrder() {
+        assertThat(testWorklistJob.run(TODAY)).isEqualTo(4);
+        // Cùng ngày: node khác (hoặc lần gọi lại) không chạy lại
+        assertThat(testWorklistJob.run(TODAY)).isZero();
+
+        assertThat(worklist(doctor.getId(), false))
+                .extracting(item -> item.getPatient().getPatientCode(), TestWorklistItem::getTestType,
+                        TestWorklistItem::getLastTestDate, TestWorklistItem::getRiskScore)
+                .containsExactly(
+                        tuple("BN1", "VIRAL_LOAD", TODAY.minusMonths(12), 6),
+                        tuple("BN2", "CD4", null, 5),
+                        tuple("BN2", "VIRAL_LOAD", null, 5));
+        LocalDate chiDueDate = TODAY.minusMonths(12).plusMonths(6);
+        assertThat(worklist(null, true))
+                .extracting(item -> item.getPatient().getPatientCode(), TestWorklistItem::getDueDate,
+                        item -> item.getDaysOverdue(TODAY))
+                .containsExactly(tuple("BN3", chiDueDate, ChronoUnit.DAYS.between(chiDueDate, TODAY)));
+        // Tất cả bác sĩ: cùng hạn thì nguy cơ cao trước
+        assertThat(worklist(null, false))
+                .extracting(item -> item.getPatient().getPatientCode())
+                .containsExactly("BN1", "BN3", "BN2", "BN2");
+        assertThat(testWorklistService.countForDoctor(doctor.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void remindsEachPatientOnceAndSendsOneDigestPerDoctor() {
+        testWorklistJob.run(TODAY);
+
+        assertThat(notifications("LAB_TEST_OVERDUE"))
+                .extracting(notification -> notification.getUser().getUsername(), Notification::getMessage)
+                .containsExactlyInAnyOrder(
+                        tuple("bn1", "Bạn đã đến hạn xét nghiệm: Tải lượng virus. Vui lòng đặt lịch với bác sĩ."),
+                        tuple("bn2", "Bạn đã đến hạn xét nghiệm: CD4, Tải lượng virus. Vui lòng đặt lịch với bác sĩ."),
+                        tuple("bn3", "Bạn đã đến hạn xét nghiệm: Tải lượng virus. Vui lòng đặt lịch với bác sĩ."));
+        assertThat(notifications("LAB_TEST_WORKLIST"))
+                .extracting(notification -> notification.getUser().getUsername(), Notification::getMessage)
+                .containsExactly(tuple("bs1",
+                        "Có 3 xét nghiệm CD4/tải lượng virus quá hạn trong danh sách của bạn (3 mới)."));
+
+        // Đêm sau: chưa đến kỳ nhắc lại bệnh nhân, bác sĩ vẫn nhận tổng hợp nhưng không có dòng mới
+        testWorklistJob.run(TODAY.plusDays(1));
+        assertThat(notifications("LAB_TEST_OVERDUE")).hasSize(3);
+        assertThat(notifications("LAB_TEST_WORKLIST")).extracting(Notification::getMessage)
+                .contains("Có 3 xét nghiệm CD4/tải lượng virus quá hạn trong danh sách của bạn.");
+    }
+
+    @Test
+    void newResultsUpdateTheWorklistImmediately() {
+        testWorklistJob.run(TODAY);
+
+        // Tải lượng virus đã ức chế: dòng quá hạn biến mất
+        LabResult viralLoad = labResultService.createLabResult(labResult(an, "VIRAL_LOAD", TODAY, 40));
+        // CD4 của bệnh nhân chưa từng xét nghiệm: chỉ còn dòng tải lượng virus
+        labResultService.createLabResult(labResult(binh, "CD4", TODAY, 500));
+        assertThat(worklist(doctor.getId(), false))
+                .extracting(item -> item.getPatient().getPatientCode(), TestWorklistItem::getTestType)
+                .containsExactly(tuple("BN2", "VIRAL_LOAD"));
+
+        // Xóa kết quả nhập nhầm: quay lại kết quả cũ đã quá hạn
+        labResultService.deleteLabResult(viralLoad.getId());
+        assertThat(worklist(doctor.getId(), false))
+                .extracting(item -> item.getPatient().getPatientCode(), TestWorklistItem::getRiskScore)
+                .containsExactly(tuple("BN1", 6), tuple("BN2", 5));
+    }
+
+    // Đọc hết hàng đợi qua các trang 2 dòng
+    private List<TestWorklistItem> worklist(Long doctorId, boolean unassignedOnly) {
+        List<TestWorklistItem> items = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPage<TestWorklistItem> page = testWorklistService.getWorklist(
+                    doctorId, unassignedOnly, null, after, null, 2, false);
+            items.addAll(page.getContent());
+            after = page.getNextCursor();
+        } while (after != null);
+        return items;
+    }
+
+    private List<Notification> notifications(String type) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("SELECT n FROM Notification n JOIN FETCH n.user WHERE n.type = :type " +
+                    "ORDER BY n.id", Notification.class).setParameter("type", type).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private HIVPatientProfile persistPatient(EntityManager entityManager, String username, Doctor assignedDoctor,
+                                             LocalDate artStartDate) {
+        User user = persistUser(entityManager, username, UserRole.PATIENT);
+
+        Patient patient = new Patient();
+        patient.setUser(user);
+        patient.setPatientCode(username.toUpperCase());
+        patient.setFirstName("Bệnh nhân");
+        patient.setLastName(username);
+        patient.setDoctor(assignedDoctor);
+        entityManager.persist(patient);
+
+        HIVPatientProfile profile = new HIVPatientProfile();
+        profile.setPatient(patient);
+        profile.setArtStartDate(artStartDate);
+        entityManager.persist(profile);
+        return profile;
+    }
+
+    private LabResult labResult(Patient patient, String testType, LocalDate testDate, int value) {
+        LabResult labResult = new LabResult();
+        labResult.setPatient(patient);
+        labResult.setTestType(testType);
+        labResult.setTestDate(testDate);
+        labResult.setResultValue(BigDecimal.valueOf(value));
+        return labResult;
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, TestWorklistService.class, TestWorklistJob.class, LabResultService.class,
+            NotificationService.class, UnreadNotificationCounter.class, EmailOutboxService.class,
+            JobRunService.class, JobLockService.class, ClusterJobRunner.class})
+    static class Config {
+    }
+}
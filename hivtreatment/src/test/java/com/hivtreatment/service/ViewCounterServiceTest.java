@@ -0,0 +1,167 @@
+package com.hivtreatment.service;
+
+import com.hivtreatment.config.CacheConfig;
+import com.hivtreatment.entity.BlogPost;
+import com.hivtreatment.entity.EducationalResource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.hivtreatment.service.JpaTestSupport.deleteAll;
+import static com.hivtreatment.service.JpaTestSupport.inTransaction;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kiểm tra bộ đếm lượt xem ghi trễ: không mất lượt khi xem đồng thời, ghi bằng UPDATE cộng dồn
+ * (không đổi updated_at) và xếp hạng tài liệu thịnh hành theo cửa sổ thời gian.
+ */
+@SpringJUnitConfig(ViewCounterServiceTest.Config.class)
+@TestPropertySource(properties = {
+        "hiv.counters.trending.window-hours=2",
+        "hiv.counters.trending.bucket-minutes=60"
+})
+class ViewCounterServiceTest {
+
+    private static final int THREADS = 32;
+    private static final int VIEWS_PER_THREAD = 500;
+
+    @Autowired
+    private ViewCounterService viewCounterService;
+
+    @Autowired
+    private BlogService blogService;
+
+    @Autowired
+    private EducationalResourceService educationalResourceService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BlogPost post;
+    private EducationalResource popular;
+    private EducationalResource quiet;
+
+    @BeforeEach
+    void setUp() {
+        inTransaction(entityManagerFactory, entityManager -> {
+            post = new BlogPost();
+            post.setSlug("tuan-thu-dieu-tri");
+            post.setTitle("Tuân thủ điều trị");
+            post.setContent("Nội dung dài");
+            entityManager.persist(post);
+            popular = resource(entityManager, "Dự phòng PrEP");
+            quiet = resource(entityManager, "Dinh dưỡng");
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        viewCounterService.flush();
+        deleteAll(entityManagerFactory, "BlogPost", "EducationalResource");
+    }
+
+    @Test
+    void concurrentViewsAreBufferedAndFlushedWithoutLosingIncrements() throws Exception {
+        LocalDateTime updatedAt = find(BlogPost.class, post.getId()).getUpdatedAt();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < VIEWS_PER_THREAD; i++) {
+                        blogService.incrementViewCount(post.getId());
+                        educationalResourceService.incrementViewCount(popular.getId());
+                        // Flush chen giữa các lượt xem đang cộng
+                        if (i % 100 == 0) viewCounterService.flush();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        educationalResourceService.incrementDownloadCount(popular.getId());
+
+        // Chưa flush hết thì database chưa thấy đủ; flush xong thì khớp chính xác
+        viewCounterService.flush();
+        assertThat(viewCounterService.getPendingCount()).isZero();
+        BlogPost reloaded = find(BlogPost.class, post.getId());
+        assertThat(reloaded.getViewCount()).isEqualTo((long) THREADS * VIEWS_PER_THREAD);
+        assertThat(reloaded.getUpdatedAt()).isEqualTo(updatedAt);
+        EducationalResource resource = find(EducationalResource.class, popular.getId());
+        assertThat(resource.getViewCount()).isEqualTo((long) THREADS * VIEWS_PER_THREAD);
+        assertThat(resource.getDownloadCount()).isEqualTo(1L);
+        assertThat(viewCounterService.flush()).isZero();
+    }
+
+    @Test
+    void trendingRanksRecentViewsAndDownloadsAndForgetsOldBuckets() {
+        for (int i = 0; i < 3; i++) {
+            educationalResourceService.incrementViewCount(quiet.getId());
+        }
+        educationalResourceService.incrementViewCount(popular.getId());
+        educationalResourceService.incrementDownloadCount(popular.getId());
+        educationalResourceService.incrementDownloadCount(popular.getId());
+        educationalResourceService.incrementDownloadCount(popular.getId());
+        educationalResourceService.incrementDownloadCount(popular.getId());
+        viewCounterService.flush();
+
+        assertThat(educationalResourceService.getTrendingResources(5)).extracting(EducationalResource::getId)
+                .containsExactly(popular.getId(), quiet.getId());
+
+        // Ô giờ cũ trôi khỏi cửa sổ 2 giờ thì không còn được tính (mốc ở tương lai để bỏ qua số liệu test khác)
+        long base = System.currentTimeMillis() + 10 * 3_600_000L;
+        viewCounterService.addTrending(Map.of(popular.getId(), 5L), base);
+        viewCounterService.addTrending(Map.of(quiet.getId(), 10L), base + 3_600_000L);
+        assertThat(viewCounterService.getTrendingResourceIds(5, base + 3_600_000L))
+                .containsExactly(quiet.getId(), popular.getId());
+        assertThat(viewCounterService.getTrendingResourceIds(5, base + 3 * 3_600_000L))
+                .containsExactly(quiet.getId());
+        assertThat(viewCounterService.getTrendingResourceIds(5, base + 5 * 3_600_000L)).isEmpty();
+    }
+
+    private EducationalResource resource(EntityManager entityManager, String title) {
+        EducationalResource resource = new EducationalResource();
+        resource.setTitle(title);
+        entityManager.persist(resource);
+        return resource;
+    }
+
+    private <T> T find(Class<T> type, Long id) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.find(type, id);
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Configuration
+    @Import({JpaTestConfig.class, CacheConfig.class, ViewCounterService.class, FullTextSearchService.class,
+            BlogService.class, EducationalResourceService.class})
+    static class Config {
+    }
+}